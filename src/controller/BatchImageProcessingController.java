@@ -0,0 +1,350 @@
+package controller;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
+import utils.ControllerUtils;
+
+/**
+ * A controller that runs the same script on every image in a directory and saves the results in
+ * another directory. The script is read and planned once, as a compiled script is, and then run
+ * on each image in a model of its own, with as many images processed in parallel as there are
+ * processors and as the memory budget allows.
+ *
+ * <p>Each image is loaded into a layer named {@code image}, which is the current layer when the
+ * script starts, and the visible layers are flattened and saved under the name of the image once
+ * the script quits. The script itself may create, load and save other layers as usual, and must
+ * end with {@code q} like any other script.
+ *
+ * <p>When every image is done, the time each one took and whether it failed, along with the first
+ * error of those that did, are written to {@code batch-summary.csv} in the output directory, and
+ * the totals are written to the Appendable.
+ */
+public class BatchImageProcessingController implements IImageProcessingController {
+
+  // The name of the file the summary is written to in the output directory
+  static final String SUMMARY_FILENAME = "batch-summary.csv";
+  private static final List<String> IMAGE_EXTENSIONS = Arrays.asList("ppm", "png", "jpg", "jpeg");
+
+  private final File script;
+  private final File inputDirectory;
+  private final File outputDirectory;
+  private final Appendable ap;
+  private long memoryBudget;
+  private int parallelism;
+  // the most bytes the undo history of an image may take, if its script undoes or redoes
+  private long historyBudget;
+
+  /**
+   * Constructs a {@code BatchImageProcessingController} object which runs the given script on
+   * every image in the input directory. The images in flight may take up to half of the memory the
+   * JVM may use.
+   *
+   * @param script          the script to run on every image
+   * @param inputDirectory  the directory holding the images
+   * @param outputDirectory the directory to save the results in, which is created if needed
+   * @param ap              where the totals are written
+   * @throws IllegalArgumentException if any of its arguments are null
+   */
+  public BatchImageProcessingController(File script, File inputDirectory, File outputDirectory,
+      Appendable ap) throws IllegalArgumentException {
+    if (script == null || inputDirectory == null || outputDirectory == null || ap == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    this.script = script;
+    this.inputDirectory = inputDirectory;
+    this.outputDirectory = outputDirectory;
+    this.ap = ap;
+    this.memoryBudget = Runtime.getRuntime().maxMemory() / 2;
+    this.parallelism = Runtime.getRuntime().availableProcessors();
+    this.historyBudget = LayerModel.DEFAULT_HISTORY_BUDGET;
+  }
+
+  /**
+   * Sets how many bytes the pixels of the images in flight may take. An image is only started once
+   * the images already in flight leave enough of the budget for it, and an image larger than the
+   * whole budget is processed on its own.
+   *
+   * @param bytes the memory budget of the images in flight, in bytes
+   * @throws IllegalArgumentException if the budget is not positive
+   */
+  public void setMemoryBudget(long bytes) throws IllegalArgumentException {
+    if (bytes <= 0) {
+      throw new IllegalArgumentException("Memory budget must be positive.");
+    }
+    this.memoryBudget = bytes;
+  }
+
+  /**
+   * Sets how many bytes the undo history of each image may take when the script undoes or redoes
+   * commands, which is {@link LayerModel#DEFAULT_HISTORY_BUDGET} unless it is set. A script that
+   * does neither keeps no history whatever the budget.
+   *
+   * @param bytes the most bytes the undo history of each image may take, or 0 to keep no history
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  public void setHistoryBudget(long bytes) throws IllegalArgumentException {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("History budget cannot be negative.");
+    }
+    this.historyBudget = bytes;
+  }
+
+  /**
+   * Sets how many images may be processed at the same time.
+   *
+   * @param parallelism the most images processed at the same time
+   * @throws IllegalArgumentException if the parallelism is not positive
+   */
+  public void setParallelism(int parallelism) throws IllegalArgumentException {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive.");
+    }
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  public void processImage() throws IllegalStateException, IllegalArgumentException {
+    List<ScriptStep> steps = this.readScript();
+    File[] images = this.inputDirectory.listFiles(BatchImageProcessingController::isImage);
+    if (images == null) {
+      throw new IllegalArgumentException("Input directory not found!");
+    }
+    Arrays.sort(images);
+    if (!this.outputDirectory.isDirectory() && !this.outputDirectory.mkdirs()) {
+      throw new IllegalArgumentException("Output directory cannot be created!");
+    }
+
+    // the budget is counted in kilobytes, so that budgets of terabytes still fit in the permits
+    int budget = (int) Math.min(Integer.MAX_VALUE, Math.max(1, this.memoryBudget >> 10));
+    Semaphore memory = new Semaphore(budget);
+    ExecutorService executor = Executors.newWorkStealingPool(this.parallelism);
+    List<Future<Result>> results = new ArrayList<>();
+    long start = System.nanoTime();
+    try {
+      for (File image : images) {
+        int kilobytes = (int) Math.min(budget, Math.max(1, estimateBytes(image) >> 10));
+        memory.acquireUninterruptibly(kilobytes);
+        try {
+          results.add(executor.submit(() -> {
+            try {
+              return this.process(steps, image);
+            } finally {
+              memory.release(kilobytes);
+            }
+          }));
+        } catch (RuntimeException e) {
+          memory.release(kilobytes);
+          throw e;
+        }
+      }
+      this.writeSummary(images, results, System.nanoTime() - start);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Reads the script once for every image.
+   *
+   * @return the steps of the script
+   * @throws IllegalArgumentException if the script is not found
+   * @throws IllegalStateException    if the script does not quit
+   */
+  private List<ScriptStep> readScript() throws IllegalArgumentException, IllegalStateException {
+    List<ScriptStep> steps;
+    try (FileReader reader = new FileReader(this.script)) {
+      steps = ScriptCompiler.parse(reader, ControllerUtils.getKnownCommands());
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("File not found!");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Script cannot be read!");
+    }
+    ScriptStep last = steps.isEmpty() ? null : steps.get(steps.size() - 1);
+    if (last == null || !(last.is("q") || last.is("quit"))) {
+      throw new IllegalStateException("Readable has failed!");
+    }
+    return steps;
+  }
+
+  /**
+   * Runs the script on the given image in a model of its own and saves the result.
+   *
+   * @param steps the steps of the script
+   * @param image the file of the image
+   * @return how long the image took, and the first error of the script or the image if any
+   */
+  private Result process(List<ScriptStep> steps, File image) {
+    long start = System.nanoTime();
+    StringBuilder log = new StringBuilder();
+    String error;
+    try {
+      // no history is kept, since only undo and redo commands of the script itself could use it
+      ILayerModel model = new LayerModel(ScriptPlan.usesHistory(steps) ? this.historyBudget : 0);
+      model.createImageLayer("image");
+      new LoadSingleCommand(image.getPath()).runCommand(model);
+
+      SimpleIImageProcessingController controller = new SimpleIImageProcessingController(model,
+          new StringReader(""), log);
+      controller.setQuiet(true);
+      controller.processSteps(steps);
+
+      new SaveFlattenedCommand(new File(this.outputDirectory, image.getName()).getPath())
+          .runCommand(model);
+      error = firstError(log);
+    } catch (RuntimeException e) {
+      error = e.getMessage() == null ? e.toString() : e.getMessage();
+    }
+    return new Result(System.nanoTime() - start, error);
+  }
+
+  /**
+   * Writes the time and the first error of each image to the summary file, and the totals to the
+   * Appendable.
+   *
+   * @param images  the images, in order
+   * @param results the results of the images, in the same order
+   * @param elapsed how long the whole batch took, in nanoseconds
+   * @throws IllegalStateException if the summary or the Appendable cannot be written to
+   */
+  private void writeSummary(File[] images, List<Future<Result>> results, long elapsed)
+      throws IllegalStateException {
+    File summary = new File(this.outputDirectory, SUMMARY_FILENAME);
+    int failed = 0;
+    try (PrintWriter out = new PrintWriter(summary, "UTF-8")) {
+      out.println("file,status,milliseconds,error");
+      for (int i = 0; i < images.length; i++) {
+        Result result = getResult(results.get(i));
+        if (result.error != null) {
+          failed++;
+        }
+        out.printf(Locale.ROOT, "%s,%s,%.1f,%s%n", csv(images[i].getName()),
+            result.error == null ? "ok" : "failed", result.nanos / 1e6,
+            result.error == null ? "" : csv(result.error));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Summary cannot be written!");
+    }
+
+    try {
+      this.ap.append(String.format(Locale.ROOT,
+          "Processed %d images in %.1f ms: %d succeeded, %d failed. Summary written to %s\n",
+          images.length, elapsed / 1e6, images.length - failed, failed, summary.getPath()));
+    } catch (IOException e) {
+      throw new IllegalStateException("Writing to the Appendable object used by it fails");
+    }
+  }
+
+  /**
+   * Waits for the given result.
+   *
+   * @param result the result of an image
+   * @return the result once the image is done
+   */
+  private static Result getResult(Future<Result> result) {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("The batch was interrupted!");
+    } catch (ExecutionException e) {
+      return new Result(0, String.valueOf(e.getCause()));
+    }
+  }
+
+  /**
+   * Estimates how many bytes the given image takes while a script runs on it, from the dimensions
+   * in its header, without reading its pixels.
+   *
+   * @param image the file of the image
+   * @return the estimated number of bytes, or the size of the file if its dimensions cannot be read
+   */
+  private static long estimateBytes(File image) {
+    try {
+      return ImageSizes.estimateBytes(ImageSizes.countPixels(image));
+    } catch (IllegalArgumentException | IOException e) {
+      // the image fails once it is loaded, so it only needs a little of the budget
+      return image.length();
+    }
+  }
+
+  /**
+   * Finds the first error the script wrote, among the other lines a quiet script may write, such as
+   * those of the state and fuse commands.
+   *
+   * @param log what the script wrote in quiet mode
+   * @return the first error, or null if there is none
+   */
+  static String firstError(CharSequence log) {
+    for (String line : log.toString().split("\n")) {
+      if (line.startsWith("Invalid")) {
+        return line;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Determines whether the given file is an image that can be loaded, based on its extension.
+   *
+   * @param file the file
+   * @return true if the file is a PPM, PNG or JPEG image
+   */
+  private static boolean isImage(File file) {
+    return file.isFile() && IMAGE_EXTENSIONS.contains(extensionOf(file));
+  }
+
+  /**
+   * Gets the extension of the given file in lower case.
+   *
+   * @param file the file
+   * @return the extension of the file, or an empty string if it has none
+   */
+  private static String extensionOf(File file) {
+    String name = file.getName();
+    int dot = name.lastIndexOf('.');
+    return dot == -1 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Quotes the given value for a CSV file if it holds a comma, a quote or a line break.
+   *
+   * @param value the value
+   * @return the value as a CSV field
+   */
+  private static String csv(String value) {
+    if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1) {
+      return value;
+    }
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+
+  /**
+   * Represents how long an image took and its first error.
+   */
+  private static final class Result {
+
+    private final long nanos;
+    // null if the image succeeded
+    private final String error;
+
+    private Result(long nanos, String error) {
+      this.nanos = nanos;
+      this.error = error;
+    }
+  }
+}
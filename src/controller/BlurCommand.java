@@ -1,18 +1,24 @@
 package controller;
 
 import model.filter.Blur;
+import model.filter.IFilter;
 import model.layer.ILayerModel;
 
 /**
  * A class representing the command to blur an image.
  */
-public class BlurCommand implements IPhotoCommands {
+public class BlurCommand implements IFilterCommand {
 
   @Override
   public void runCommand(ILayerModel m) {
     if (m == null) {
       throw new IllegalArgumentException("Model is null.");
     }
-    m.filterCurrent(new Blur());
+    m.filterCurrent(this.getFilter());
+  }
+
+  @Override
+  public IFilter getFilter() {
+    return new Blur();
   }
 }
@@ -0,0 +1,174 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A controller that sends its script to a {@link ServerImageProcessingController} running on the
+ * same machine and writes what the script writes as it comes back, so that the script runs in a JVM
+ * that is already warm rather than in this one. The script is sent with the token the server wrote
+ * when it started, and with the directory its relative paths are resolved against, which is the
+ * directory this program runs in unless another one is set.
+ */
+public class ClientImageProcessingController implements IImageProcessingController {
+
+  private final int port;
+  private final Readable rd;
+  private final Appendable ap;
+  private boolean quiet;
+  private boolean compiled;
+  private String session;
+  private boolean stopServer;
+  private Path tokenDirectory;
+  private Path workingDirectory;
+
+  /**
+   * Constructs a {@code ClientImageProcessingController} object which sends the given script to
+   * the server listening on the given port of the loopback address.
+   *
+   * @param port the port of the server
+   * @param rd   the script to send
+   * @param ap   where the output of the script is written
+   * @throws IllegalArgumentException if the port is invalid or any other argument is null
+   */
+  public ClientImageProcessingController(int port, Readable rd, Appendable ap)
+      throws IllegalArgumentException {
+    if (port <= 0 || port > 65535 || rd == null || ap == null) {
+      throw new IllegalArgumentException("Invalid port, or arguments are null.");
+    }
+    this.port = port;
+    this.rd = rd;
+    this.ap = ap;
+    this.tokenDirectory = ServerImageProcessingController.DEFAULT_TOKEN_DIRECTORY;
+    this.workingDirectory = Paths.get("");
+  }
+
+  /**
+   * Sets the directory the token of the server is read from, which must be the directory the
+   * server was given.
+   *
+   * @param tokenDirectory the directory the server wrote its token to
+   * @throws IllegalArgumentException if the directory is null
+   */
+  public void setTokenDirectory(Path tokenDirectory) throws IllegalArgumentException {
+    if (tokenDirectory == null) {
+      throw new IllegalArgumentException("Directory cannot be null.");
+    }
+    this.tokenDirectory = tokenDirectory;
+  }
+
+  /**
+   * Sets the directory the server resolves the relative paths of the script against, which is
+   * otherwise the directory this program runs in.
+   *
+   * @param workingDirectory the directory relative paths are resolved against
+   * @throws IllegalArgumentException if the directory is null
+   */
+  public void setWorkingDirectory(Path workingDirectory) throws IllegalArgumentException {
+    if (workingDirectory == null) {
+      throw new IllegalArgumentException("Directory cannot be null.");
+    }
+    this.workingDirectory = workingDirectory;
+  }
+
+  /**
+   * Sets whether the server only writes the state of the layers when the script asks for it, as
+   * {@link SimpleIImageProcessingController#setQuiet(boolean)} does.
+   *
+   * @param quiet whether the state of the layers is only written on demand
+   */
+  public void setQuiet(boolean quiet) {
+    this.quiet = quiet;
+  }
+
+  /**
+   * Sets whether the server plans the whole script before running it, as
+   * {@link SimpleIImageProcessingController#setCompiled(boolean)} does.
+   *
+   * @param compiled whether the script is planned before it is run
+   */
+  public void setCompiled(boolean compiled) {
+    this.compiled = compiled;
+  }
+
+  /**
+   * Sets the session the script runs in. The scripts of a session run on the same layers, one
+   * after the other, so that a script carries on from where the last one left them.
+   *
+   * @param session the name of the session, or null to run the script on layers of its own
+   * @throws IllegalArgumentException if the name is empty or holds whitespace
+   */
+  public void setSession(String session) throws IllegalArgumentException {
+    if (session != null && (session.isEmpty() || !session.matches("\\S+"))) {
+      throw new IllegalArgumentException("Session name cannot be empty or hold whitespace.");
+    }
+    this.session = session;
+  }
+
+  /**
+   * Sets whether the server stops once the script has run.
+   *
+   * @param stopServer whether the server is stopped after the script
+   */
+  public void setStopServer(boolean stopServer) {
+    this.stopServer = stopServer;
+  }
+
+  @Override
+  public void processImage() throws IllegalStateException {
+    String token;
+    try {
+      token = new String(Files.readAllBytes(ServerImageProcessingController.getTokenFile(
+          this.tokenDirectory, this.port)), StandardCharsets.US_ASCII).trim();
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot read the token of the server on port " + this.port
+          + "!");
+    }
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), this.port)) {
+      Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+      StringBuilder header = new StringBuilder("-token ").append(token);
+      header.append(" -dir ").append(URLEncoder.encode(
+          this.workingDirectory.toAbsolutePath().toString(), StandardCharsets.UTF_8));
+      if (this.quiet) {
+        header.append(" -quiet");
+      }
+      if (this.compiled) {
+        header.append(" -compile");
+      }
+      if (this.session != null) {
+        header.append(" -session ").append(this.session);
+      }
+      if (this.stopServer) {
+        header.append(" -stop");
+      }
+      out.write(header.toString().trim() + "\n");
+      CharBuffer buffer = CharBuffer.allocate(8192);
+      while (this.rd.read(buffer) != -1) {
+        buffer.flip();
+        out.append(buffer);
+        buffer.clear();
+      }
+      out.flush();
+      socket.shutdownOutput();
+
+      Reader in = new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8);
+      char[] chars = new char[8192];
+      for (int n = in.read(chars); n != -1; n = in.read(chars)) {
+        this.ap.append(CharBuffer.wrap(chars, 0, n));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot reach the server on port " + this.port + "!");
+    }
+  }
+}
@@ -55,7 +55,7 @@ public class ColorTransformOnImageCommand implements IPhotoCommands {
    * @return the correct image based on this filename, returns null if no image type associated
    */
   private IOManager determineImageManager() throws IllegalArgumentException {
-    int endFilename = imageFilename.indexOf(".");
+    int endFilename = imageFilename.lastIndexOf(".");
 
     switch (imageFilename.substring(endFilename + 1)) {
       case "ppm":
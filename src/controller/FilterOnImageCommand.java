@@ -55,7 +55,7 @@ public class FilterOnImageCommand implements IPhotoCommands {
    * @return the correct image based on this filename return null if no type associated
    */
   private IOManager determineImageManager() throws IllegalArgumentException {
-    int endFilename = imageFilename.indexOf(".");
+    int endFilename = imageFilename.lastIndexOf(".");
 
     switch (imageFilename.substring(endFilename + 1)) {
       case "ppm":
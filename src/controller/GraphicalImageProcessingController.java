@@ -6,6 +6,8 @@ import java.util.Map;
 import java.util.Scanner;
 import java.util.function.Function;
 import model.layer.ILayerModel;
+import model.mosaic.JitteredGridSeedStrategy;
+import model.mosaic.RandomSeedStrategy;
 import utils.AdditionalControllerUtils;
 import view.IGUIView;
 import view.IViewListener;
@@ -191,7 +193,19 @@ public class GraphicalImageProcessingController implements IImageProcessingContr
   @Override
   public void handleSaveAllEvent(String desiredDir) {
     try {
-      new SaveAllCommand(desiredDir).runCommand(model);
+      // saving many layers can take a while, so it is finished in the background and the user is
+      // told once it is done, since the save may still be running after the window is updated
+      new SaveAllCommand(desiredDir).runInBackground(model, new ISaveAllListener() {
+        @Override
+        public void saveAllCompleted(String directory) {
+          view.renderMessage("Saved all layers to " + directory);
+        }
+
+        @Override
+        public void saveAllFailed(String directory, String message) {
+          view.renderMessage("Invalid Command: " + message);
+        }
+      });
     } catch (IllegalArgumentException e) {
       this.view.renderMessage("Invalid Command: " + e.getMessage());
     }
@@ -216,6 +230,24 @@ public class GraphicalImageProcessingController implements IImageProcessingContr
     }
   }
 
+  @Override
+  public void handleUndoEvent() {
+    try {
+      new UndoCommand().runCommand(model);
+    } catch (IllegalArgumentException e) {
+      this.view.renderMessage("Invalid Command: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void handleRedoEvent() {
+    try {
+      new RedoCommand().runCommand(model);
+    } catch (IllegalArgumentException e) {
+      this.view.renderMessage("Invalid Command: " + e.getMessage());
+    }
+  }
+
   @Override
   public void handleDownscaleEvent(int width, int height) {
     try {
@@ -226,9 +258,10 @@ public class GraphicalImageProcessingController implements IImageProcessingContr
   }
 
   @Override
-  public void handleMosaicEvent(int numSeeds) {
+  public void handleMosaicEvent(int numSeeds, boolean jittered) {
     try {
-      new MosaicCommand(numSeeds).runCommand(model);
+      new MosaicCommand(numSeeds, null, jittered ? new JitteredGridSeedStrategy()
+          : new RandomSeedStrategy()).runCommand(model);
     } catch (IllegalArgumentException e) {
       this.view.renderMessage("Invalid Command: " + e.getMessage());
     }
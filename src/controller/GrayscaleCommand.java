@@ -1,18 +1,24 @@
 package controller;
 
 import model.color.Grayscale;
+import model.color.IColorTransformation;
 import model.layer.ILayerModel;
 
 /**
  * A class representing the command to make an image with a grayscale filter.
  */
-public class GrayscaleCommand implements IPhotoCommands {
+public class GrayscaleCommand implements IColorTransformCommand {
 
   @Override
   public void runCommand(ILayerModel m) {
     if (m == null) {
       throw new IllegalArgumentException("Model is null.");
     }
-    m.colorTransformCurrent(new Grayscale());
+    m.colorTransformCurrent(this.getColorTransformation());
+  }
+
+  @Override
+  public IColorTransformation getColorTransformation() {
+    return new Grayscale();
   }
 }
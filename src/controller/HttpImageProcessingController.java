@@ -0,0 +1,538 @@
+package controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+import model.exports.PPMExport;
+import model.image.IImage;
+import model.image.Image;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
+import utils.AdditionalControllerUtils;
+import utils.PPMReader;
+import utils.RasterUtils;
+
+/**
+ * A controller that keeps running and serves HTTP requests on the loopback address, so that other
+ * programs on the same machine can process images with the commands of a script without starting
+ * the program or writing any file.
+ *
+ * <p>{@code POST /process?commands=...} runs the given commands, written as they are in a script
+ * and with downscale among them, on a single layer holding the PPM, PNG or JPEG image sent as the
+ * body of the request, and sends the flattened result back as it is encoded. The optional
+ * {@code format} parameter, one of {@code ppm}, {@code png} and {@code jpg}, sets the format of the
+ * result, which is otherwise the format of the upload. Only the commands that work on the layers in
+ * memory are accepted, so none can read or write files, and a command that creates an image may
+ * not create one with more pixels than the upload. {@code GET /metrics} sends counts of the
+ * requests and the latency of the processed ones.
+ *
+ * <p>The memory an upload takes is taken from the memory budget, by its {@code Content-Length},
+ * before its body is read, and the memory its pixels take is taken once it has been estimated from
+ * its header, along with the memory of the images its commands create. The request is turned away
+ * with 503 if the images already in flight leave too little of the budget for either, so that a
+ * burst of requests cannot run the JVM out of memory. A request without a {@code Content-Length}
+ * is refused with 411, since how much memory it takes is not known until it has been read.
+ */
+public class HttpImageProcessingController implements IImageProcessingController {
+
+  // The commands that can be sent, which only work on the layers in memory
+  private static final Set<String> ALLOWED_COMMANDS = Set.of("blur", "sharpen", "sepia",
+      "grayscale", "create", "remove", "current", "opacity", "blend", "invisible", "visible",
+      "createdefaultimage", "createimage", "mosaic", "undo", "redo", "downscale", "fuse", "q",
+      "quit");
+  // How many of the latest latencies the percentiles are computed from
+  private static final int LATENCY_SAMPLES = 10000;
+  // How long stopping waits for the requests in flight to finish
+  private static final int STOP_DELAY_SECONDS = 1;
+
+  private final HttpServer server;
+  private final long maxUploadBytes;
+  // the memory budget in kilobytes, so that budgets of terabytes still fit in the permits
+  private final int budget;
+  private final Semaphore memory;
+  private final CountDownLatch stopped;
+  private final AtomicLong requests;
+  private final AtomicLong succeeded;
+  private final AtomicLong failed;
+  private final AtomicLong rejected;
+  // the latest latencies in nanoseconds, as a ring that the next latency overwrites the oldest of
+  private final long[] latencies;
+  private long numLatencies;
+  private ExecutorService workers;
+
+  /**
+   * Constructs a {@code HttpImageProcessingController} object which listens on the given port of
+   * the loopback address.
+   *
+   * @param port         the port to listen on, or 0 for any free port
+   * @param memoryBudget how many bytes the images processed at once may take in all
+   * @throws IllegalArgumentException if the port or the budget is invalid, or if the port cannot
+   *                                  be listened on
+   */
+  public HttpImageProcessingController(int port, long memoryBudget)
+      throws IllegalArgumentException {
+    if (port < 0 || port > 65535 || memoryBudget <= 0) {
+      throw new IllegalArgumentException("Invalid port or memory budget.");
+    }
+    try {
+      this.server = HttpServer.create(
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Port " + port + " cannot be listened on!");
+    }
+    this.budget = (int) Math.min(Integer.MAX_VALUE, Math.max(1, memoryBudget >> 10));
+    // an upload is held while its image is processed, so it takes from the same budget
+    this.maxUploadBytes = Math.min(Integer.MAX_VALUE - 8, (long) this.budget << 10);
+    this.memory = new Semaphore(this.budget);
+    this.stopped = new CountDownLatch(1);
+    this.requests = new AtomicLong();
+    this.succeeded = new AtomicLong();
+    this.failed = new AtomicLong();
+    this.rejected = new AtomicLong();
+    this.latencies = new long[LATENCY_SAMPLES];
+    this.server.createContext("/process", this::handleProcess);
+    this.server.createContext("/metrics", this::handleMetrics);
+  }
+
+  /**
+   * Gets the port this server listens on, which is useful when it was given port 0.
+   *
+   * @return the port of this server
+   */
+  public int getPort() {
+    return this.server.getAddress().getPort();
+  }
+
+  /**
+   * Serves requests, several at a time, until this server is stopped by {@link #stop()}.
+   *
+   * @throws IllegalStateException if the server is already running
+   */
+  @Override
+  public void processImage() throws IllegalStateException {
+    synchronized (this) {
+      if (this.workers != null) {
+        throw new IllegalStateException("The server is already running!");
+      }
+      if (this.stopped.getCount() == 0) {
+        // the server was stopped before it started
+        return;
+      }
+      // requests mostly wait on their sockets while they are read and written, so a few more run
+      // than there are processors, and the memory budget bounds how many images are in memory
+      this.workers = Executors.newFixedThreadPool(
+          Math.max(2, 2 * Runtime.getRuntime().availableProcessors()));
+      this.server.setExecutor(this.workers);
+      this.server.start();
+    }
+    try {
+      this.stopped.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      this.stop();
+    }
+  }
+
+  /**
+   * Stops this server. The requests in flight are given a moment to finish.
+   */
+  public void stop() {
+    ExecutorService running;
+    synchronized (this) {
+      if (this.stopped.getCount() == 0) {
+        return;
+      }
+      this.stopped.countDown();
+      running = this.workers;
+      if (running != null) {
+        running.shutdown();
+      }
+    }
+    // the server itself waits the whole delay it is given, so the requests in flight are waited
+    // for on the workers instead
+    try {
+      if (running != null) {
+        running.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    this.server.stop(0);
+  }
+
+  /**
+   * Processes the image sent with the given request and sends the result back.
+   *
+   * @param exchange the request and its response
+   * @throws IOException if the response cannot be sent
+   */
+  private void handleProcess(HttpExchange exchange) throws IOException {
+    long start = System.nanoTime();
+    this.requests.incrementAndGet();
+    try (exchange) {
+      if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+        exchange.getResponseHeaders().set("Allow", "POST");
+        this.fail(exchange, 405, "Images are processed with POST.");
+        return;
+      }
+      Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+      String commands = query.getOrDefault("commands", "");
+      List<ScriptStep> steps = ScriptCompiler.parse(new StringReader(commands + " q"),
+          AdditionalControllerUtils.getKnownCommands());
+      for (ScriptStep step : steps) {
+        if (!ALLOWED_COMMANDS.contains(step.getWord().toLowerCase(Locale.ROOT))) {
+          this.fail(exchange, 400, "Command " + step.getWord() + " cannot be sent.");
+          return;
+        }
+      }
+
+      String header = exchange.getRequestHeaders().getFirst("Content-Length");
+      if (header == null) {
+        this.fail(exchange, 411, "The length of the image must be given as its Content-Length.");
+        return;
+      }
+      long length;
+      try {
+        length = Long.parseLong(header.trim());
+      } catch (NumberFormatException e) {
+        length = -1;
+      }
+      if (length < 0) {
+        this.fail(exchange, 400, "Invalid Content-Length " + header + ".");
+        return;
+      }
+      if (length > this.maxUploadBytes) {
+        this.fail(exchange, 413, "The image is larger than " + this.maxUploadBytes + " bytes.");
+        return;
+      }
+
+      // the upload is only read once there is memory for it
+      int permits = toKilobytes(length);
+      if (!this.memory.tryAcquire(permits)) {
+        this.reject(exchange);
+        return;
+      }
+      try {
+        byte[] upload = exchange.getRequestBody().readNBytes((int) length);
+        if (upload.length < length) {
+          this.fail(exchange, 400, "The body is shorter than its Content-Length.");
+          return;
+        }
+        long pixels;
+        try {
+          pixels = ImageSizes.countPixels(upload, "upload");
+        } catch (IllegalArgumentException e) {
+          this.fail(exchange, 400, "The body is not a PPM, PNG or JPEG image.");
+          return;
+        }
+        String format = query.getOrDefault("format", formatOf(upload))
+            .toLowerCase(Locale.ROOT);
+        if (!Arrays.asList("ppm", "png", "jpg", "jpeg").contains(format)) {
+          this.fail(exchange, 400, "Unknown format " + format + ".");
+          return;
+        }
+
+        long bytes = ImageSizes.estimateBytes(pixels) + length;
+        for (ScriptStep step : steps) {
+          long created = createdPixels(step);
+          if (created > pixels) {
+            this.fail(exchange, 413, "Command " + step + " creates an image larger than the"
+                + " upload.");
+            return;
+          }
+          bytes += ImageSizes.estimateBytes(created);
+        }
+        if (bytes > (long) this.budget << 10) {
+          this.fail(exchange, 413, "The image takes more memory than the server has.");
+          return;
+        }
+        int more = toKilobytes(bytes) - permits;
+        if (!this.memory.tryAcquire(more)) {
+          this.reject(exchange);
+          return;
+        }
+        permits += more;
+        this.process(exchange, steps, upload, format);
+      } finally {
+        this.memory.release(permits);
+      }
+      this.recordLatency(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Gets the number of pixels of the image the command of the given step creates.
+   *
+   * @param step a step of the commands of a request
+   * @return the number of pixels of the created image, or 0 if the step does not create one
+   */
+  private static long createdPixels(ScriptStep step) {
+    if (step.getCommand() == null || !(step.is("createdefaultimage")
+        || step.is("createimage"))) {
+      return 0;
+    }
+    // the checkerboard is a square with the given number of tiles of the given size on each side
+    long side = (long) Integer.parseInt(step.getArgument(0))
+        * Integer.parseInt(step.getArgument(1));
+    if (side <= 0) {
+      // the command fails without creating an image
+      return 0;
+    }
+    return side > Integer.MAX_VALUE ? Long.MAX_VALUE : side * side;
+  }
+
+  /**
+   * Counts the given request as turned away for lack of memory and asks for it to be sent again.
+   *
+   * @param exchange the request and its response
+   * @throws IOException if the response cannot be sent
+   */
+  private void reject(HttpExchange exchange) throws IOException {
+    this.rejected.incrementAndGet();
+    exchange.getResponseHeaders().set("Retry-After", "1");
+    this.send(exchange, 503, "Too many images are being processed. Try again later.");
+  }
+
+  /**
+   * Gets the number of kilobytes the given number of bytes takes, rounded up.
+   *
+   * @param bytes the number of bytes, at most the memory budget
+   * @return the number of kilobytes
+   */
+  private static int toKilobytes(long bytes) {
+    return (int) ((bytes + 1023) >> 10);
+  }
+
+  /**
+   * Runs the given steps on the given image and sends the flattened result back, or sends what
+   * went wrong if any step fails.
+   *
+   * @param exchange the request and its response
+   * @param steps    the steps to run
+   * @param upload   the bytes of the image
+   * @param format   the format to send the result in
+   * @throws IOException if the response cannot be sent
+   */
+  private void process(HttpExchange exchange, List<ScriptStep> steps, byte[] upload,
+      String format) throws IOException {
+    IImage result;
+    StringBuilder log = new StringBuilder();
+    try {
+      ILayerModel model = new LayerModel(ScriptPlan.usesHistory(steps)
+          ? LayerModel.DEFAULT_HISTORY_BUDGET : 0);
+      model.createImageLayer("image");
+      model.loadLayer(decode(upload));
+      SimpleIImageProcessingController controller = new SimpleIImageProcessingController(model,
+          new StringReader(""), log);
+      controller.setQuiet(true);
+      controller.processSteps(steps);
+      result = model.flatten();
+    } catch (IllegalArgumentException | IllegalStateException | NoSuchElementException e) {
+      this.fail(exchange, 422, String.valueOf(e.getMessage()));
+      return;
+    } catch (RuntimeException e) {
+      // any other exception is a fault of the server rather than of the request
+      this.fail(exchange, 500, "The image could not be processed.");
+      return;
+    }
+    String error = BatchImageProcessingController.firstError(log);
+    if (error != null) {
+      this.fail(exchange, 422, error);
+      return;
+    }
+    if (result == null) {
+      this.fail(exchange, 422, "The commands leave no visible image.");
+      return;
+    }
+
+    boolean ppm = format.equals("ppm");
+    exchange.getResponseHeaders().set("Content-Type", ppm ? "image/x-portable-pixmap"
+        : format.equals("png") ? "image/png" : "image/jpeg");
+    // the length is not known until the image is encoded, so it is sent in chunks as it is
+    exchange.sendResponseHeaders(200, 0);
+    // the export closes the stream it writes to, but the response only ends when the exchange is
+    // closed, once the request is counted, so a client that has read it finds it in the metrics
+    OutputStream body = new FilterOutputStream(exchange.getResponseBody()) {
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException {
+        this.out.write(bytes, offset, length);
+      }
+
+      @Override
+      public void close() throws IOException {
+        this.flush();
+      }
+    };
+    if (ppm) {
+      new PPMExport(result, new BufferedWriter(
+          new OutputStreamWriter(body, StandardCharsets.US_ASCII))).export();
+    } else {
+      // the JPEG writer encodes from interleaved bytes, so handing it those saves a conversion
+      BufferedImage image = RasterUtils.toBufferedImage(result, format.equals("png")
+          ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_3BYTE_BGR);
+      ImageIO.write(image, format.equals("png") ? "png" : "jpeg", body);
+    }
+    this.succeeded.incrementAndGet();
+  }
+
+  /**
+   * Sends the counts of the requests this server has had and the latency of the processed ones.
+   *
+   * @param exchange the request and its response
+   * @throws IOException if the response cannot be sent
+   */
+  private void handleMetrics(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      long[] sorted;
+      synchronized (this.latencies) {
+        sorted = Arrays.copyOf(this.latencies,
+            (int) Math.min(this.numLatencies, LATENCY_SAMPLES));
+      }
+      Arrays.sort(sorted);
+      String metrics = String.format(Locale.ROOT, "requests %d%nsucceeded %d%nfailed %d%n"
+              + "rejected %d%nin_flight_bytes %d%nlatency_p50_ms %.3f%nlatency_p99_ms %.3f%n",
+          this.requests.get(), this.succeeded.get(), this.failed.get(), this.rejected.get(),
+          (long) (this.budget - this.memory.availablePermits()) << 10,
+          percentile(sorted, 50) / 1e6, percentile(sorted, 99) / 1e6);
+      this.send(exchange, 200, metrics);
+    }
+  }
+
+  /**
+   * Records the latency of a processed request, forgetting the oldest one if there are too many.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  private void recordLatency(long nanos) {
+    synchronized (this.latencies) {
+      this.latencies[(int) (this.numLatencies % LATENCY_SAMPLES)] = nanos;
+      this.numLatencies++;
+    }
+  }
+
+  /**
+   * Gets the given percentile of the given latencies, by the nearest rank.
+   *
+   * @param sorted  the latencies, from the lowest to the highest
+   * @param percent the percentile, between 0 and 100
+   * @return the latency at the percentile, or 0 if there are none
+   */
+  private static long percentile(long[] sorted, int percent) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+    return sorted[Math.max(0, rank - 1)];
+  }
+
+  /**
+   * Decodes the given bytes of a PPM, PNG or JPEG image.
+   *
+   * @param upload the bytes of the image
+   * @return the image
+   * @throws IllegalArgumentException if the bytes do not hold a valid image
+   */
+  private static IImage decode(byte[] upload) throws IllegalArgumentException {
+    if (upload.length > 0 && upload[0] == 'P') {
+      PPMReader reader = PPMReader.read(new ByteArrayInputStream(upload), "upload");
+      return new Image(reader.getPixels(), reader.getWidth(), reader.getHeight(), "upload.ppm");
+    }
+    try {
+      BufferedImage image = ImageIO.read(new ByteArrayInputStream(upload));
+      if (image == null) {
+        throw new IllegalArgumentException("The upload is not a PNG/JPEG image!");
+      }
+      return RasterUtils.toImage(image, "upload");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("The upload could not be read!");
+    }
+  }
+
+  /**
+   * Gets the format of the image held by the given bytes, from the bytes it starts with.
+   *
+   * @param upload the bytes of the image
+   * @return ppm, png or jpg
+   */
+  private static String formatOf(byte[] upload) {
+    if (upload.length > 0 && upload[0] == 'P') {
+      return "ppm";
+    }
+    return upload.length > 1 && upload[1] == 'P' ? "png" : "jpg";
+  }
+
+  /**
+   * Parses the parameters of the given query.
+   *
+   * @param query the raw query of a request, or null if it has none
+   * @return the decoded values of the parameters by name
+   */
+  private static Map<String, String> parseQuery(String query) {
+    Map<String, String> parameters = new HashMap<>();
+    if (query == null) {
+      return parameters;
+    }
+    for (String parameter : query.split("&")) {
+      int equals = parameter.indexOf('=');
+      if (equals > 0) {
+        parameters.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+            URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+      }
+    }
+    return parameters;
+  }
+
+  /**
+   * Counts the given request as failed and sends what went wrong.
+   *
+   * @param exchange the request and its response
+   * @param status   the status of the response
+   * @param message  what went wrong
+   * @throws IOException if the response cannot be sent
+   */
+  private void fail(HttpExchange exchange, int status, String message) throws IOException {
+    this.failed.incrementAndGet();
+    this.send(exchange, status, message);
+  }
+
+  /**
+   * Sends the given text as the response to the given request.
+   *
+   * @param exchange the request and its response
+   * @param status   the status of the response
+   * @param text     the body of the response
+   * @throws IOException if the response cannot be sent
+   */
+  private void send(HttpExchange exchange, int status, String text) throws IOException {
+    byte[] body = (text.endsWith("\n") ? text : text + "\n").getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.length);
+    exchange.getResponseBody().write(body);
+  }
+}
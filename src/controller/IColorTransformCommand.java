@@ -0,0 +1,18 @@
+package controller;
+
+import model.color.IColorTransformation;
+
+/**
+ * Represents a command that applies a color transformation to the image in the current layer.
+ * Exposing the transformation allows a controller to fuse consecutive color transformation commands
+ * into a single pass over the image.
+ */
+public interface IColorTransformCommand extends IPhotoCommands {
+
+  /**
+   * Gets the color transformation that this command applies to the current layer.
+   *
+   * @return the color transformation of this command
+   */
+  IColorTransformation getColorTransformation();
+}
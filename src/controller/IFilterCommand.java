@@ -0,0 +1,18 @@
+package controller;
+
+import model.filter.IFilter;
+
+/**
+ * Represents a command that applies a filter to the image in the current layer. Exposing the filter
+ * allows a controller to fuse consecutive filter and color transformation commands into a single
+ * pass over the image.
+ */
+public interface IFilterCommand extends IPhotoCommands {
+
+  /**
+   * Gets the filter that this command applies to the current layer.
+   *
+   * @return the filter of this command
+   */
+  IFilter getFilter();
+}
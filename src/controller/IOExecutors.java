@@ -0,0 +1,94 @@
+package controller;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the executors that commands reading and writing image files run their work on. The threads
+ * that encode and decode images are daemon threads, so they never keep the program from exiting.
+ * The thread that runs background commands is not: the program waits for the commands it has
+ * started in the background to finish before it exits, even when it is closed with
+ * {@link System#exit}.
+ */
+final class IOExecutors {
+
+  // How long the thread for background commands waits for another command before it stops
+  private static final long BACKGROUND_KEEP_ALIVE_SECONDS = 5;
+  // How long the program waits for the background commands when it exits
+  private static final long BACKGROUND_DRAIN_MINUTES = 5;
+
+  private static ExecutorService codecs;
+  private static ExecutorService background;
+
+  /**
+   * Prevents this utility class from being instantiated.
+   */
+  private IOExecutors() {
+  }
+
+  /**
+   * Gets the executor that images are encoded and decoded on in parallel. It has one thread per
+   * available processor.
+   *
+   * @return the executor for encoding and decoding images
+   */
+  static synchronized ExecutorService getCodecExecutor() {
+    if (codecs == null) {
+      codecs = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+          runnable -> newDaemonThread(runnable, "image-codec"));
+    }
+    return codecs;
+  }
+
+  /**
+   * Gets the executor that commands run on when they complete in the background. It has a single
+   * thread, so background commands finish in the order they were started. The thread stops once it
+   * has been idle for a few seconds, so it only keeps the program running while it has work.
+   *
+   * @return the executor for background commands
+   */
+  static synchronized ExecutorService getBackgroundExecutor() {
+    if (background == null) {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, BACKGROUND_KEEP_ALIVE_SECONDS,
+          TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+          runnable -> new Thread(runnable, "background-command"));
+      executor.allowCoreThreadTimeOut(true);
+      background = executor;
+      Runtime.getRuntime().addShutdownHook(
+          new Thread(() -> drain(executor), "background-command-drain"));
+    }
+    return background;
+  }
+
+  /**
+   * Waits for the commands that were started on the given executor to finish, without letting it
+   * start any more. It is run when the program exits, so that a command such as saving every layer
+   * is not stopped halfway through.
+   *
+   * @param executor the executor to wait for
+   */
+  private static void drain(ExecutorService executor) {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(BACKGROUND_DRAIN_MINUTES, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Creates a daemon thread with the given name which runs the given runnable.
+   *
+   * @param runnable the runnable to run
+   * @param name     the name of the thread
+   * @return the new thread
+   */
+  private static Thread newDaemonThread(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+}
@@ -0,0 +1,24 @@
+package controller;
+
+/**
+ * Represents a listener that is told when a {@link SaveAllCommand} that was run in the background
+ * has finished. It is called on the thread that ran the save, not on the thread that started it.
+ */
+public interface ISaveAllListener {
+
+  /**
+   * Called once every layer and the text file describing them have been saved.
+   *
+   * @param directory the path of the directory the layers were saved to
+   */
+  void saveAllCompleted(String directory);
+
+  /**
+   * Called if the layers could not be saved. The text file describing the layers is then not
+   * written, so the directory is never loaded with only some of the layers.
+   *
+   * @param directory the path of the directory the layers were being saved to
+   * @param message   the reason the layers could not be saved
+   */
+  void saveAllFailed(String directory, String message);
+}
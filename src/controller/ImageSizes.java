@@ -0,0 +1,100 @@
+package controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import utils.PPMReader;
+
+/**
+ * Estimates how much memory images take while a script runs on them, from the dimensions in their
+ * headers, without reading their pixels. Controllers that process many images at a time use it to
+ * keep the images in flight within a memory budget.
+ */
+final class ImageSizes {
+
+  // How many copies of its pixels an image takes while a script runs on it: the layer, the copy a
+  // filter reads, the image it writes, and the rows in between the stages of a fused pass
+  private static final int COPIES_PER_IMAGE = 4;
+
+  private ImageSizes() {
+  }
+
+  /**
+   * Estimates how many bytes an image with the given number of pixels takes while a script runs
+   * on it.
+   *
+   * @param pixels the width times the height of the image
+   * @return the estimated number of bytes
+   */
+  static long estimateBytes(long pixels) {
+    return pixels * Integer.BYTES * COPIES_PER_IMAGE;
+  }
+
+  /**
+   * Reads the number of pixels of the PPM, PNG or JPEG image in the given file from its header.
+   *
+   * @param image the file of the image
+   * @return the width times the height of the image
+   * @throws IllegalArgumentException if the file does not start with a valid image header
+   * @throws IOException              if the file cannot be read
+   */
+  static long countPixels(File image) throws IllegalArgumentException, IOException {
+    if (image.getName().toLowerCase(Locale.ROOT).endsWith(".ppm")) {
+      PPMReader header = PPMReader.readHeader(image.getPath());
+      return (long) header.getWidth() * header.getHeight();
+    }
+    try (ImageInputStream in = ImageIO.createImageInputStream(image)) {
+      return countPixels(in, image.getName());
+    }
+  }
+
+  /**
+   * Reads the number of pixels of the PPM, PNG or JPEG image held by the given bytes from its
+   * header. A PPM image is told apart by the {@code P} it starts with.
+   *
+   * @param data   the bytes of the image
+   * @param source the name of the image used in error messages
+   * @return the width times the height of the image
+   * @throws IllegalArgumentException if the bytes do not start with a valid image header
+   */
+  static long countPixels(byte[] data, String source) throws IllegalArgumentException {
+    if (data.length > 0 && data[0] == 'P') {
+      PPMReader header = PPMReader.readHeader(new ByteArrayInputStream(data), source);
+      return (long) header.getWidth() * header.getHeight();
+    }
+    try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+      return countPixels(in, source);
+    } catch (IOException e) {
+      throw new IllegalArgumentException(source + " is not a PPM, PNG or JPEG image!");
+    }
+  }
+
+  /**
+   * Reads the number of pixels of the PNG or JPEG image in the given stream from its header.
+   *
+   * @param in     the stream of the image, or null if no stream could be made for it
+   * @param source the name of the image used in error messages
+   * @return the width times the height of the image
+   * @throws IllegalArgumentException if no reader recognizes the image
+   * @throws IOException              if the header cannot be read
+   */
+  private static long countPixels(ImageInputStream in, String source)
+      throws IllegalArgumentException, IOException {
+    Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+    if (readers == null || !readers.hasNext()) {
+      throw new IllegalArgumentException(source + " is not a PPM, PNG or JPEG image!");
+    }
+    ImageReader reader = readers.next();
+    try {
+      reader.setInput(in);
+      return (long) reader.getWidth(0) * reader.getHeight(0);
+    } finally {
+      reader.dispose();
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package controller;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import model.layer.ILayer;
 import model.layer.ILayerModel;
 import model.managers.IOLayerManager;
@@ -8,11 +9,14 @@ import model.managers.InputTextFilenameManager;
 
 /**
  * A class representing the command to load in a multi-layered image based on a multi-layered image
- * that is represented in the way the program saves a multi-layered image.
+ * that is represented in the way the program saves a multi-layered image. The images of the layers
+ * are decoded in parallel on a bounded executor, which by default is shared by every
+ * {@code LoadAllCommand} and has one thread per available processor.
  */
 public class LoadAllCommand implements IPhotoCommands {
 
   private final String filename;
+  private final ExecutorService executor;
 
   /**
    * Constructs the command to load a multi-layered image from a folder that has the given name.
@@ -21,10 +25,25 @@ public class LoadAllCommand implements IPhotoCommands {
    * @throws IllegalArgumentException if the given filename is null.
    */
   public LoadAllCommand(String filename) throws IllegalArgumentException {
+    this(filename, IOExecutors.getCodecExecutor());
+  }
+
+  /**
+   * Constructs the command to load a multi-layered image from a folder that has the given name,
+   * decoding the images of its layers on the given executor.
+   *
+   * @param filename the name of the folder containing the multi-layered image.
+   * @param executor the executor to decode the images on, or null to decode them one after the
+   *                 other on the thread that runs the command
+   * @throws IllegalArgumentException if the given filename is null.
+   */
+  public LoadAllCommand(String filename, ExecutorService executor)
+      throws IllegalArgumentException {
     if (filename == null) {
       throw new IllegalArgumentException("Filename is null");
     }
     this.filename = filename;
+    this.executor = executor;
   }
 
   @Override
@@ -32,7 +51,7 @@ public class LoadAllCommand implements IPhotoCommands {
     if (m == null) {
       throw new IllegalArgumentException("Model is null.");
     }
-    IOLayerManager manager = new InputTextFilenameManager(filename);
+    IOLayerManager manager = new InputTextFilenameManager(filename, this.executor);
     List<ILayer> importedLayers = manager.apply();
     m.loadAll(importedLayers);
   }
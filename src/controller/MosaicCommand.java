@@ -1,7 +1,9 @@
 package controller;
 
 import model.layer.ILayerModel;
+import model.mosaic.ISeedStrategy;
 import model.mosaic.Mosaic;
+import model.mosaic.RandomSeedStrategy;
 
 /**
  * A class representing the command to apply a mosaic effect into the current layer's image.
@@ -9,6 +11,9 @@ import model.mosaic.Mosaic;
 public class MosaicCommand implements IPhotoCommands {
 
   private final int numSeeds;
+  // null if the seeds should be placed differently every time
+  private final Long rngSeed;
+  private final ISeedStrategy strategy;
 
   /**
    * Represents the command to apply a mosaic effect onto the current image.
@@ -16,7 +21,38 @@ public class MosaicCommand implements IPhotoCommands {
    * @param numSeeds the number of random seeds to be generated in a mosaic image
    */
   public MosaicCommand(int numSeeds) {
+    this(numSeeds, null, new RandomSeedStrategy());
+  }
+
+  /**
+   * Represents the command to apply a mosaic effect onto the current image whose seeds are placed
+   * from the given random number seed, so that running it again gives the same image.
+   *
+   * @param numSeeds the number of random seeds to be generated in a mosaic image
+   * @param rngSeed  the seed of the random number generator that places the seeds
+   */
+  public MosaicCommand(int numSeeds, long rngSeed) {
+    this(numSeeds, rngSeed, new RandomSeedStrategy());
+  }
+
+  /**
+   * Represents the command to apply a mosaic effect onto the current image whose seeds are placed
+   * by the given strategy, from the given random number seed if there is one.
+   *
+   * @param numSeeds the number of random seeds to be generated in a mosaic image
+   * @param rngSeed  the seed of the random number generator that places the seeds, or null to
+   *                 place them differently every time
+   * @param strategy the strategy that places the seeds
+   * @throws IllegalArgumentException if the strategy is null
+   */
+  public MosaicCommand(int numSeeds, Long rngSeed, ISeedStrategy strategy)
+      throws IllegalArgumentException {
+    if (strategy == null) {
+      throw new IllegalArgumentException("Seed strategy cannot be null.");
+    }
     this.numSeeds = numSeeds;
+    this.rngSeed = rngSeed;
+    this.strategy = strategy;
   }
 
   @Override
@@ -24,8 +60,7 @@ public class MosaicCommand implements IPhotoCommands {
     if (m == null) {
       throw new IllegalArgumentException("Model is null");
     }
-    m.mosaicCurrent(new Mosaic(), numSeeds);
+    m.mosaicCurrent(this.rngSeed == null ? new Mosaic(this.strategy)
+        : new Mosaic(this.strategy, this.rngSeed), numSeeds);
   }
 }
-
-
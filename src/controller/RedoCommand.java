@@ -0,0 +1,17 @@
+package controller;
+
+import model.layer.ILayerModel;
+
+/**
+ * A class representing the command to redo the most recently undone operation on the layers.
+ */
+public class RedoCommand implements IPhotoCommands {
+
+  @Override
+  public void runCommand(ILayerModel m) {
+    if (m == null) {
+      throw new IllegalArgumentException("Model is null.");
+    }
+    m.redo();
+  }
+}
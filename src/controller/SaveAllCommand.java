@@ -1,43 +1,115 @@
 package controller;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import model.exports.IExport;
 import model.exports.JPEGExport;
 import model.exports.PNGExport;
+import model.exports.PPMBinaryExport;
 import model.exports.PPMExportFilename;
 import model.exports.TextFileExport;
 import model.image.IImage;
 import model.layer.ILayer;
 import model.layer.ILayerModel;
+import utils.PPMReader;
 
 /**
  * A class representing the command to save a multi-layered image. It will be exported with the
  * given name. A text file is constructed along with the files in the directory in which it contains
  * information needed to reload it (name of file with its path, order, and visibility)
+ *
+ * <p>The layers are encoded in parallel, each to a temporary file which is flushed to disk and then
+ * renamed to its real name. The text file is written the same way once every layer has been saved,
+ * so it is the commit point of the save: if the save fails or the program stops halfway through,
+ * a new directory has no text file and cannot be loaded with only some of its layers. A directory
+ * saved to before keeps the text file of the earlier save until the new one replaces it, so it can
+ * still be loaded, though a layer renamed before the save stopped is loaded with its new pixels.
+ *
+ * <p>A manifest with the content hash of every layer is saved along with the text file. Saving
+ * into a directory that already has a manifest reuses the directory, and only the layers whose
+ * pixels or format changed since the last save are written again.
  */
 public class SaveAllCommand implements IPhotoCommands {
 
+  // The suffix added to the name of a file while it is being written
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String LAYER_INFO = "layerInfo.txt";
+  // The file that records the content hash of every saved layer, next to layerInfo.txt
+  private static final String MANIFEST = "layerManifest.txt";
+
   private final String desiredDir;
+  // whether PPM layers are saved in the binary format, or null to use the format of the file each
+  // image was loaded from
+  private final Boolean binaryPPM;
+  private final ExecutorService executor;
 
   /**
    * Constructs a command that saves a multi-layered image along with a text file containing the
-   * necessary info to reload it.
+   * necessary info to reload it. PPM layers are saved in the same format, plain or binary, as the
+   * files their images were loaded from.
    *
    * @param desiredDirName the desired name of the directory to save the layers.
    * @throws IllegalArgumentException if the given filename is null.
    */
   public SaveAllCommand(String desiredDirName) {
+    this(desiredDirName, null);
+  }
+
+  /**
+   * Constructs a command that saves a multi-layered image along with a text file containing the
+   * necessary info to reload it, saving PPM layers in the given format.
+   *
+   * @param desiredDirName the desired name of the directory to save the layers.
+   * @param binaryPPM      true to save PPM layers in the binary format (P6), false for the plain
+   *                       format (P3)
+   * @throws IllegalArgumentException if the given filename is null.
+   */
+  public SaveAllCommand(String desiredDirName, boolean binaryPPM) {
+    this(desiredDirName, Boolean.valueOf(binaryPPM));
+  }
+
+  /**
+   * Constructs a command that saves a multi-layered image, creating the directory to save it in.
+   * If a directory with the given name exists and was not saved to by this command, the layers are
+   * saved to the given name followed by "1" instead.
+   *
+   * @param desiredDirName the desired name of the directory to save the layers.
+   * @param binaryPPM      whether PPM layers are saved in the binary format, or null to use the
+   *                       format of the file each image was loaded from
+   * @throws IllegalArgumentException if the given filename is null.
+   */
+  private SaveAllCommand(String desiredDirName, Boolean binaryPPM) {
+    this.binaryPPM = binaryPPM;
     if (desiredDirName == null) {
       throw new IllegalArgumentException("Null filename");
     }
     File f = new File(desiredDirName);
-    if (f.exists()) {
+    // a directory saved to before is saved to again, so that unchanged layers are not rewritten
+    if (f.exists() && !new File(f, MANIFEST).exists()) {
       f = new File(desiredDirName + "1");
     }
     f.mkdir();
     this.desiredDir = f.getAbsolutePath() + "/";
+    this.executor = IOExecutors.getCodecExecutor();
   }
 
   @Override
@@ -45,49 +117,289 @@ public class SaveAllCommand implements IPhotoCommands {
     if (m == null) {
       throw new IllegalArgumentException("Model cannot be null");
     }
-    IExport imgExporter;
-    StringBuilder imageInfo = new StringBuilder();
+    this.save(m.getLayers());
+  }
 
+  /**
+   * Saves the layers of the given model in the background and returns right away. The layers are
+   * copied before this method returns, so the model can be changed while they are being saved.
+   * Background saves run one at a time, in the order they were started, and the program waits for
+   * them to finish before it exits.
+   *
+   * @param m        the model whose layers are saved
+   * @param listener the listener that is told when the save has finished
+   * @return the future of the save, which can be used to wait for it to finish
+   * @throws IllegalArgumentException if any argument is null
+   */
+  public Future<?> runInBackground(ILayerModel m, ISaveAllListener listener)
+      throws IllegalArgumentException {
+    if (m == null || listener == null) {
+      throw new IllegalArgumentException("Arguments cannot be null");
+    }
     List<ILayer> layers = m.getLayers();
+    return IOExecutors.getBackgroundExecutor().submit(() -> {
+      try {
+        this.save(layers);
+      } catch (IllegalArgumentException e) {
+        listener.saveAllFailed(this.desiredDir, e.getMessage());
+        return;
+      }
+      listener.saveAllCompleted(this.desiredDir);
+    });
+  }
+
+  /**
+   * Saves the given layers and the text file describing them to the directory of this command.
+   *
+   * @param layers the layers to save
+   * @throws IllegalArgumentException if a layer has an unknown file type or if a file cannot be
+   *                                  written
+   */
+  private void save(List<ILayer> layers) throws IllegalArgumentException {
+    StringBuilder imageInfo = new StringBuilder();
+    Path manifestFile = Paths.get(desiredDir + MANIFEST);
+    Map<String, String> oldManifest = readManifest(manifestFile);
+    // the file name and manifest entry, without the size of the file, of every saved layer
+    Map<Path, String> entries = new LinkedHashMap<>();
+    List<IExport> exporters = new ArrayList<>();
+    List<Path> tempFiles = new ArrayList<>();
+    List<Path> files = new ArrayList<>();
 
     for (int i = 0; i < layers.size(); i++) {
       IImage currImg = layers.get(i).getImage();
       if (currImg != null) {
-        try {
-          imgExporter = determineCorrectExporter(currImg, layers.get(i).getName());
-          if (imgExporter != null) {
-            imgExporter.export();
-            String fileType = getFileType(currImg.getFilename());
-            if (fileType.equals("jpg")) {
-              fileType = "jpeg";
-            }
-            imageInfo.append(i).append(", ").append(desiredDir)
-                .append(layers.get(i).getName()).append(".")
-                .append(fileType).append(", ")
-                .append(layers.get(i).isVisible()).append("\n");
+        String name = desiredDir + layers.get(i).getName();
+        IExport imgExporter = determineCorrectExporter(currImg, name + TEMP_SUFFIX);
+        if (imgExporter != null) {
+          String fileType = getFileType(currImg.getFilename());
+          if (fileType.equals("jpg")) {
+            fileType = "jpeg";
+          }
+          Path file = Paths.get(name + "." + fileType);
+          String entry = file.getFileName() + ", " + getFormat(imgExporter, fileType) + ", "
+              + Long.toHexString(layers.get(i).getContentHash());
+          entries.put(file, entry);
+          if (!isUnchanged(file, entry, oldManifest)) {
+            exporters.add(imgExporter);
+            tempFiles.add(Paths.get(name + TEMP_SUFFIX + "." + fileType));
+            files.add(file);
           }
-        } catch (IOException e) {
-          throw new IllegalArgumentException("An error has occurred.");
+          imageInfo.append(i).append(", ").append(name).append(".")
+              .append(fileType).append(", ")
+              .append(layers.get(i).isVisible()).append("\n");
         }
       } else {
         imageInfo.append(i).append(", ").append("noimage").append(", false").append("\n");
       }
     }
-    exportTextFile(desiredDir, imageInfo.toString());
+
+    Path layerInfo = Paths.get(desiredDir + LAYER_INFO);
+    StringBuilder manifest = new StringBuilder();
+    try {
+      this.exportInParallel(exporters, tempFiles);
+      // the text files of an earlier save are kept until the new ones replace them, so the
+      // directory can always be loaded even if the save stops while the layers are renamed
+      for (int i = 0; i < files.size(); i++) {
+        moveAtomically(tempFiles.get(i), files.get(i));
+      }
+      for (Map.Entry<Path, String> entry : entries.entrySet()) {
+        manifest.append(entry.getValue()).append(", ").append(Files.size(entry.getKey()))
+            .append("\n");
+      }
+    } catch (IOException e) {
+      deleteAll(tempFiles);
+      throw new IllegalArgumentException("An error has occurred.");
+    }
+    exportTextFile(manifestFile, manifest.toString());
+    exportTextFile(layerInfo, imageInfo.toString());
+  }
+
+  /**
+   * Reads the manifest of an earlier save, which has a line for every file of a layer with its
+   * name, the format it was saved in, the content hash of the layer, and its size in bytes.
+   *
+   * @param manifestFile the path of the manifest
+   * @return the lines of the manifest by the name of their file, empty if there is no manifest
+   */
+  private static Map<String, String> readManifest(Path manifestFile) {
+    Map<String, String> manifest = new HashMap<>();
+    if (!Files.exists(manifestFile)) {
+      return manifest;
+    }
+    try {
+      for (String line : Files.readAllLines(manifestFile, StandardCharsets.UTF_8)) {
+        int nameEnd = line.indexOf(", ");
+        if (nameEnd > 0) {
+          manifest.put(line.substring(0, nameEnd), line);
+        }
+      }
+    } catch (IOException e) {
+      // without the manifest every layer is saved again
+      manifest.clear();
+    }
+    return manifest;
+  }
+
+  /**
+   * Determines whether the given file was saved by an earlier save with the given manifest entry,
+   * and has not been changed since.
+   *
+   * @param file        the file of a layer
+   * @param entry       the manifest entry of the layer, without the size of the file
+   * @param oldManifest the manifest of the earlier save
+   * @return true if the file does not need to be saved again
+   */
+  private static boolean isUnchanged(Path file, String entry, Map<String, String> oldManifest) {
+    String oldEntry = oldManifest.get(file.getFileName().toString());
+    if (oldEntry == null || !oldEntry.startsWith(entry + ", ")) {
+      return false;
+    }
+    try {
+      return Files.size(file) == Long.parseLong(oldEntry.substring(entry.length() + 2).trim());
+    } catch (IOException | NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Gets the format the given exporter saves an image in, which tells plain and binary PPM files
+   * apart.
+   *
+   * @param exporter the exporter of a layer
+   * @param fileType the extension of the file of the layer
+   * @return the format of the file of the layer
+   */
+  private static String getFormat(IExport exporter, String fileType) {
+    if (exporter instanceof PPMBinaryExport) {
+      return "p6";
+    }
+    if (exporter instanceof PPMExportFilename) {
+      return "p3";
+    }
+    return fileType;
+  }
+
+  /**
+   * Runs the given exporters in parallel and flushes the files they write to disk. As soon as one
+   * of them fails, the exports that have not finished yet are cancelled and the files written so
+   * far are deleted.
+   *
+   * @param exporters the exporters to run
+   * @param files     the files the exporters write, at the same index as their exporters
+   * @throws IOException              if one of the files cannot be written
+   * @throws IllegalArgumentException if one of the exporters fails for another reason, or if the
+   *                                  calling thread is interrupted while waiting for them
+   */
+  private void exportInParallel(List<IExport> exporters, List<Path> files)
+      throws IOException, IllegalArgumentException {
+    CompletionService<Void> completion = new ExecutorCompletionService<>(this.executor);
+    List<Future<Void>> futures = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < exporters.size(); i++) {
+        IExport exporter = exporters.get(i);
+        Path file = files.get(i);
+        futures.add(completion.submit(() -> {
+          exporter.export();
+          force(file);
+          return null;
+        }));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        completion.take().get();
+      }
+    } catch (ExecutionException e) {
+      cancelAll(futures);
+      deleteAll(files);
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalArgumentException("An error has occurred.");
+    } catch (InterruptedException e) {
+      cancelAll(futures);
+      deleteAll(files);
+      Thread.currentThread().interrupt();
+      throw new IllegalArgumentException("Saving the layers was interrupted.");
+    }
   }
 
   /**
-   * Exports a text file containing information about the layers including each layers
-   * location/name, order, and visibility.
+   * Cancels every given export that has not finished yet.
    *
-   * @param desiredDir the desired name of the directory to save the layers.
-   * @param imageInfo  the information provided to help determine the image
+   * @param futures the exports to cancel
    */
-  private void exportTextFile(String desiredDir, String imageInfo) {
-    IExport textExporter = new TextFileExport(desiredDir, imageInfo);
+  private static void cancelAll(List<Future<Void>> futures) {
+    for (Future<Void> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * Deletes the given files, ignoring the ones that do not exist or cannot be deleted.
+   *
+   * @param files the files to delete
+   */
+  private static void deleteAll(List<Path> files) {
+    for (Path file : files) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        // the save has already failed, a leftover temporary file is never loaded
+      }
+    }
+  }
+
+  /**
+   * Flushes the contents of the given file to disk.
+   *
+   * @param file the file to flush
+   * @throws IOException if the file cannot be flushed
+   */
+  private static void force(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Renames the given file to the given target in a single step, replacing the target if it
+   * exists, so that the target is never seen half written. Falls back to a plain rename on file
+   * systems that cannot rename atomically.
+   *
+   * @param source the file to rename
+   * @param target the new name of the file
+   * @throws IOException if the file cannot be renamed
+   */
+  private static void moveAtomically(Path source, Path target) throws IOException {
     try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Exports a text file containing information about the layers, such as each layers
+   * location/name, order, and visibility or their content hashes. It is written to a temporary file
+   * which is then renamed to the given path.
+   *
+   * @param textFile the path of the text file
+   * @param info     the information about the layers
+   */
+  private void exportTextFile(Path textFile, String info) {
+    Path tempFile = Paths.get(textFile + TEMP_SUFFIX);
+    try {
+      IExport textExporter = new TextFileExport(desiredDir, info,
+          new FileWriter(tempFile.toFile()));
       textExporter.export();
+      force(tempFile);
+      moveAtomically(tempFile, textFile);
     } catch (IOException e) {
+      deleteAll(List.of(tempFile));
       throw new IllegalArgumentException("Could not write to text file.");
     }
   }
@@ -95,15 +407,15 @@ public class SaveAllCommand implements IPhotoCommands {
   /**
    * Returns the correct {@link IExport} based on a given filename.
    *
-   * @param image     the topmost visible image in the layers to be saved
-   * @param layerName the name of the layer
+   * @param image    the topmost visible image in the layers to be saved
+   * @param fileName the path of the file to export to, without its extension
    * @return the correct type of exported for the wanted image type
    * @throws IllegalArgumentException if the image is null or unknown file type
    */
 
-  private IExport determineCorrectExporter(IImage image, String layerName)
+  private IExport determineCorrectExporter(IImage image, String fileName)
       throws IllegalArgumentException {
-    if (image == null || layerName == null) {
+    if (image == null || fileName == null) {
       throw new IllegalArgumentException("Image is null.");
     }
     String filename = getOnlyNameForFile(image.getFilename());
@@ -113,12 +425,16 @@ public class SaveAllCommand implements IPhotoCommands {
       try {
         switch (fileType) {
           case "ppm":
-            return new PPMExportFilename(image, desiredDir + layerName);
+            if (this.binaryPPM == null ? PPMReader.isBinary(image.getFilename())
+                : this.binaryPPM) {
+              return new PPMBinaryExport(image, fileName);
+            }
+            return new PPMExportFilename(image, fileName);
           case "jpeg":
           case "jpg":
-            return new JPEGExport(image, desiredDir + layerName);
+            return new JPEGExport(image, fileName);
           case "png":
-            return new PNGExport(image, desiredDir + layerName);
+            return new PNGExport(image, fileName);
           default:
             throw new IllegalArgumentException("Cannot save the layer with that file type.");
         }
@@ -0,0 +1,44 @@
+package controller;
+
+import model.image.IImage;
+import model.layer.ILayerModel;
+
+/**
+ * A class representing the command to flatten the visible layers of a multi-layered image into a
+ * single image, using the opacity and blend mode of each layer, and save it with the given
+ * filename.
+ */
+public class SaveFlattenedCommand extends SaveSingleCommand {
+
+  /**
+   * Constructs the command that saves the flattened image with the given filename. A PPM file is
+   * saved in the same format, plain or binary, as the file the topmost visible image was loaded
+   * from.
+   *
+   * @param desiredFileName the name of the file to save the image to, with its extension
+   */
+  public SaveFlattenedCommand(String desiredFileName) {
+    super(desiredFileName);
+  }
+
+  /**
+   * Constructs the command that saves the flattened image with the given filename, saving a PPM
+   * file in the given format.
+   *
+   * @param desiredFileName the name of the file to save the image to, with its extension
+   * @param binaryPPM       true to save a PPM file in the binary format (P6), false for the plain
+   *                        format (P3)
+   */
+  public SaveFlattenedCommand(String desiredFileName, boolean binaryPPM) {
+    super(desiredFileName, binaryPPM);
+  }
+
+  @Override
+  protected IImage getImageToSave(ILayerModel m) throws IllegalArgumentException {
+    IImage image = m.flatten();
+    if (image == null) {
+      throw new IllegalArgumentException("No visible layer exists!");
+    }
+    return image;
+  }
+}
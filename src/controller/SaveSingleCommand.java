@@ -1,14 +1,14 @@
 package controller;
 
 import java.io.IOException;
-import java.util.List;
 import model.exports.IExport;
 import model.exports.JPEGExport;
 import model.exports.PNGExport;
+import model.exports.PPMBinaryExport;
 import model.exports.PPMExportFilename;
 import model.image.IImage;
-import model.layer.ILayer;
 import model.layer.ILayerModel;
+import utils.PPMReader;
 
 /**
  * A class representing the command to save the topmost visible layer in a multi-layered image. It
@@ -17,9 +17,32 @@ import model.layer.ILayerModel;
 public class SaveSingleCommand implements IPhotoCommands {
 
   private final String desiredFilename;
+  // whether PPM files are saved in the binary format, or null to use the format of the file the
+  // image was loaded from
+  private final Boolean binaryPPM;
 
+  /**
+   * Constructs the command that saves the topmost visible layer with the given filename. A PPM file
+   * is saved in the same format, plain or binary, as the file the image was loaded from.
+   *
+   * @param desiredFileName the name of the file to save the image to, with its extension
+   */
   public SaveSingleCommand(String desiredFileName) {
     this.desiredFilename = desiredFileName;
+    this.binaryPPM = null;
+  }
+
+  /**
+   * Constructs the command that saves the topmost visible layer with the given filename, saving a
+   * PPM file in the given format.
+   *
+   * @param desiredFileName the name of the file to save the image to, with its extension
+   * @param binaryPPM       true to save a PPM file in the binary format (P6), false for the plain
+   *                        format (P3)
+   */
+  public SaveSingleCommand(String desiredFileName, boolean binaryPPM) {
+    this.desiredFilename = desiredFileName;
+    this.binaryPPM = binaryPPM;
   }
 
   @Override
@@ -27,7 +50,7 @@ public class SaveSingleCommand implements IPhotoCommands {
     if (m == null) {
       throw new IllegalArgumentException("Model is null.");
     }
-    IImage image = this.getTopmostVisibleImage(m.getLayers());
+    IImage image = this.getImageToSave(m);
     IExport exporter = this.determineCorrectExporter(image);
 
     try {
@@ -38,19 +61,19 @@ public class SaveSingleCommand implements IPhotoCommands {
   }
 
   /**
-   * Finds the topmost visible image when given a list of layers in a model.
+   * Gets the image that this command saves from the given model, which is the image of the topmost
+   * visible layer.
    *
-   * @param layers the given list of layers to sort through
-   * @return the topmost visible image in a given list of layers
-   * @throws IllegalArgumentException if no topmost visible layer exists
+   * @param m the model to get the image from
+   * @return the image to save
+   * @throws IllegalArgumentException if there is no image to save
    */
-  private IImage getTopmostVisibleImage(List<ILayer> layers) {
-    for (int i = layers.size() - 1; i >= 0; i--) {
-      if (layers.get(i).isVisible() && layers.get(i).getImage() != null) {
-        return layers.get(i).getImage();
-      }
+  protected IImage getImageToSave(ILayerModel m) throws IllegalArgumentException {
+    IImage image = m.getTopmostVisibleLayerImage();
+    if (image == null) {
+      throw new IllegalArgumentException("No topmost visible layer exists!");
     }
-    throw new IllegalArgumentException("No topmost visible layer exists!");
+    return image;
   }
 
   /**
@@ -77,6 +100,9 @@ public class SaveSingleCommand implements IPhotoCommands {
     try {
       switch (fileType.toLowerCase()) {
         case "ppm":
+          if (this.binaryPPM == null ? PPMReader.isBinary(image.getFilename()) : this.binaryPPM) {
+            return new PPMBinaryExport(image, fileName);
+          }
           return new PPMExportFilename(image, fileName);
         case "jpeg":
         case "jpg":
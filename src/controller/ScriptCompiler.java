@@ -0,0 +1,112 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.function.Function;
+
+/**
+ * Reads a whole script into its steps before any of them is run, so that the steps can be planned
+ * together by {@link ScriptPlan}. Each step is read exactly as {@link
+ * SimpleIImageProcessingController} reads it one command at a time: a command takes the same words
+ * and fails to parse in the same way.
+ */
+final class ScriptCompiler {
+
+  // The most words after its name that a command reads, which createimage does
+  private static final int MAX_ARGUMENTS = 8;
+
+  private ScriptCompiler() {
+  }
+
+  /**
+   * Reads the steps of the given script, up to and including the first quit command.
+   *
+   * @param rd            the script to read
+   * @param knownCommands the commands of the script by name
+   * @return the steps of the script, in order
+   * @throws IllegalArgumentException if any argument is null
+   */
+  static List<ScriptStep> parse(Readable rd,
+      Map<String, Function<Scanner, IPhotoCommands>> knownCommands)
+      throws IllegalArgumentException {
+    if (rd == null || knownCommands == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    List<String> words = new ArrayList<>();
+    // the line of each word, since optional arguments are only read from the line of their command
+    List<Integer> lines = new ArrayList<>();
+    Scanner in = new Scanner(rd);
+    for (int line = 0; in.hasNextLine(); line++) {
+      for (String word : in.nextLine().split("\\p{javaWhitespace}+")) {
+        if (!word.isEmpty()) {
+          words.add(word);
+          lines.add(line);
+        }
+      }
+    }
+
+    List<ScriptStep> steps = new ArrayList<>();
+    int i = 0;
+    while (i < words.size()) {
+      String word = words.get(i);
+      int number = steps.size() + 1;
+      Function<Scanner, IPhotoCommands> function = knownCommands.get(word);
+      if (word.equalsIgnoreCase("q") || word.equalsIgnoreCase("quit")) {
+        steps.add(new ScriptStep(number, words.subList(i, i + 1), null, null));
+        break;
+      } else if (word.equalsIgnoreCase("fuse")) {
+        // the mode is the next word, if there is one
+        int end = Math.min(words.size(), i + 2);
+        steps.add(new ScriptStep(number, words.subList(i, end), null, null));
+        i = end;
+      } else if (function == null || word.equalsIgnoreCase("state")
+          || word.equalsIgnoreCase("explain")) {
+        steps.add(new ScriptStep(number, words.subList(i, i + 1), null, null));
+        i++;
+      } else {
+        i = parseCommand(words, lines, i, function, steps);
+      }
+    }
+    return steps;
+  }
+
+  /**
+   * Parses the command whose name is at the given index, and adds its step.
+   *
+   * @param words    the words of the script
+   * @param lines    the line of each word of the script
+   * @param index    the index of the name of the command
+   * @param function the function that parses the command
+   * @param steps    the steps to add the step of the command to
+   * @return the index of the word after the command
+   */
+  private static int parseCommand(List<String> words, List<Integer> lines, int index,
+      Function<Scanner, IPhotoCommands> function, List<ScriptStep> steps) {
+    // the command only sees the words it could read, so the words it read are the ones it did not
+    // leave behind
+    int end = Math.min(words.size(), index + 2 + MAX_ARGUMENTS);
+    StringBuilder text = new StringBuilder();
+    for (int i = index + 1; i < end; i++) {
+      text.append(lines.get(i).equals(lines.get(i - 1)) ? ' ' : '\n').append(words.get(i));
+    }
+    Scanner arguments = new Scanner(text.toString());
+    IPhotoCommands command = null;
+    RuntimeException parseError = null;
+    try {
+      command = function.apply(arguments);
+    } catch (IllegalArgumentException | NoSuchElementException e) {
+      parseError = e;
+    }
+    int left = 0;
+    while (arguments.hasNext()) {
+      arguments.next();
+      left++;
+    }
+    int next = end - left;
+    steps.add(new ScriptStep(steps.size() + 1, words.subList(index, next), command, parseError));
+    return next;
+  }
+}
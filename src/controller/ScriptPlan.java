@@ -0,0 +1,529 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import model.filter.PixelPipeline;
+import model.layer.LayerMetadata;
+
+/**
+ * Represents the plan for running part of a script read by {@link ScriptCompiler}. Planning follows
+ * the layers through the script by name, visibility and current layer alone, which are all a step
+ * needs to know which layer a filter or color transformation changes, so no pixel is read.
+ *
+ * <p>The filters and color transformations that change the same layer form a graph of their own
+ * for that layer. Consecutive ones are fused into a single pass over the image that runs when the
+ * last of them is reached, as long as nothing reads the layer in between: saving, downscaling and
+ * mosaics read it, while changing other layers or the current layer does not. They are dropped
+ * altogether if the layer is removed before anything reads them. Every other step runs where it is
+ * in the script, so the layers end up the same as if every step had run on its own.
+ *
+ * <p>Steps whose effect on the layers cannot be known before they run, such as loading layers from
+ * a file, end the plan, and the rest of the script is planned once they have run. A script that
+ * undoes or redoes commands is not planned at all, since each command has to stay a step of its own
+ * in the history.
+ */
+final class ScriptPlan {
+
+  /**
+   * Represents what is done with a step when it is reached.
+   */
+  enum Action {
+    // the step runs on its own
+    RUN,
+    // the step is run later, as part of a fused pass
+    DEFER,
+    // the step runs a fused pass of itself and the steps deferred to it
+    FUSE,
+    // the step never runs, since its layer is removed before anything reads it
+    DROP
+  }
+
+  // The current layer when it may be any layer or none, since the model only tells that it is not
+  // a valid layer
+  private static final int UNKNOWN_LAYER = Integer.MIN_VALUE;
+
+  private final List<ScriptStep> steps;
+  private final int start;
+  // the index after the last planned step
+  private int end;
+  // the action of each planned step, from the start
+  private final List<Action> actions;
+  // the fused passes, by the index of their last step
+  private final Map<Integer, Pass> passes;
+  // the passes dropped when a layer is removed, by the index of the step that removes it
+  private final Map<Integer, Pass> dropped;
+  // the current layer before each planned step, from the start
+  private final List<Integer> currentLayers;
+  // why every step runs on its own, or null if the steps are planned
+  private String unplannedReason;
+
+  /**
+   * Constructs an empty {@code ScriptPlan} object for the steps from the given index.
+   *
+   * @param steps the steps of the script
+   * @param start the index of the first step to plan
+   */
+  private ScriptPlan(List<ScriptStep> steps, int start) {
+    this.steps = steps;
+    this.start = start;
+    this.end = start;
+    this.actions = new ArrayList<>();
+    this.passes = new HashMap<>();
+    this.dropped = new HashMap<>();
+    this.currentLayers = new ArrayList<>();
+  }
+
+  /**
+   * Plans the steps of a script from the given index, for a model whose layers and current layer
+   * are the given ones. The plan ends after the first step whose effect cannot be known before it
+   * runs, or at the end of the script.
+   *
+   * @param steps        the steps of the script
+   * @param start        the index of the first step to plan
+   * @param layers       the metadata of the layers of the model before the first step
+   * @param currentLayer the index of the current layer of the model, or -1 if there is none
+   * @param approximate  whether consecutive color transformations are fused approximately, as with
+   *                     {@code fuse approximate}
+   * @return the plan
+   * @throws IllegalArgumentException if any argument is null or the index is not that of a step
+   */
+  static ScriptPlan plan(List<ScriptStep> steps, int start, List<LayerMetadata> layers,
+      int currentLayer, boolean approximate) throws IllegalArgumentException {
+    if (steps == null || layers == null || start < 0 || start >= steps.size()) {
+      throw new IllegalArgumentException("Invalid steps to plan.");
+    }
+    ScriptPlan plan = new ScriptPlan(steps, start);
+    if (usesHistory(steps)) {
+      plan.runUnplanned(steps.size(), "the script undoes or redoes commands");
+    } else if (approximate) {
+      int end = start;
+      while (end < steps.size() && !steps.get(end).is("fuse")) {
+        end++;
+      }
+      plan.runUnplanned(Math.min(end + 1, steps.size()), "approximate fusion is on");
+    } else {
+      new Planner(plan, layers, currentLayer).run();
+    }
+    return plan;
+  }
+
+  /**
+   * Determines whether any of the given steps undoes or redoes a command.
+   *
+   * @param steps the steps of a script
+   * @return true if one of the steps is an undo or redo command
+   */
+  static boolean usesHistory(List<ScriptStep> steps) {
+    for (ScriptStep step : steps) {
+      if (step.getCommand() instanceof UndoCommand || step.getCommand() instanceof RedoCommand) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Plans every step up to the given index to run on its own.
+   *
+   * @param end    the index after the last step to plan
+   * @param reason why the steps are not planned
+   */
+  private void runUnplanned(int end, String reason) {
+    this.unplannedReason = reason;
+    for (int i = this.start; i < end; i++) {
+      this.add(Action.RUN, UNKNOWN_LAYER);
+    }
+  }
+
+  /**
+   * Adds the next step to this plan.
+   *
+   * @param action       what is done with the step
+   * @param currentLayer the current layer before the step
+   */
+  private void add(Action action, int currentLayer) {
+    this.actions.add(action);
+    this.currentLayers.add(currentLayer);
+    this.end++;
+  }
+
+  /**
+   * Gets the index after the last step of this plan, where the next plan starts.
+   *
+   * @return the index after the last planned step
+   */
+  int getEnd() {
+    return this.end;
+  }
+
+  /**
+   * Determines whether the steps of this plan were planned, or are each run on their own.
+   *
+   * @return true if the steps were planned
+   */
+  boolean isPlanned() {
+    return this.unplannedReason == null;
+  }
+
+  /**
+   * Gets what is done with the step at the given index.
+   *
+   * @param index the index of a planned step
+   * @return the action of the step
+   */
+  Action getAction(int index) {
+    return this.actions.get(index - this.start);
+  }
+
+  /**
+   * Gets the index the current layer has before the step at the given index, which for a step
+   * that is deferred, fused or dropped is the layer the step changes.
+   *
+   * @param index the index of a planned step
+   * @return the index of the current layer
+   */
+  int getCurrentLayer(int index) {
+    return this.currentLayers.get(index - this.start);
+  }
+
+  /**
+   * Builds the pipeline of the fused pass that the step at the given index runs.
+   *
+   * @param index the index of a step whose action is {@link Action#FUSE}
+   * @return the filters and color transformations of the pass, in order
+   */
+  PixelPipeline getPipeline(int index) {
+    PixelPipeline pipeline = new PixelPipeline();
+    for (int stage : this.passes.get(index).stages) {
+      IPhotoCommands command = this.steps.get(stage).getCommand();
+      if (command instanceof IFilterCommand) {
+        pipeline.addFilter(((IFilterCommand) command).getFilter());
+      } else {
+        pipeline.addColorTransformation(
+            ((IColorTransformCommand) command).getColorTransformation());
+      }
+    }
+    return pipeline;
+  }
+
+  /**
+   * Describes the rest of this plan, one line per step or fused pass, in the order they run.
+   *
+   * @param from the index of the first step to describe
+   * @return the description of the plan
+   */
+  String explain(int from) {
+    from = Math.max(from, this.start);
+    if (from >= this.end) {
+      return "Nothing left to run.\n";
+    }
+    StringBuilder plan = new StringBuilder("Plan of steps ")
+        .append(this.steps.get(from).getNumber()).append(" to ")
+        .append(this.steps.get(this.end - 1).getNumber());
+    if (this.unplannedReason != null) {
+      plan.append(", each run on its own since ").append(this.unplannedReason);
+    }
+    plan.append(":\n");
+    for (int i = from; i < this.end; i++) {
+      Pass removed = this.dropped.get(i);
+      if (removed != null) {
+        plan.append("  ").append(removed.describe(this.steps)).append(" dropped, since layer ")
+            .append(removed.layer).append(" is removed before anything reads it\n");
+      }
+      if (this.getAction(i) == Action.FUSE) {
+        plan.append("  ").append(this.passes.get(i).describe(this.steps))
+            .append(" fused into one pass over layer ").append(this.passes.get(i).layer)
+            .append("\n");
+      } else if (this.getAction(i) == Action.RUN) {
+        plan.append("  step ").append(this.steps.get(i).getNumber()).append(": ")
+            .append(this.steps.get(i)).append("\n");
+      }
+    }
+    if (this.end < this.steps.size()) {
+      plan.append("The steps after step ").append(this.steps.get(this.end - 1).getNumber())
+          .append(" are planned once it has run.\n");
+    }
+    return plan.toString();
+  }
+
+  /**
+   * Represents consecutive filters and color transformations of one layer.
+   */
+  private static final class Pass {
+
+    private final String layer;
+    private final List<Integer> stages;
+
+    private Pass(String layer, List<Integer> stages) {
+      this.layer = layer;
+      this.stages = new ArrayList<>(stages);
+    }
+
+    /**
+     * Describes the steps of this pass.
+     *
+     * @param steps the steps of the script
+     * @return the numbers and names of the steps of this pass
+     */
+    private String describe(List<ScriptStep> steps) {
+      StringBuilder numbers = new StringBuilder(this.stages.size() == 1 ? "step " : "steps ");
+      StringBuilder names = new StringBuilder();
+      for (int i = 0; i < this.stages.size(); i++) {
+        String separator = i == 0 ? "" : ", ";
+        numbers.append(separator).append(steps.get(this.stages.get(i)).getNumber());
+        names.append(separator).append(steps.get(this.stages.get(i)));
+      }
+      return numbers + ": " + names;
+    }
+  }
+
+  /**
+   * Represents a layer as it is followed through the script.
+   */
+  private static final class PlannedLayer {
+
+    private final String name;
+    private boolean isVisible;
+    // the filters and color transformations that have not been given a pass yet
+    private final List<Integer> open;
+    // the filters and color transformations since anything last read the layer
+    private final List<Integer> unread;
+
+    private PlannedLayer(String name, boolean isVisible) {
+      this.name = name;
+      this.isVisible = isVisible;
+      this.open = new ArrayList<>();
+      this.unread = new ArrayList<>();
+    }
+  }
+
+  /**
+   * Follows the layers through the steps of a plan and decides what is done with each step.
+   */
+  private static final class Planner {
+
+    private final ScriptPlan plan;
+    private final List<PlannedLayer> layers;
+    // the index of the current layer as the model keeps it, which may be past the last layer
+    private int current;
+
+    private Planner(ScriptPlan plan, List<LayerMetadata> metadata, int currentLayer) {
+      this.plan = plan;
+      this.layers = new ArrayList<>();
+      for (LayerMetadata layer : metadata) {
+        this.layers.add(new PlannedLayer(layer.getName(), layer.isVisible()));
+      }
+      this.current = currentLayer == -1 && !this.layers.isEmpty() ? UNKNOWN_LAYER : currentLayer;
+    }
+
+    /**
+     * Plans the steps until one ends the plan.
+     */
+    private void run() {
+      List<ScriptStep> steps = this.plan.steps;
+      for (int i = this.plan.start; i < steps.size(); i++) {
+        if (!this.plan(i, steps.get(i))) {
+          break;
+        }
+      }
+      this.readAll();
+    }
+
+    /**
+     * Plans the given step.
+     *
+     * @param index the index of the step
+     * @param step  the step
+     * @return false if the plan ends after the step
+     */
+    private boolean plan(int index, ScriptStep step) {
+      int before = this.current;
+      IPhotoCommands command = step.getCommand();
+      if (step.getParseError() instanceof NoSuchElementException) {
+        // the script stops at this step, so whatever was deferred has to run before it
+        this.readAll();
+        this.plan.add(Action.RUN, before);
+        return false;
+      }
+      if (command == null) {
+        this.plan.add(Action.RUN, before);
+        if (step.is("fuse")) {
+          this.readAll();
+        }
+        return !step.is("fuse") && !step.is("q") && !step.is("quit");
+      }
+
+      PlannedLayer layer = this.getCurrent();
+      if (command instanceof IFilterCommand || command instanceof IColorTransformCommand) {
+        if (layer != null && layer.isVisible) {
+          layer.open.add(index);
+          layer.unread.add(index);
+          this.plan.add(Action.DEFER, before);
+        } else {
+          this.readAllIfInvalid();
+          this.plan.add(Action.RUN, before);
+        }
+        return true;
+      }
+
+      this.plan.add(Action.RUN, before);
+      String name = step.getArgument(0);
+      switch (step.getWord()) {
+        case "create":
+          if (this.indexOf(name) == -1) {
+            if (this.layers.isEmpty()) {
+              this.current = 0;
+            }
+            this.layers.add(new PlannedLayer(name, true));
+          }
+          return true;
+        case "remove":
+          this.remove(index, name);
+          return true;
+        case "current":
+          if (this.indexOf(name) != -1) {
+            this.current = this.indexOf(name);
+          }
+          return true;
+        case "visible":
+        case "invisible":
+          if (this.indexOf(name) != -1) {
+            this.layers.get(this.indexOf(name)).isVisible = step.getWord().equals("visible");
+          }
+          return true;
+        case "opacity":
+        case "blend":
+          return true;
+        case "load":
+          // loading replaces the image without reading it
+          if (layer != null) {
+            this.close(layer);
+          }
+          this.readAllIfInvalid();
+          return true;
+        case "mosaic":
+          if (layer != null) {
+            this.read(layer);
+          }
+          this.readAllIfInvalid();
+          return true;
+        case "save":
+        case "saveall":
+        case "saveflat":
+        case "downscale":
+          this.readAll();
+          return true;
+        default:
+          // anything else may add layers that cannot be known before it runs
+          this.readAll();
+          return false;
+      }
+    }
+
+    /**
+     * Removes the layer with the given name, as the model does, and drops the filters and color
+     * transformations of the layer that nothing read.
+     *
+     * @param index the index of the step that removes the layer
+     * @param name  the name of the layer
+     */
+    private void remove(int index, String name) {
+      int removedIndex = this.indexOf(name);
+      if (removedIndex == -1) {
+        return;
+      }
+      PlannedLayer removed = this.layers.remove(removedIndex);
+      if (!removed.unread.isEmpty()) {
+        for (int stage : removed.unread) {
+          this.plan.actions.set(stage - this.plan.start, Action.DROP);
+          this.plan.passes.remove(stage);
+        }
+        this.plan.dropped.put(index, new Pass(removed.name, removed.unread));
+      }
+      if (this.layers.isEmpty()) {
+        this.current = -1;
+      }
+      if (this.current == removedIndex) {
+        this.current = this.layers.size() - 1;
+      }
+    }
+
+    /**
+     * Gets the current layer.
+     *
+     * @return the current layer, or null if there is none or it is unknown
+     */
+    private PlannedLayer getCurrent() {
+      if (this.current < 0 || this.current >= this.layers.size()) {
+        return null;
+      }
+      return this.layers.get(this.current);
+    }
+
+    /**
+     * Finds the first layer with the given name, as the model does.
+     *
+     * @param name the name of the layer
+     * @return the index of the layer, or -1 if there is none
+     */
+    private int indexOf(String name) {
+      for (int i = 0; i < this.layers.size(); i++) {
+        if (this.layers.get(i).name.equals(name)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Gives the open filters and color transformations of the given layer a pass, which runs at
+     * the last of them.
+     *
+     * @param layer the layer
+     */
+    private void close(PlannedLayer layer) {
+      if (layer.open.size() > 1) {
+        int last = layer.open.get(layer.open.size() - 1);
+        this.plan.actions.set(last - this.plan.start, Action.FUSE);
+        this.plan.passes.put(last, new Pass(layer.name, layer.open));
+      } else if (layer.open.size() == 1) {
+        this.plan.actions.set(layer.open.get(0) - this.plan.start, Action.RUN);
+      }
+      layer.open.clear();
+    }
+
+    /**
+     * Closes the open filters and color transformations of the given layer, since something reads
+     * it, so that they are no longer dropped if it is removed.
+     *
+     * @param layer the layer
+     */
+    private void read(PlannedLayer layer) {
+      this.close(layer);
+      layer.unread.clear();
+    }
+
+    /**
+     * Reads every layer.
+     */
+    private void readAll() {
+      for (PlannedLayer layer : this.layers) {
+        this.read(layer);
+      }
+    }
+
+    /**
+     * Reads every layer if the current layer is unknown or past the last layer. A step on an
+     * unknown current layer may read any of them, and one on a layer past the last stops the
+     * script, so whatever was deferred has to run before it.
+     */
+    private void readAllIfInvalid() {
+      if (this.current != -1 && this.getCurrent() == null) {
+        this.readAll();
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents one step of a script read by {@link ScriptCompiler}: the words it was read from and
+ * the command they were parsed into, or why they could not be.
+ */
+final class ScriptStep {
+
+  // INVARIANT: number is positive
+  private final int number;
+  // INVARIANT: contains at least the first word of the step
+  private final List<String> words;
+  // null if the first word is not a command or the rest of the words could not be parsed
+  private final IPhotoCommands command;
+  // null if the words were parsed, or if the first word is not a command
+  private final RuntimeException parseError;
+
+  /**
+   * Constructs a {@code ScriptStep} object.
+   *
+   * @param number     the number of the step in its script, starting from 1
+   * @param words      the words of the step, starting with its command
+   * @param command    the parsed command, or null if there is none
+   * @param parseError the exception thrown while parsing the command, or null if there is none
+   */
+  ScriptStep(int number, List<String> words, IPhotoCommands command,
+      RuntimeException parseError) {
+    this.number = number;
+    this.words = new ArrayList<>(words);
+    this.command = command;
+    this.parseError = parseError;
+  }
+
+  /**
+   * Gets the number of this step in its script.
+   *
+   * @return the number of this step, starting from 1
+   */
+  int getNumber() {
+    return this.number;
+  }
+
+  /**
+   * Gets the first word of this step, which names its command.
+   *
+   * @return the first word of this step
+   */
+  String getWord() {
+    return this.words.get(0);
+  }
+
+  /**
+   * Gets a word after the first word of this step.
+   *
+   * @param index the index of the argument, starting from 0 for the word after the command
+   * @return the argument, or an empty string if this step does not have that many words
+   */
+  String getArgument(int index) {
+    return index + 1 < this.words.size() ? this.words.get(index + 1) : "";
+  }
+
+  /**
+   * Gets the command this step was parsed into.
+   *
+   * @return the command, or null if the step is not a command or could not be parsed
+   */
+  IPhotoCommands getCommand() {
+    return this.command;
+  }
+
+  /**
+   * Gets the exception thrown while parsing the command of this step.
+   *
+   * @return the exception, or null if the step was parsed or is not a command
+   */
+  RuntimeException getParseError() {
+    return this.parseError;
+  }
+
+  /**
+   * Determines whether the first word of this step is the given word, ignoring case.
+   *
+   * @param word the word to compare to
+   * @return true if this step starts with the given word
+   */
+  boolean is(String word) {
+    return this.getWord().equalsIgnoreCase(word);
+  }
+
+  /**
+   * Gives the words of this step as they appear in the script.
+   *
+   * @return the words of this step, separated by spaces
+   */
+  @Override
+  public String toString() {
+    return String.join(" ", this.words);
+  }
+}
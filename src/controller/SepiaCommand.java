@@ -1,18 +1,24 @@
 package controller;
 
+import model.color.IColorTransformation;
 import model.color.Sepia;
 import model.layer.ILayerModel;
 
 /**
  * A class representing the command to apply sepia on an image.
  */
-public class SepiaCommand implements IPhotoCommands {
+public class SepiaCommand implements IColorTransformCommand {
 
   @Override
   public void runCommand(ILayerModel m) {
     if (m == null) {
       throw new IllegalArgumentException("Model is null.");
     }
-    m.colorTransformCurrent(new Sepia());
+    m.colorTransformCurrent(this.getColorTransformation());
+  }
+
+  @Override
+  public IColorTransformation getColorTransformation() {
+    return new Sepia();
   }
 }
@@ -0,0 +1,408 @@
+package controller;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
+
+/**
+ * A controller that keeps running and runs the scripts that {@link ClientImageProcessingController}
+ * objects send it, so that each script is run by a JVM that has already started, loaded the
+ * classes of the program and compiled its hottest code, instead of by a new one. It only accepts
+ * connections from the same machine, on the loopback address.
+ *
+ * <p>Any user of the machine can connect to the loopback address, so a script is only run if it
+ * is sent with the token of this server. The token is chosen at random when the server starts and
+ * written to a file that only the user who started it can read, which the client reads it from.
+ *
+ * <p>A script is sent as a line of options followed by the script itself, up to the end of the
+ * stream. The options are {@code -token} followed by the token of this server, any of
+ * {@code -quiet} and {@code -compile}, which work as they do with {@code -script},
+ * {@code -session} followed by the name of a session, {@code -dir} followed by the URL-encoded
+ * absolute path of the directory the relative paths of the script are resolved against, which is
+ * otherwise the directory this server runs in, and {@code -stop}, which stops this server once the
+ * script has run. The output of the script is sent back as it is written, followed by the error
+ * that stopped the script, if any, and the connection is closed once the script quits.
+ *
+ * <p>Each script runs on a new model of its own, unless it names a session. The scripts of a
+ * session run one after the other on the same model, so a script can carry on with the layers the
+ * last script of its session left. Only the sessions used most recently are kept.
+ */
+public class ServerImageProcessingController implements IImageProcessingController {
+
+  // The directory the tokens of the servers are written to unless another one is given
+  static final Path DEFAULT_TOKEN_DIRECTORY = Paths.get(System.getProperty("user.home"),
+      ".imageutil");
+  // How many random bytes a token has
+  private static final int TOKEN_BYTES = 32;
+
+  private final ServerSocket serverSocket;
+  private final Path tokenFile;
+  private final byte[] token;
+  private final int maxSessions;
+  // the models of the sessions, from the least to the most recently used
+  private final Map<String, ILayerModel> sessions;
+  // the most bytes the undo history of each model may take
+  private long historyBudget;
+  private ExecutorService workers;
+
+  /**
+   * Constructs a {@code ServerImageProcessingController} object which listens on the given port of
+   * the loopback address, and writes its token to the {@code .imageutil} directory of the home
+   * directory of the user.
+   *
+   * @param port        the port to listen on, or 0 for any free port
+   * @param maxSessions how many sessions are kept at most
+   * @throws IllegalArgumentException if the port or the number of sessions is invalid, or if the
+   *                                  port cannot be listened on or the token cannot be written
+   */
+  public ServerImageProcessingController(int port, int maxSessions)
+      throws IllegalArgumentException {
+    this(port, maxSessions, DEFAULT_TOKEN_DIRECTORY);
+  }
+
+  /**
+   * Constructs a {@code ServerImageProcessingController} object which listens on the given port of
+   * the loopback address, and writes its token to the given directory.
+   *
+   * @param port           the port to listen on, or 0 for any free port
+   * @param maxSessions    how many sessions are kept at most
+   * @param tokenDirectory the directory the token of the server is written to
+   * @throws IllegalArgumentException if the port or the number of sessions is invalid, if the
+   *                                  directory is null, or if the port cannot be listened on or
+   *                                  the token cannot be written
+   */
+  public ServerImageProcessingController(int port, int maxSessions, Path tokenDirectory)
+      throws IllegalArgumentException {
+    if (port < 0 || port > 65535 || maxSessions < 0 || tokenDirectory == null) {
+      throw new IllegalArgumentException("Invalid port, number of sessions or directory.");
+    }
+    try {
+      this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Port " + port + " cannot be listened on!");
+    }
+    this.tokenFile = getTokenFile(tokenDirectory, this.getPort());
+    this.token = new byte[TOKEN_BYTES];
+    new SecureRandom().nextBytes(this.token);
+    try {
+      writeToken(this.tokenFile, toHex(this.token));
+    } catch (IOException | UnsupportedOperationException e) {
+      this.stop();
+      throw new IllegalArgumentException("The token cannot be written to " + this.tokenFile
+          + "!");
+    }
+    this.maxSessions = maxSessions;
+    this.sessions = new LinkedHashMap<>(16, 0.75f, true);
+    this.historyBudget = LayerModel.DEFAULT_HISTORY_BUDGET;
+  }
+
+  /**
+   * Sets how many bytes the undo history of the layers of each script or session may take, which
+   * is {@link LayerModel#DEFAULT_HISTORY_BUDGET} unless it is set. It applies to the sessions
+   * started after it is set.
+   *
+   * @param bytes the most bytes the undo history of each model may take, or 0 to keep no history
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  public synchronized void setHistoryBudget(long bytes) throws IllegalArgumentException {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("History budget cannot be negative.");
+    }
+    this.historyBudget = bytes;
+  }
+
+  /**
+   * Gets the file the token of the server listening on the given port is written to.
+   *
+   * @param tokenDirectory the directory the tokens of the servers are written to
+   * @param port           the port of the server
+   * @return the file of the token
+   */
+  static Path getTokenFile(Path tokenDirectory, int port) {
+    return tokenDirectory.resolve("server-" + port + ".token");
+  }
+
+  /**
+   * Writes the given token to the given file, which only the current user can read on file
+   * systems with POSIX permissions. The token is written to a temporary file which is then renamed,
+   * so that it is never readable by anyone else, even for a moment.
+   *
+   * @param file  the file of the token
+   * @param token the token
+   * @throws IOException if the token cannot be written
+   */
+  private static void writeToken(Path file, String token) throws IOException {
+    boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    Path directory = file.toAbsolutePath().getParent();
+    if (posix) {
+      Files.createDirectories(directory,
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+    } else {
+      Files.createDirectories(directory);
+    }
+    FileAttribute<?>[] attributes = posix ? new FileAttribute<?>[]{
+        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))}
+        : new FileAttribute<?>[0];
+    Path temp = Files.createTempFile(directory, "server-", ".tmp", attributes);
+    try {
+      Files.write(temp, token.getBytes(StandardCharsets.US_ASCII));
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Writes the given bytes as hexadecimal digits.
+   *
+   * @param bytes the bytes
+   * @return two hexadecimal digits for each byte
+   */
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder();
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * Gets the port this server listens on, which is useful when it was given port 0.
+   *
+   * @return the port of this server
+   */
+  public int getPort() {
+    return this.serverSocket.getLocalPort();
+  }
+
+  /**
+   * Runs the scripts sent to this server, several at a time, until it is stopped by a script or
+   * by {@link #stop()}.
+   *
+   * @throws IllegalStateException if connections can no longer be accepted
+   */
+  @Override
+  public void processImage() throws IllegalStateException {
+    synchronized (this) {
+      if (this.workers != null) {
+        throw new IllegalStateException("The server is already running!");
+      }
+      // scripts mostly wait on the files and sockets they read and write, so a few more run than
+      // there are processors
+      this.workers = Executors.newFixedThreadPool(
+          Math.max(2, 2 * Runtime.getRuntime().availableProcessors()));
+    }
+    try {
+      while (!this.serverSocket.isClosed()) {
+        Socket socket;
+        try {
+          socket = this.serverSocket.accept();
+        } catch (SocketException e) {
+          // the server was stopped while waiting for a connection
+          break;
+        }
+        try {
+          this.workers.execute(() -> this.handle(socket));
+        } catch (RejectedExecutionException e) {
+          // a script stopped the server after this connection was accepted
+          socket.close();
+          break;
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Connections can no longer be accepted!");
+    } finally {
+      this.stop();
+    }
+  }
+
+  /**
+   * Stops this server and deletes its token. The scripts already running are left to finish.
+   */
+  public void stop() {
+    try {
+      // the token is deleted first, so it is never the token of another server on the same port
+      if (this.tokenFile != null) {
+        Files.deleteIfExists(this.tokenFile);
+      }
+    } catch (IOException e) {
+      // the token is of no use without the server
+    }
+    try {
+      this.serverSocket.close();
+    } catch (IOException e) {
+      // the socket is closed either way
+    }
+    synchronized (this) {
+      if (this.workers != null) {
+        this.workers.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Runs the script sent over the given connection and sends its output back.
+   *
+   * @param socket the connection to a client
+   */
+  private void handle(Socket socket) {
+    boolean stop = false;
+    try (Socket client = socket;
+        BufferedReader in = new BufferedReader(
+            new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+        Writer out = new BufferedWriter(
+            new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+      String header = in.readLine();
+      String[] options = header == null ? new String[0] : header.trim().split("\\s+");
+      boolean quiet = false;
+      boolean compiled = false;
+      String session = null;
+      String sentToken = null;
+      Path directory = null;
+      for (int i = 0; i < options.length; i++) {
+        switch (options[i].toLowerCase()) {
+          case "-token":
+            sentToken = i + 1 < options.length ? options[++i] : null;
+            break;
+          case "-dir":
+            directory = i + 1 < options.length ? parseDirectory(options[++i]) : null;
+            break;
+          case "-quiet":
+            quiet = true;
+            break;
+          case "-compile":
+            compiled = true;
+            break;
+          case "-stop":
+            stop = true;
+            break;
+          case "-session":
+            session = i + 1 < options.length ? options[++i] : null;
+            break;
+          default:
+            break;
+        }
+      }
+
+      // the whole script is read before it runs, since the client only reads the output once it
+      // has sent all of the script
+      StringBuilder script = new StringBuilder();
+      char[] chars = new char[8192];
+      for (int n = in.read(chars); n != -1; n = in.read(chars)) {
+        script.append(chars, 0, n);
+      }
+      if (!this.isToken(sentToken)) {
+        // the script was read all the same, so that the client gets the error rather than a reset
+        out.write("Error: The script was not sent with the token of this server.\n");
+        out.flush();
+        return;
+      }
+
+      ILayerModel model = session == null ? this.newModel() : this.getSession(session);
+      synchronized (model) {
+        SimpleIImageProcessingController controller = new SimpleIImageProcessingController(model,
+            new StringReader(script.toString()), out);
+        controller.setQuiet(quiet);
+        controller.setCompiled(compiled);
+        if (directory != null) {
+          controller.setWorkingDirectory(directory);
+        }
+        try {
+          controller.processImage();
+        } catch (IllegalStateException | IllegalArgumentException | NoSuchElementException e) {
+          out.write("Error: " + e.getMessage() + "\n");
+        }
+      }
+      out.flush();
+    } catch (IOException | IllegalStateException e) {
+      // the client went away, so there is no one to tell
+    }
+    if (stop) {
+      this.stop();
+    }
+  }
+
+  /**
+   * Determines whether the given token is the token of this server, taking as long whatever the
+   * token is, so that how long it takes does not tell how much of the token is right.
+   *
+   * @param sentToken the token sent with a script, or null if none was
+   * @return true if the token is the token of this server
+   */
+  private boolean isToken(String sentToken) {
+    return sentToken != null && MessageDigest.isEqual(toHex(this.token).getBytes(
+        StandardCharsets.US_ASCII), sentToken.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Parses the directory sent with a script.
+   *
+   * @param encoded the URL-encoded path of the directory
+   * @return the directory, or null if it is not a valid absolute path
+   */
+  private static Path parseDirectory(String encoded) {
+    try {
+      Path directory = Paths.get(URLDecoder.decode(encoded, StandardCharsets.UTF_8));
+      return directory.isAbsolute() ? directory : null;
+    } catch (IllegalArgumentException e) {
+      // an invalid path is an InvalidPathException, and an invalid encoding is the exception
+      // itself
+      return null;
+    }
+  }
+
+  /**
+   * Creates the model a script or session runs on, with the history budget of this server.
+   *
+   * @return a new model
+   */
+  private synchronized ILayerModel newModel() {
+    return new LayerModel(this.historyBudget);
+  }
+
+  /**
+   * Gets the model of the session with the given name, creating it if this server has none, and
+   * forgetting the least recently used session if there are too many.
+   *
+   * @param name the name of the session
+   * @return the model of the session
+   */
+  private synchronized ILayerModel getSession(String name) {
+    ILayerModel model = this.sessions.get(name);
+    if (model == null) {
+      model = this.newModel();
+      this.sessions.put(name, model);
+      while (this.sessions.size() > this.maxSessions) {
+        this.sessions.remove(this.sessions.keySet().iterator().next());
+      }
+    }
+    return model;
+  }
+}
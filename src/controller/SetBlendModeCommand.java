@@ -0,0 +1,37 @@
+package controller;
+
+import model.layer.BlendMode;
+import model.layer.ILayerModel;
+
+/**
+ * A class representing the command to set the blend mode of a layer with a layername.
+ */
+public class SetBlendModeCommand implements IPhotoCommands {
+
+  private final String layerName;
+  private final BlendMode mode;
+
+  /**
+   * Constructs the command that sets the blend mode of the layer with the given name.
+   *
+   * @param layerName the name of the layer
+   * @param modeName  the name of the blend mode: normal, multiply, screen, overlay or add
+   * @throws IllegalArgumentException if any argument is null or if there is no blend mode with the
+   *                                  given name
+   */
+  public SetBlendModeCommand(String layerName, String modeName) {
+    if (layerName == null) {
+      throw new IllegalArgumentException("Layer name is null");
+    }
+    this.layerName = layerName;
+    this.mode = BlendMode.fromName(modeName);
+  }
+
+  @Override
+  public void runCommand(ILayerModel m) {
+    if (m == null) {
+      throw new IllegalArgumentException("Model is null.");
+    }
+    m.setBlendMode(layerName, mode);
+  }
+}
@@ -0,0 +1,39 @@
+package controller;
+
+import model.layer.ILayerModel;
+
+/**
+ * A class representing the command to set the opacity of a layer with a layername.
+ */
+public class SetOpacityCommand implements IPhotoCommands {
+
+  private final String layerName;
+  private final double opacity;
+
+  /**
+   * Constructs the command that sets the opacity of the layer with the given name.
+   *
+   * @param layerName the name of the layer
+   * @param opacity   the new opacity of the layer, from 0 to 1
+   * @throws IllegalArgumentException if the given layername is null or if the opacity is not
+   *                                  between 0 and 1
+   */
+  public SetOpacityCommand(String layerName, double opacity) {
+    if (layerName == null) {
+      throw new IllegalArgumentException("Layer name is null");
+    }
+    if (!(opacity >= 0 && opacity <= 1)) {
+      throw new IllegalArgumentException("Opacity must be between 0 and 1");
+    }
+    this.layerName = layerName;
+    this.opacity = opacity;
+  }
+
+  @Override
+  public void runCommand(ILayerModel m) {
+    if (m == null) {
+      throw new IllegalArgumentException("Model is null.");
+    }
+    m.setOpacity(layerName, opacity);
+  }
+}
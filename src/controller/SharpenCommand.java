@@ -1,18 +1,24 @@
 package controller;
 
+import model.filter.IFilter;
 import model.filter.Sharpening;
 import model.layer.ILayerModel;
 
 /**
  * A class representing the command to sharpen an image.
  */
-public class SharpenCommand implements IPhotoCommands {
+public class SharpenCommand implements IFilterCommand {
 
   @Override
   public void runCommand(ILayerModel m) {
     if (m == null) {
       throw new IllegalArgumentException("Model is null.");
     }
-    m.filterCurrent(new Sharpening());
+    m.filterCurrent(this.getFilter());
+  }
+
+  @Override
+  public IFilter getFilter() {
+    return new Sharpening();
   }
 }
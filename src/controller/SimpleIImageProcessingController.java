@@ -4,11 +4,19 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.util.function.Function;
 import model.LayerModelState;
+import model.color.ColorTransformationChain;
+import model.color.IColorTransformation;
 import model.layer.ILayerModel;
+import model.layer.LayerMetadata;
 import utils.ControllerUtils;
 import view.SimpleIImageProcessingView;
 
@@ -22,6 +30,16 @@ public class SimpleIImageProcessingController implements IImageProcessingControl
   private final ILayerModel model;
   private final SimpleIImageProcessingView view;
   private final Readable rd;
+  // The color transformations read while fusing that have not been applied to the current layer yet
+  private final List<IColorTransformation> pendingTransformations = new ArrayList<>();
+  private boolean fuseColorTransformations;
+  private boolean allowInexactFusion;
+  // whether the layer state is only written when the state command asks for it
+  private boolean quiet;
+  // whether the whole script is read and planned before it is run
+  private boolean compiled;
+  // the directory the relative paths of files in the script are resolved against
+  private Path workingDirectory = Paths.get("");
 
   /**
    * Constructs a {@code SimpleIImageProcessingController} object with the new updated model which
@@ -67,11 +85,68 @@ public class SimpleIImageProcessingController implements IImageProcessingControl
     }
   }
 
+  /**
+   * Sets whether consecutive color transformation commands on the current layer (such as sepia
+   * followed by grayscale) are fused and applied to the image in a single pass. The same mode can be
+   * set from a script with {@code fuse exact}, {@code fuse approximate}, or {@code fuse off}.
+   *
+   * @param fuse         whether consecutive color transformations are fused
+   * @param allowInexact whether the matrices of the fused transformations may be multiplied into a
+   *                     single matrix, which skips the clamping in between and so may change the
+   *                     result slightly
+   */
+  public void setColorTransformationFusion(boolean fuse, boolean allowInexact) {
+    this.fuseColorTransformations = fuse;
+    this.allowInexactFusion = fuse && allowInexact;
+  }
+
+  /**
+   * Sets whether the layers are written after every command. In quiet mode the state of the layers
+   * is only written when a script asks for it with the {@code state} command, and only errors and
+   * other messages are written otherwise, which saves time and output on long scripts.
+   *
+   * @param quiet whether the state of the layers is only written on demand
+   */
+  public void setQuiet(boolean quiet) {
+    this.quiet = quiet;
+  }
+
+  /**
+   * Sets whether the whole script is read and planned before any of it is run. A compiled script
+   * fuses consecutive filters and color transformations of the same layer into a single pass over
+   * its image, and skips those whose layer is removed before anything reads it. The layers, the
+   * saved files, and the output are the same as when each command is run as it is read, and the
+   * {@code explain} command of a compiled script writes the plan of the rest of the script.
+   *
+   * @param compiled whether the script is planned before it is run
+   */
+  public void setCompiled(boolean compiled) {
+    this.compiled = compiled;
+  }
+
+  /**
+   * Sets the directory the relative paths of the files the script reads and writes are resolved
+   * against, which is otherwise the directory the program runs in.
+   *
+   * @param workingDirectory the directory relative paths are resolved against
+   * @throws IllegalArgumentException if the directory is null
+   */
+  public void setWorkingDirectory(Path workingDirectory) throws IllegalArgumentException {
+    if (workingDirectory == null) {
+      throw new IllegalArgumentException("Directory cannot be null.");
+    }
+    this.workingDirectory = workingDirectory;
+  }
+
   @Override
   public void processImage() throws IllegalStateException, IllegalArgumentException {
+    if (this.compiled) {
+      this.processCompiledScript();
+      return;
+    }
     Scanner in = new Scanner(this.rd);
     Map<String, Function<Scanner, IPhotoCommands>> knownCommands = ControllerUtils
-        .getKnownCommands();
+        .getKnownCommands(this.workingDirectory);
     Function<Scanner, IPhotoCommands> functionCommand;
     boolean hasQuit = false;
 
@@ -79,22 +154,42 @@ public class SimpleIImageProcessingController implements IImageProcessingControl
       String input = in.next();
       if (input.equalsIgnoreCase("q") || input.equalsIgnoreCase("quit")) {
         hasQuit = true;
+        this.applyPendingTransformations();
         this.attemptAppend("The process has been quit.\n");
         return;
       }
+      if (input.equalsIgnoreCase("fuse")) {
+        this.applyPendingTransformations();
+        this.setFusionMode(in.hasNext() ? in.next() : "");
+        continue;
+      }
+      if (input.equalsIgnoreCase("state")) {
+        this.applyPendingTransformations();
+        this.attemptRenderState();
+        continue;
+      }
+      if (input.equalsIgnoreCase("explain")) {
+        this.applyPendingTransformations();
+        this.attemptAppend("Each command is run as it is read, so there is no plan to explain. "
+            + "Run the script with -compile to plan it first.\n");
+        continue;
+      }
       functionCommand = knownCommands.getOrDefault(input, null);
 
       if (functionCommand != null) {
         try {
-          this.runCommandBasedOnFunction(functionCommand, in);
+          this.runCommand(functionCommand.apply(in), true);
         } catch (IllegalArgumentException e) {
+          this.applyPendingTransformations();
           this.attemptAppend("Invalid command! Try again! " + e.getMessage() + "\n");
         }
       } else {
+        this.applyPendingTransformations();
         this.attemptAppend("Invalid input!\n");
       }
     }
 
+    this.applyPendingTransformations();
     // checks if readable has failed
     if (!hasQuit) {
       throw new IllegalStateException("Readable has failed!");
@@ -102,40 +197,220 @@ public class SimpleIImageProcessingController implements IImageProcessingControl
   }
 
   /**
-   * Runs the correct command based on a given function object and a scanner.
+   * Runs a script that has been read and planned as a whole. Each step writes the same output as
+   * it does when the script is run one command at a time, but the filters and color
+   * transformations the plan defers are only applied when the last step of their pass is reached,
+   * and those it drops are never applied.
    *
-   * @param functionCommand the given function command associated with
-   * @param in              the scanner associated with the controller
-   * @throws IllegalStateException if writing to the Appendable fails
+   * @throws IllegalStateException if the script does not quit or writing to the Appendable fails
    */
-  private void runCommandBasedOnFunction(Function<Scanner, IPhotoCommands> functionCommand,
-      Scanner in) throws IllegalStateException {
-    IPhotoCommands command = functionCommand.apply(in);
-    command.runCommand(this.model);
+  private void processCompiledScript() throws IllegalStateException {
+    this.processSteps(ScriptCompiler.parse(this.rd,
+        ControllerUtils.getKnownCommands(this.workingDirectory)));
+  }
+
+  /**
+   * Plans and runs the given steps of a script that has already been read, as a compiled script
+   * is run. The steps are not changed, so the same steps can be run on several models.
+   *
+   * @param steps the steps of the script
+   * @throws IllegalStateException if the script does not quit or writing to the Appendable fails
+   */
+  void processSteps(List<ScriptStep> steps) throws IllegalStateException {
+    ScriptPlan plan = null;
 
-    this.attemptAppend(createLayerState());
+    for (int i = 0; i < steps.size(); i++) {
+      if (plan == null || i >= plan.getEnd()) {
+        this.applyPendingTransformations();
+        plan = ScriptPlan.plan(steps, i, this.model.getLayerMetadata(),
+            this.model.getCurrentLayerIndex(), this.allowInexactFusion);
+      }
+      ScriptStep step = steps.get(i);
+      if (step.is("q") || step.is("quit")) {
+        this.applyPendingTransformations();
+        this.attemptAppend("The process has been quit.\n");
+        return;
+      }
+      if (step.is("fuse")) {
+        this.applyPendingTransformations();
+        this.setFusionMode(step.getArgument(0));
+        continue;
+      }
+      if (step.is("state")) {
+        this.applyPendingTransformations();
+        this.attemptRenderState();
+        continue;
+      }
+      if (step.is("explain")) {
+        this.applyPendingTransformations();
+        this.attemptAppend(plan.explain(i + 1));
+        continue;
+      }
+
+      if (step.getParseError() instanceof NoSuchElementException) {
+        throw (NoSuchElementException) step.getParseError();
+      } else if (step.getParseError() != null) {
+        this.applyPendingTransformations();
+        this.attemptAppend("Invalid command! Try again! " + step.getParseError().getMessage()
+            + "\n");
+      } else if (step.getCommand() == null) {
+        this.applyPendingTransformations();
+        this.attemptAppend("Invalid input!\n");
+      } else {
+        this.runPlannedStep(plan, i, step.getCommand());
+      }
+    }
+
+    this.applyPendingTransformations();
+    throw new IllegalStateException("Readable has failed!");
   }
 
   /**
-   * Creates the layer state based on the model state field.
+   * Runs the command of a planned step as its plan says. A step that is deferred or dropped only
+   * writes the state its command would have left, which does not depend on the pixels of any
+   * image, unless the command cannot be applied, in which case it is run to write its error.
    *
-   * @return the string associated with the current layer state.
+   * @param plan    the plan of the step
+   * @param index   the index of the step
+   * @param command the command of the step
+   * @throws IllegalStateException if the layers differ from the plan or writing to the Appendable
+   *                               fails
    */
-  private String createLayerState() {
-    StringBuilder newString = new StringBuilder();
+  private void runPlannedStep(ScriptPlan plan, int index, IPhotoCommands command)
+      throws IllegalStateException {
+    ScriptPlan.Action action = plan.getAction(index);
+    if (action == ScriptPlan.Action.RUN || !this.canApplyToCurrentLayer()) {
+      try {
+        // an unplanned script holds color transformations back for fusion as it always has
+        this.runCommand(command, !plan.isPlanned());
+      } catch (IllegalArgumentException e) {
+        this.applyPendingTransformations();
+        this.attemptAppend("Invalid command! Try again! " + e.getMessage() + "\n");
+      }
+      return;
+    }
 
-    for (int i = 0; i < this.model.getLayers().size(); i++) {
-      newString.append("Layer #").append(i + 1).append(", ")
-          .append(this.model.getLayers().get(i).toString())
-          .append("\n");
+    if (this.model.getCurrentLayerIndex() != plan.getCurrentLayer(index)) {
+      throw new IllegalStateException("The layers do not match the plan of the script.");
     }
+    if (action == ScriptPlan.Action.FUSE) {
+      try {
+        this.model.filterCurrent(plan.getPipeline(index));
+      } catch (IllegalArgumentException e) {
+        this.attemptAppend("Invalid command! Try again! " + e.getMessage() + "\n");
+        return;
+      }
+    }
+    if (!this.quiet) {
+      this.attemptRenderState();
+    }
+  }
+
+  /**
+   * Determines whether a filter or color transformation can be applied to the current layer, which
+   * must be visible and have an image.
+   *
+   * @return true if the current layer can be filtered
+   */
+  private boolean canApplyToCurrentLayer() {
+    int current = this.model.getCurrentLayerIndex();
+    if (current == -1) {
+      return false;
+    }
+    LayerMetadata layer = this.model.getLayerMetadata().get(current);
+    return layer.isVisible() && layer.hasImage();
+  }
+
+  /**
+   * Sets the color transformation fusion mode to the given mode, which must be exact, approximate,
+   * or off.
+   *
+   * @param mode the word that names the mode
+   * @throws IllegalStateException if writing to the Appendable fails
+   */
+  private void setFusionMode(String mode) throws IllegalStateException {
+    switch (mode.toLowerCase()) {
+      case "exact":
+        this.setColorTransformationFusion(true, false);
+        break;
+      case "approximate":
+        this.setColorTransformationFusion(true, true);
+        break;
+      case "off":
+        this.setColorTransformationFusion(false, false);
+        break;
+      default:
+        this.attemptAppend("Invalid command! Try again! Fusion mode must be exact, approximate, "
+            + "or off.\n");
+        return;
+    }
+    this.attemptAppend("Color transformation fusion: " + mode.toLowerCase() + "\n");
+  }
+
+  /**
+   * Runs the given command. While fusion is on, color transformations of the current layer may be
+   * held back until a different command is read, so that consecutive ones can be applied in a
+   * single pass.
+   *
+   * @param command     the command to run
+   * @param mayHoldBack whether a color transformation may be held back
+   * @throws IllegalStateException if writing to the Appendable fails
+   */
+  private void runCommand(IPhotoCommands command, boolean mayHoldBack)
+      throws IllegalStateException {
+    if (mayHoldBack && this.fuseColorTransformations && command instanceof IColorTransformCommand) {
+      this.pendingTransformations.add(((IColorTransformCommand) command).getColorTransformation());
+      return;
+    }
+
+    this.applyPendingTransformations();
+    command.runCommand(this.model);
+
+    if (!this.quiet) {
+      this.attemptRenderState();
+    }
+  }
 
+  /**
+   * Applies the color transformations that have been held back to the current layer in a single
+   * pass. The output is the same as if each of them had been run as its own command, since none of
+   * them changes the layers, their names, or their visibility.
+   *
+   * @throws IllegalStateException if writing to the Appendable fails
+   */
+  private void applyPendingTransformations() throws IllegalStateException {
+    if (this.pendingTransformations.isEmpty()) {
+      return;
+    }
+    int numCommands = this.pendingTransformations.size();
+    String message = null;
     try {
-      return newString + "Number of valid layers created: " + this.model.getLayers().size()
-          + "\nCurrent Layer: " + this.model.getCurrentLayer().toString() + "\n";
+      this.model.colorTransformCurrent(numCommands == 1 ? this.pendingTransformations.get(0)
+          : new ColorTransformationChain(this.pendingTransformations, this.allowInexactFusion));
     } catch (IllegalArgumentException e) {
-      return newString + "Number of valid layers created: " + this.model.getLayers().size()
-          + "\nCurrent not yet set.\n";
+      message = "Invalid command! Try again! " + e.getMessage() + "\n";
+    } finally {
+      this.pendingTransformations.clear();
+    }
+    for (int i = 0; i < numCommands; i++) {
+      if (message != null) {
+        this.attemptAppend(message);
+      } else if (!this.quiet) {
+        this.attemptRenderState();
+      }
+    }
+  }
+
+  /**
+   * Tries to render the state of the layers to this appendable.
+   *
+   * @throws IllegalStateException if writing to the Appendable throws an IOException
+   */
+  private void attemptRenderState() throws IllegalStateException {
+    try {
+      this.view.renderLayerState();
+    } catch (IOException e) {
+      throw new IllegalStateException("Writing to the Appendable object used by it fails");
     }
   }
 
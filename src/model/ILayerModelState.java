@@ -1,7 +1,9 @@
 package model;
 
+import java.util.List;
 import model.layer.ILayer;
 import model.image.IImage;
+import model.layer.LayerMetadata;
 
 /**
  * This interface represents different operations that a layer model must support to return various
@@ -39,4 +41,19 @@ public interface ILayerModelState {
    * @throws IllegalArgumentException if the given index is invalid
    */
   ILayer getLayer(int index) throws IllegalArgumentException;
+
+  /**
+   * Gets the metadata of every layer in the model, in order, without copying the layers or looking
+   * at the pixels of their images.
+   *
+   * @return the metadata of the layers, which cannot be changed
+   */
+  List<LayerMetadata> getLayerMetadata();
+
+  /**
+   * Gets the index of the current layer in the model.
+   *
+   * @return the index of the current layer, or -1 if no current layer exists
+   */
+  int getCurrentLayerIndex();
 }
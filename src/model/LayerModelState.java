@@ -1,8 +1,10 @@
 package model;
 
+import java.util.List;
 import model.layer.ILayer;
 import model.layer.ILayerModel;
 import model.image.IImage;
+import model.layer.LayerMetadata;
 
 
 /**
@@ -29,7 +31,7 @@ public class LayerModelState implements ILayerModelState {
 
   @Override
   public int getNumLayers() {
-    return this.model.getLayers().size();
+    return this.model.getNumLayers();
   }
 
   @Override
@@ -43,20 +45,21 @@ public class LayerModelState implements ILayerModelState {
 
   @Override
   public IImage getTopmostVisibleLayerImage() {
-    for (int i = getNumLayers() - 1; i >= 0; i--) {
-      if (getLayer(i).isVisible() && getLayer(i).getImage() != null) {
-        return getLayer(i).getImage();
-      }
-    }
-    return null;
+    return this.model.getTopmostVisibleLayerImage();
   }
 
   @Override
   public ILayer getLayer(int index) throws IllegalArgumentException {
-    if (index < 0 || index >= this.getNumLayers()) {
-      throw new IllegalArgumentException("Index out of bounds!");
-    }
+    return this.model.getLayer(index);
+  }
 
-    return this.model.getLayers().get(index);
+  @Override
+  public List<LayerMetadata> getLayerMetadata() {
+    return this.model.getLayerMetadata();
+  }
+
+  @Override
+  public int getCurrentLayerIndex() {
+    return this.model.getCurrentLayerIndex();
   }
 }
@@ -1,35 +1,93 @@
 package model.color;
 
 import model.image.IImage;
-import model.image.IPixel;
 import model.image.Image;
-import model.image.Pixel;
 
 /**
  * The abstract class for image color transformations which contains shared properties between
  * different color transformation.
+ *
+ * <p>Since every channel of a pixel is between 0 and 255, each of the nine products of the matrix
+ * with a channel value is computed once, when the transformation is constructed, into a table of
+ * 256 entries. Applying the transformation to a pixel is then nine table lookups.
  */
 public abstract class AColorTransformation implements IColorTransformation {
 
   // The matrix representing the necessary color transformation
   // INVARIANT: The matrix must be a 3x3.
-  protected double[][] colorTransformation;
+  protected final double[][] colorTransformation;
+  // tables[3 * i + j][value] is colorTransformation[i][j] * value
+  private final double[][] tables;
+
+  /**
+   * Constructs a color transformation with the given matrix and computes the tables used to apply
+   * it. The matrix is copied, so later changes to the given matrix do not affect this
+   * transformation.
+   *
+   * @param colorTransformation the matrix to be applied on an image's pixels
+   * @throws IllegalArgumentException if the matrix is null or if the dimensions of the matrix is
+   *                                  not 3x3.
+   */
+  protected AColorTransformation(double[][] colorTransformation)
+      throws IllegalArgumentException {
+    if (colorTransformation == null) {
+      throw new IllegalArgumentException("Matrix is null.");
+    }
+    if (colorTransformation.length != 3) {
+      throw new IllegalArgumentException("The matrix must be a 3x3.");
+    }
+    this.colorTransformation = new double[3][];
+    this.tables = new double[9][256];
+    for (int i = 0; i < 3; i++) {
+      if (colorTransformation[i] == null || colorTransformation[i].length != 3) {
+        throw new IllegalArgumentException("The matrix must be a 3x3.");
+      }
+      this.colorTransformation[i] = colorTransformation[i].clone();
+      for (int j = 0; j < 3; j++) {
+        for (int value = 0; value < 256; value++) {
+          this.tables[3 * i + j][value] = this.colorTransformation[i][j] * value;
+        }
+      }
+    }
+  }
 
   @Override
   public IImage apply(IImage image) throws IllegalArgumentException {
-    if (image == null || colorTransformation == null) {
+    if (image == null) {
       throw new IllegalArgumentException("Argument(s) not be null!");
     }
-    IPixel[][] imageGrid = image.getImage();
+    int height = image.getHeight();
+    int width = image.getWidth();
+    int[] result = image.getPixels(new int[width * height]);
 
-    for (int i = 0; i < imageGrid.length; i++) {
-      for (int j = 0; j < imageGrid[i].length; j++) {
-        imageGrid[i][j] = applyToEachPixel(new Pixel(imageGrid[i][j].getX(), imageGrid[i][j].getY(),
-            imageGrid[i][j].getRed(), imageGrid[i][j].getGreen(), imageGrid[i][j].getBlue()));
-      }
+    for (int i = 0; i < result.length; i++) {
+      result[i] = applyToEachPixel(result[i]);
     }
 
-    return new Image(imageGrid, image.getFilename());
+    return new Image(result, width, height, image.getFilename());
+  }
+
+  /**
+   * Applies this transformation to the given number of packed pixels of one buffer and writes the
+   * results to another, which may be the same buffer. Each pixel is transformed exactly as by
+   * {@link #apply(IImage)}, so a caller that holds part of an image can transform just that part.
+   *
+   * @param source       the packed pixels to transform
+   * @param sourceOffset the index of the first pixel to transform
+   * @param dest         the buffer to write the transformed pixels into
+   * @param destOffset   the index to write the first transformed pixel to
+   * @param length       the number of pixels to transform
+   * @throws IllegalArgumentException if a buffer is null or the range is outside of a buffer
+   */
+  public void applyToPixels(int[] source, int sourceOffset, int[] dest, int destOffset,
+      int length) throws IllegalArgumentException {
+    if (source == null || dest == null || length < 0 || sourceOffset < 0 || destOffset < 0
+        || sourceOffset + length > source.length || destOffset + length > dest.length) {
+      throw new IllegalArgumentException("Invalid range of pixels.");
+    }
+    for (int i = 0; i < length; i++) {
+      dest[destOffset + i] = this.applyToEachPixel(source[sourceOffset + i]);
+    }
   }
 
   /**
@@ -37,25 +95,35 @@ public abstract class AColorTransformation implements IColorTransformation {
    * values of a pixel are combinations of its initial red, green, and blue values. Clamping is
    * applied if needed.
    *
-   * @param pix a given pixel in an image
-   * @return the pixel with the color transformation applied to it
-   * @throws IllegalArgumentException if the given pixel is null
+   * @param rgb a given pixel in an image, packed as {@code 0xRRGGBB}
+   * @return the pixel with the color transformation applied to it, packed as {@code 0xRRGGBB}
    */
-  protected IPixel applyToEachPixel(IPixel pix) throws IllegalArgumentException {
-    if (pix == null) {
-      throw new IllegalArgumentException("Cannot have a null pixel.");
-    }
-    int[] rgb = {pix.getRed(), pix.getGreen(), pix.getBlue()};
-    int[] result = new int[3];
+  protected int applyToEachPixel(int rgb) {
+    int red = (rgb >> 16) & 0xFF;
+    int green = (rgb >> 8) & 0xFF;
+    int blue = rgb & 0xFF;
 
-    for (int i = 0; i < colorTransformation.length; i++) {
-      for (int j = 0; j < rgb.length; j++) {
-        result[i] += colorTransformation[i][j] * rgb[j];
-      }
-      result[i] = this.clampValues(result[i]);
-    }
+    return (this.applyToChannel(0, red, green, blue) << 16)
+        | (this.applyToChannel(1, red, green, blue) << 8)
+        | this.applyToChannel(2, red, green, blue);
+  }
 
-    return new Pixel(pix.getX(), pix.getY(), result[0], result[1], result[2]);
+  /**
+   * Computes one output channel of a pixel from the row of the matrix associated with that channel.
+   * Each product is truncated into the running sum in order (red, green, then blue), exactly as
+   * when the products are added to an int, and the sum is then clamped.
+   *
+   * @param row   the row of the matrix, 0 for red, 1 for green, and 2 for blue
+   * @param red   the red value of the pixel
+   * @param green the green value of the pixel
+   * @param blue  the blue value of the pixel
+   * @return the clamped value of the channel
+   */
+  private int applyToChannel(int row, int red, int green, int blue) {
+    int result = (int) this.tables[3 * row][red];
+    result = (int) (result + this.tables[3 * row + 1][green]);
+    result = (int) (result + this.tables[3 * row + 2][blue]);
+    return this.clampValues(result);
   }
 
   /**
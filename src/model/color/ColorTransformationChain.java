@@ -0,0 +1,141 @@
+package model.color;
+
+import java.util.ArrayList;
+import java.util.List;
+import model.image.IImage;
+import model.image.Image;
+
+/**
+ * A color transformation that applies a sequence of color transformations to an image in a single
+ * pass over its pixels, so that only one copy of the image is made no matter how many
+ * transformations are chained.
+ *
+ * <p>By default every transformation is still applied to each pixel in order, with its own
+ * truncation and clamping, so the result is exactly the same as applying the transformations one
+ * after the other. If inexact fusion is allowed, the matrices are instead multiplied into a single
+ * matrix which is applied once. That is faster, but since the values in between the
+ * transformations are no longer truncated or clamped, the result may differ from applying them one
+ * after the other (for example, sepia clamps the red of a light gray pixel to 255 before grayscale
+ * is applied, while the product of the two matrices does not).
+ */
+public class ColorTransformationChain implements IColorTransformation {
+
+  // INVARIANT: contains at least one transformation and no null transformations
+  private final List<IColorTransformation> transformations;
+  // The product of the matrices of the transformations, or null if inexact fusion is not allowed
+  // or if one of the transformations is not matrix based
+  private final AColorTransformation composed;
+
+  /**
+   * Constructs a {@code ColorTransformationChain} object which applies the given transformations in
+   * order.
+   *
+   * @param transformations the transformations to apply, first to last
+   * @param allowInexact    whether the matrices of the transformations may be multiplied into a
+   *                        single matrix, skipping the truncation and clamping in between
+   * @throws IllegalArgumentException if the list is null, empty, or contains a null transformation
+   */
+  public ColorTransformationChain(List<IColorTransformation> transformations,
+      boolean allowInexact) throws IllegalArgumentException {
+    if (transformations == null || transformations.isEmpty()) {
+      throw new IllegalArgumentException("There must be at least one color transformation.");
+    }
+    for (IColorTransformation transformation : transformations) {
+      if (transformation == null) {
+        throw new IllegalArgumentException("Color transformation cannot be null.");
+      }
+    }
+
+    this.transformations = new ArrayList<>(transformations);
+    this.composed = allowInexact ? compose(this.transformations) : null;
+  }
+
+  /**
+   * Multiplies the matrices of the given transformations into the matrix of a single
+   * transformation. Applying the result is the same as applying the given transformations in order
+   * without truncating or clamping in between.
+   *
+   * @param transformations the transformations to compose, first to last
+   * @return the composed transformation, or null if one of the transformations is not matrix based
+   */
+  private static AColorTransformation compose(List<IColorTransformation> transformations) {
+    double[][] product = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
+    for (IColorTransformation transformation : transformations) {
+      if (!(transformation instanceof AColorTransformation)) {
+        return null;
+      }
+      product = multiply(((AColorTransformation) transformation).colorTransformation, product);
+    }
+    return new UserColorTransformation(product);
+  }
+
+  /**
+   * Multiplies the two given 3x3 matrices.
+   *
+   * @param left  the matrix on the left of the product
+   * @param right the matrix on the right of the product
+   * @return the product of the two matrices
+   */
+  private static double[][] multiply(double[][] left, double[][] right) {
+    double[][] product = new double[3][3];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        for (int k = 0; k < 3; k++) {
+          product[i][j] += left[i][k] * right[k][j];
+        }
+      }
+    }
+    return product;
+  }
+
+  @Override
+  public IImage apply(IImage image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Argument(s) not be null!");
+    }
+    if (this.composed != null) {
+      return this.composed.apply(image);
+    }
+
+    // runs of matrix based transformations are applied together to each pixel, anything else is
+    // applied to the whole image in between
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] pixels = image.getPixels(new int[width * height]);
+    List<AColorTransformation> run = new ArrayList<>();
+    for (IColorTransformation transformation : this.transformations) {
+      if (transformation instanceof AColorTransformation) {
+        run.add((AColorTransformation) transformation);
+      } else {
+        applyToEachPixel(run, pixels);
+        run.clear();
+        IImage transformed = transformation
+            .apply(new Image(pixels, width, height, image.getFilename()));
+        pixels = transformed.getPixels(new int[width * height]);
+      }
+    }
+    applyToEachPixel(run, pixels);
+
+    return new Image(pixels, width, height, image.getFilename());
+  }
+
+  /**
+   * Applies the given transformations, in order, to each of the given pixels in place.
+   *
+   * @param run    the transformations to apply, first to last
+   * @param pixels the packed pixels to transform
+   */
+  private static void applyToEachPixel(List<AColorTransformation> run, int[] pixels) {
+    if (run.isEmpty()) {
+      return;
+    }
+    AColorTransformation[] stages = run.toArray(new AColorTransformation[0]);
+    for (int i = 0; i < pixels.length; i++) {
+      int rgb = pixels[i];
+      for (AColorTransformation stage : stages) {
+        rgb = stage.applyToEachPixel(rgb);
+      }
+      pixels[i] = rgb;
+    }
+  }
+}
@@ -10,10 +10,10 @@ public class Grayscale extends AColorTransformation {
    * Constructs a grayscale color transformation to be applied on an image.
    */
   public Grayscale() {
-    this.colorTransformation = new double[][]{
+    super(new double[][]{
         {.2126, .7512, .0722},
         {.2126, .7512, .0722},
-        {.2126, .7512, .0722}};
+        {.2126, .7512, .0722}});
   }
 
 
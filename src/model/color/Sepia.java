@@ -9,9 +9,9 @@ public class Sepia extends AColorTransformation {
    * Constructs a sepia color transformation to be applied on an image.
    */
   public Sepia() {
-    this.colorTransformation = new double[][]{
+    super(new double[][]{
         {.393, .769, .189},
         {.349, .686, .168},
-        {.272, .534, .131}};
+        {.272, .534, .131}});
   }
 }
@@ -14,12 +14,6 @@ public class UserColorTransformation extends AColorTransformation {
    *                                  not 3x3.
    */
   public UserColorTransformation(double[][] colorTransformation) throws IllegalArgumentException {
-    if (colorTransformation == null) {
-      throw new IllegalArgumentException("Matrix is null.");
-    }
-    if (colorTransformation.length != 3 || colorTransformation[0].length != 3) {
-      throw new IllegalArgumentException("The matrix must be a 3x3.");
-    }
-    this.colorTransformation = colorTransformation;
+    super(colorTransformation);
   }
 }
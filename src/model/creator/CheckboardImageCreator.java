@@ -1,9 +1,7 @@
 package model.creator;
 
 import model.image.IImage;
-import model.image.IPixel;
 import model.image.Image;
-import model.image.Pixel;
 
 /**
  * This class creates an image programmatically that is of a checkerboard pattern.
@@ -98,27 +96,29 @@ public class CheckboardImageCreator implements IImageCreator {
   @Override
   public IImage createImage() {
     String filename = "Checkerboard";
-    // create a 2D array of pixels that represents the checkerboard based on the fields of
-    // this class
-    IPixel[][] checkerboard = new IPixel[this.numTiles * this.sizeOfTile][this.numTiles
-        * this.sizeOfTile];
+    // create the packed pixels, row by row, that represent the checkerboard based on the fields
+    // of this class
+    int side = this.numTiles * this.sizeOfTile;
+    int[] checkerboard = new int[side * side];
+    int color1 = (this.color1R << 16) | (this.color1G << 8) | this.color1B;
+    int color2 = (this.color2R << 16) | (this.color2G << 8) | this.color2B;
 
     int counter; //Counter for the purpose of switching colors to produce the checkerboard pattern
-    for (int i = 0; i < this.numTiles * this.sizeOfTile; i++) {
+    for (int i = 0; i < side; i++) {
       if (i / sizeOfTile % 2 != 0) {
         counter = sizeOfTile;
       } else {
         counter = 0;
       }
-      for (int j = 0; j < this.numTiles * this.sizeOfTile; j++) {
+      for (int j = 0; j < side; j++) {
         if (counter < this.sizeOfTile) {
-          checkerboard[i][j] = new Pixel(i, j, this.color1R, this.color1G, this.color1B);
+          checkerboard[i * side + j] = color1;
           counter++;
           if (counter >= sizeOfTile) {
             counter = sizeOfTile;
           }
         } else {
-          checkerboard[i][j] = new Pixel(i, j, this.color2R, this.color2G, this.color2B);
+          checkerboard[i * side + j] = color2;
           counter++;
           if (counter >= 2 * sizeOfTile) {
             counter = 0;
@@ -129,6 +129,6 @@ public class CheckboardImageCreator implements IImageCreator {
 
     // return a new model.imageRepresentation.Image that has that array of pixels as a parameter
     // as well as the desired width and height
-    return new Image(checkerboard, filename);
+    return new Image(checkerboard, side, side, filename);
   }
 }
@@ -1,9 +1,7 @@
 package model.downscale;
 
 import model.image.IImage;
-import model.image.IPixel;
 import model.image.Image;
-import model.image.Pixel;
 
 /**
  * Represents a class that applies a downsizing operation on an image to have a desired width and
@@ -18,13 +16,14 @@ public class Downscale implements IImageResize {
       throw new IllegalArgumentException("Invalid arguments to downsize an image.");
     }
 
-    IPixel[][] oldGrid = image.getImage();
-    IPixel[][] newGrid = new IPixel[height][width];
+    int oldWidth = image.getWidth();
+    int oldHeight = image.getHeight();
+    int[] newGrid = new int[width * height];
 
-    for (int i = 0; i < newGrid.length; i++) {
-      for (int j = 0; j < newGrid[i].length; j++) {
-        int oldX = (j * image.getWidth()) / width;
-        int oldY = (i * image.getHeight()) / height;
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int oldX = (j * oldWidth) / width;
+        int oldY = (i * oldHeight) / height;
         int floorX = (int) Math.floor(oldX);
         int floorY = (int) Math.floor(oldY);
         int ceilX;
@@ -33,25 +32,23 @@ public class Downscale implements IImageResize {
         } else {
           ceilX = (int) Math.ceil(oldX);
         }
-        ceilX = checkEdgeBoundaries(ceilX, oldGrid[0].length);
+        ceilX = checkEdgeBoundaries(ceilX, oldWidth);
         int ceilY;
         if (Math.ceil(oldY) == Math.floor(oldY)) {
           ceilY = oldY + 1;
         } else {
           ceilY = (int) Math.ceil(oldY);
         }
-        ceilY = checkEdgeBoundaries(ceilY, oldGrid.length);
+        ceilY = checkEdgeBoundaries(ceilY, oldHeight);
         int firstXVal = (oldX - floorX);
         int secondXVal = (ceilX - oldX);
 
-        int[] result = getColor(oldGrid[floorY][ceilX], oldGrid[floorY][floorX],
-            oldGrid[ceilY][ceilX],
-            oldGrid[ceilY][floorX], firstXVal, secondXVal, oldY, floorY, ceilY);
-
-        newGrid[i][j] = new Pixel(i, j, result[0], result[1], result[2]);
+        newGrid[i * width + j] = getColor(image.getRGB(floorY, ceilX),
+            image.getRGB(floorY, floorX), image.getRGB(ceilY, ceilX),
+            image.getRGB(ceilY, floorX), firstXVal, secondXVal, oldY, floorY, ceilY);
       }
     }
-    return new Image(newGrid, image.getFilename());
+    return new Image(newGrid, width, height, image.getFilename());
   }
 
   /**
@@ -71,35 +68,31 @@ public class Downscale implements IImageResize {
   }
 
   /**
-   * Returns an array containing the red, green, and blue values for a pixel in which it is computed
-   * using the proper formula.
+   * Returns the red, green, and blue values for a pixel, packed as {@code 0xRRGGBB}, in which they
+   * are computed using the proper formula.
    *
-   * @param b          the pixel for the B value in the formula
-   * @param a          the pixel for the A value in the formula
-   * @param d          the pixel for the D value in the formula
-   * @param c          the pixel for the C value in the formula
+   * @param b          the packed pixel for the B value in the formula
+   * @param a          the packed pixel for the A value in the formula
+   * @param d          the packed pixel for the D value in the formula
+   * @param c          the packed pixel for the C value in the formula
    * @param firstXVal  the value used to multiply by b and d in the formula
    * @param secondXVal the value used to multiply by a and c in the formula
    * @param oldY       the y value for the original image
    * @param floorY     the floor y value for the original image
    * @param ceilY      the ceiling y value for the original image
-   * @return an array containing the computed red, green, and blue value for the pixel.
+   * @return the computed red, green, and blue value for the pixel, packed as {@code 0xRRGGBB}
    */
-  private int[] getColor(IPixel b, IPixel a, IPixel d, IPixel c,
+  private int getColor(int b, int a, int d, int c,
       int firstXVal, int secondXVal, int oldY, int floorY, int ceilY) {
-    int mRed = b.getRed() * firstXVal + a.getRed() * secondXVal;
-    int nRed = d.getRed() * firstXVal + c.getRed() * secondXVal;
-    int red = nRed * (oldY - floorY) + mRed * (ceilY - oldY);
-
-    int mGreen = b.getGreen() * firstXVal + a.getGreen() * secondXVal;
-    int nGreen = d.getGreen() * firstXVal + c.getGreen() * secondXVal;
-    int green = nGreen * (oldY - floorY) + mGreen * (ceilY - oldY);
+    int packed = 0;
 
-    int mBlue = b.getBlue() * firstXVal + a.getBlue() * secondXVal;
-    int nBlue = d.getBlue() * firstXVal + c.getBlue() * secondXVal;
-    int blue = nBlue * (oldY - floorY) + mBlue * (ceilY - oldY);
+    for (int shift = 16; shift >= 0; shift -= 8) {
+      int m = ((b >> shift) & 0xFF) * firstXVal + ((a >> shift) & 0xFF) * secondXVal;
+      int n = ((d >> shift) & 0xFF) * firstXVal + ((c >> shift) & 0xFF) * secondXVal;
+      packed = (packed << 8) | (n * (oldY - floorY) + m * (ceilY - oldY));
+    }
 
-    return new int[]{red, green, blue};
+    return packed;
   }
 
 }
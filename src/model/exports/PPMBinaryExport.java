@@ -0,0 +1,82 @@
+package model.exports;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import model.image.IImage;
+
+/**
+ * Represents a class which exports a given {@code IImage} to the binary PPM format (P6), in which
+ * every color value takes a single byte. The rows of pixels are packed into a reusable buffer,
+ * which is written to the file every time it is full. The file is not mapped into memory, since a
+ * mapping keeps the file from being moved or replaced until it is collected on some platforms.
+ */
+public class PPMBinaryExport extends AbstractExport {
+
+  // The size of the buffer that the rows are packed into before they are written
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Constructs a {@code PPMBinaryExport} object with an image and desired file name, without the
+   * extension, for the exported file.
+   *
+   * @param image       the given image to be converted into a file
+   * @param desiredName the desired filename for the exported file
+   * @throws IllegalArgumentException if any argument is null
+   */
+  public PPMBinaryExport(IImage image, String desiredName) throws IllegalArgumentException {
+    super(image, desiredName);
+  }
+
+  @Override
+  public void export() throws IOException {
+    int height = this.image.getHeight();
+    int width = this.image.getWidth();
+    byte[] header = String.format("P6 %d %d %d\n", width, height, 255)
+        .getBytes(StandardCharsets.US_ASCII);
+    // a single row may not fit in a buffer of the usual size
+    ByteBuffer buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, width * 3));
+    byte[] bytes = buffer.array();
+
+    try (FileChannel channel = FileChannel.open(Paths.get(this.filename + ".ppm"),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      buffer.put(header);
+
+      int[] row = new int[width];
+      for (int i = 0; i < height; i++) {
+        if (buffer.remaining() < width * 3) {
+          write(channel, buffer);
+        }
+        this.image.getRow(i, row);
+        int k = buffer.position();
+        for (int j = 0; j < width; j++, k += 3) {
+          int rgb = row[j];
+          bytes[k] = (byte) (rgb >> 16);
+          bytes[k + 1] = (byte) (rgb >> 8);
+          bytes[k + 2] = (byte) rgb;
+        }
+        buffer.position(k);
+      }
+      write(channel, buffer);
+    }
+  }
+
+  /**
+   * Writes the bytes put in the given buffer to the given channel and clears the buffer.
+   *
+   * @param channel the channel to write to
+   * @param buffer  the buffer whose bytes up to its position are written
+   * @throws IOException if the bytes cannot be written
+   */
+  private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -1,19 +1,42 @@
 package model.exports;
 
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import model.image.IImage;
-import model.image.IPixel;
 
 /**
  * Represents a class which manages a given {@code IImage} and exports the Image based on this
  * object's {@link Writer} to PPM format.
+ *
+ * <p>The text of the file is formatted straight into a reusable buffer of bytes, using the
+ * precomputed digits of every color value, and the buffer is written out in large chunks: through
+ * a {@link FileChannel} when exporting to a file, or as characters when exporting to a given
+ * {@link Writer}. Either way the file holds the header {@code P3 width height 255} on its own line
+ * followed by {@code red green blue } for every pixel, row by row.
  */
 public class PPMExport implements IExport {
 
+  // The size of the buffer that the text is formatted into before it is written
+  private static final int BUFFER_SIZE = 1 << 16;
+  // DIGITS[value] holds the digits of the given color value followed by a space
+  private static final byte[][] DIGITS = new byte[256][];
+
+  static {
+    for (int value = 0; value < DIGITS.length; value++) {
+      DIGITS[value] = (value + " ").getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
   private final IImage image;
+  // exactly one of wr and path is null
   private final Writer wr;
+  private final Path path;
 
   /**
    * Constructs a {@code PPMExport} object with a default Writer for writing a file.
@@ -28,7 +51,8 @@ public class PPMExport implements IExport {
     }
     this.image = image;
     String[] withoutExtension = image.getFilename().toLowerCase().split(".ppm");
-    this.wr = new FileWriter(withoutExtension[0] + "New" + ".ppm");
+    this.wr = null;
+    this.path = Paths.get(withoutExtension[0] + "New" + ".ppm");
   }
 
   /**
@@ -43,24 +67,118 @@ public class PPMExport implements IExport {
     }
     this.image = image;
     this.wr = wr;
+    this.path = null;
+  }
+
+  /**
+   * Constructs a {@code PPMExport} object which writes to the file at the given path, replacing it
+   * if it already exists.
+   *
+   * @param image the given image to be converted into a file
+   * @param path  the path of the file to write
+   * @throws IllegalArgumentException if any argument is null
+   */
+  protected PPMExport(IImage image, Path path) {
+    if (image == null || path == null) {
+      throw new IllegalArgumentException("Cannot have any null arguments.");
+    }
+    this.image = image;
+    this.wr = null;
+    this.path = path;
   }
 
   @Override
   public void export() throws IOException {
+    if (this.wr != null) {
+      char[] chars = new char[BUFFER_SIZE];
+      this.writeTo(buffer -> {
+        int length = buffer.remaining();
+        for (int i = 0; i < length; i++) {
+          chars[i] = (char) buffer.get();
+        }
+        this.wr.write(chars, 0, length);
+      });
+      this.wr.close();
+    } else {
+      try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        this.writeTo(buffer -> {
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * Formats the image into a buffer and hands the buffer to the given sink every time it is full,
+   * and once more at the end.
+   *
+   * @param sink where to write the formatted text
+   * @throws IOException if the sink fails to write
+   */
+  private void writeTo(IChunkSink sink) throws IOException {
     int height = image.getHeight();
     int width = image.getWidth();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    byte[] bytes = buffer.array();
+    int length = 0;
 
     // write the header
-    this.wr.write(String.format("P3 %d %d %d\n", width, height, 255));
-
-    IPixel[][] imageGrid = image.getImage();
+    byte[] header = String.format("P3 %d %d %d\n", width, height, 255)
+        .getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(header, 0, bytes, 0, header.length);
+    length += header.length;
 
+    int[] row = new int[width];
     for (int i = 0; i < height; i++) {
+      image.getRow(i, row);
       for (int j = 0; j < width; j++) {
-        this.wr.write(imageGrid[i][j].toString() + " ");
+        // a pixel takes at most 12 bytes
+        if (length > BUFFER_SIZE - 12) {
+          buffer.limit(length);
+          sink.write(buffer);
+          buffer.clear();
+          length = 0;
+        }
+        int rgb = row[j];
+        length = put(bytes, length, DIGITS[(rgb >> 16) & 0xFF]);
+        length = put(bytes, length, DIGITS[(rgb >> 8) & 0xFF]);
+        length = put(bytes, length, DIGITS[rgb & 0xFF]);
       }
     }
 
-    this.wr.close();
+    buffer.limit(length);
+    sink.write(buffer);
+  }
+
+  /**
+   * Copies the given digits into the given buffer at the given position.
+   *
+   * @param bytes    the buffer
+   * @param position where to copy the digits
+   * @param digits   the digits to copy
+   * @return the position after the copied digits
+   */
+  private static int put(byte[] bytes, int position, byte[] digits) {
+    for (byte digit : digits) {
+      bytes[position++] = digit;
+    }
+    return position;
+  }
+
+  /**
+   * Represents where the formatted text of an image is written to, one chunk at a time.
+   */
+  private interface IChunkSink {
+
+    /**
+     * Writes all the remaining bytes of the given buffer.
+     *
+     * @param buffer the chunk to write
+     * @throws IOException if the chunk cannot be written
+     */
+    void write(ByteBuffer buffer) throws IOException;
   }
 }
\ No newline at end of file
@@ -1,7 +1,7 @@
 package model.exports;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import model.image.IImage;
 
 /**
@@ -11,7 +11,8 @@ import model.image.IImage;
 public class PPMExportFilename extends PPMExport implements IExport {
 
   /**
-   * Constructs a {@code PPMExportFilename} object with a default Writer for writing a file.
+   * Constructs a {@code PPMExportFilename} object which writes the file with the given name and the
+   * .ppm extension.
    *
    * @param image    the given image to be converted into a file
    * @param filename the desired filename for exporting file
@@ -20,8 +21,7 @@ public class PPMExportFilename extends PPMExport implements IExport {
    */
   public PPMExportFilename(IImage image, String filename)
       throws IllegalArgumentException, IOException {
-    super(checkNullImage(image), new FileWriter(checkNullDesiredName(filename) + ".ppm"));
-
+    super(checkNullImage(image), Paths.get(checkNullDesiredName(filename) + ".ppm"));
   }
 
   /**
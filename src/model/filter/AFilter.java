@@ -1,9 +1,7 @@
 package model.filter;
 
 import model.image.IImage;
-import model.image.IPixel;
 import model.image.Image;
-import model.image.Pixel;
 
 /**
  * The abstract class for image filters which contains shared properties between different filters
@@ -11,9 +9,107 @@ import model.image.Pixel;
  */
 public abstract class AFilter implements IFilter {
 
+  // How far the kernel may be from the product of its factors and still count as separable,
+  // relative to its largest entry
+  private static final double SEPARABLE_TOLERANCE = 1e-9;
+
   // The matrix representing the filter to be applied onto an image
   // INVARIANT: Must be a square matrix with odd dimensions
   protected double[][] kernel;
+  // If the kernel is separable, kernel[i][j] == columnFactors[i] * rowFactors[j], otherwise both
+  // are null
+  private double[] columnFactors;
+  private double[] rowFactors;
+  // Whether a separable kernel is applied as two one-dimensional passes, which round differently
+  private boolean separablePasses;
+  // The engine that splits the rows of an image between threads, the default one if null
+  private ConvolutionEngine engine;
+
+  /**
+   * Constructs a filter with the given kernel, and determines whether the kernel is separable (the
+   * outer product of a column and a row) so that it can be applied as a horizontal pass followed by
+   * a vertical pass if {@link #setSeparablePasses(boolean)} allows it.
+   *
+   * @param kernel the matrix representing the filter to be applied onto an image
+   * @throws IllegalArgumentException if the kernel is null or not a square matrix with odd
+   *                                  dimensions
+   */
+  protected AFilter(double[][] kernel) throws IllegalArgumentException {
+    if (kernel == null || kernel.length % 2 == 0) {
+      throw new IllegalArgumentException("Kernel must be a square matrix with odd dimensions.");
+    }
+    for (double[] row : kernel) {
+      if (row == null || row.length != kernel.length) {
+        throw new IllegalArgumentException("Kernel must be a square matrix with odd dimensions.");
+      }
+    }
+    this.kernel = kernel;
+    this.findSeparableFactors();
+  }
+
+  /**
+   * Determines whether the kernel of this filter has rank one and, if it does, sets the column and
+   * row factors whose outer product is the kernel. The factors are taken from the row and column
+   * of the entry with the largest magnitude.
+   */
+  private void findSeparableFactors() {
+    int size = this.kernel.length;
+    int pivotRow = 0;
+    int pivotCol = 0;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if (Math.abs(this.kernel[i][j]) > Math.abs(this.kernel[pivotRow][pivotCol])) {
+          pivotRow = i;
+          pivotCol = j;
+        }
+      }
+    }
+    double pivot = this.kernel[pivotRow][pivotCol];
+    if (pivot == 0) {
+      return;
+    }
+
+    double[] column = new double[size];
+    double[] row = this.kernel[pivotRow].clone();
+    for (int i = 0; i < size; i++) {
+      column[i] = this.kernel[i][pivotCol] / pivot;
+    }
+    double tolerance = Math.abs(pivot) * SEPARABLE_TOLERANCE;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if (Math.abs(this.kernel[i][j] - column[i] * row[j]) > tolerance) {
+          return;
+        }
+      }
+    }
+    this.columnFactors = column;
+    this.rowFactors = row;
+  }
+
+  /**
+   * Determines whether this filter's kernel is separable, in which case it can be applied as a
+   * horizontal pass followed by a vertical pass.
+   *
+   * @return true if the kernel is the outer product of a column and a row
+   */
+  public boolean isSeparable() {
+    return this.rowFactors != null;
+  }
+
+  /**
+   * Sets whether a separable kernel is applied as a horizontal pass followed by a vertical pass,
+   * which reads 2k neighbors of every pixel instead of k * k for a kernel of size k. The passes are
+   * off unless they are set, since they do not round the same way: the direct convolution
+   * truncates its running sum to an int after every tap, while the passes add up each channel in
+   * full and truncate it once at the end. A pixel may then differ by up to one level per tap of the
+   * kernel, such as 254 instead of 225 for white under a 15x15 box blur. A kernel that is not
+   * separable is always applied directly.
+   *
+   * @param separablePasses whether a separable kernel is applied as two one-dimensional passes
+   */
+  public void setSeparablePasses(boolean separablePasses) {
+    this.separablePasses = separablePasses;
+  }
 
   @Override
   public IImage apply(IImage image) throws IllegalArgumentException {
@@ -21,18 +117,149 @@ public abstract class AFilter implements IFilter {
       throw new IllegalArgumentException("Image cannot be null.");
     }
 
-    //Deep copy
-    IPixel[][] imageGrid = image.getImage();
+    int height = image.getHeight();
+    int width = image.getWidth();
     //So that we are not getting the new rgb values of the neighbors
-    IPixel[][] copy = image.getImage();
+    int[] copy = image.getPixels(new int[width * height]);
+
+    int[] result = new int[width * height];
+    this.getEngine().forEachRowBand(height, (startRow, endRow) ->
+        this.applyToRows(copy, 0, result, 0, startRow, endRow, width, height));
+    return new Image(result, width, height, image.getFilename());
+  }
+
+  /**
+   * Gets the number of rows (and columns) on each side of a pixel that this filter reads to compute
+   * it.
+   *
+   * @return half of the size of the kernel, rounded down
+   */
+  int getRadius() {
+    return this.kernel.length / 2;
+  }
 
+  /**
+   * Filters the given rows of an image whose rows are held in buffers that may start past the first
+   * row of the image, so that a band of rows can be filtered without the whole image. The source
+   * buffer must hold every row within {@link #getRadius()} rows of the rows to filter.
+   *
+   * @param source    the packed source pixels, row by row
+   * @param sourceTop the row of the image at the start of the source buffer
+   * @param dest      the buffer to write the filtered rows into
+   * @param destTop   the row of the image at the start of the destination buffer
+   * @param startRow  the first row to filter, inclusive
+   * @param endRow    the last row to filter, exclusive
+   * @param width     the width of the image
+   * @param height    the height of the image
+   */
+  void applyToRows(int[] source, int sourceTop, int[] dest, int destTop, int startRow,
+      int endRow, int width, int height) {
     int numSidePix = kernel.length / 2;
-    for (int i = 0; i < imageGrid.length; i++) {
-      for (int j = 0; j < imageGrid[i].length; j++) {
-        imageGrid[i][j] = applyToEachPixel(i, j, copy, numSidePix);
+    if (this.separablePasses && this.isSeparable()) {
+      applySeparableToRows(startRow, endRow, source, sourceTop, dest, destTop, width, height,
+          numSidePix);
+    } else {
+      for (int i = startRow; i < endRow; i++) {
+        for (int j = 0; j < width; j++) {
+          dest[(i - destTop) * width + j] = applyToPixel(i, j, source, sourceTop, width, height,
+              numSidePix);
+        }
+      }
+    }
+  }
+
+  /**
+   * Applies this filter's separable kernel to the given rows by first convolving every row that the
+   * kernel reaches with the row factors, then convolving those results with the column factors.
+   * Neighbors outside of the image are skipped, as in {@link #applyToEachPixel}, but the sums are
+   * only truncated and clamped once at the end, rather than after every tap.
+   *
+   * @param startRow   the first row to filter, inclusive
+   * @param endRow     the last row to filter, exclusive
+   * @param pixels     the packed source pixels of the image, row by row
+   * @param pixelsTop  the row of the image at the start of the source pixels
+   * @param result     the packed pixels to write the filtered rows into
+   * @param resultTop  the row of the image at the start of the result
+   * @param width      the width of the image
+   * @param height     the height of the image
+   * @param numSidePix the number of pixels between the center of the filter matrix and the edge of
+   *                   the filter matrix
+   */
+  private void applySeparableToRows(int startRow, int endRow, int[] pixels, int pixelsTop,
+      int[] result, int resultTop, int width, int height, int numSidePix) {
+    int firstRow = getCoordinate(startRow - numSidePix, height - 1);
+    int lastRow = getCoordinate(endRow - 1 + numSidePix, height - 1);
+    int numRows = lastRow - firstRow + 1;
+    double[] red = new double[numRows * width];
+    double[] green = new double[numRows * width];
+    double[] blue = new double[numRows * width];
+
+    // horizontal pass
+    for (int i = firstRow; i <= lastRow; i++) {
+      int offset = (i - firstRow) * width;
+      for (int j = 0; j < width; j++) {
+        int minY = getCoordinate(j - numSidePix, width - 1);
+        int maxY = getCoordinate(j + numSidePix, width - 1);
+        double r = 0;
+        double g = 0;
+        double b = 0;
+        for (int k = minY; k <= maxY; k++) {
+          int currPix = pixels[(i - pixelsTop) * width + k];
+          double weight = this.rowFactors[numSidePix - (j - k)];
+          r += ((currPix >> 16) & 0xFF) * weight;
+          g += ((currPix >> 8) & 0xFF) * weight;
+          b += (currPix & 0xFF) * weight;
+        }
+        red[offset + j] = r;
+        green[offset + j] = g;
+        blue[offset + j] = b;
       }
     }
-    return new Image(imageGrid, image.getFilename());
+
+    // vertical pass
+    for (int i = startRow; i < endRow; i++) {
+      int minX = getCoordinate(i - numSidePix, height - 1);
+      int maxX = getCoordinate(i + numSidePix, height - 1);
+      for (int j = 0; j < width; j++) {
+        double r = 0;
+        double g = 0;
+        double b = 0;
+        for (int k = minX; k <= maxX; k++) {
+          int index = (k - firstRow) * width + j;
+          double weight = this.columnFactors[numSidePix - (i - k)];
+          r += red[index] * weight;
+          g += green[index] * weight;
+          b += blue[index] * weight;
+        }
+        result[(i - resultTop) * width + j] = (clampValues((int) r) << 16)
+            | (clampValues((int) g) << 8) | clampValues((int) b);
+      }
+    }
+  }
+
+  /**
+   * Sets the engine used to split the work of applying this filter between threads.
+   *
+   * @param engine the engine to run this filter on
+   * @throws IllegalArgumentException if the given engine is null
+   */
+  public void setEngine(ConvolutionEngine engine) throws IllegalArgumentException {
+    if (engine == null) {
+      throw new IllegalArgumentException("Engine cannot be null.");
+    }
+    this.engine = engine;
+  }
+
+  /**
+   * Gets the engine used to split the work of applying this filter between threads.
+   *
+   * @return the engine set for this filter, or the default engine if none was set
+   */
+  private ConvolutionEngine getEngine() {
+    if (this.engine == null) {
+      return ConvolutionEngine.getDefault();
+    }
+    return this.engine;
   }
 
   /**
@@ -40,43 +267,64 @@ public abstract class AFilter implements IFilter {
    * coordinates and applying the filter matrix to those neighboring cells to produce the new red,
    * green, and blue values of the current cell. Clamping is applied if needed.
    *
-   * @param x          the x coordinate of the current pixel
-   * @param y          the y coordinate of the current pixel
-   * @param imageGrid  the sequence of pixels for the image
+   * @param x          the x coordinate (row) of the current pixel
+   * @param y          the y coordinate (column) of the current pixel
+   * @param pixels     the packed pixels of the image, row by row
+   * @param width      the width of the image
+   * @param height     the height of the image
    * @param numSidePix the number of pixels between the center of the filter matrix and the edge of
    *                   the filter matrix
    * @return the current pixel transformed to have a new red, green, and blue based on the filter
-   *         matrix values
-   * @throws IllegalArgumentException if the image grid is null
+   *         matrix values, packed as {@code 0xRRGGBB}
+   * @throws IllegalArgumentException if the pixels are null
    */
-  protected IPixel applyToEachPixel(int x, int y, IPixel[][] imageGrid, int numSidePix) {
-    if (imageGrid == null) {
+  protected int applyToEachPixel(int x, int y, int[] pixels, int width, int height,
+      int numSidePix) {
+    if (pixels == null) {
       throw new IllegalArgumentException("The image grid is null.");
     }
+    return this.applyToPixel(x, y, pixels, 0, width, height, numSidePix);
+  }
 
-    int[] result = new int[3];
+  /**
+   * Applies the filter matrix to the given pixel, as in {@link #applyToEachPixel}, reading its
+   * neighbors from a buffer that may start past the first row of the image.
+   *
+   * @param x          the x coordinate (row) of the current pixel
+   * @param y          the y coordinate (column) of the current pixel
+   * @param pixels     the packed pixels of the rows around the current pixel, row by row
+   * @param pixelsTop  the row of the image at the start of the pixels
+   * @param width      the width of the image
+   * @param height     the height of the image
+   * @param numSidePix the number of pixels between the center of the filter matrix and the edge of
+   *                   the filter matrix
+   * @return the current pixel transformed by the filter matrix, packed as {@code 0xRRGGBB}
+   */
+  private int applyToPixel(int x, int y, int[] pixels, int pixelsTop, int width, int height,
+      int numSidePix) {
+    int red = 0;
+    int green = 0;
+    int blue = 0;
 
-    int minX = getCoordinate(x - numSidePix, imageGrid.length - 1);
-    int maxX = getCoordinate(x + numSidePix, imageGrid.length - 1);
-    int minY = getCoordinate(y - numSidePix, imageGrid[0].length - 1);
-    int maxY = getCoordinate(y + numSidePix, imageGrid[0].length - 1);
+    int minX = getCoordinate(x - numSidePix, height - 1);
+    int maxX = getCoordinate(x + numSidePix, height - 1);
+    int minY = getCoordinate(y - numSidePix, width - 1);
+    int maxY = getCoordinate(y + numSidePix, width - 1);
     for (int i = minX; i <= maxX; i++) {
+      double[] kernelRow = kernel[numSidePix - (x - i)];
+      int offset = (i - pixelsTop) * width;
       for (int j = minY; j <= maxY; j++) {
-        IPixel currPix = imageGrid[i][j];
-        int[] currPixRGB = {currPix.getRed(), currPix.getGreen(), currPix.getBlue()};
-        for (int c = 0; c < result.length; c++) {
-          result[c] += currPixRGB[c]
-              * kernel[numSidePix - (x - currPix.getX())][numSidePix - (y - currPix.getY())];
-        }
+        int currPix = pixels[offset + j];
+        double weight = kernelRow[numSidePix - (y - j)];
+        // each product is truncated into the running sum, as with the original int[] accumulator
+        red += ((currPix >> 16) & 0xFF) * weight;
+        green += ((currPix >> 8) & 0xFF) * weight;
+        blue += (currPix & 0xFF) * weight;
       }
     }
 
     // Clamping
-    for (int c = 0; c < result.length; c++) {
-      result[c] = clampValues(result[c]);
-    }
-
-    return new Pixel(x, y, result[0], result[1], result[2]);
+    return (clampValues(red) << 16) | (clampValues(green) << 8) | clampValues(blue);
   }
 
   /**
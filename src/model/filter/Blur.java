@@ -10,7 +10,7 @@ public class Blur extends AFilter {
    * Constructs an {@code Blur} object.
    */
   public Blur() {
-    this.kernel = new double[][]{{0.0625, 0.125, 0.0625}, {0.125, 0.25, 0.125},
-        {0.0625, 0.125, 0.0625}};
+    super(new double[][]{{0.0625, 0.125, 0.0625}, {0.125, 0.25, 0.125},
+        {0.0625, 0.125, 0.0625}});
   }
 }
@@ -0,0 +1,187 @@
+package model.filter;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Represents the execution engine that filters use to apply their kernel to an image. The rows of
+ * the image are split into bands which are run in parallel on a {@link ForkJoinPool}. Every pixel
+ * is still computed independently from the same source pixels, so the result does not depend on
+ * the parallelism level.
+ */
+public final class ConvolutionEngine {
+
+  // The name of the system property used to set the parallelism of the default engine
+  public static final String PARALLELISM_PROPERTY = "imageprocessor.parallelism";
+  // The smallest band of rows that is worth handing to another thread
+  private static final int MIN_ROWS_PER_BAND = 8;
+
+  private static ConvolutionEngine defaultEngine;
+
+  // null if every band is run on the calling thread
+  private final ForkJoinPool pool;
+  // INVARIANT: parallelism is a positive integer
+  private final int parallelism;
+
+  /**
+   * Constructs a {@code ConvolutionEngine} object that runs on its own pool with the given number
+   * of worker threads. A parallelism of one runs every band on the calling thread.
+   *
+   * @param parallelism the number of threads to split the work between
+   * @throws IllegalArgumentException if the parallelism is not positive
+   */
+  public ConvolutionEngine(int parallelism) throws IllegalArgumentException {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive.");
+    }
+    this.parallelism = parallelism;
+    this.pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+  }
+
+  /**
+   * Constructs a {@code ConvolutionEngine} object that runs on the given pool.
+   *
+   * @param pool the pool to run the bands of rows on
+   * @throws IllegalArgumentException if the given pool is null
+   */
+  public ConvolutionEngine(ForkJoinPool pool) throws IllegalArgumentException {
+    if (pool == null) {
+      throw new IllegalArgumentException("Pool cannot be null.");
+    }
+    this.parallelism = pool.getParallelism();
+    this.pool = pool;
+  }
+
+  /**
+   * Gets the engine that filters use unless they are given another one. Its parallelism is the
+   * value of the {@value #PARALLELISM_PROPERTY} system property, or the number of available
+   * processors if the property is not set.
+   *
+   * @return the default engine
+   * @throws IllegalArgumentException if the system property is not a positive integer
+   */
+  public static synchronized ConvolutionEngine getDefault() throws IllegalArgumentException {
+    if (defaultEngine == null) {
+      int parallelism = Runtime.getRuntime().availableProcessors();
+      String property = System.getProperty(PARALLELISM_PROPERTY);
+      if (property != null) {
+        try {
+          parallelism = Integer.parseInt(property.trim());
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("Invalid parallelism: " + property);
+        }
+      }
+      defaultEngine = new ConvolutionEngine(parallelism);
+    }
+    return defaultEngine;
+  }
+
+  /**
+   * Sets the parallelism of the engine that filters use unless they are given another one. The
+   * pool of the engine it replaces is shut down once the work already given to it has finished.
+   *
+   * @param parallelism the number of threads to split the work between
+   * @throws IllegalArgumentException if the parallelism is not positive
+   */
+  public static synchronized void setDefaultParallelism(int parallelism)
+      throws IllegalArgumentException {
+    ConvolutionEngine replaced = defaultEngine;
+    defaultEngine = new ConvolutionEngine(parallelism);
+    // the default engine always owns its pool, so no one else is left using it
+    if (replaced != null && replaced.pool != null) {
+      replaced.pool.shutdown();
+    }
+  }
+
+  /**
+   * Gets the number of threads this engine splits the work between.
+   *
+   * @return the parallelism of this engine
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Runs the given operation over every row of an image with the given height, split into bands of
+   * consecutive rows. Returns once every band has finished.
+   *
+   * @param height    the number of rows of the image
+   * @param operation the operation to apply to each band of rows
+   * @throws IllegalArgumentException if the operation is null or the height is negative
+   */
+  public void forEachRowBand(int height, IRowBandOperation operation)
+      throws IllegalArgumentException {
+    if (operation == null || height < 0) {
+      throw new IllegalArgumentException("Invalid arguments to run the operation.");
+    }
+    if (this.pool == null || height <= MIN_ROWS_PER_BAND) {
+      operation.apply(0, height);
+      return;
+    }
+
+    // a few bands per thread so that a slow band does not leave the other threads idle
+    int rowsPerBand = Math.max(MIN_ROWS_PER_BAND, height / (this.parallelism * 4));
+    try {
+      this.pool.invoke(new RowBandTask(operation, 0, height, rowsPerBand));
+    } catch (RejectedExecutionException e) {
+      // the engine was replaced as the default and its pool shut down before any band started
+      operation.apply(0, height);
+    }
+  }
+
+  /**
+   * Represents an operation that is applied to a band of consecutive rows of an image.
+   */
+  public interface IRowBandOperation {
+
+    /**
+     * Applies this operation to the rows from the given start row, inclusive, to the given end row,
+     * exclusive.
+     *
+     * @param startRow the first row of the band
+     * @param endRow   the row after the last row of the band
+     */
+    void apply(int startRow, int endRow);
+  }
+
+  /**
+   * Represents a task that splits its rows in half until they are small enough to be run directly.
+   */
+  private static final class RowBandTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final IRowBandOperation operation;
+    private final int startRow;
+    private final int endRow;
+    private final int rowsPerBand;
+
+    /**
+     * Constructs a {@code RowBandTask} object for the given rows.
+     *
+     * @param operation   the operation to apply to each band of rows
+     * @param startRow    the first row, inclusive
+     * @param endRow      the last row, exclusive
+     * @param rowsPerBand the largest band of rows that is not split further
+     */
+    private RowBandTask(IRowBandOperation operation, int startRow, int endRow, int rowsPerBand) {
+      this.operation = operation;
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.rowsPerBand = rowsPerBand;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.endRow - this.startRow <= this.rowsPerBand) {
+        this.operation.apply(this.startRow, this.endRow);
+      } else {
+        int middle = (this.startRow + this.endRow) >>> 1;
+        invokeAll(new RowBandTask(this.operation, this.startRow, middle, this.rowsPerBand),
+            new RowBandTask(this.operation, middle, this.endRow, this.rowsPerBand));
+      }
+    }
+  }
+}
@@ -0,0 +1,291 @@
+package model.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import model.color.AColorTransformation;
+import model.color.IColorTransformation;
+import model.image.IImage;
+import model.image.Image;
+
+/**
+ * A filter that applies a sequence of filters and color transformations to an image, in order, in
+ * a single pass over the image instead of one pass per stage.
+ *
+ * <p>The image is cut into tiles of consecutive rows. Each tile goes through every stage before
+ * the next tile is started, so the rows in between the stages stay small enough to be cached and no
+ * intermediate image is made. A filter reads the rows around the rows it computes, so the earlier
+ * stages compute a few extra rows above and below the tile, as many as the later filters reach.
+ * Every stage computes each pixel with the same rounding as it does on its own, so the result is
+ * exactly the same as applying the stages one after the other: a filter truncates its running
+ * sums after every tap, or only once at the end if it was set to apply its separable kernel in two
+ * passes, a color transformation truncates each product into its running sums, and both clamp the
+ * sums to between 0 and 255.
+ *
+ * <p>Only the filters of {@link AFilter} and the color transformations of
+ * {@link AColorTransformation} can be applied a tile at a time. Any other stage is applied to the
+ * whole image in between the tiled passes.
+ */
+public final class PixelPipeline implements IFilter {
+
+  // The number of rows of a tile, which keeps the rows of a tile of a 4K image under a megabyte
+  private static final int TILE_ROWS = 32;
+
+  private final List<IStage> stages;
+
+  /**
+   * Constructs an empty {@code PixelPipeline} object, which leaves images as they are until stages
+   * are added.
+   */
+  public PixelPipeline() {
+    this.stages = new ArrayList<>();
+  }
+
+  /**
+   * Adds the given filter as the last stage of this pipeline.
+   *
+   * @param filter the filter to apply after the stages already added
+   * @throws IllegalArgumentException if the filter is null
+   */
+  public void addFilter(IFilter filter) throws IllegalArgumentException {
+    if (filter == null) {
+      throw new IllegalArgumentException("Filter cannot be null.");
+    }
+    this.stages.add(filter instanceof AFilter ? new FilterStage((AFilter) filter)
+        : new WholeImageStage(filter::apply));
+  }
+
+  /**
+   * Adds the given color transformation as the last stage of this pipeline.
+   *
+   * @param transformation the color transformation to apply after the stages already added
+   * @throws IllegalArgumentException if the color transformation is null
+   */
+  public void addColorTransformation(IColorTransformation transformation)
+      throws IllegalArgumentException {
+    if (transformation == null) {
+      throw new IllegalArgumentException("Color transformation cannot be null.");
+    }
+    this.stages.add(transformation instanceof AColorTransformation
+        ? new ColorStage((AColorTransformation) transformation)
+        : new WholeImageStage(transformation::apply));
+  }
+
+  /**
+   * Gets the number of stages of this pipeline.
+   *
+   * @return the number of filters and color transformations added
+   */
+  public int getNumStages() {
+    return this.stages.size();
+  }
+
+  @Override
+  public IImage apply(IImage image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+
+    // runs of stages that can be tiled are applied in one pass each, anything else is applied to
+    // the whole image in between
+    List<IStage> run = new ArrayList<>();
+    for (IStage stage : this.stages) {
+      if (stage.isTiled()) {
+        run.add(stage);
+      } else {
+        image = stage.apply(applyTiled(run, image));
+        run.clear();
+      }
+    }
+    return applyTiled(run, image);
+  }
+
+  /**
+   * Applies the given stages, which must all be tiled, to the given image in a single pass.
+   *
+   * @param run   the stages to apply, first to last
+   * @param image the image to apply them to
+   * @return the image after every stage
+   */
+  private static IImage applyTiled(List<IStage> run, IImage image) {
+    if (run.isEmpty()) {
+      return image;
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int numStages = run.size();
+    // halo[k] is how many rows beyond a tile the stages after the first k have to reach, so
+    // stage k computes that many extra rows on each side for them
+    int[] halo = new int[numStages + 1];
+    for (int k = numStages - 1; k >= 0; k--) {
+      halo[k] = halo[k + 1] + run.get(k).getRadius();
+    }
+    int[] source = image.getPixels(new int[width * height]);
+    int[] result = new int[width * height];
+
+    ConvolutionEngine.getDefault().forEachRowBand(height, (startRow, endRow) -> {
+      int bufferRows = Math.min(height, TILE_ROWS + 2 * halo[0]);
+      int[][] buffers = {new int[bufferRows * width], new int[bufferRows * width]};
+      for (int tileTop = startRow; tileTop < endRow; tileTop += TILE_ROWS) {
+        int tileBottom = Math.min(endRow, tileTop + TILE_ROWS);
+        int[] in = source;
+        int inTop = 0;
+        for (int k = 0; k < numStages; k++) {
+          int top = Math.max(0, tileTop - halo[k + 1]);
+          int bottom = Math.min(height, tileBottom + halo[k + 1]);
+          int[] out = k == numStages - 1 ? result : buffers[k % 2];
+          int outTop = k == numStages - 1 ? 0 : top;
+          run.get(k).applyToRows(in, inTop, out, outTop, top, bottom, width, height);
+          in = out;
+          inTop = outTop;
+        }
+      }
+    });
+
+    return new Image(result, width, height, image.getFilename());
+  }
+
+  /**
+   * Represents one stage of a pipeline.
+   */
+  private interface IStage {
+
+    /**
+     * Determines whether this stage can be applied to a few rows of an image at a time.
+     *
+     * @return true if {@link #applyToRows} can be used
+     */
+    boolean isTiled();
+
+    /**
+     * Gets the number of rows on each side of a pixel that this stage reads to compute it.
+     *
+     * @return the radius of this stage, 0 if it reads only the pixel itself
+     */
+    int getRadius();
+
+    /**
+     * Applies this stage to the given rows of an image whose rows are held in buffers that may
+     * start past the first row of the image.
+     *
+     * @param source    the packed source pixels, row by row
+     * @param sourceTop the row of the image at the start of the source buffer
+     * @param dest      the buffer to write the rows into
+     * @param destTop   the row of the image at the start of the destination buffer
+     * @param startRow  the first row to compute, inclusive
+     * @param endRow    the last row to compute, exclusive
+     * @param width     the width of the image
+     * @param height    the height of the image
+     */
+    void applyToRows(int[] source, int sourceTop, int[] dest, int destTop, int startRow,
+        int endRow, int width, int height);
+
+    /**
+     * Applies this stage to a whole image.
+     *
+     * @param image the image to apply this stage to
+     * @return the image after this stage
+     */
+    IImage apply(IImage image);
+  }
+
+  /**
+   * Represents a stage that filters an image with the kernel of an {@link AFilter}.
+   */
+  private static final class FilterStage implements IStage {
+
+    private final AFilter filter;
+
+    private FilterStage(AFilter filter) {
+      this.filter = filter;
+    }
+
+    @Override
+    public boolean isTiled() {
+      return true;
+    }
+
+    @Override
+    public int getRadius() {
+      return this.filter.getRadius();
+    }
+
+    @Override
+    public void applyToRows(int[] source, int sourceTop, int[] dest, int destTop, int startRow,
+        int endRow, int width, int height) {
+      this.filter.applyToRows(source, sourceTop, dest, destTop, startRow, endRow, width, height);
+    }
+
+    @Override
+    public IImage apply(IImage image) {
+      return this.filter.apply(image);
+    }
+  }
+
+  /**
+   * Represents a stage that transforms each pixel with an {@link AColorTransformation}.
+   */
+  private static final class ColorStage implements IStage {
+
+    private final AColorTransformation transformation;
+
+    private ColorStage(AColorTransformation transformation) {
+      this.transformation = transformation;
+    }
+
+    @Override
+    public boolean isTiled() {
+      return true;
+    }
+
+    @Override
+    public int getRadius() {
+      return 0;
+    }
+
+    @Override
+    public void applyToRows(int[] source, int sourceTop, int[] dest, int destTop, int startRow,
+        int endRow, int width, int height) {
+      this.transformation.applyToPixels(source, (startRow - sourceTop) * width, dest,
+          (startRow - destTop) * width, (endRow - startRow) * width);
+    }
+
+    @Override
+    public IImage apply(IImage image) {
+      return this.transformation.apply(image);
+    }
+  }
+
+  /**
+   * Represents a stage that can only be applied to a whole image.
+   */
+  private static final class WholeImageStage implements IStage {
+
+    private final UnaryOperator<IImage> operation;
+
+    private WholeImageStage(UnaryOperator<IImage> operation) {
+      this.operation = operation;
+    }
+
+    @Override
+    public boolean isTiled() {
+      return false;
+    }
+
+    @Override
+    public int getRadius() {
+      return 0;
+    }
+
+    @Override
+    public void applyToRows(int[] source, int sourceTop, int[] dest, int destTop, int startRow,
+        int endRow, int width, int height) {
+      throw new UnsupportedOperationException("This stage cannot be applied a few rows at a time.");
+    }
+
+    @Override
+    public IImage apply(IImage image) {
+      return this.operation.apply(image);
+    }
+  }
+}
@@ -10,11 +10,11 @@ public class Sharpening extends AFilter {
    * Constructs an {@code Sharpening} object.
    */
   public Sharpening() {
-    this.kernel = new double[][]{
+    super(new double[][]{
         {-0.125, -0.125, -0.125, -0.125, -0.125},
         {-0.125, 0.25, 0.25, 0.25, -0.125},
         {-0.125, 0.25, 1, 0.25, -0.125},
         {-0.125, 0.25, 0.25, 0.25, -0.125},
-        {-0.125, -0.125, -0.125, -0.125, -0.125}};
+        {-0.125, -0.125, -0.125, -0.125, -0.125}});
   }
 }
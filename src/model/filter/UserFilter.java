@@ -14,10 +14,21 @@ public class UserFilter extends AFilter {
    * @throws IllegalArgumentException if the given kernel is null
    */
   public UserFilter(double[][] kernel) throws IllegalArgumentException {
+    super(revisedKernel(checkNullKernel(kernel)));
+  }
+
+  /**
+   * Checks if the given kernel from the constructor is null before calling super on it.
+   *
+   * @param kernel the kernel to be checked.
+   * @return the kernel if it was not null.
+   * @throws IllegalArgumentException if the kernel is null.
+   */
+  private static double[][] checkNullKernel(double[][] kernel) {
     if (kernel == null) {
       throw new IllegalArgumentException("Kernel is null.");
     }
-    this.kernel = revisedKernel(kernel);
+    return kernel;
   }
 
   /**
@@ -30,7 +41,7 @@ public class UserFilter extends AFilter {
    * @throws IllegalArgumentException if the given kernel is null or if the greater dimension of the
    *                                  kernel is even or if the kernel is empty
    */
-  private double[][] revisedKernel(double[][] originalKernel) throws IllegalArgumentException {
+  private static double[][] revisedKernel(double[][] originalKernel) throws IllegalArgumentException {
     if (originalKernel == null || originalKernel.length == 0 || originalKernel[0].length == 0) {
       throw new IllegalArgumentException("Kernel is null or empty");
     }
@@ -57,7 +68,7 @@ public class UserFilter extends AFilter {
    * @return a square matrix with odd dimensions
    * @throws IllegalArgumentException if the given kernel is null
    */
-  private double[][] createNewKernel(int dim, double[][] originalKernel)
+  private static double[][] createNewKernel(int dim, double[][] originalKernel)
       throws IllegalArgumentException {
     if (originalKernel == null) {
       throw new IllegalArgumentException("Kernel is null");
@@ -1,7 +1,11 @@
 package model.image;
 
 /**
- * This interface represents the different operations that images can perform.
+ * This interface represents the different operations that images can perform. Images are
+ * immutable: none of the accessors expose the internal pixel storage, and the pixels of an image
+ * never change once it has been constructed. Operations on an image return a new image instead, so
+ * an image can be shared between layers, snapshots and threads without being copied, and
+ * implementations must keep this guarantee.
  */
 public interface IImage {
 
@@ -12,6 +16,42 @@ public interface IImage {
    */
   IPixel[][] getImage();
 
+  /**
+   * Gets the color of the pixel at the given row and column, packed as {@code 0xRRGGBB} (red in
+   * bits 16-23, green in bits 8-15, and blue in bits 0-7). No pixel objects are created.
+   *
+   * @param row the row of the pixel
+   * @param col the column of the pixel
+   * @return the packed red, green, and blue values of the pixel
+   * @throws IllegalArgumentException if the given row or column is out of bounds
+   */
+  int getRGB(int row, int col) throws IllegalArgumentException;
+
+  /**
+   * Copies the colors of the pixels in the given row, packed as {@code 0xRRGGBB}, into the first
+   * {@link #getWidth()} entries of the given buffer. No pixel objects are created, so callers can
+   * reuse the same buffer for every row.
+   *
+   * @param row  the row of pixels to read
+   * @param dest the buffer to copy the row into
+   * @return the given buffer
+   * @throws IllegalArgumentException if the row is out of bounds or if the buffer is null or
+   *                                  shorter than the width of this image
+   */
+  int[] getRow(int row, int[] dest) throws IllegalArgumentException;
+
+  /**
+   * Copies the colors of all the pixels of this image, row by row and packed as {@code 0xRRGGBB},
+   * into the first {@code getWidth() * getHeight()} entries of the given buffer. The pixel at a
+   * given row and column is copied to index {@code row * getWidth() + col}.
+   *
+   * @param dest the buffer to copy the pixels into
+   * @return the given buffer
+   * @throws IllegalArgumentException if the buffer is null or shorter than the number of pixels of
+   *                                  this image
+   */
+  int[] getPixels(int[] dest) throws IllegalArgumentException;
+
   /**
    * Gets the filename of this image.
    *
@@ -2,16 +2,26 @@ package model.image;
 
 import java.util.Arrays;
 import java.util.Objects;
-import utils.ImageUtil;
+import utils.PPMReader;
 
 /**
  * Represents an image that is of the PPM/JPEG/PNG format (a simple, text-based file format to store
  * images) that has a list of pixels. A PPM Image is made up of pixels that have red, green, and
  * blue values of each pixel, row-wise.
+ *
+ * <p>The pixels are stored in a single packed array, row by row, in which each entry holds the
+ * red, green, and blue values of a pixel as {@code 0xRRGGBB}. {@link IPixel} objects are only
+ * created when {@link #getImage()} is called, and every accessor copies out of the packed array so
+ * that an image can never be changed once it has been constructed.
  */
-public class Image implements IImage {
-
-  private final IPixel[][] image;
+public final class Image implements IImage {
+
+  // INVARIANT: has exactly width * height entries, each of which is between 0 and 0xFFFFFF
+  private final int[] pixels;
+  // INVARIANT: width is a positive integer
+  private final int width;
+  // INVARIANT: height is a positive integer
+  private final int height;
   private final String filename;
 
   /**
@@ -19,18 +29,18 @@ public class Image implements IImage {
    *
    * @param filename the name of a given file
    * @throws IllegalArgumentException if any class invariants are violated or if any argument is
-   *                                  null or if the image is null because of a nonexistent file
+   *                                  null or if the file does not exist or is not a valid PPM file
    */
   public Image(String filename) {
     if (filename == null) {
       throw new IllegalArgumentException("The filename cannot be null.");
     }
-    this.filename = filename;
-    this.image = ImageUtil.readPPM(this.filename);
+    PPMReader reader = PPMReader.read(filename);
 
-    if (this.image == null) {
-      throw new IllegalArgumentException("The file doesn't exist.");
-    }
+    this.filename = filename;
+    this.height = reader.getHeight();
+    this.width = reader.getWidth();
+    this.pixels = reader.getPixels();
   }
 
   /**
@@ -48,7 +58,39 @@ public class Image implements IImage {
       throw new IllegalArgumentException("Cannot have a null/empty image or filename.");
     }
 
-    this.image = image;
+    this.height = image.length;
+    this.width = image[0].length;
+    this.pixels = pack(image);
+    this.filename = filename;
+  }
+
+  /**
+   * Constructs a {@code Image} object with the given name based on an array of packed pixels, row
+   * by row, in which each pixel is represented as {@code 0xRRGGBB}. The given array becomes owned by
+   * this image and must not be modified afterwards.
+   *
+   * @param pixels   the packed pixels of the image, row by row
+   * @param width    the width of the image
+   * @param height   the height of the image
+   * @param filename the name of the image
+   * @throws IllegalArgumentException if any argument is null, if the width or height is not
+   *                                  positive, if the number of pixels does not match the
+   *                                  dimensions, or if any pixel is not a valid color
+   */
+  public Image(int[] pixels, int width, int height, String filename) {
+    if (pixels == null || filename == null || width <= 0 || height <= 0
+        || (long) width * height != pixels.length) {
+      throw new IllegalArgumentException("Cannot have a null/empty image or filename.");
+    }
+    for (int pixel : pixels) {
+      if ((pixel & 0xFF000000) != 0) {
+        throw new IllegalArgumentException("One or more pixels is not a valid color.");
+      }
+    }
+
+    this.pixels = pixels;
+    this.width = width;
+    this.height = height;
     this.filename = filename;
   }
 
@@ -61,6 +103,9 @@ public class Image implements IImage {
    */
   private boolean checkImageGrid(IPixel[][] imageGrid) throws IllegalArgumentException {
     for (IPixel[] iPixels : imageGrid) {
+      if (iPixels == null || iPixels.length != imageGrid[0].length) {
+        return true;
+      }
       for (IPixel iPixel : iPixels) {
         if (iPixel == null) {
           return true;
@@ -71,21 +116,71 @@ public class Image implements IImage {
     return false;
   }
 
+  /**
+   * Packs the given rectangular 2D array of pixels into a single array, row by row, in which each
+   * pixel is represented as {@code 0xRRGGBB}.
+   *
+   * @param imageGrid the given 2D IPixel array
+   * @return the packed pixels
+   */
+  private static int[] pack(IPixel[][] imageGrid) {
+    int width = imageGrid[0].length;
+    int[] packed = new int[imageGrid.length * width];
+
+    for (int i = 0; i < imageGrid.length; i++) {
+      for (int j = 0; j < width; j++) {
+        IPixel currPixel = imageGrid[i][j];
+        packed[i * width + j] =
+            (currPixel.getRed() << 16) | (currPixel.getGreen() << 8) | currPixel.getBlue();
+      }
+    }
+
+    return packed;
+  }
+
   @Override
   public IPixel[][] getImage() {
-    IPixel[][] imageGrid = new IPixel[this.getHeight()][this.getWidth()];
+    IPixel[][] imageGrid = new IPixel[this.height][this.width];
 
-    for (int i = 0; i < this.getHeight(); i++) {
-      for (int j = 0; j < this.getWidth(); j++) {
-        IPixel currPixel = this.image[i][j];
-        imageGrid[i][j] = new Pixel(i, j, currPixel.getRed(), currPixel.getGreen(),
-            currPixel.getBlue());
+    for (int i = 0; i < this.height; i++) {
+      for (int j = 0; j < this.width; j++) {
+        int rgb = this.pixels[i * this.width + j];
+        imageGrid[i][j] = new Pixel(i, j, (rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
       }
     }
 
     return imageGrid;
   }
 
+  @Override
+  public int getRGB(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      throw new IllegalArgumentException("Pixel is out of bounds.");
+    }
+    return this.pixels[row * this.width + col];
+  }
+
+  @Override
+  public int[] getRow(int row, int[] dest) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height) {
+      throw new IllegalArgumentException("Row is out of bounds.");
+    }
+    if (dest == null || dest.length < this.width) {
+      throw new IllegalArgumentException("Buffer is null or too small.");
+    }
+    System.arraycopy(this.pixels, row * this.width, dest, 0, this.width);
+    return dest;
+  }
+
+  @Override
+  public int[] getPixels(int[] dest) throws IllegalArgumentException {
+    if (dest == null || dest.length < this.pixels.length) {
+      throw new IllegalArgumentException("Buffer is null or too small.");
+    }
+    System.arraycopy(this.pixels, 0, dest, 0, this.pixels.length);
+    return dest;
+  }
+
   @Override
   public String getFilename() {
     return this.filename;
@@ -93,12 +188,12 @@ public class Image implements IImage {
 
   @Override
   public int getHeight() {
-    return this.image.length;
+    return this.height;
   }
 
   @Override
   public int getWidth() {
-    return this.image[0].length;
+    return this.width;
   }
 
   @Override
@@ -110,14 +205,14 @@ public class Image implements IImage {
       return false;
     }
     Image ppmImage = (Image) o;
-    return Arrays.deepEquals(image, ppmImage.image) && Objects
-        .equals(filename, ppmImage.filename);
+    return width == ppmImage.width && height == ppmImage.height
+        && Arrays.equals(pixels, ppmImage.pixels) && Objects.equals(filename, ppmImage.filename);
   }
 
   @Override
   public int hashCode() {
-    int result = Objects.hash(filename);
-    result = 31 * result + Arrays.deepHashCode(image);
+    int result = Objects.hash(filename, width, height);
+    result = 31 * result + Arrays.hashCode(pixels);
     return result;
   }
 }
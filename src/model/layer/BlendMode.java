@@ -0,0 +1,51 @@
+package model.layer;
+
+/**
+ * Represents the ways the color of a layer can be combined with the color of the layers below it
+ * when a multi-layered image is flattened. Each mode is applied to the red, green, and blue values
+ * separately, where {@code b} is the value below the layer and {@code t} is the value of the layer.
+ */
+public enum BlendMode {
+
+  /**
+   * The layer covers the layers below it: {@code t}.
+   */
+  NORMAL,
+  /**
+   * The layers are multiplied, which always darkens: {@code b * t / 255}.
+   */
+  MULTIPLY,
+  /**
+   * The inverted layers are multiplied, which always lightens:
+   * {@code 255 - (255 - b) * (255 - t) / 255}.
+   */
+  SCREEN,
+  /**
+   * Multiplies where the layers below are dark and screens where they are light, which increases
+   * the contrast of the layers below.
+   */
+  OVERLAY,
+  /**
+   * The layers are added together, capped at 255: {@code min(255, b + t)}.
+   */
+  ADD;
+
+  /**
+   * Gets the blend mode with the given name, ignoring case.
+   *
+   * @param name the name of the blend mode, such as normal or multiply
+   * @return the blend mode with the given name
+   * @throws IllegalArgumentException if the name is null or is not the name of a blend mode
+   */
+  public static BlendMode fromName(String name) throws IllegalArgumentException {
+    if (name == null) {
+      throw new IllegalArgumentException("Blend mode cannot be null.");
+    }
+    for (BlendMode mode : values()) {
+      if (mode.name().equalsIgnoreCase(name)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException("Unknown blend mode: " + name);
+  }
+}
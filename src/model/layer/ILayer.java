@@ -4,7 +4,8 @@ import model.image.IImage;
 
 /**
  * Represents a Layer which has a name, image associated with it, and a visibility setting. It is a
- * part of a multi-layered image.
+ * part of a multi-layered image. A layer also has an opacity and a {@link BlendMode}, which decide
+ * how it is combined with the layers below it when the image is flattened.
  */
 public interface ILayer {
 
@@ -20,6 +21,23 @@ public interface ILayer {
    */
   void setVisibility(boolean isVisible);
 
+  /**
+   * Sets the opacity of this layer, from 0 for a layer that cannot be seen at all to 1 for a layer
+   * that fully covers the layers below it.
+   *
+   * @param opacity the new opacity of this layer
+   * @throws IllegalArgumentException if the opacity is not between 0 and 1
+   */
+  void setOpacity(double opacity) throws IllegalArgumentException;
+
+  /**
+   * Sets how this layer is combined with the layers below it.
+   *
+   * @param mode the new blend mode of this layer
+   * @throws IllegalArgumentException if the given blend mode is null
+   */
+  void setBlendMode(BlendMode mode) throws IllegalArgumentException;
+
   /**
    * Gets this layer's name.
    *
@@ -41,4 +59,28 @@ public interface ILayer {
    */
   boolean isVisible();
 
+  /**
+   * Gets the opacity of this layer, which is 1 unless it has been changed.
+   *
+   * @return the opacity of this layer, from 0 to 1
+   */
+  double getOpacity();
+
+  /**
+   * Gets how this layer is combined with the layers below it, which is
+   * {@link BlendMode#NORMAL} unless it has been changed.
+   *
+   * @return the blend mode of this layer
+   */
+  BlendMode getBlendMode();
+
+  /**
+   * Gets a 64-bit hash of the dimensions and pixels of this layer's image. Two images with the same
+   * pixels always have the same hash, so it can be used to tell whether the image of a layer has
+   * changed since it was last saved.
+   *
+   * @return the content hash of this layer's image, or 0 if this layer has no image
+   */
+  long getContentHash();
+
 }
@@ -65,6 +65,27 @@ public interface ILayerModel extends IModel {
    */
   void makeLayerVisible(String layerName) throws IllegalArgumentException;
 
+  /**
+   * Sets the opacity of the layer that has the given name, from 0 for a layer that cannot be seen
+   * at all to 1 for a layer that fully covers the layers below it when the image is flattened.
+   *
+   * @param layerName the name of the layer
+   * @param opacity   the new opacity of the layer
+   * @throws IllegalArgumentException if the given name is null, if no such layer exists, or if the
+   *                                  opacity is not between 0 and 1
+   */
+  void setOpacity(String layerName, double opacity) throws IllegalArgumentException;
+
+  /**
+   * Sets how the layer that has the given name is combined with the layers below it when the image
+   * is flattened.
+   *
+   * @param layerName the name of the layer
+   * @param mode      the new blend mode of the layer
+   * @throws IllegalArgumentException if any argument is null or if no such layer exists
+   */
+  void setBlendMode(String layerName, BlendMode mode) throws IllegalArgumentException;
+
   /**
    * Sets the given layer based on its name to be the current layer to perform operations on.
    *
@@ -120,20 +141,94 @@ public interface ILayerModel extends IModel {
       throws IllegalArgumentException;
 
   /**
-   * Creates a deep copy of the list of layers in this {@code ILayerModel}.
+   * Creates a copy of the list of layers in this {@code ILayerModel}. Changing the returned layers
+   * does not change the layers of the model. Images cannot be changed, so the copies share the
+   * images of the layers of the model and no pixels are copied.
    *
-   * @return a deep copy of the list of layers in the model.
+   * @return a copy of the list of layers in the model.
    */
   List<ILayer> getLayers();
 
   /**
-   * Returns the current layer, if one exists.
+   * Gets the number of layers in this {@code ILayerModel}.
+   *
+   * @return the number of layers
+   */
+  int getNumLayers();
+
+  /**
+   * Creates a copy of the layer at the given index, in the same way as {@link #getLayers()} copies
+   * every layer.
+   *
+   * @param index the index of the layer, starting from 0 for the first layer
+   * @return a copy of the layer at the given index
+   * @throws IllegalArgumentException if there is no layer at the given index
+   */
+  ILayer getLayer(int index) throws IllegalArgumentException;
+
+  /**
+   * Returns a copy of the current layer, if one exists, in the same way as {@link #getLayers()}
+   * copies every layer.
    *
-   * @return the current layer
+   * @return a copy of the current layer
    * @throws IllegalArgumentException if the current layer does not exist
    */
   ILayer getCurrentLayer() throws IllegalArgumentException;
 
+  /**
+   * Gets the metadata of every layer in this {@code ILayerModel}, in order. Unlike
+   * {@link #getLayers()}, no layers are copied and no pixels are read, and the result is kept until
+   * a layer changes, so it is cheap to ask for after every operation.
+   *
+   * @return the metadata of the layers, which cannot be changed
+   */
+  List<LayerMetadata> getLayerMetadata();
+
+  /**
+   * Gets the index of the current layer.
+   *
+   * @return the index of the current layer, starting from 0 for the first layer, or -1 if the
+   *         current layer does not exist
+   */
+  int getCurrentLayerIndex();
+
+  /**
+   * Gets the image of the topmost visible layer that has an image. The result is kept until a
+   * layer is added or removed, or the image or visibility of a layer changes, so asking for it
+   * again in between takes constant time and returns the same image.
+   *
+   * @return the image of the topmost visible layer, or null if no visible layer has an image
+   */
+  IImage getTopmostVisibleLayerImage();
+
+  /**
+   * Flattens the visible layers that have images into a single image. The layers are combined from
+   * the first to the last over a black image, each with its own blend mode and opacity, so a stack
+   * of opaque normal layers flattens to the image of its topmost visible layer. Like
+   * {@link #getTopmostVisibleLayerImage()}, the result is kept until a layer changes.
+   *
+   * @return the flattened image, or null if no visible layer has an image
+   * @throws IllegalArgumentException if the visible images do not all have the same dimensions
+   */
+  IImage flatten() throws IllegalArgumentException;
+
+  /**
+   * Undoes the most recent operation that changed the layers, such as a filter, a new layer, or a
+   * change of visibility or of the current layer. Operations are undone one at a time, from the
+   * most recent one back, for as long as the history keeps them.
+   *
+   * @throws IllegalArgumentException if there is no operation to undo
+   */
+  void undo() throws IllegalArgumentException;
+
+  /**
+   * Redoes the most recently undone operation. Operations can be redone until an operation other
+   * than undo or redo changes the layers.
+   *
+   * @throws IllegalArgumentException if there is no operation to redo
+   */
+  void redo() throws IllegalArgumentException;
+
 }
 
 
@@ -0,0 +1,255 @@
+package model.layer;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import model.filter.ConvolutionEngine;
+import model.image.IImage;
+import model.image.Image;
+
+/**
+ * Represents an image stored as its difference from another image, so that the history of a
+ * {@link LayerModel} does not keep a full copy of every image it replaced.
+ *
+ * <p>The image is split into square tiles. A tile is only stored if it differs from the same tile
+ * of the base image, and it is stored as the exclusive or of the two tiles, compressed with
+ * {@link Deflater}. Since the exclusive or can be undone by applying it again, the same patch turns
+ * the base image into the image and the image back into the base image. An image whose base has
+ * other dimensions, or that has no base, is stored the same way against a black image.
+ */
+final class ImagePatch {
+
+  private static final int TILE_SIZE = 64;
+  // The first byte of a stored tile, which tells whether the rest of it is compressed
+  private static final byte RAW = 0;
+  private static final byte DEFLATED = 1;
+  // The estimated size of the objects and arrays around the stored tiles, in bytes
+  private static final int OVERHEAD = 64;
+  private static final int TILE_OVERHEAD = 16;
+
+  private final int width;
+  private final int height;
+  private final String filename;
+  // true if the tiles are the difference from an image with the same dimensions
+  private final boolean relative;
+  private final int tileCols;
+  // the tiles row by row, or null for a tile that is the same as in the base image
+  private final byte[][] tiles;
+  private final long sizeInBytes;
+
+  /**
+   * Constructs an {@code ImagePatch} object with the given tiles.
+   *
+   * @param image    the image that was encoded
+   * @param relative whether the tiles are the difference from an image with the same dimensions
+   * @param tiles    the encoded tiles
+   */
+  private ImagePatch(IImage image, boolean relative, byte[][] tiles) {
+    this.width = image.getWidth();
+    this.height = image.getHeight();
+    this.filename = image.getFilename();
+    this.relative = relative;
+    this.tileCols = (this.width + TILE_SIZE - 1) / TILE_SIZE;
+    this.tiles = tiles;
+    long size = OVERHEAD + 8L * tiles.length;
+    for (byte[] tile : tiles) {
+      if (tile != null) {
+        size += TILE_OVERHEAD + tile.length;
+      }
+    }
+    this.sizeInBytes = size;
+  }
+
+  /**
+   * Encodes the given image as its difference from the given base image.
+   *
+   * @param base  the image the patch is applied to, or null to store the image on its own
+   * @param image the image to encode
+   * @return the patch that turns the base image into the given image
+   * @throws IllegalArgumentException if the image is null
+   */
+  static ImagePatch encode(IImage base, IImage image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    boolean relative = base != null && base.getWidth() == width && base.getHeight() == height;
+    int tileRows = (height + TILE_SIZE - 1) / TILE_SIZE;
+    int tileCols = (width + TILE_SIZE - 1) / TILE_SIZE;
+    byte[][] tiles = new byte[tileRows * tileCols][];
+
+    ConvolutionEngine.getDefault().forEachRowBand(tileRows, (startTileRow, endTileRow) -> {
+      int[] imageRows = new int[TILE_SIZE * width];
+      int[] baseRows = new int[TILE_SIZE * width];
+      int[] row = new int[width];
+      byte[] raw = new byte[3 * TILE_SIZE * TILE_SIZE];
+      byte[] compressed = new byte[raw.length];
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        for (int tileRow = startTileRow; tileRow < endTileRow; tileRow++) {
+          int top = tileRow * TILE_SIZE;
+          int rows = Math.min(TILE_SIZE, height - top);
+          readRows(image, top, rows, imageRows, row);
+          if (relative) {
+            readRows(base, top, rows, baseRows, row);
+          }
+          for (int tileCol = 0; tileCol < tileCols; tileCol++) {
+            int left = tileCol * TILE_SIZE;
+            int cols = Math.min(TILE_SIZE, width - left);
+            int area = rows * cols;
+            // the red, green and blue values are stored in separate planes, which compress better
+            boolean changed = false;
+            int k = 0;
+            for (int i = 0; i < rows; i++) {
+              for (int j = left; j < left + cols; j++, k++) {
+                int diff = imageRows[i * width + j] ^ (relative ? baseRows[i * width + j] : 0);
+                changed |= diff != 0;
+                raw[k] = (byte) (diff >> 16);
+                raw[area + k] = (byte) (diff >> 8);
+                raw[2 * area + k] = (byte) diff;
+              }
+            }
+            if (changed) {
+              tiles[tileRow * tileCols + tileCol] = compress(deflater, raw, 3 * area, compressed);
+            }
+          }
+        }
+      } finally {
+        deflater.end();
+      }
+    });
+
+    return new ImagePatch(image, relative, tiles);
+  }
+
+  /**
+   * Reads the given number of rows of the given image, starting at the given row, into the given
+   * buffer.
+   *
+   * @param image the image to read
+   * @param top   the first row to read
+   * @param rows  the number of rows to read
+   * @param dest  the buffer to read the rows into, one after the other
+   * @param row   a buffer for a single row
+   */
+  private static void readRows(IImage image, int top, int rows, int[] dest, int[] row) {
+    int width = image.getWidth();
+    for (int i = 0; i < rows; i++) {
+      System.arraycopy(image.getRow(top + i, row), 0, dest, i * width, width);
+    }
+  }
+
+  /**
+   * Compresses the given tile, or stores it as it is if it does not get any smaller.
+   *
+   * @param deflater   the deflater to compress with
+   * @param raw        the bytes of the tile
+   * @param length     the number of bytes of the tile
+   * @param compressed a buffer at least as long as the tile
+   * @return the stored tile, starting with whether it is compressed
+   */
+  private static byte[] compress(Deflater deflater, byte[] raw, int length, byte[] compressed) {
+    deflater.reset();
+    deflater.setInput(raw, 0, length);
+    deflater.finish();
+    int compressedLength = deflater.deflate(compressed, 0, length - 1);
+    byte[] tile;
+    if (deflater.finished()) {
+      tile = new byte[compressedLength + 1];
+      tile[0] = DEFLATED;
+      System.arraycopy(compressed, 0, tile, 1, compressedLength);
+    } else {
+      tile = new byte[length + 1];
+      tile[0] = RAW;
+      System.arraycopy(raw, 0, tile, 1, length);
+    }
+    return tile;
+  }
+
+  /**
+   * Gets the estimated number of bytes this patch takes in memory.
+   *
+   * @return the size of this patch, in bytes
+   */
+  long getSizeInBytes() {
+    return this.sizeInBytes;
+  }
+
+  /**
+   * Applies this patch to the given image.
+   *
+   * @param base the image this patch was encoded against, or any image if this patch is not
+   *             relative
+   * @return the image this patch encodes
+   * @throws IllegalArgumentException if this patch is relative and the base image is null or has
+   *                                  other dimensions
+   */
+  IImage apply(IImage base) throws IllegalArgumentException {
+    if (this.relative && (base == null || base.getWidth() != this.width
+        || base.getHeight() != this.height)) {
+      throw new IllegalArgumentException("The patch does not match the image.");
+    }
+    int[] pixels = new int[this.width * this.height];
+    if (this.relative) {
+      base.getPixels(pixels);
+    }
+    int tileRows = this.tiles.length / this.tileCols;
+
+    ConvolutionEngine.getDefault().forEachRowBand(tileRows, (startTileRow, endTileRow) -> {
+      byte[] raw = new byte[3 * TILE_SIZE * TILE_SIZE];
+      Inflater inflater = new Inflater();
+      try {
+        for (int tileRow = startTileRow; tileRow < endTileRow; tileRow++) {
+          for (int tileCol = 0; tileCol < this.tileCols; tileCol++) {
+            byte[] tile = this.tiles[tileRow * this.tileCols + tileCol];
+            if (tile != null) {
+              this.applyTile(tile, tileRow * TILE_SIZE, tileCol * TILE_SIZE, pixels, raw,
+                  inflater);
+            }
+          }
+        }
+      } finally {
+        inflater.end();
+      }
+    });
+
+    return new Image(pixels, this.width, this.height, this.filename);
+  }
+
+  /**
+   * Applies the given stored tile to the pixels at the given position.
+   *
+   * @param tile     the stored tile
+   * @param top      the first row of the tile
+   * @param left     the first column of the tile
+   * @param pixels   the pixels to apply the tile to
+   * @param raw      a buffer for the bytes of a tile
+   * @param inflater the inflater to decompress with
+   */
+  private void applyTile(byte[] tile, int top, int left, int[] pixels, byte[] raw,
+      Inflater inflater) {
+    int rows = Math.min(TILE_SIZE, this.height - top);
+    int cols = Math.min(TILE_SIZE, this.width - left);
+    int area = rows * cols;
+    if (tile[0] == DEFLATED) {
+      inflater.reset();
+      inflater.setInput(tile, 1, tile.length - 1);
+      try {
+        inflater.inflate(raw, 0, 3 * area);
+      } catch (DataFormatException e) {
+        throw new IllegalStateException("The patch is corrupted.");
+      }
+    } else {
+      System.arraycopy(tile, 1, raw, 0, 3 * area);
+    }
+    int k = 0;
+    for (int i = 0; i < rows; i++) {
+      int offset = (top + i) * this.width;
+      for (int j = left; j < left + cols; j++, k++) {
+        pixels[offset + j] ^= (raw[k] & 0xFF) << 16 | (raw[area + k] & 0xFF) << 8
+            | (raw[2 * area + k] & 0xFF);
+      }
+    }
+  }
+}
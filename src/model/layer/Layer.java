@@ -2,7 +2,6 @@ package model.layer;
 
 import java.util.Objects;
 import model.image.IImage;
-import model.image.Image;
 
 /**
  * Represents a named layer of a multi-layered image with an image and a visibility setting.
@@ -12,6 +11,12 @@ public class Layer implements ILayer {
   private IImage image;
   private final String name;
   private boolean visibility; // true if visible, false if invisible
+  // INVARIANT: opacity is between 0 and 1
+  private double opacity;
+  private BlendMode blendMode;
+  // the hash of the pixels of the image, computed the first time it is asked for
+  private long contentHash;
+  private boolean contentHashKnown;
 
   /**
    * Constructs a {@code Layer} object without a set image, a name, and visibility status as true.
@@ -26,6 +31,34 @@ public class Layer implements ILayer {
     this.image = null;
     this.name = name;
     this.visibility = true;
+    this.opacity = 1;
+    this.blendMode = BlendMode.NORMAL;
+  }
+
+  /**
+   * Creates a layer with the same name, image, visibility, opacity and blend mode as the given
+   * layer. Images cannot be changed, so the new layer shares the image of the given layer instead
+   * of copying its pixels.
+   *
+   * @param other the layer to copy
+   * @return the copy of the given layer
+   * @throws IllegalArgumentException if the given layer is null
+   */
+  public static Layer copyOf(ILayer other) throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("Layer cannot be null");
+    }
+    Layer layer = new Layer(other.getName());
+    layer.image = other.getImage();
+    layer.visibility = other.isVisible();
+    layer.opacity = other.getOpacity();
+    layer.blendMode = other.getBlendMode();
+    if (other instanceof Layer) {
+      // the same image has the same hash, so it does not need to be computed again
+      layer.contentHash = ((Layer) other).contentHash;
+      layer.contentHashKnown = ((Layer) other).contentHashKnown;
+    }
+    return layer;
   }
 
   @Override
@@ -34,6 +67,7 @@ public class Layer implements ILayer {
       throw new IllegalArgumentException("Cannot have a null image");
     }
     this.image = image;
+    this.contentHashKnown = false;
   }
 
   @Override
@@ -41,6 +75,23 @@ public class Layer implements ILayer {
     this.visibility = isVisible;
   }
 
+  @Override
+  public void setOpacity(double opacity) throws IllegalArgumentException {
+    // also rejects NaN
+    if (!(opacity >= 0 && opacity <= 1)) {
+      throw new IllegalArgumentException("Opacity must be between 0 and 1");
+    }
+    this.opacity = opacity;
+  }
+
+  @Override
+  public void setBlendMode(BlendMode mode) throws IllegalArgumentException {
+    if (mode == null) {
+      throw new IllegalArgumentException("Blend mode cannot be null");
+    }
+    this.blendMode = mode;
+  }
+
   @Override
   public String getName() {
     return this.name;
@@ -48,11 +99,8 @@ public class Layer implements ILayer {
 
   @Override
   public IImage getImage() {
-    if (this.image == null) {
-      return null;
-    } else {
-      return new Image(this.image.getImage(), this.image.getFilename());
-    }
+    // images cannot be changed, so the image itself can be handed out
+    return this.image;
   }
 
   @Override
@@ -60,6 +108,49 @@ public class Layer implements ILayer {
     return this.visibility;
   }
 
+  @Override
+  public double getOpacity() {
+    return this.opacity;
+  }
+
+  @Override
+  public BlendMode getBlendMode() {
+    return this.blendMode;
+  }
+
+  @Override
+  public long getContentHash() {
+    if (this.image == null) {
+      return 0;
+    }
+    if (!this.contentHashKnown) {
+      this.contentHash = hashPixels(this.image);
+      this.contentHashKnown = true;
+    }
+    return this.contentHash;
+  }
+
+  /**
+   * Computes a 64-bit FNV-1a hash of the given image, taking its width, its height, and each of
+   * its pixels as one value.
+   *
+   * @param image the image to hash
+   * @return the hash of the image
+   */
+  private static long hashPixels(IImage image) {
+    long hash = 0xCBF29CE484222325L;
+    hash = (hash ^ image.getWidth()) * 0x100000001B3L;
+    hash = (hash ^ image.getHeight()) * 0x100000001B3L;
+    int[] row = new int[image.getWidth()];
+    for (int i = 0; i < image.getHeight(); i++) {
+      image.getRow(i, row);
+      for (int rgb : row) {
+        hash = (hash ^ rgb) * 0x100000001B3L;
+      }
+    }
+    return hash;
+  }
+
   @Override
   public String toString() {
     if (this.image == null) {
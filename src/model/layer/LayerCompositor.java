@@ -0,0 +1,220 @@
+package model.layer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import model.filter.ConvolutionEngine;
+import model.image.IImage;
+import model.image.Image;
+
+/**
+ * Flattens the visible layers of a multi-layered image into a single image. The layers are
+ * composited from the bottom up over black, each one combined with the result so far using its
+ * blend mode and then mixed in by its opacity.
+ *
+ * <p>The rows of the image are split into bands that are composited in parallel. Each band reads
+ * one row of a layer at a time into a buffer of its own and blends it into another, so nothing is
+ * allocated per pixel or per row. All of the arithmetic is done on integers and rounded the same
+ * way every time, so the result does not depend on how the rows were split.
+ */
+final class LayerCompositor {
+
+  /**
+   * Prevents this utility class from being instantiated.
+   */
+  private LayerCompositor() {
+  }
+
+  /**
+   * Composites the visible layers with images of the given layers, from the first to the last.
+   *
+   * @param layers the layers to composite, from the bottom up
+   * @param engine the engine to run the bands of rows on
+   * @return the composited image, named after the image of the topmost visible layer, or null if no
+   *         visible layer has an image
+   * @throws IllegalArgumentException if the visible images do not all have the same dimensions
+   */
+  static IImage composite(List<ILayer> layers, ConvolutionEngine engine)
+      throws IllegalArgumentException {
+    List<ILayer> visible = new ArrayList<>();
+    for (ILayer layer : layers) {
+      if (layer.isVisible() && layer.getImage() != null) {
+        visible.add(layer);
+      }
+    }
+    if (visible.isEmpty()) {
+      return null;
+    }
+
+    int count = visible.size();
+    IImage[] images = new IImage[count];
+    BlendMode[] modes = new BlendMode[count];
+    int[] alphas = new int[count];
+    // everything below the topmost opaque normal layer is hidden, so compositing starts there
+    int first = 0;
+    for (int i = 0; i < count; i++) {
+      images[i] = visible.get(i).getImage();
+      modes[i] = visible.get(i).getBlendMode();
+      alphas[i] = (int) Math.round(visible.get(i).getOpacity() * 255);
+      if (modes[i] == BlendMode.NORMAL && alphas[i] == 255) {
+        first = i;
+      }
+    }
+
+    int width = images[0].getWidth();
+    int height = images[0].getHeight();
+    for (IImage image : images) {
+      if (image.getWidth() != width || image.getHeight() != height) {
+        throw new IllegalArgumentException("Image(s) are not the same dimension!");
+      }
+    }
+
+    int[] pixels = new int[width * height];
+    int start = first;
+    engine.forEachRowBand(height, (startRow, endRow) -> {
+      int[] below = new int[width];
+      int[] above = new int[width];
+      for (int row = startRow; row < endRow; row++) {
+        Arrays.fill(below, 0);
+        for (int i = start; i < count; i++) {
+          if (alphas[i] != 0) {
+            blendRow(below, images[i].getRow(row, above), width, modes[i], alphas[i]);
+          }
+        }
+        System.arraycopy(below, 0, pixels, row * width, width);
+      }
+    });
+
+    return new Image(pixels, width, height, images[count - 1].getFilename());
+  }
+
+  /**
+   * Blends the given row of a layer into the given row of the layers below it.
+   *
+   * @param below the pixels below the layer, which are replaced by the blended pixels
+   * @param above the pixels of the layer
+   * @param width the number of pixels in a row
+   * @param mode  the blend mode of the layer
+   * @param alpha the opacity of the layer, from 0 to 255
+   */
+  private static void blendRow(int[] below, int[] above, int width, BlendMode mode, int alpha) {
+    // the mode is chosen once per row so that each loop only does the arithmetic of its own mode
+    switch (mode) {
+      case NORMAL:
+        if (alpha == 255) {
+          System.arraycopy(above, 0, below, 0, width);
+        } else {
+          for (int j = 0; j < width; j++) {
+            below[j] = mix(below[j], above[j], alpha);
+          }
+        }
+        break;
+      case MULTIPLY:
+        for (int j = 0; j < width; j++) {
+          int b = below[j];
+          int t = above[j];
+          below[j] = mix(b, pack(
+              div255((b >> 16 & 0xFF) * (t >> 16 & 0xFF)),
+              div255((b >> 8 & 0xFF) * (t >> 8 & 0xFF)),
+              div255((b & 0xFF) * (t & 0xFF))), alpha);
+        }
+        break;
+      case SCREEN:
+        for (int j = 0; j < width; j++) {
+          int b = below[j];
+          int t = above[j];
+          below[j] = mix(b, pack(
+              screen(b >> 16 & 0xFF, t >> 16 & 0xFF),
+              screen(b >> 8 & 0xFF, t >> 8 & 0xFF),
+              screen(b & 0xFF, t & 0xFF)), alpha);
+        }
+        break;
+      case OVERLAY:
+        for (int j = 0; j < width; j++) {
+          int b = below[j];
+          int t = above[j];
+          below[j] = mix(b, pack(
+              overlay(b >> 16 & 0xFF, t >> 16 & 0xFF),
+              overlay(b >> 8 & 0xFF, t >> 8 & 0xFF),
+              overlay(b & 0xFF, t & 0xFF)), alpha);
+        }
+        break;
+      case ADD:
+        for (int j = 0; j < width; j++) {
+          int b = below[j];
+          int t = above[j];
+          below[j] = mix(b, pack(
+              Math.min(255, (b >> 16 & 0xFF) + (t >> 16 & 0xFF)),
+              Math.min(255, (b >> 8 & 0xFF) + (t >> 8 & 0xFF)),
+              Math.min(255, (b & 0xFF) + (t & 0xFF))), alpha);
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown blend mode: " + mode);
+    }
+  }
+
+  /**
+   * Screens the given values.
+   *
+   * @param b the value below
+   * @param t the value of the layer
+   * @return the screened value
+   */
+  private static int screen(int b, int t) {
+    return 255 - div255((255 - b) * (255 - t));
+  }
+
+  /**
+   * Overlays the given values.
+   *
+   * @param b the value below
+   * @param t the value of the layer
+   * @return the overlaid value
+   */
+  private static int overlay(int b, int t) {
+    return b < 128 ? div255(2 * b * t) : 255 - div255(2 * (255 - b) * (255 - t));
+  }
+
+  /**
+   * Mixes the blended color into the color below it by the given opacity.
+   *
+   * @param below   the packed color below the layer
+   * @param blended the packed color of the layer blended with the color below it
+   * @param alpha   the opacity of the layer, from 0 to 255
+   * @return the packed mixed color
+   */
+  private static int mix(int below, int blended, int alpha) {
+    if (alpha == 255) {
+      return blended;
+    }
+    int rest = 255 - alpha;
+    return pack(
+        div255((below >> 16 & 0xFF) * rest + (blended >> 16 & 0xFF) * alpha),
+        div255((below >> 8 & 0xFF) * rest + (blended >> 8 & 0xFF) * alpha),
+        div255((below & 0xFF) * rest + (blended & 0xFF) * alpha));
+  }
+
+  /**
+   * Divides the given value by 255, rounded to the nearest integer, without a division.
+   *
+   * @param x the value to divide, from 0 to 65535
+   * @return the rounded quotient
+   */
+  private static int div255(int x) {
+    x += 128;
+    return (x + (x >> 8)) >> 8;
+  }
+
+  /**
+   * Packs the given red, green, and blue values into a single pixel.
+   *
+   * @param red   the red value
+   * @param green the green value
+   * @param blue  the blue value
+   * @return the pixel as {@code 0xRRGGBB}
+   */
+  private static int pack(int red, int green, int blue) {
+    return red << 16 | green << 8 | blue;
+  }
+}
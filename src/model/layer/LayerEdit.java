@@ -0,0 +1,271 @@
+package model.layer;
+
+import java.util.ArrayList;
+import java.util.List;
+import model.image.IImage;
+
+/**
+ * Represents one step of the history of a {@link LayerModel}: the changes that undo a single
+ * operation on the model, along with the current layer before it.
+ *
+ * <p>Each change stores only what the operation changed, such as the visibility of one layer or
+ * the pixels of one image that differ from the image that replaced it, rather than a copy of every
+ * layer. Applying a change gives the change that reverses it, so undoing an edit gives the edit
+ * that redoes it.
+ */
+final class LayerEdit {
+
+  // The estimated size of the objects of an edit and of a change that stores no pixels, in bytes
+  private static final int OVERHEAD = 64;
+  private static final int CHANGE_OVERHEAD = 48;
+
+  private final List<IChange> changes;
+  private final int currentLayerNum;
+  private final int createdCount;
+  private long sizeInBytes;
+
+  /**
+   * Constructs an empty {@code LayerEdit} object that restores the given current layer and count
+   * of created images.
+   *
+   * @param currentLayerNum the index of the current layer to restore
+   * @param createdCount    the count of created images to restore
+   */
+  LayerEdit(int currentLayerNum, int createdCount) {
+    this.changes = new ArrayList<>();
+    this.currentLayerNum = currentLayerNum;
+    this.createdCount = createdCount;
+    this.sizeInBytes = OVERHEAD;
+  }
+
+  /**
+   * Adds the given change, which undoes a change made after the ones already added.
+   *
+   * @param change the change to add
+   */
+  void add(IChange change) {
+    this.changes.add(change);
+    this.sizeInBytes += change.getSizeInBytes();
+  }
+
+  /**
+   * Determines whether undoing this edit would change the given model.
+   *
+   * @param model the model this edit was recorded on
+   * @return true if this edit has any changes or restores another current layer or count
+   */
+  boolean changes(LayerModel model) {
+    return !this.changes.isEmpty() || this.currentLayerNum != model.getCurrentLayerNum()
+        || this.createdCount != model.getCreatedCount();
+  }
+
+  /**
+   * Gets the estimated number of bytes this edit takes in memory.
+   *
+   * @return the size of this edit, in bytes
+   */
+  long getSizeInBytes() {
+    return this.sizeInBytes;
+  }
+
+  /**
+   * Undoes the changes of this edit on the given model, the last change first.
+   *
+   * @param model the model to change
+   * @return the edit that redoes the changes
+   */
+  LayerEdit apply(LayerModel model) {
+    LayerEdit inverse = new LayerEdit(model.getCurrentLayerNum(), model.getCreatedCount());
+    for (int i = this.changes.size() - 1; i >= 0; i--) {
+      inverse.add(this.changes.get(i).apply(model));
+    }
+    model.restoreCurrent(this.currentLayerNum, this.createdCount);
+    return inverse;
+  }
+
+  /**
+   * Creates the change that undoes adding a layer at the given index.
+   *
+   * @param index the index of the added layer
+   * @return the change that removes the layer
+   */
+  static IChange layerAdded(int index) {
+    return new RemoveLayer(index);
+  }
+
+  /**
+   * Creates the change that undoes removing the given layer from the given index.
+   *
+   * @param index   the index the layer was removed from
+   * @param removed the removed layer
+   * @return the change that inserts the layer again
+   */
+  static IChange layerRemoved(int index, ILayer removed) {
+    return new InsertLayer(index, removed);
+  }
+
+  /**
+   * Creates the change that undoes replacing the image of the layer at the given index.
+   *
+   * @param index    the index of the layer
+   * @param oldImage the image before it was replaced, or null if the layer had no image
+   * @param newImage the image that replaced it
+   * @return the change that sets the old image again
+   */
+  static IChange imageReplaced(int index, IImage oldImage, IImage newImage) {
+    return new SetImage(index, oldImage == null ? null : ImagePatch.encode(newImage, oldImage));
+  }
+
+  /**
+   * Creates the change that undoes changing the visibility, opacity or blend mode of the given
+   * layer, which must still have its old values.
+   *
+   * @param index the index of the layer
+   * @param layer the layer before it is changed
+   * @return the change that sets the old values again
+   */
+  static IChange propertiesChanged(int index, ILayer layer) {
+    return new SetProperties(index, layer.isVisible(), layer.getOpacity(), layer.getBlendMode());
+  }
+
+  /**
+   * Represents a change to the layers of a model that can be reversed.
+   */
+  interface IChange {
+
+    /**
+     * Applies this change to the given model.
+     *
+     * @param model the model to change
+     * @return the change that reverses this change
+     */
+    IChange apply(LayerModel model);
+
+    /**
+     * Gets the estimated number of bytes this change takes in memory.
+     *
+     * @return the size of this change, in bytes
+     */
+    long getSizeInBytes();
+  }
+
+  /**
+   * Represents removing the layer at an index.
+   */
+  private static final class RemoveLayer implements IChange {
+
+    private final int index;
+
+    private RemoveLayer(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public IChange apply(LayerModel model) {
+      return new InsertLayer(this.index, model.restoreRemoveLayer(this.index));
+    }
+
+    @Override
+    public long getSizeInBytes() {
+      return CHANGE_OVERHEAD;
+    }
+  }
+
+  /**
+   * Represents inserting a layer at an index. The image of the layer is kept as a patch, so that a
+   * removed layer takes less memory than its image.
+   */
+  private static final class InsertLayer implements IChange {
+
+    private final int index;
+    // the layer without its image
+    private final ILayer layer;
+    private final ImagePatch image;
+
+    private InsertLayer(int index, ILayer layer) {
+      this.index = index;
+      this.layer = new Layer(layer.getName());
+      this.layer.setVisibility(layer.isVisible());
+      this.layer.setOpacity(layer.getOpacity());
+      this.layer.setBlendMode(layer.getBlendMode());
+      this.image = layer.getImage() == null ? null : ImagePatch.encode(null, layer.getImage());
+    }
+
+    @Override
+    public IChange apply(LayerModel model) {
+      ILayer inserted = Layer.copyOf(this.layer);
+      if (this.image != null) {
+        inserted.setImage(this.image.apply(null));
+      }
+      model.restoreInsertLayer(this.index, inserted);
+      return new RemoveLayer(this.index);
+    }
+
+    @Override
+    public long getSizeInBytes() {
+      return CHANGE_OVERHEAD + (this.image == null ? 0 : this.image.getSizeInBytes());
+    }
+  }
+
+  /**
+   * Represents setting the image of the layer at an index to the image a patch encodes against
+   * the image the layer has.
+   */
+  private static final class SetImage implements IChange {
+
+    private final int index;
+    // null to remove the image from the layer
+    private final ImagePatch patch;
+
+    private SetImage(int index, ImagePatch patch) {
+      this.index = index;
+      this.patch = patch;
+    }
+
+    @Override
+    public IChange apply(LayerModel model) {
+      IImage current = model.getLayerImage(this.index);
+      IImage image = this.patch == null ? null : this.patch.apply(current);
+      // encoded again rather than reusing a relative patch, whose difference is the same both
+      // ways but whose filename is only that of the image it gives
+      ImagePatch inverse = current == null ? null : ImagePatch.encode(image, current);
+      model.restoreLayerImage(this.index, image);
+      return new SetImage(this.index, inverse);
+    }
+
+    @Override
+    public long getSizeInBytes() {
+      return CHANGE_OVERHEAD + (this.patch == null ? 0 : this.patch.getSizeInBytes());
+    }
+  }
+
+  /**
+   * Represents setting the visibility, opacity and blend mode of the layer at an index.
+   */
+  private static final class SetProperties implements IChange {
+
+    private final int index;
+    private final boolean isVisible;
+    private final double opacity;
+    private final BlendMode mode;
+
+    private SetProperties(int index, boolean isVisible, double opacity, BlendMode mode) {
+      this.index = index;
+      this.isVisible = isVisible;
+      this.opacity = opacity;
+      this.mode = mode;
+    }
+
+    @Override
+    public IChange apply(LayerModel model) {
+      IChange inverse = propertiesChanged(this.index, model.getLayerAt(this.index));
+      model.restoreLayerProperties(this.index, this.isVisible, this.opacity, this.mode);
+      return inverse;
+    }
+
+    @Override
+    public long getSizeInBytes() {
+      return CHANGE_OVERHEAD;
+    }
+  }
+}
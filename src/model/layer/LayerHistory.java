@@ -0,0 +1,140 @@
+package model.layer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Represents the undo and redo stacks of a {@link LayerModel}. The edits are kept under a budget of
+ * bytes: once they take more than the budget, the oldest edits that can be undone are forgotten
+ * first, and then the edits that are furthest from being redone.
+ */
+final class LayerHistory {
+
+  private final Deque<LayerEdit> undoStack;
+  private final Deque<LayerEdit> redoStack;
+  // INVARIANT: budget is not negative
+  private final long budget;
+  private long sizeInBytes;
+
+  /**
+   * Constructs an empty {@code LayerHistory} object with the given budget.
+   *
+   * @param budget the most bytes the edits may take, or 0 to keep no history
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  LayerHistory(long budget) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("The history budget cannot be negative.");
+    }
+    this.undoStack = new ArrayDeque<>();
+    this.redoStack = new ArrayDeque<>();
+    this.budget = budget;
+  }
+
+  /**
+   * Adds the given edit as the most recent one that can be undone. The edits that could be redone
+   * are forgotten, since they no longer follow from the layers.
+   *
+   * @param edit the edit that undoes the latest operation
+   */
+  void record(LayerEdit edit) {
+    for (LayerEdit redo : this.redoStack) {
+      this.sizeInBytes -= redo.getSizeInBytes();
+    }
+    this.redoStack.clear();
+    this.undoStack.push(edit);
+    this.sizeInBytes += edit.getSizeInBytes();
+    this.trim();
+  }
+
+  /**
+   * Undoes the most recent edit on the given model.
+   *
+   * @param model the model the edits were recorded on
+   * @throws IllegalArgumentException if there is nothing to undo
+   */
+  void undo(LayerModel model) throws IllegalArgumentException {
+    this.move(this.undoStack, this.redoStack, model, "Nothing to undo!");
+  }
+
+  /**
+   * Redoes the most recently undone edit on the given model.
+   *
+   * @param model the model the edits were recorded on
+   * @throws IllegalArgumentException if there is nothing to redo
+   */
+  void redo(LayerModel model) throws IllegalArgumentException {
+    this.move(this.redoStack, this.undoStack, model, "Nothing to redo!");
+  }
+
+  /**
+   * Applies the top edit of one stack to the given model, and pushes the edit that reverses it
+   * onto the other stack.
+   *
+   * @param from    the stack to take the edit from
+   * @param to      the stack to push the reversing edit onto
+   * @param model   the model to apply the edit to
+   * @param message the message if the stack to take the edit from is empty
+   * @throws IllegalArgumentException if the stack to take the edit from is empty
+   */
+  private void move(Deque<LayerEdit> from, Deque<LayerEdit> to, LayerModel model,
+      String message) throws IllegalArgumentException {
+    if (from.isEmpty()) {
+      throw new IllegalArgumentException(message);
+    }
+    LayerEdit edit = from.pop();
+    this.sizeInBytes -= edit.getSizeInBytes();
+    LayerEdit inverse = edit.apply(model);
+    to.push(inverse);
+    this.sizeInBytes += inverse.getSizeInBytes();
+    this.trim();
+  }
+
+  /**
+   * Forgets edits until the rest fit in the budget.
+   */
+  private void trim() {
+    while (this.sizeInBytes > this.budget && !this.undoStack.isEmpty()) {
+      this.sizeInBytes -= this.undoStack.removeLast().getSizeInBytes();
+    }
+    while (this.sizeInBytes > this.budget && !this.redoStack.isEmpty()) {
+      this.sizeInBytes -= this.redoStack.removeLast().getSizeInBytes();
+    }
+  }
+
+  /**
+   * Determines whether any edit can be kept, which is not the case with a budget of 0.
+   *
+   * @return true if the budget is more than 0 bytes
+   */
+  boolean hasBudget() {
+    return this.budget > 0;
+  }
+
+  /**
+   * Gets the number of edits that can be undone.
+   *
+   * @return the size of the undo stack
+   */
+  int getUndoCount() {
+    return this.undoStack.size();
+  }
+
+  /**
+   * Gets the number of edits that can be redone.
+   *
+   * @return the size of the redo stack
+   */
+  int getRedoCount() {
+    return this.redoStack.size();
+  }
+
+  /**
+   * Gets the estimated number of bytes the edits take in memory.
+   *
+   * @return the size of the history, in bytes
+   */
+  long getSizeInBytes() {
+    return this.sizeInBytes;
+  }
+}
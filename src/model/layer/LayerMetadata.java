@@ -0,0 +1,130 @@
+package model.layer;
+
+import model.image.IImage;
+
+/**
+ * Represents what can be told about a layer without looking at the pixels of its image: its name,
+ * the filename and dimensions of its image, its visibility, its opacity and its blend mode. It is
+ * a snapshot, so it does not change when the layer does.
+ */
+public final class LayerMetadata {
+
+  private final String name;
+  // null if the layer has no image
+  private final String filename;
+  // 0 if the layer has no image
+  private final int width;
+  private final int height;
+  private final boolean visible;
+  private final double opacity;
+  private final BlendMode blendMode;
+
+  /**
+   * Constructs a {@code LayerMetadata} object with the metadata of the given layer as it is now.
+   *
+   * @param layer the layer to describe
+   * @throws IllegalArgumentException if the given layer is null
+   */
+  public LayerMetadata(ILayer layer) throws IllegalArgumentException {
+    if (layer == null) {
+      throw new IllegalArgumentException("Layer cannot be null");
+    }
+    IImage image = layer.getImage();
+    this.name = layer.getName();
+    this.filename = image == null ? null : image.getFilename();
+    this.width = image == null ? 0 : image.getWidth();
+    this.height = image == null ? 0 : image.getHeight();
+    this.visible = layer.isVisible();
+    this.opacity = layer.getOpacity();
+    this.blendMode = layer.getBlendMode();
+  }
+
+  /**
+   * Gets the name of the layer.
+   *
+   * @return the name of the layer
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Determines whether the layer has an image.
+   *
+   * @return true if the layer has an image
+   */
+  public boolean hasImage() {
+    return this.filename != null;
+  }
+
+  /**
+   * Gets the filename of the image of the layer.
+   *
+   * @return the filename of the image, or null if the layer has no image
+   */
+  public String getFilename() {
+    return this.filename;
+  }
+
+  /**
+   * Gets the width of the image of the layer.
+   *
+   * @return the width of the image, or 0 if the layer has no image
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the height of the image of the layer.
+   *
+   * @return the height of the image, or 0 if the layer has no image
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Determines if the layer is visible.
+   *
+   * @return true if the layer is visible and false if it is invisible
+   */
+  public boolean isVisible() {
+    return this.visible;
+  }
+
+  /**
+   * Gets the opacity of the layer.
+   *
+   * @return the opacity of the layer, from 0 to 1
+   */
+  public double getOpacity() {
+    return this.opacity;
+  }
+
+  /**
+   * Gets the blend mode of the layer.
+   *
+   * @return the blend mode of the layer
+   */
+  public BlendMode getBlendMode() {
+    return this.blendMode;
+  }
+
+  /**
+   * Describes the layer the same way as {@link Layer#toString()}.
+   *
+   * @return the name, image filename and visibility of the layer
+   */
+  @Override
+  public String toString() {
+    if (this.filename == null) {
+      return "Name of Layer: " + this.name
+          + ", No Image Associated With This Layer"
+          + ", Visibility: " + this.visible;
+    } else {
+      return "Name of Layer: " + this.name + ", Image Filename: " + this.filename
+          + ", Visibility: " + this.visible;
+    }
+  }
+}
@@ -1,17 +1,20 @@
 package model.layer;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import model.IModel;
 import model.Model;
 import model.color.IColorTransformation;
 import model.creator.IImageCreator;
 import model.downscale.Downscale;
 import model.downscale.IImageResize;
+import model.filter.ConvolutionEngine;
 import model.filter.IFilter;
 import model.image.IImage;
 import model.mosaic.IPhotoEffect;
-import model.mosaic.Mosaic;
 
 /**
  * Represents a group of layers of {@code IImage} that can add/remove images from the group of
@@ -20,106 +23,160 @@ import model.mosaic.Mosaic;
  */
 public class LayerModel implements ILayerModel {
 
+  // The most bytes the undo and redo history may take unless another budget is given
+  public static final long DEFAULT_HISTORY_BUDGET = 256L * 1024 * 1024;
+
   private final IModel delegate;
   private final List<ILayer> layers;
+  // The index in layers of the first layer with each name, so layers can be found by name without
+  // scanning the list
+  // INVARIANT: every index below firstStaleIndex is the index of the first layer with its name
+  private final Map<String, Integer> indexByName;
+  // The index of the first layer that moved since it was last looked up, or Integer.MAX_VALUE if
+  // every layer is where indexByName says
+  private int firstStaleIndex;
+  // The image of the topmost visible layer with an image, or null if there is none. Layers are only
+  // changed through this model, so it only has to be found again after one of them changes.
+  private IImage composite;
+  private boolean compositeValid;
+  // The visible layers flattened into one image, kept for the same reason as composite
+  private IImage flattened;
+  private boolean flattenedValid;
+  // The metadata of the layers, or null if a layer changed since it was last asked for
+  private List<LayerMetadata> metadata;
   private int currentLayerNum;
-  private static int count;
+  // The number of images created so far, which names the next created image
+  private int count;
+  private final LayerHistory history;
+  // The changes of the operation that is running, or null if no operation is running
+  private LayerEdit pendingEdit;
+  // The number of operations that are running, since an operation may run another one
+  private int editDepth;
 
   /**
-   * Constructs a {@code Layers} object with an empty ArrayList.
+   * Constructs a {@code Layers} object with an empty ArrayList, and an undo history that may take
+   * up to {@link #DEFAULT_HISTORY_BUDGET} bytes.
    */
   public LayerModel() {
+    this(DEFAULT_HISTORY_BUDGET);
+  }
+
+  /**
+   * Constructs a {@code Layers} object with an empty ArrayList, and an undo history that may take
+   * up to the given number of bytes. Once the history takes more than that, the oldest operations
+   * can no longer be undone.
+   *
+   * @param historyBudget the most bytes the undo history may take, or 0 to keep no history
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  public LayerModel(long historyBudget) throws IllegalArgumentException {
+    this.history = new LayerHistory(historyBudget);
     this.delegate = new Model();
     this.layers = new ArrayList<>();
+    this.indexByName = new HashMap<>();
+    this.firstStaleIndex = Integer.MAX_VALUE;
     currentLayerNum = -1;
-    count = 0;
+    this.count = 0;
   }
 
   @Override
   public void createImageLayer(String name) throws IllegalArgumentException {
-    if (name == null) {
-      throw new IllegalArgumentException("Name cannot be null!");
-    }
+    this.beginEdit();
+    try {
+      if (name == null) {
+        throw new IllegalArgumentException("Name cannot be null!");
+      }
 
-    if (this.getIndexBasedOnName(name) == -1) {
-      if (layers.isEmpty()) {
-        currentLayerNum = 0;
+      if (this.getIndexBasedOnName(name) == -1) {
+        if (layers.isEmpty()) {
+          currentLayerNum = 0;
+        }
+        this.addLayer(new Layer(name));
+      } else {
+        throw new IllegalArgumentException("Layer already exists!");
       }
-      this.layers.add(new Layer(name));
-    } else {
-      throw new IllegalArgumentException("Layer already exists!");
+    } finally {
+      this.endEdit();
     }
   }
 
   @Override
   public void removeImageLayer(String layerName) throws IllegalArgumentException {
-    if (layerName == null) {
-      throw new IllegalArgumentException("Name cannot be null!");
-    }
+    this.beginEdit();
+    try {
+      if (layerName == null) {
+        throw new IllegalArgumentException("Name cannot be null!");
+      }
 
-    int indexLayerToBeRemoved = this.getIndexBasedOnName(layerName);
+      int indexLayerToBeRemoved = this.getIndexBasedOnName(layerName);
 
-    if (indexLayerToBeRemoved != -1) {
-      this.layers.remove(indexLayerToBeRemoved);
-    } else {
-      throw new IllegalArgumentException("Layer does not exist!");
-    }
+      if (indexLayerToBeRemoved != -1) {
+        this.removeLayer(indexLayerToBeRemoved);
+      } else {
+        throw new IllegalArgumentException("Layer does not exist!");
+      }
 
-    // reset current to be -1 if removing this layer means the layers will be empty
-    if (this.layers.isEmpty()) {
-      this.currentLayerNum = -1;
-    }
+      // reset current to be -1 if removing this layer means the layers will be empty
+      if (this.layers.isEmpty()) {
+        this.currentLayerNum = -1;
+      }
 
-    if (this.currentLayerNum == indexLayerToBeRemoved) {
-      this.currentLayerNum = this.layers.size() - 1;
+      if (this.currentLayerNum == indexLayerToBeRemoved) {
+        this.currentLayerNum = this.layers.size() - 1;
+      }
+    } finally {
+      this.endEdit();
     }
   }
 
-  /**
-   * Produces the number of layers in the multi-layered image.
-   */
-  private int getNumberOfLayers() {
-    return this.layers.size();
-  }
-
   @Override
   public void loadLayer(IImage image) throws IllegalArgumentException {
-    if (image == null) {
-      throw new IllegalArgumentException("Image is null");
-    }
+    this.beginEdit();
+    try {
+      if (image == null) {
+        throw new IllegalArgumentException("Image is null");
+      }
 
-    if (this.currentLayerNum == -1) {
-      throw new IllegalArgumentException("No current layer exists!");
-    }
+      if (this.currentLayerNum == -1) {
+        throw new IllegalArgumentException("No current layer exists!");
+      }
 
-    if (sameDimensions(image)) {
-      this.layers.get(currentLayerNum).setImage(image);
-    } else {
-      throw new IllegalArgumentException("Image(s) are not the same dimension!");
+      if (sameDimensions(image)) {
+        this.setLayerImage(this.currentLayerNum, image);
+      } else {
+        throw new IllegalArgumentException("Image(s) are not the same dimension!");
+      }
+    } finally {
+      this.endEdit();
     }
   }
 
   @Override
   public void loadAll(List<ILayer> importedLayers) throws IllegalArgumentException {
-    if (importedLayers == null) {
-      throw new IllegalArgumentException("Null layers.");
-    }
+    this.beginEdit();
+    try {
+      if (importedLayers == null) {
+        throw new IllegalArgumentException("Null layers.");
+      }
 
-    boolean layersEmptyBefore = this.layers.isEmpty();
+      boolean layersEmptyBefore = this.layers.isEmpty();
 
-    for (ILayer importedLayer : importedLayers) {
-      // adds images if they are all the same dimension
-      if (importedLayer.getImage() == null) {
-        this.layers.add(importedLayer);
-      } else if (this.sameDimensions(importedLayer.getImage())) {
-        this.layers.add(importedLayer);
-      } else {
-        throw new IllegalArgumentException("Image(s) are not the same dimension!");
+      for (ILayer importedLayer : importedLayers) {
+        // adds images if they are all the same dimension
+        if (importedLayer.getImage() == null) {
+          this.addLayer(Layer.copyOf(importedLayer));
+        } else if (this.sameDimensions(importedLayer.getImage())) {
+          this.addLayer(Layer.copyOf(importedLayer));
+        } else {
+          throw new IllegalArgumentException("Image(s) are not the same dimension!");
+        }
       }
-    }
 
-    if (layersEmptyBefore && this.layers.size() != 0) {
-      this.currentLayerNum = 0;
+      if (layersEmptyBefore && this.layers.size() != 0) {
+        this.currentLayerNum = 0;
+      }
+    } finally {
+      this.endEdit();
     }
   }
 
@@ -163,42 +220,96 @@ public class LayerModel implements ILayerModel {
 
   @Override
   public void makeLayerInvisible(String layerName) throws IllegalArgumentException {
-    if (layerName == null) {
-      throw new IllegalArgumentException("Name cannot be null!");
-    }
+    this.beginEdit();
+    try {
+      if (layerName == null) {
+        throw new IllegalArgumentException("Name cannot be null!");
+      }
 
-    int index = getIndexBasedOnName(layerName);
-    if (index != -1) {
-      this.layers.get(index).setVisibility(false);
-    } else {
-      throw new IllegalArgumentException("Layer does not exist!");
+      int index = getIndexBasedOnName(layerName);
+      if (index != -1) {
+        this.setLayerVisibility(index, false);
+      } else {
+        throw new IllegalArgumentException("Layer does not exist!");
+      }
+    } finally {
+      this.endEdit();
     }
   }
 
   @Override
   public void makeLayerVisible(String layerName) throws IllegalArgumentException {
-    if (layerName == null) {
-      throw new IllegalArgumentException("Name cannot be null!");
+    this.beginEdit();
+    try {
+      if (layerName == null) {
+        throw new IllegalArgumentException("Name cannot be null!");
+      }
+
+      int index = getIndexBasedOnName(layerName);
+      if (index != -1) {
+        this.setLayerVisibility(index, true);
+      } else {
+        throw new IllegalArgumentException("Layer does not exist!");
+      }
+    } finally {
+      this.endEdit();
     }
+  }
 
-    int index = getIndexBasedOnName(layerName);
-    if (index != -1) {
-      this.layers.get(index).setVisibility(true);
-    } else {
-      throw new IllegalArgumentException("Layer does not exist!");
+  @Override
+  public void setOpacity(String layerName, double opacity) throws IllegalArgumentException {
+    this.beginEdit();
+    try {
+      if (layerName == null) {
+        throw new IllegalArgumentException("Name cannot be null!");
+      }
+
+      int index = getIndexBasedOnName(layerName);
+      if (index != -1) {
+        this.setLayerOpacity(index, opacity);
+      } else {
+        throw new IllegalArgumentException("Layer does not exist!");
+      }
+    } finally {
+      this.endEdit();
     }
   }
 
   @Override
-  public void setCurrent(String layerName) {
-    if (layerName == null) {
-      throw new IllegalArgumentException("Layer name cannot be null!");
+  public void setBlendMode(String layerName, BlendMode mode) throws IllegalArgumentException {
+    this.beginEdit();
+    try {
+      if (layerName == null || mode == null) {
+        throw new IllegalArgumentException("Arguments cannot be null!");
+      }
+
+      int index = getIndexBasedOnName(layerName);
+      if (index != -1) {
+        this.setLayerBlendMode(index, mode);
+      } else {
+        throw new IllegalArgumentException("Layer does not exist!");
+      }
+    } finally {
+      this.endEdit();
     }
+  }
 
-    if (this.getIndexBasedOnName(layerName) != -1) {
-      this.currentLayerNum = this.getIndexBasedOnName(layerName);
-    } else {
-      throw new IllegalArgumentException("Current cannot be set!");
+  @Override
+  public void setCurrent(String layerName) {
+    this.beginEdit();
+    try {
+      if (layerName == null) {
+        throw new IllegalArgumentException("Layer name cannot be null!");
+      }
+
+      int index = this.getIndexBasedOnName(layerName);
+      if (index != -1) {
+        this.currentLayerNum = index;
+      } else {
+        throw new IllegalArgumentException("Current cannot be set!");
+      }
+    } finally {
+      this.endEdit();
     }
   }
 
@@ -215,69 +326,145 @@ public class LayerModel implements ILayerModel {
 
   @Override
   public void filterCurrent(IFilter filter) throws IllegalArgumentException {
-    if (filter == null) {
-      throw new IllegalArgumentException("Filter cannot be null!");
-    }
+    this.beginEdit();
+    try {
+      if (filter == null) {
+        throw new IllegalArgumentException("Filter cannot be null!");
+      }
 
-    if (this.currentLayerNum != -1 && canApplyOperation()) {
-      IImage image = this.delegate.filter(this.layers.get(currentLayerNum).getImage(), filter);
-      this.layers.get(this.currentLayerNum).setImage(image);
-    } else {
-      throw new IllegalArgumentException(
-          "Operation cannot be performed! Image must be visible and present.");
+      if (this.currentLayerNum != -1 && canApplyOperation()) {
+        IImage image = this.delegate.filter(this.layers.get(currentLayerNum).getImage(), filter);
+        this.setLayerImage(this.currentLayerNum, image);
+      } else {
+        throw new IllegalArgumentException(
+            "Operation cannot be performed! Image must be visible and present.");
+      }
+    } finally {
+      this.endEdit();
     }
   }
 
   @Override
   public void colorTransformCurrent(IColorTransformation colorTransformation)
       throws IllegalArgumentException {
-    if (colorTransformation == null) {
-      throw new IllegalArgumentException("Filter cannot be null!");
-    }
+    this.beginEdit();
+    try {
+      if (colorTransformation == null) {
+        throw new IllegalArgumentException("Filter cannot be null!");
+      }
 
-    if (canApplyOperation()) {
-      IImage image = this.delegate
-          .colorTransformation(this.layers.get(currentLayerNum).getImage(),
-              colorTransformation);
-      this.layers.get(this.currentLayerNum).setImage(image);
-    } else {
-      throw new IllegalArgumentException(
-          "Operation cannot be performed! Image must be visible and present.");
+      if (canApplyOperation()) {
+        IImage image = this.delegate
+            .colorTransformation(this.layers.get(currentLayerNum).getImage(),
+                colorTransformation);
+        this.setLayerImage(this.currentLayerNum, image);
+      } else {
+        throw new IllegalArgumentException(
+            "Operation cannot be performed! Image must be visible and present.");
+      }
+    } finally {
+      this.endEdit();
     }
   }
 
   @Override
   public void mosaicCurrent(IPhotoEffect mosaicOper, int numSeeds) throws IllegalArgumentException {
-    if (mosaicOper == null) {
-      throw new IllegalArgumentException("Mosaic cannot be null!");
-    }
+    this.beginEdit();
+    try {
+      if (mosaicOper == null) {
+        throw new IllegalArgumentException("Mosaic cannot be null!");
+      }
 
-    if (canApplyOperation()) {
-      IImage image = new Mosaic().apply(this.layers.get(currentLayerNum).getImage(), numSeeds);
-      this.layers.get(this.currentLayerNum).setImage(image);
-    } else {
-      throw new IllegalArgumentException(
-          "Operation cannot be performed! Image must be visible and present.");
+      if (canApplyOperation()) {
+        IImage image = mosaicOper.apply(this.layers.get(currentLayerNum).getImage(), numSeeds);
+        this.setLayerImage(this.currentLayerNum, image);
+      } else {
+        throw new IllegalArgumentException(
+            "Operation cannot be performed! Image must be visible and present.");
+      }
+    } finally {
+      this.endEdit();
     }
   }
 
   @Override
   public void downscaleCurrent(IImageResize downscaleOper, int width, int height)
       throws IllegalArgumentException {
-    if (downscaleOper == null) {
-      throw new IllegalArgumentException("Downscaling cannot be null!");
-    }
+    this.beginEdit();
+    try {
+      if (downscaleOper == null) {
+        throw new IllegalArgumentException("Downscaling cannot be null!");
+      }
 
-    if (canApplyOperation()) {
-      for (int i = 0; i < getNumberOfLayers(); i++) {
-        if (this.layers.get(i).getImage() != null) {
-          IImage image = new Downscale().apply(this.layers.get(i).getImage(), width, height);
-          this.layers.get(i).setImage(image);
+      if (canApplyOperation()) {
+        for (int i = 0; i < getNumLayers(); i++) {
+          if (this.layers.get(i).getImage() != null) {
+            IImage image = new Downscale().apply(this.layers.get(i).getImage(), width, height);
+            this.setLayerImage(i, image);
+          }
         }
+      } else {
+        throw new IllegalArgumentException(
+            "Operation cannot be performed! Image must be visible and present.");
+      }
+    } finally {
+      this.endEdit();
+    }
+  }
+
+  @Override
+  public void undo() throws IllegalArgumentException {
+    this.history.undo(this);
+  }
+
+  @Override
+  public void redo() throws IllegalArgumentException {
+    this.history.redo(this);
+  }
+
+  /**
+   * Gets the estimated number of bytes the undo and redo history takes in memory. Images that were
+   * replaced are kept as the tiles that differ from the images that replaced them, compressed.
+   *
+   * @return the size of the history, in bytes
+   */
+  public long getHistorySizeInBytes() {
+    return this.history.getSizeInBytes();
+  }
+
+  /**
+   * Starts recording the changes of an operation, unless one is already being recorded. Nothing is
+   * recorded if the history has no budget, since every edit would be forgotten at once.
+   */
+  private void beginEdit() {
+    if (this.editDepth++ == 0 && this.history.hasBudget()) {
+      this.pendingEdit = new LayerEdit(this.currentLayerNum, count);
+    }
+  }
+
+  /**
+   * Finishes recording the changes of an operation, and adds them to the history if the operation
+   * changed anything. An operation that failed part of the way through is recorded as well, so that
+   * what it did change can be undone.
+   */
+  private void endEdit() {
+    if (--this.editDepth == 0 && this.pendingEdit != null) {
+      LayerEdit edit = this.pendingEdit;
+      this.pendingEdit = null;
+      if (edit.changes(this)) {
+        this.history.record(edit);
       }
-    } else {
-      throw new IllegalArgumentException(
-          "Operation cannot be performed! Image must be visible and present.");
+    }
+  }
+
+  /**
+   * Adds the given change to the operation being recorded, if any.
+   *
+   * @param change the change that undoes a change to the layers
+   */
+  private void record(LayerEdit.IChange change) {
+    if (this.pendingEdit != null) {
+      this.pendingEdit.add(change);
     }
   }
 
@@ -288,94 +475,395 @@ public class LayerModel implements ILayerModel {
    * @return The index of the desired layer based on its name. Returns -1 if no such layer exists.
    */
   private int getIndexBasedOnName(String layerName) {
-    for (int i = 0; i < layers.size(); i++) {
-      if (layers.get(i).getName().equals(layerName)) {
-        return i;
+    Integer index = this.indexByName.get(layerName);
+    if ((index == null || index >= this.firstStaleIndex)
+        && this.firstStaleIndex != Integer.MAX_VALUE) {
+      this.reindexStaleLayers();
+      index = this.indexByName.get(layerName);
+    }
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Adds the given layer after the last layer.
+   *
+   * @param layer the layer to add
+   */
+  private void addLayer(ILayer layer) {
+    this.layers.add(layer);
+    this.invalidateComposites();
+    // an earlier layer with the same name keeps being the one found by that name
+    this.indexByName.putIfAbsent(layer.getName(), this.layers.size() - 1);
+    this.record(LayerEdit.layerAdded(this.layers.size() - 1));
+  }
+
+  /**
+   * Removes the layer at the given index. The layers after it move down by one, so their indices
+   * are only updated the next time one of them is looked up, which lets a script remove many
+   * layers without updating the same indices over and over.
+   *
+   * @param index the index of the layer to remove
+   * @return the removed layer
+   */
+  private ILayer removeLayer(int index) {
+    ILayer removed = this.layers.remove(index);
+    this.invalidateComposites();
+    // the entry for the name is either this layer or a layer that moved, unless an earlier layer
+    // has the same name
+    Integer named = this.indexByName.get(removed.getName());
+    if (named != null && named >= index) {
+      this.indexByName.remove(removed.getName());
+    }
+    this.firstStaleIndex = Math.min(this.firstStaleIndex, index);
+    if (this.pendingEdit != null) {
+      this.record(LayerEdit.layerRemoved(index, removed));
+    }
+    return removed;
+  }
+
+  /**
+   * Sets the image of the layer at the given index.
+   *
+   * @param index the index of the layer
+   * @param image the new image of the layer
+   */
+  private void setLayerImage(int index, IImage image) {
+    ILayer layer = this.layers.get(index);
+    if (this.pendingEdit != null && layer.getImage() != image) {
+      this.record(LayerEdit.imageReplaced(index, layer.getImage(), image));
+    }
+    layer.setImage(image);
+    this.invalidateComposites();
+  }
+
+  /**
+   * Sets the opacity of the layer at the given index.
+   *
+   * @param index   the index of the layer
+   * @param opacity the new opacity of the layer
+   * @throws IllegalArgumentException if the opacity is not between 0 and 1
+   */
+  private void setLayerOpacity(int index, double opacity) throws IllegalArgumentException {
+    ILayer layer = this.layers.get(index);
+    LayerEdit.IChange change = LayerEdit.propertiesChanged(index, layer);
+    layer.setOpacity(opacity);
+    this.record(change);
+    this.invalidateComposites();
+  }
+
+  /**
+   * Sets the blend mode of the layer at the given index.
+   *
+   * @param index the index of the layer
+   * @param mode  the new blend mode of the layer
+   */
+  private void setLayerBlendMode(int index, BlendMode mode) {
+    ILayer layer = this.layers.get(index);
+    this.record(LayerEdit.propertiesChanged(index, layer));
+    layer.setBlendMode(mode);
+    this.invalidateComposites();
+  }
+
+  /**
+   * Sets the visibility of the layer at the given index.
+   *
+   * @param index     the index of the layer
+   * @param isVisible true to make the layer visible, false to make it invisible
+   */
+  private void setLayerVisibility(int index, boolean isVisible) {
+    this.record(LayerEdit.propertiesChanged(index, this.layers.get(index)));
+    this.layers.get(index).setVisibility(isVisible);
+    this.invalidateComposites();
+  }
+
+  /**
+   * Forgets the topmost visible image, the flattened image and the metadata of the layers, so that
+   * they are found again the next time they are asked for.
+   */
+  private void invalidateComposites() {
+    this.compositeValid = false;
+    this.flattenedValid = false;
+    this.flattened = null;
+    this.metadata = null;
+  }
+
+  /**
+   * Updates the indices of the layers that moved since they were last looked up.
+   */
+  private void reindexStaleLayers() {
+    // forget the old indices of the layers that moved, then add them back in order, so that the
+    // first of several layers with the same name is the one that is kept
+    for (int i = this.firstStaleIndex; i < this.layers.size(); i++) {
+      String name = this.layers.get(i).getName();
+      Integer oldIndex = this.indexByName.get(name);
+      if (oldIndex != null && oldIndex >= this.firstStaleIndex) {
+        this.indexByName.remove(name);
       }
     }
-    return -1;
+    for (int i = this.firstStaleIndex; i < this.layers.size(); i++) {
+      this.indexByName.putIfAbsent(this.layers.get(i).getName(), i);
+    }
+    this.firstStaleIndex = Integer.MAX_VALUE;
+  }
+
+  // The methods below change the layers without recording the change, for LayerEdit to undo and
+  // redo operations with
+
+  /**
+   * Gets the index of the current layer.
+   *
+   * @return the index of the current layer, or -1 if there is none
+   */
+  int getCurrentLayerNum() {
+    return this.currentLayerNum;
+  }
+
+  /**
+   * Gets the number of images created so far, which names the next created image.
+   *
+   * @return the count of created images
+   */
+  int getCreatedCount() {
+    return count;
+  }
+
+  /**
+   * Sets the current layer and the count of created images.
+   *
+   * @param currentLayerNum the index of the current layer, or -1 if there is none
+   * @param createdCount    the count of created images
+   */
+  void restoreCurrent(int currentLayerNum, int createdCount) {
+    this.currentLayerNum = currentLayerNum;
+    count = createdCount;
+  }
+
+  /**
+   * Gets the layer at the given index itself, rather than a copy.
+   *
+   * @param index the index of the layer
+   * @return the layer at the given index
+   */
+  ILayer getLayerAt(int index) {
+    return this.layers.get(index);
+  }
+
+  /**
+   * Gets the image of the layer at the given index.
+   *
+   * @param index the index of the layer
+   * @return the image of the layer, or null if it has none
+   */
+  IImage getLayerImage(int index) {
+    return this.layers.get(index).getImage();
+  }
+
+  /**
+   * Sets the image of the layer at the given index, which may take the image away from it.
+   *
+   * @param index the index of the layer
+   * @param image the new image of the layer, or null for none
+   */
+  void restoreLayerImage(int index, IImage image) {
+    if (image == null) {
+      ILayer layer = this.layers.get(index);
+      Layer empty = new Layer(layer.getName());
+      empty.setVisibility(layer.isVisible());
+      empty.setOpacity(layer.getOpacity());
+      empty.setBlendMode(layer.getBlendMode());
+      this.layers.set(index, empty);
+    } else {
+      this.layers.get(index).setImage(image);
+    }
+    this.invalidateComposites();
+  }
+
+  /**
+   * Sets the visibility, opacity and blend mode of the layer at the given index.
+   *
+   * @param index     the index of the layer
+   * @param isVisible the new visibility of the layer
+   * @param opacity   the new opacity of the layer
+   * @param mode      the new blend mode of the layer
+   */
+  void restoreLayerProperties(int index, boolean isVisible, double opacity, BlendMode mode) {
+    ILayer layer = this.layers.get(index);
+    layer.setVisibility(isVisible);
+    layer.setOpacity(opacity);
+    layer.setBlendMode(mode);
+    this.invalidateComposites();
+  }
+
+  /**
+   * Removes the layer at the given index.
+   *
+   * @param index the index of the layer
+   * @return the removed layer
+   */
+  ILayer restoreRemoveLayer(int index) {
+    return this.removeLayer(index);
+  }
+
+  /**
+   * Inserts the given layer at the given index. The layers from that index on move up by one, so
+   * their indices are updated the next time one of them is looked up.
+   *
+   * @param index the index to insert the layer at
+   * @param layer the layer to insert
+   */
+  void restoreInsertLayer(int index, ILayer layer) {
+    this.layers.add(index, layer);
+    this.invalidateComposites();
+    this.firstStaleIndex = Math.min(this.firstStaleIndex, index);
   }
 
   @Override
   public IImage filter(IImage image, IFilter filter) throws IllegalArgumentException {
-    if (image == null || filter == null) {
-      throw new IllegalArgumentException("Arguments are null");
-    }
-    // adds image to the list of layers
-    IImage i = this.delegate.filter(image, filter);
-    Layer layer = new Layer(i.getFilename());
-    layer.setImage(i);
-    this.layers.add(layer);
+    this.beginEdit();
+    try {
+      if (image == null || filter == null) {
+        throw new IllegalArgumentException("Arguments are null");
+      }
+      // adds image to the list of layers
+      IImage i = this.delegate.filter(image, filter);
+      Layer layer = new Layer(i.getFilename());
+      layer.setImage(i);
+      this.addLayer(layer);
 
-    return i;
+      return i;
+    } finally {
+      this.endEdit();
+    }
   }
 
   @Override
   public IImage colorTransformation(IImage image, IColorTransformation colorTransformation)
       throws IllegalArgumentException {
-    if (image == null || colorTransformation == null) {
-      throw new IllegalArgumentException("Arguments are null");
-    }
-    // adds image to the list of layers
-    IImage i = this.delegate.colorTransformation(image, colorTransformation);
-    Layer layer = new Layer(i.getFilename());
-    layer.setImage(i);
-    this.layers.add(layer);
+    this.beginEdit();
+    try {
+      if (image == null || colorTransformation == null) {
+        throw new IllegalArgumentException("Arguments are null");
+      }
+      // adds image to the list of layers
+      IImage i = this.delegate.colorTransformation(image, colorTransformation);
+      Layer layer = new Layer(i.getFilename());
+      layer.setImage(i);
+      this.addLayer(layer);
 
-    return i;
+      return i;
+    } finally {
+      this.endEdit();
+    }
   }
 
   @Override
   public IImage createImage(IImageCreator creator) throws IllegalArgumentException {
-    if (creator == null) {
-      throw new IllegalArgumentException("Arguments are null");
-    }
-    // adds image to the list of layers
-    IImage image = this.delegate.createImage(creator);
-    String filename = image.getFilename();
-    if (getNumberOfLayers() == 0) {
-      count = 0;
-    }
+    this.beginEdit();
+    try {
+      if (creator == null) {
+        throw new IllegalArgumentException("Arguments are null");
+      }
+      // adds image to the list of layers
+      IImage image = this.delegate.createImage(creator);
+      String filename = image.getFilename();
+      if (getNumLayers() == 0) {
+        count = 0;
+      }
 
-    if (sameDimensions(image)) {
-      count++;
-      Layer layer = new Layer(filename + count);
-      layer.setImage(image);
-      this.layers.add(layer);
+      if (sameDimensions(image)) {
+        count++;
+        Layer layer = new Layer(filename + count);
+        layer.setImage(image);
+        this.addLayer(layer);
 
-      if (this.layers.size() == 1) {
-        this.currentLayerNum = 0;
+        if (this.layers.size() == 1) {
+          this.currentLayerNum = 0;
+        }
+      } else {
+        throw new IllegalArgumentException("Image(s) are not the same dimension!");
       }
-    } else {
-      throw new IllegalArgumentException("Image(s) are not the same dimension!");
+      return image;
+    } finally {
+      this.endEdit();
     }
-    return image;
   }
 
   @Override
   public List<ILayer> getLayers() {
-    List<ILayer> newList = new ArrayList<>();
+    List<ILayer> newList = new ArrayList<>(this.layers.size());
 
     for (ILayer iLayer : layers) {
-      ILayer layer = new Layer(iLayer.getName());
-      layer.setVisibility(iLayer.isVisible());
-      if (iLayer.getImage() != null) {
-        layer.setImage(iLayer.getImage());
-      }
-
-      newList.add(layer);
+      newList.add(Layer.copyOf(iLayer));
     }
 
     return newList;
   }
 
+  @Override
+  public int getNumLayers() {
+    return this.layers.size();
+  }
+
+  @Override
+  public ILayer getLayer(int index) throws IllegalArgumentException {
+    if (index < 0 || index >= this.layers.size()) {
+      throw new IllegalArgumentException("Index out of bounds!");
+    }
+    return Layer.copyOf(this.layers.get(index));
+  }
+
   @Override
   public ILayer getCurrentLayer() throws IllegalArgumentException {
     if (currentLayerNum < 0 || currentLayerNum > layers.size() - 1) {
       throw new IllegalArgumentException("There is no current layer!");
     }
 
-    return this.layers.get(currentLayerNum);
+    return Layer.copyOf(this.layers.get(currentLayerNum));
+  }
+
+  @Override
+  public List<LayerMetadata> getLayerMetadata() {
+    if (this.metadata == null) {
+      List<LayerMetadata> newList = new ArrayList<>(this.layers.size());
+      for (ILayer layer : this.layers) {
+        newList.add(new LayerMetadata(layer));
+      }
+      this.metadata = Collections.unmodifiableList(newList);
+    }
+    return this.metadata;
+  }
+
+  @Override
+  public int getCurrentLayerIndex() {
+    if (currentLayerNum < 0 || currentLayerNum > layers.size() - 1) {
+      return -1;
+    }
+    return this.currentLayerNum;
+  }
+
+  @Override
+  public IImage getTopmostVisibleLayerImage() {
+    if (!this.compositeValid) {
+      this.composite = null;
+      for (int i = this.layers.size() - 1; i >= 0; i--) {
+        ILayer layer = this.layers.get(i);
+        if (layer.isVisible() && layer.getImage() != null) {
+          this.composite = layer.getImage();
+          break;
+        }
+      }
+      this.compositeValid = true;
+    }
+    return this.composite;
+  }
+
+  @Override
+  public IImage flatten() throws IllegalArgumentException {
+    if (!this.flattenedValid) {
+      this.flattened = LayerCompositor.composite(this.layers, ConvolutionEngine.getDefault());
+      this.flattenedValid = true;
+    }
+    return this.flattened;
   }
 
   @Override
@@ -388,10 +876,10 @@ public class LayerModel implements ILayerModel {
     }
 
     if (currentLayerNum == -1) {
-      return newString + "Number of valid layers created: " + this.getNumberOfLayers()
+      return newString + "Number of valid layers created: " + this.getNumLayers()
           + "\nCurrent not yet set.\n";
     } else {
-      return newString + "Number of valid layers created: " + this.getNumberOfLayers()
+      return newString + "Number of valid layers created: " + this.getNumLayers()
           + "\nCurrent Layer: " + this.layers.get(currentLayerNum).toString() + "\n";
     }
   }
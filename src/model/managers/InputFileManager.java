@@ -2,7 +2,6 @@ package model.managers;
 
 import java.io.File;
 import model.image.IImage;
-import utils.ImageUtil;
 import model.image.Image;
 
 /**
@@ -27,7 +26,6 @@ public class InputFileManager implements IOManager {
 
   @Override
   public IImage apply() {
-    String filename = file.toString();
-    return new Image(ImageUtil.readPPM(filename), filename);
+    return new Image(file.toString());
   }
 }
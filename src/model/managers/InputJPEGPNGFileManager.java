@@ -4,8 +4,6 @@ import java.io.File;
 import java.io.IOException;
 import utils.AdditionalImageUtils;
 import model.image.IImage;
-import model.image.IPixel;
-import model.image.Image;
 
 /**
  * Represents a class that manages the given jpeg input file and returns the file's associated
@@ -31,8 +29,7 @@ public class InputJPEGPNGFileManager implements IOManager {
   @Override
   public IImage apply() {
     try {
-      IPixel[][] imageGrid = AdditionalImageUtils.readPNGJPEG(file);
-      return new Image(imageGrid, file.getAbsolutePath());
+      return AdditionalImageUtils.readPNGJPEGImage(file);
     } catch (IOException e) {
       return null;
     }
@@ -4,8 +4,6 @@ import java.io.File;
 import java.io.IOException;
 import utils.AdditionalImageUtils;
 import model.image.IImage;
-import model.image.IPixel;
-import model.image.Image;
 
 /**
  * Represents a class that manages the given jpeg input filename and returns the filename's
@@ -32,8 +30,7 @@ public class InputJPEGPNGFilenameManager implements IOManager {
   public IImage apply() {
     try {
       File file = new File(filename);
-      IPixel[][] imageGrid = AdditionalImageUtils.readPNGJPEG(file);
-      return new Image(imageGrid, file.getAbsolutePath());
+      return AdditionalImageUtils.readPNGJPEGImage(file);
     } catch (IOException e) {
       return null;
     }
@@ -5,19 +5,34 @@ import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import model.image.IImage;
 import model.layer.ILayer;
 import model.layer.Layer;
 
 /**
  * Represents a class that manages the given input filename and returns the file's associated
  * layer.
+ *
+ * <p>The whole file is read and checked before any image is decoded. If an executor is given, the
+ * images of the layers are then decoded in parallel on it, and as soon as one of them fails to load
+ * the decodes that have not finished yet are cancelled. The layers are always returned in the order
+ * of the file, no matter in which order their images finish decoding.
  */
 public class InputTextFilenameManager implements IOLayerManager {
 
   private final Readable rd;
+  // null if the images are decoded one after the other on the calling thread
+  private final ExecutorService executor;
 
   /**
-   * Constructs a {@code InputTextFilenameManager} object.
+   * Constructs a {@code InputTextFilenameManager} object which decodes the images of the layers on
+   * the calling thread.
    *
    * @param filename the path of the file
    * @throws IllegalArgumentException if the filename is null or if the associated file is not
@@ -25,6 +40,21 @@ public class InputTextFilenameManager implements IOLayerManager {
    */
   public InputTextFilenameManager(String filename)
       throws IllegalArgumentException {
+    this(filename, null);
+  }
+
+  /**
+   * Constructs a {@code InputTextFilenameManager} object which decodes the images of the layers in
+   * parallel on the given executor. The executor is not shut down by this manager.
+   *
+   * @param filename the path of the file
+   * @param executor the executor to decode the images on, or null to decode them on the calling
+   *                 thread
+   * @throws IllegalArgumentException if the filename is null or if the associated file is not
+   *                                  found
+   */
+  public InputTextFilenameManager(String filename, ExecutorService executor)
+      throws IllegalArgumentException {
     if (filename == null) {
       throw new IllegalArgumentException("Filename is null.");
     }
@@ -33,36 +63,126 @@ public class InputTextFilenameManager implements IOLayerManager {
     } catch (FileNotFoundException e) {
       throw new IllegalArgumentException("File does not exist!");
     }
+    this.executor = executor;
   }
 
   @Override
   public List<ILayer> apply() {
-    Scanner in = new Scanner(this.rd);
     List<ILayer> layers = new ArrayList<>();
+    // the managers of the images to decode, at the same index as their layer in layers, or null
+    // for layers without an image
+    List<IOManager> managers = new ArrayList<>();
 
-    while (in.hasNext()) {
-      String cmd = in.nextLine();
-      String[] tokens = cmd.split("\\s*,\\s*");
-      if (tokens.length != 3) {
-        throw new IllegalArgumentException("Invalid text file!");
+    try (Scanner in = new Scanner(this.rd)) {
+      while (in.hasNext()) {
+        String cmd = in.nextLine();
+        String[] tokens = cmd.split("\\s*,\\s*");
+        if (tokens.length != 3) {
+          throw new IllegalArgumentException("Invalid text file!");
+        }
+        ILayer layer;
+        if (!tokens[1].equalsIgnoreCase("noimage")) {
+          int lastIndex = tokens[1].lastIndexOf(".");
+          int firstIndex = tokens[1].lastIndexOf("/");
+          String layerName = tokens[1].substring(firstIndex + 1, lastIndex);
+          layer = new Layer(layerName);
+          managers.add(determineCorrectManager(tokens[1]));
+        } else {
+          layer = new Layer(tokens[1]);
+          managers.add(null);
+        }
+        layer.setVisibility(Boolean.parseBoolean(tokens[2]));
+        layers.add(layer);
       }
-      ILayer layer;
-      if (!tokens[1].equalsIgnoreCase("noimage")) {
-        int lastIndex = tokens[1].lastIndexOf(".");
-        int firstIndex = tokens[1].lastIndexOf("/");
-        String layerName = tokens[1].substring(firstIndex + 1, lastIndex);
-        layer = new Layer(layerName);
-        layer.setImage(determineCorrectManager(tokens[1]).apply());
-      } else {
-        layer = new Layer(tokens[1]);
+    }
+
+    IImage[] images = this.executor == null ? decodeInOrder(managers) : decodeInParallel(managers);
+    for (int i = 0; i < layers.size(); i++) {
+      if (images[i] != null) {
+        layers.get(i).setImage(images[i]);
       }
-      layer.setVisibility(Boolean.parseBoolean(tokens[2]));
-      layers.add(layer);
     }
 
     return layers;
   }
 
+  /**
+   * Decodes the images of the given managers one after the other on the calling thread.
+   *
+   * @param managers the managers of the images to decode, null for layers without an image
+   * @return the decoded images, at the same index as their managers
+   * @throws IllegalArgumentException if one of the images cannot be loaded
+   */
+  private static IImage[] decodeInOrder(List<IOManager> managers)
+      throws IllegalArgumentException {
+    IImage[] images = new IImage[managers.size()];
+    for (int i = 0; i < images.length; i++) {
+      if (managers.get(i) != null) {
+        images[i] = managers.get(i).apply();
+      }
+    }
+    return images;
+  }
+
+  /**
+   * Decodes the images of the given managers in parallel on the executor of this manager. If one
+   * of the images fails to load, the images that are still being decoded are cancelled and the
+   * failure is thrown.
+   *
+   * @param managers the managers of the images to decode, null for layers without an image
+   * @return the decoded images, at the same index as their managers
+   * @throws IllegalArgumentException if one of the images cannot be loaded or if the calling thread
+   *                                  is interrupted while waiting for them
+   */
+  private IImage[] decodeInParallel(List<IOManager> managers) throws IllegalArgumentException {
+    IImage[] images = new IImage[managers.size()];
+    CompletionService<Integer> completion = new ExecutorCompletionService<>(this.executor);
+    List<Future<Integer>> futures = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < images.length; i++) {
+        IOManager manager = managers.get(i);
+        if (manager != null) {
+          int index = i;
+          futures.add(completion.submit(() -> {
+            images[index] = manager.apply();
+            return index;
+          }));
+        }
+      }
+      // taking the decodes as they finish makes the first failure known right away
+      for (int i = 0; i < futures.size(); i++) {
+        completion.take().get();
+      }
+    } catch (ExecutionException e) {
+      cancelAll(futures);
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalArgumentException("Cannot load the layer: " + e.getCause().getMessage());
+    } catch (InterruptedException e) {
+      cancelAll(futures);
+      Thread.currentThread().interrupt();
+      throw new IllegalArgumentException("Loading the layers was interrupted.");
+    } catch (RejectedExecutionException e) {
+      cancelAll(futures);
+      throw new IllegalArgumentException("Cannot load the layers: the executor is shut down.");
+    }
+
+    return images;
+  }
+
+  /**
+   * Cancels every given decode that has not finished yet.
+   *
+   * @param futures the decodes to cancel
+   */
+  private static void cancelAll(List<Future<Integer>> futures) {
+    for (Future<Integer> future : futures) {
+      future.cancel(true);
+    }
+  }
+
   /**
    * Returns the correct {@link IOManager} based on a given filename.
    *
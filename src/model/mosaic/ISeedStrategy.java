@@ -0,0 +1,30 @@
+package model.mosaic;
+
+import java.util.Random;
+
+/**
+ * Represents a way of placing the seeds of a mosaic on an image. Every seed becomes one piece of
+ * the mosaic, made of the pixels nearest to it.
+ */
+public interface ISeedStrategy {
+
+  /**
+   * Places the given number of seeds on an image with the given dimensions, using only the given
+   * random number generator for any randomness so that the same generator state always places the
+   * same seeds. The seed at index i is placed at row {@code seedRows[i]} and column
+   * {@code seedCols[i]}.
+   *
+   * @param height   the height of the image
+   * @param width    the width of the image
+   * @param numSeeds the number of seeds to place
+   * @param random   the random number generator to place the seeds with
+   * @param seedRows the array to write the rows of the seeds into
+   * @param seedCols the array to write the columns of the seeds into
+   * @throws IllegalArgumentException if any argument is null, if the dimensions are not positive,
+   *                                  if the number of seeds is negative or greater than the number
+   *                                  of pixels, or if either array is shorter than the number of
+   *                                  seeds
+   */
+  void placeSeeds(int height, int width, int numSeeds, Random random, int[] seedRows,
+      int[] seedCols) throws IllegalArgumentException;
+}
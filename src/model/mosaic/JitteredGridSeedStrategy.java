@@ -0,0 +1,42 @@
+package model.mosaic;
+
+import java.util.Random;
+
+/**
+ * A seed strategy that splits the image into one cell per seed and places each seed at a random
+ * pixel inside its own cell. The image is first split into horizontal bands of rows, and then each
+ * band is split into cells of columns, so that the cells are close to square. Since no two cells
+ * overlap, no two seeds share a pixel, and every seed is placed with exactly one draw, however close
+ * the number of seeds is to the number of pixels. The pieces of the mosaic also come out more even
+ * in size than with {@link RandomSeedStrategy}.
+ */
+public class JitteredGridSeedStrategy implements ISeedStrategy {
+
+  @Override
+  public void placeSeeds(int height, int width, int numSeeds, Random random, int[] seedRows,
+      int[] seedCols) throws IllegalArgumentException {
+    SeedStrategyUtils.checkArguments(height, width, numSeeds, random, seedRows, seedCols);
+    if (numSeeds == 0) {
+      return;
+    }
+
+    // enough bands that no band needs more cells than it has columns, and no more bands than rows
+    int numBands = (int) Math.round(Math.sqrt((double) numSeeds * height / width));
+    numBands = Math.max(numBands, (numSeeds + width - 1) / width);
+    numBands = Math.max(1, Math.min(numBands, Math.min(height, numSeeds)));
+
+    int seed = 0;
+    for (int band = 0; band < numBands; band++) {
+      int firstRow = (int) ((long) band * height / numBands);
+      int bandHeight = (int) ((long) (band + 1) * height / numBands) - firstRow;
+      int numCells = numSeeds / numBands + (band < numSeeds % numBands ? 1 : 0);
+      for (int cell = 0; cell < numCells; cell++) {
+        int firstCol = (int) ((long) cell * width / numCells);
+        int cellWidth = (int) ((long) (cell + 1) * width / numCells) - firstCol;
+        seedRows[seed] = firstRow + random.nextInt(bandHeight);
+        seedCols[seed] = firstCol + random.nextInt(cellWidth);
+        seed++;
+      }
+    }
+  }
+}
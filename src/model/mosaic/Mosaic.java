@@ -1,234 +1,146 @@
 package model.mosaic;
 
-import java.awt.Color;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Random;
-import java.util.Set;
 import model.image.IImage;
-import model.image.IPixel;
 import model.image.Image;
 
 /**
  * A photo effect that applies a mosaic effect, which gives an image a 'stained glass window' effect
  * (stained glass windows create pictures by joining smaller irregularly-shaped pieces of stained
  * glass), onto a given image based on a given number of random seeds.
+ *
+ * <p>Every pixel takes the average color of the pixels nearest to the same seed. The nearest seed
+ * of each pixel is found with a {@link SeedGrid}, so the cost grows with the number of pixels
+ * rather than with the number of pixels times the number of seeds.
+ *
+ * <p>The seeds are placed by an {@link ISeedStrategy}. A mosaic constructed with a random number
+ * seed places the seeds with a new generator started from that seed on every call, so the same
+ * image and number of seeds always give the same result.
  */
 public class Mosaic implements IPhotoEffect {
 
-  @Override
-  public IImage apply(IImage image, int numSeeds) throws IllegalArgumentException {
-    if (image == null || numSeeds < 0 || numSeeds > (image.getImage().length * image
-        .getImage()[0].length)) {
-      throw new IllegalArgumentException("One or more arguments is invalid!");
-    }
-
-    int height = image.getHeight();
-    int width = image.getWidth();
-
-    // find the locations of the random seeds and taking note of them, avoiding duplicates
-    // by using HashSet
-    Set<RandomSeed> randomSeedLocations = new HashSet<>();
-    Random rand = new Random();
-
-    // adds random seed locations to the hashset until the locations are finalized
-    while (randomSeedLocations.size() < numSeeds) {
-      randomSeedLocations.add(new RandomSeed(rand.nextInt(height), rand.nextInt(width)));
-    }
-
-    List<RandomSeed> listOfRandomSeedLocations = new ArrayList<>(randomSeedLocations);
-    IPixel[][] grid = image.getImage();
-
-    // add pixels to their corresponding images
-    for (int j = 0; j < height; j++) {
-      for (int k = 0; k < width; k++) {
-        for (int i = 0; i < listOfRandomSeedLocations.size(); i++) {
-          if (nearestPoint(listOfRandomSeedLocations, j, k) == listOfRandomSeedLocations.get(i)) {
-            listOfRandomSeedLocations.get(i).addPixel(grid[j][k]);
-            i = listOfRandomSeedLocations.size();
-          }
-        }
-      }
-    }
-
-    List<Color> avgColors = new ArrayList<>();
-
-    for (RandomSeed listOfRandomSeedLocation : listOfRandomSeedLocations) {
-      avgColors.add(listOfRandomSeedLocation.blendColors());
-    }
+  private final ISeedStrategy strategy;
+  // null if every call should use a different, unseeded generator
+  private final Long rngSeed;
 
-    for (int i = 0; i < listOfRandomSeedLocations.size(); i++) {
-      for (int p = 0; p < listOfRandomSeedLocations.get(i).closestPixels.size(); p++) {
-        IPixel currPix = listOfRandomSeedLocations.get(i).closestPixels.get(p);
-        currPix.setRed(avgColors.get(i).getRed());
-        currPix.setGreen(avgColors.get(i).getGreen());
-        currPix.setBlue(avgColors.get(i).getBlue());
-      }
-    }
-
-    return new Image(grid, image.getFilename());
+  /**
+   * Constructs a {@code Mosaic} object which places its seeds at random, differently on every call.
+   */
+  public Mosaic() {
+    this.strategy = new RandomSeedStrategy();
+    this.rngSeed = null;
   }
 
   /**
-   * Determines the distance between two given points.
+   * Constructs a {@code Mosaic} object which places its seeds with the given strategy, differently
+   * on every call.
    *
-   * @param x1 the x coordinate associated with the first point
-   * @param y1 the y coordinate associated with the first point
-   * @param x2 the x coordinate associated with the second point
-   * @param y2 the y coordinate associated with the second point
-   * @return the distance between two points
+   * @param strategy the strategy that places the seeds
+   * @throws IllegalArgumentException if the strategy is null
    */
-  private double distance(int x1, int y1, int x2, int y2) {
-    double x = Math.pow(x2 - x1, 2);
-    double y = Math.pow(y2 - y1, 2);
-    return Math.sqrt(x + y);
+  public Mosaic(ISeedStrategy strategy) throws IllegalArgumentException {
+    if (strategy == null) {
+      throw new IllegalArgumentException("Seed strategy cannot be null.");
+    }
+    this.strategy = strategy;
+    this.rngSeed = null;
   }
 
   /**
-   * Finds out which random seed a given point is closest to.
+   * Constructs a {@code Mosaic} object which places its seeds at random, starting from the given
+   * random number seed on every call.
    *
-   * @param listOfCoordinates the list of random seeds that were generated
-   * @param x                 the given x coordinate associated with a point
-   * @param y                 the given y coordinate associated with a point
-   * @return the random seed closest to the given point
-   * @throws IllegalArgumentException if the given list of coordinates is empty or the given x/y
-   *                                  coordinates are out of bounds or if any of the coordinates in
-   *                                  the list of coordinates are out of bounds
+   * @param rngSeed the seed of the random number generator
    */
-  private RandomSeed nearestPoint(List<RandomSeed> listOfCoordinates, int x, int y)
-      throws IllegalArgumentException {
-    if (listOfCoordinates.isEmpty() || x < 0 || y < 0) {
-      throw new IllegalArgumentException("Invalid argument(s)");
-    }
-
-    RandomSeed closestPoint = listOfCoordinates.get(0);
-    double closestDist = distance(x, y, closestPoint.getX(), closestPoint.getY());
-
-    for (RandomSeed listOfCoordinate : listOfCoordinates) {
-      double dist = distance(x, y, listOfCoordinate.getX(),
-          listOfCoordinate.getY());
-
-      if (dist < closestDist) {
-        closestDist = dist;
-        closestPoint = listOfCoordinate;
-      }
-    }
-
-    return closestPoint;
+  public Mosaic(long rngSeed) {
+    this(new RandomSeedStrategy(), rngSeed);
   }
 
   /**
-   * Represents a private helper class that has a position where the random seed is located as well
-   * as all the pixels that are closest to that seed.
+   * Constructs a {@code Mosaic} object which places its seeds with the given strategy, starting
+   * from the given random number seed on every call.
+   *
+   * @param strategy the strategy that places the seeds
+   * @param rngSeed  the seed of the random number generator
+   * @throws IllegalArgumentException if the strategy is null
    */
-  private static class RandomSeed {
-
-    private final int x;
-    private final int y;
-    private final List<IPixel> closestPixels;
-
-
-    /**
-     * Constructs an {@code RandomSeed} object which represents a random seed to be used in a mosaic
-     * object.
-     *
-     * @param x the x location of the random seed
-     * @param y the y location of the random seed
-     * @throws IllegalArgumentException if the given x and/or y values are negative
-     */
-    private RandomSeed(int x, int y) throws IllegalArgumentException {
-      if (x < 0 || y < 0) {
-        throw new IllegalArgumentException("Random seed is out of bounds!");
-      }
-
-      this.x = x;
-      this.y = y;
-      this.closestPixels = new ArrayList<>();
-    }
-
-    /**
-     * Adds a given pixel to the list of closest pixels in this random seed object.
-     *
-     * @param pixel the given pixel
-     */
-    private void addPixel(IPixel pixel) {
-      this.closestPixels.add(pixel);
-    }
-
-    /**
-     * Gets the x value of this random seed.
-     *
-     * @return the x value of this random seed
-     */
-    private int getX() {
-      return this.x;
+  public Mosaic(ISeedStrategy strategy, long rngSeed) throws IllegalArgumentException {
+    if (strategy == null) {
+      throw new IllegalArgumentException("Seed strategy cannot be null.");
     }
+    this.strategy = strategy;
+    this.rngSeed = rngSeed;
+  }
 
-    /**
-     * Gets the y value of this random seed.
-     *
-     * @return the y value of this random seed
-     */
-    private int getY() {
-      return this.y;
+  @Override
+  public IImage apply(IImage image, int numSeeds) throws IllegalArgumentException {
+    if (image == null || numSeeds < 0 || numSeeds > (image.getHeight() * image.getWidth())) {
+      throw new IllegalArgumentException("One or more arguments is invalid!");
     }
 
-    /**
-     * Blends the colors of the closest pixels together.
-     *
-     * @return the average color after blending all the closest pixels together
-     * @throws IllegalArgumentException if no pixels are available to be blended
-     */
-    private Color blendColors() {
-      if (closestPixels.isEmpty()) {
-        return new Color(0, 0, 0);
-      }
-
-      int red = 0;
-      int green = 0;
-      int blue = 0;
-
-      for (IPixel pixel : closestPixels) {
-        red += pixel.getRed();
-        green += pixel.getGreen();
-        blue += pixel.getBlue();
-      }
-
-      // divide by number of pixels to get average color
-      red /= closestPixels.size();
-      green /= closestPixels.size();
-      blue /= closestPixels.size();
+    int height = image.getHeight();
+    int width = image.getWidth();
 
-      // clamp values
-      red = clamp(red);
-      green = clamp(green);
-      blue = clamp(blue);
+    // find the locations of the seeds
+    int[] seedRows = new int[numSeeds];
+    int[] seedCols = new int[numSeeds];
+    Random rand = this.rngSeed == null ? new Random() : new Random(this.rngSeed);
+    this.strategy.placeSeeds(height, width, numSeeds, rand, seedRows, seedCols);
 
-      return new Color(red, green, blue);
+    if (numSeeds == 0) {
+      // no seed means no tile, so every pixel keeps its color
+      return new Image(image.getPixels(new int[width * height]), width, height,
+          image.getFilename());
     }
+    return new Image(this.blend(image.getPixels(new int[width * height]), width, height,
+        new SeedGrid(seedRows, seedCols, height, width), numSeeds),
+        width, height, image.getFilename());
+  }
 
-    /**
-     * Clamps the given value to be 255 if necessary.
-     *
-     * @param colorValue the color value to be clamped
-     * @return the clamped integer value
-     */
-    private int clamp(int colorValue) {
-      if (colorValue > 255) {
-        return 255;
-      } else {
-        return Math.max(colorValue, 0);
+  /**
+   * Replaces every given pixel with the average color of all the pixels that are nearest to the
+   * same seed.
+   *
+   * @param pixels   the packed pixels of the image, row by row, which are replaced
+   * @param width    the width of the image
+   * @param height   the height of the image
+   * @param seeds    the seeds of the mosaic
+   * @param numSeeds the number of seeds
+   * @return the given array of pixels
+   */
+  private int[] blend(int[] pixels, int width, int height, SeedGrid seeds, int numSeeds) {
+    int[] nearestSeed = new int[width * height];
+    long[] red = new long[numSeeds];
+    long[] green = new long[numSeeds];
+    long[] blue = new long[numSeeds];
+    int[] count = new int[numSeeds];
+
+    // add pixels to the sums of their nearest seeds
+    for (int j = 0; j < height; j++) {
+      for (int k = 0; k < width; k++) {
+        int index = j * width + k;
+        int seed = seeds.nearest(j, k);
+        int pixel = pixels[index];
+        nearestSeed[index] = seed;
+        red[seed] += (pixel >> 16) & 0xFF;
+        green[seed] += (pixel >> 8) & 0xFF;
+        blue[seed] += pixel & 0xFF;
+        count[seed]++;
       }
     }
 
-    public String toString() {
-      StringBuilder result = new StringBuilder();
-      for (IPixel closestPixel : closestPixels) {
-        result.append(closestPixel.getX()).append(" ").append(closestPixel.getY()).append(" ");
+    // divide by number of pixels to get average color
+    int[] avgColors = new int[numSeeds];
+    for (int i = 0; i < numSeeds; i++) {
+      if (count[i] > 0) {
+        avgColors[i] = (int) (red[i] / count[i]) << 16 | (int) (green[i] / count[i]) << 8
+            | (int) (blue[i] / count[i]);
       }
-      return result.toString();
+    }
 
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = avgColors[nearestSeed[i]];
     }
+    return pixels;
   }
 }
@@ -0,0 +1,33 @@
+package model.mosaic;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * A seed strategy that places the seeds at distinct pixels chosen uniformly at random, so that
+ * every seed gets its own piece of the mosaic. The pixels are sampled without replacement with
+ * Floyd's algorithm, which takes exactly one draw per seed, however close the number of seeds is
+ * to the number of pixels.
+ */
+public class RandomSeedStrategy implements ISeedStrategy {
+
+  @Override
+  public void placeSeeds(int height, int width, int numSeeds, Random random, int[] seedRows,
+      int[] seedCols) throws IllegalArgumentException {
+    SeedStrategyUtils.checkArguments(height, width, numSeeds, random, seedRows, seedCols);
+
+    int numPixels = height * width;
+    BitSet taken = new BitSet(numPixels);
+    for (int i = 0; i < numSeeds; i++) {
+      int last = numPixels - numSeeds + i;
+      int pixel = random.nextInt(last + 1);
+      if (taken.get(pixel)) {
+        // every pixel taken so far is before the last one of this draw, so it is still free
+        pixel = last;
+      }
+      taken.set(pixel);
+      seedRows[i] = pixel / width;
+      seedCols[i] = pixel % width;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package model.mosaic;
+
+/**
+ * Represents a uniform grid of square cells over an image which buckets the seeds of a mosaic by
+ * the cell they fall in, so that the seed nearest to a pixel can be found by only looking at the
+ * cells around that pixel instead of at every seed.
+ *
+ * <p>The nearest seed is the one with the smallest Euclidean distance to the pixel. If several
+ * seeds are equally close, the one that was given first wins, which is the same seed a scan of
+ * every seed in order would find.
+ */
+public final class SeedGrid {
+
+  private final int[] seedRows;
+  private final int[] seedCols;
+  // The side length of every cell, in pixels
+  // INVARIANT: cellSize is a positive integer
+  private final int cellSize;
+  private final int gridRows;
+  private final int gridCols;
+  // The seeds in the cell at (r, c) are cellSeeds[cellStart[i]] to cellSeeds[cellStart[i + 1] - 1]
+  // in increasing order, where i = r * gridCols + c
+  private final int[] cellStart;
+  private final int[] cellSeeds;
+
+  /**
+   * Constructs a {@code SeedGrid} object over an image with the given dimensions for the given
+   * seeds. The seed at index i is at row {@code seedRows[i]} and column {@code seedCols[i]}.
+   *
+   * @param seedRows the rows of the seeds
+   * @param seedCols the columns of the seeds
+   * @param height   the height of the image
+   * @param width    the width of the image
+   * @throws IllegalArgumentException if either array is null, if the arrays have different or zero
+   *                                  lengths, if the dimensions are not positive, or if a seed is
+   *                                  outside of the image
+   */
+  public SeedGrid(int[] seedRows, int[] seedCols, int height, int width)
+      throws IllegalArgumentException {
+    if (seedRows == null || seedCols == null || seedRows.length != seedCols.length
+        || seedRows.length == 0 || height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Invalid seeds or dimensions.");
+    }
+    for (int i = 0; i < seedRows.length; i++) {
+      if (seedRows[i] < 0 || seedRows[i] >= height || seedCols[i] < 0 || seedCols[i] >= width) {
+        throw new IllegalArgumentException("Seed is out of bounds!");
+      }
+    }
+
+    this.seedRows = seedRows.clone();
+    this.seedCols = seedCols.clone();
+    // about one seed per cell
+    this.cellSize = Math.max(1,
+        (int) Math.ceil(Math.sqrt((double) height * width / seedRows.length)));
+    this.gridRows = (height + this.cellSize - 1) / this.cellSize;
+    this.gridCols = (width + this.cellSize - 1) / this.cellSize;
+
+    // counting sort of the seeds by cell, which keeps the seeds of each cell in increasing order
+    this.cellStart = new int[this.gridRows * this.gridCols + 1];
+    for (int i = 0; i < seedRows.length; i++) {
+      this.cellStart[this.cellOf(i) + 1]++;
+    }
+    for (int i = 0; i < this.gridRows * this.gridCols; i++) {
+      this.cellStart[i + 1] += this.cellStart[i];
+    }
+    this.cellSeeds = new int[seedRows.length];
+    int[] next = this.cellStart.clone();
+    for (int i = 0; i < seedRows.length; i++) {
+      this.cellSeeds[next[this.cellOf(i)]++] = i;
+    }
+  }
+
+  /**
+   * Gets the index of the cell that the given seed is in.
+   *
+   * @param seed the index of the seed
+   * @return the index of the cell of the seed
+   */
+  private int cellOf(int seed) {
+    return (this.seedRows[seed] / this.cellSize) * this.gridCols
+        + this.seedCols[seed] / this.cellSize;
+  }
+
+  /**
+   * Finds the seed nearest to the pixel at the given row and column. The cells are searched in
+   * rings of growing size around the cell of the pixel, and the search stops once every seed in the
+   * rings that are left is known to be farther away than the nearest seed found so far.
+   *
+   * @param row the row of the pixel
+   * @param col the column of the pixel
+   * @return the index of the nearest seed, the lowest index if several seeds are equally close
+   */
+  public int nearest(int row, int col) {
+    int cellRow = row / this.cellSize;
+    int cellCol = col / this.cellSize;
+    int maxRing = Math.max(Math.max(cellRow, this.gridRows - 1 - cellRow),
+        Math.max(cellCol, this.gridCols - 1 - cellCol));
+    int best = -1;
+    long bestDist = Long.MAX_VALUE;
+
+    for (int ring = 0; ring <= maxRing; ring++) {
+      if (best >= 0) {
+        // every pixel of a cell in this ring is at least this far from the pixel in one direction
+        long gap = (long) (ring - 1) * this.cellSize + 1;
+        if (gap * gap > bestDist) {
+          break;
+        }
+      }
+      for (int r = cellRow - ring; r <= cellRow + ring; r++) {
+        if (r < 0 || r >= this.gridRows) {
+          continue;
+        }
+        boolean edgeRow = r == cellRow - ring || r == cellRow + ring;
+        // inside the ring only the first and last cells of the row are on the ring
+        int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+        for (int c = cellCol - ring; c <= cellCol + ring; c += step) {
+          if (c < 0 || c >= this.gridCols) {
+            continue;
+          }
+          int cell = r * this.gridCols + c;
+          for (int k = this.cellStart[cell]; k < this.cellStart[cell + 1]; k++) {
+            int seed = this.cellSeeds[k];
+            long dr = this.seedRows[seed] - row;
+            long dc = this.seedCols[seed] - col;
+            long dist = dr * dr + dc * dc;
+            if (dist < bestDist || (dist == bestDist && seed < best)) {
+              bestDist = dist;
+              best = seed;
+            }
+          }
+        }
+      }
+    }
+
+    return best;
+  }
+}
@@ -0,0 +1,31 @@
+package model.mosaic;
+
+import java.util.Random;
+
+/**
+ * This class contains utility methods shared by the seed strategies of a mosaic.
+ */
+final class SeedStrategyUtils {
+
+  /**
+   * Checks the arguments given to {@link ISeedStrategy#placeSeeds}.
+   *
+   * @param height   the height of the image
+   * @param width    the width of the image
+   * @param numSeeds the number of seeds to place
+   * @param random   the random number generator to place the seeds with
+   * @param seedRows the array to write the rows of the seeds into
+   * @param seedCols the array to write the columns of the seeds into
+   * @throws IllegalArgumentException if any of the arguments is invalid
+   */
+  static void checkArguments(int height, int width, int numSeeds, Random random, int[] seedRows,
+      int[] seedCols) throws IllegalArgumentException {
+    if (random == null || seedRows == null || seedCols == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    if (height <= 0 || width <= 0 || numSeeds < 0 || numSeeds > (long) height * width
+        || seedRows.length < numSeeds || seedCols.length < numSeeds) {
+      throw new IllegalArgumentException("One or more arguments is invalid!");
+    }
+  }
+}
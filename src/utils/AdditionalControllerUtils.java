@@ -14,13 +14,17 @@ import controller.LoadAllCommand;
 import controller.LoadSingleCommand;
 import controller.MakeInvisibleCommand;
 import controller.MakeVisibleCommand;
-import controller.MosaicCommand;
+import controller.RedoCommand;
 import controller.RemoveImageLayerCommand;
 import controller.SaveAllCommand;
+import controller.SaveFlattenedCommand;
 import controller.SaveSingleCommand;
 import controller.SepiaCommand;
+import controller.SetBlendModeCommand;
 import controller.SetCurrentCommand;
+import controller.SetOpacityCommand;
 import controller.SharpenCommand;
+import controller.UndoCommand;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
@@ -51,8 +55,28 @@ public class AdditionalControllerUtils {
     knownCommands.putIfAbsent("current", scanner -> new SetCurrentCommand(scanner.next()));
     knownCommands.putIfAbsent("load", scanner -> new LoadSingleCommand(scanner.next()));
     knownCommands.putIfAbsent("loadall", scanner -> new LoadAllCommand(scanner.next()));
-    knownCommands.putIfAbsent("save", scanner -> new SaveSingleCommand(scanner.next()));
-    knownCommands.putIfAbsent("saveall", scanner -> new SaveAllCommand(scanner.next()));
+    knownCommands.putIfAbsent("save", scanner -> {
+      String filename = scanner.next();
+      return ControllerUtils.hasPPMFormat(scanner)
+          ? new SaveSingleCommand(filename, ControllerUtils.readPPMFormat(scanner))
+          : new SaveSingleCommand(filename);
+    });
+    knownCommands.putIfAbsent("saveall", scanner -> {
+      String dirName = scanner.next();
+      return ControllerUtils.hasPPMFormat(scanner)
+          ? new SaveAllCommand(dirName, ControllerUtils.readPPMFormat(scanner))
+          : new SaveAllCommand(dirName);
+    });
+    knownCommands.putIfAbsent("saveflat", scanner -> {
+      String filename = scanner.next();
+      return ControllerUtils.hasPPMFormat(scanner)
+          ? new SaveFlattenedCommand(filename, ControllerUtils.readPPMFormat(scanner))
+          : new SaveFlattenedCommand(filename);
+    });
+    knownCommands.putIfAbsent("opacity",
+        scanner -> new SetOpacityCommand(scanner.next(), Double.parseDouble(scanner.next())));
+    knownCommands.putIfAbsent("blend",
+        scanner -> new SetBlendModeCommand(scanner.next(), scanner.next()));
     knownCommands.putIfAbsent("invisible", scanner -> new MakeInvisibleCommand(scanner.next()));
     knownCommands.putIfAbsent("visible", scanner -> new MakeVisibleCommand(scanner.next()));
     knownCommands.putIfAbsent("colortransform",
@@ -68,8 +92,9 @@ public class AdditionalControllerUtils {
             Integer.parseInt(scanner.next())));
     knownCommands
         .putIfAbsent("filter", scanner -> new FilterOnImageCommand(scanner.next(), scanner.next()));
-    knownCommands
-        .putIfAbsent("mosaic", scanner -> new MosaicCommand(Integer.parseInt(scanner.next())));
+    knownCommands.putIfAbsent("mosaic", ControllerUtils::readMosaicCommand);
+    knownCommands.putIfAbsent("undo", scanner -> new UndoCommand());
+    knownCommands.putIfAbsent("redo", scanner -> new RedoCommand());
     knownCommands
         .putIfAbsent("downscale",
             scanner -> new DownscalingCommand(Integer.parseInt(scanner.next()),
@@ -1,6 +1,5 @@
 package utils;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -20,10 +19,51 @@ public class AdditionalImageUtils {
    *
    * @param file the path of the file.
    * @return a 2D array of pixels that represents a PPM image
-   * @throws IllegalArgumentException if the given file is null or the file is not found
+   * @throws IllegalArgumentException if the given file is null, the file is not found, or the file
+   *                                  is not an image
    * @throws IOException              if an I/O error occurs
    */
   public static IPixel[][] readPNGJPEG(File file) throws IllegalArgumentException, IOException {
+    BufferedImage bufferedImage = readBufferedImage(file);
+    int width = bufferedImage.getWidth();
+    int[] pixels = RasterUtils.toPackedPixels(bufferedImage);
+    IPixel[][] imageGrid = new Pixel[bufferedImage.getHeight()][width];
+
+    for (int i = 0; i < bufferedImage.getHeight(); i++) {
+      for (int j = 0; j < width; j++) {
+        int rgb = pixels[i * width + j];
+        imageGrid[i][j] = new Pixel(j, i, (rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+      }
+    }
+
+    return imageGrid;
+  }
+
+  /**
+   * Reads an image file in the PNG/JPEG format straight into an image, without creating an object
+   * for each pixel.
+   *
+   * @param file the path of the file.
+   * @return the image in the file, with the absolute path of the file as its filename
+   * @throws IllegalArgumentException if the given file is null, the file is not found, or the file
+   *                                  is not an image
+   * @throws IOException              if an I/O error occurs
+   */
+  public static IImage readPNGJPEGImage(File file) throws IllegalArgumentException, IOException {
+    return RasterUtils.toImage(readBufferedImage(file), file.getAbsolutePath());
+  }
+
+  /**
+   * Reads the given image file into a buffered image.
+   *
+   * @param file the path of the file.
+   * @return the buffered image in the file
+   * @throws IllegalArgumentException if the given file is null, the file is not found, or the file
+   *                                  is not an image
+   * @throws IOException              if an I/O error occurs
+   */
+  private static BufferedImage readBufferedImage(File file)
+      throws IllegalArgumentException, IOException {
     if (file == null) {
       throw new IllegalArgumentException("File cannot be null!");
     }
@@ -32,22 +72,10 @@ public class AdditionalImageUtils {
     }
 
     BufferedImage bufferedImage = ImageIO.read(file);
-    IPixel[][] imageGrid = new Pixel[bufferedImage.getHeight()][bufferedImage.getWidth()];
-
-    for (int i = 0; i < bufferedImage.getHeight(); i++) {
-      for (int j = 0; j < bufferedImage.getWidth(); j++) {
-        // Getting pixel color by position x and y
-        Color myColor = new Color(bufferedImage.getRGB(j, i));
-        int red = myColor.getRed();
-        int green = myColor.getGreen();
-        int blue = myColor.getBlue();
-
-        IPixel newPixel = new Pixel(j, i, red, green, blue);
-        imageGrid[i][j] = newPixel;
-      }
+    if (bufferedImage == null) {
+      throw new IllegalArgumentException("File is not a PNG/JPEG image!");
     }
-
-    return imageGrid;
+    return bufferedImage;
   }
 
   /**
@@ -64,23 +92,12 @@ public class AdditionalImageUtils {
     if (image == null || filename == null || extension == null) {
       throw new IllegalArgumentException("One or more of the arguments are null");
     }
-    BufferedImage img = new BufferedImage(image.getWidth(), image.getHeight(),
-        BufferedImage.TYPE_INT_RGB);
+    // the JPEG writer encodes from interleaved bytes, so handing it those saves a conversion
+    int type = extension.equalsIgnoreCase("png") ? BufferedImage.TYPE_INT_RGB
+        : BufferedImage.TYPE_3BYTE_BGR;
+    BufferedImage img = RasterUtils.toBufferedImage(image, type);
     File file = new File(filename + "." + extension);
 
-    IPixel[][] imageGrid = image.getImage();
-
-    for (int i = 0; i < image.getHeight(); i++) {
-      for (int j = 0; j < image.getWidth(); j++) {
-        IPixel currPix = imageGrid[i][j];
-        int red = currPix.getRed();
-        int green = currPix.getGreen();
-        int blue = currPix.getBlue();
-        int rgb = (red << 16 | green << 8 | blue);
-        img.setRGB(j, i, rgb);
-      }
-    }
-
     try {
       ImageIO.write(img, extension, file);
     } catch (IOException e) {
@@ -13,16 +13,28 @@ import controller.LoadAllCommand;
 import controller.LoadSingleCommand;
 import controller.MakeInvisibleCommand;
 import controller.MakeVisibleCommand;
+import controller.MosaicCommand;
+import controller.RedoCommand;
 import controller.RemoveImageLayerCommand;
 import controller.SaveAllCommand;
+import controller.SaveFlattenedCommand;
 import controller.SaveSingleCommand;
 import controller.SepiaCommand;
+import controller.SetBlendModeCommand;
 import controller.SetCurrentCommand;
+import controller.SetOpacityCommand;
 import controller.SharpenCommand;
+import controller.UndoCommand;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.util.function.Function;
+import model.mosaic.ISeedStrategy;
+import model.mosaic.JitteredGridSeedStrategy;
+import model.mosaic.RandomSeedStrategy;
 
 /**
  * This class contains utility methods to help get the known controller commands of an
@@ -37,6 +49,23 @@ public class ControllerUtils {
    * @return the map of known commands associated with the controller
    */
   public static Map<String, Function<Scanner, IPhotoCommands>> getKnownCommands() {
+    return getKnownCommands(Paths.get(""));
+  }
+
+  /**
+   * Gets the known commands that can be used in an {@code IImageProcessingController}, with the
+   * relative paths of the files they read and write resolved against the given directory rather
+   * than the directory the program runs in.
+   *
+   * @param directory the directory relative paths are resolved against
+   * @return the map of known commands associated with the controller
+   * @throws IllegalArgumentException if the directory is null
+   */
+  public static Map<String, Function<Scanner, IPhotoCommands>> getKnownCommands(Path directory)
+      throws IllegalArgumentException {
+    if (directory == null) {
+      throw new IllegalArgumentException("Directory cannot be null.");
+    }
     Map<String, Function<Scanner, IPhotoCommands>> knownCommands =
         new HashMap<>();
 
@@ -47,14 +76,36 @@ public class ControllerUtils {
     knownCommands.putIfAbsent("create", scanner -> new CreateImageLayerCommand(scanner.next()));
     knownCommands.putIfAbsent("remove", scanner -> new RemoveImageLayerCommand(scanner.next()));
     knownCommands.putIfAbsent("current", scanner -> new SetCurrentCommand(scanner.next()));
-    knownCommands.putIfAbsent("load", scanner -> new LoadSingleCommand(scanner.next()));
-    knownCommands.putIfAbsent("loadall", scanner -> new LoadAllCommand(scanner.next()));
-    knownCommands.putIfAbsent("save", scanner -> new SaveSingleCommand(scanner.next()));
-    knownCommands.putIfAbsent("saveall", scanner -> new SaveAllCommand(scanner.next()));
+    knownCommands.putIfAbsent("load",
+        scanner -> new LoadSingleCommand(resolve(directory, scanner.next())));
+    knownCommands.putIfAbsent("loadall",
+        scanner -> new LoadAllCommand(resolve(directory, scanner.next())));
+    knownCommands.putIfAbsent("save", scanner -> {
+      String filename = resolve(directory, scanner.next());
+      return ControllerUtils.hasPPMFormat(scanner)
+          ? new SaveSingleCommand(filename, ControllerUtils.readPPMFormat(scanner))
+          : new SaveSingleCommand(filename);
+    });
+    knownCommands.putIfAbsent("saveall", scanner -> {
+      String dirName = resolve(directory, scanner.next());
+      return ControllerUtils.hasPPMFormat(scanner)
+          ? new SaveAllCommand(dirName, ControllerUtils.readPPMFormat(scanner))
+          : new SaveAllCommand(dirName);
+    });
+    knownCommands.putIfAbsent("saveflat", scanner -> {
+      String filename = resolve(directory, scanner.next());
+      return ControllerUtils.hasPPMFormat(scanner)
+          ? new SaveFlattenedCommand(filename, ControllerUtils.readPPMFormat(scanner))
+          : new SaveFlattenedCommand(filename);
+    });
+    knownCommands.putIfAbsent("opacity",
+        scanner -> new SetOpacityCommand(scanner.next(), Double.parseDouble(scanner.next())));
+    knownCommands.putIfAbsent("blend",
+        scanner -> new SetBlendModeCommand(scanner.next(), scanner.next()));
     knownCommands.putIfAbsent("invisible", scanner -> new MakeInvisibleCommand(scanner.next()));
     knownCommands.putIfAbsent("visible", scanner -> new MakeVisibleCommand(scanner.next()));
-    knownCommands.putIfAbsent("colortransform",
-        scanner -> new ColorTransformOnImageCommand(scanner.next(), scanner.next()));
+    knownCommands.putIfAbsent("colortransform", scanner -> new ColorTransformOnImageCommand(
+        resolve(directory, scanner.next()), scanner.next()));
     knownCommands.putIfAbsent("createdefaultimage",
         scanner -> new CreateImageDefaultCommand(Integer.parseInt(scanner.next()),
             Integer.parseInt(scanner.next())));
@@ -64,9 +115,95 @@ public class ControllerUtils {
             Integer.parseInt(scanner.next()), Integer.parseInt(scanner.next()),
             Integer.parseInt(scanner.next()), Integer.parseInt(scanner.next()),
             Integer.parseInt(scanner.next())));
-    knownCommands
-        .putIfAbsent("filter", scanner -> new FilterOnImageCommand(scanner.next(), scanner.next()));
+    knownCommands.putIfAbsent("filter", scanner -> new FilterOnImageCommand(
+        resolve(directory, scanner.next()), scanner.next()));
+    knownCommands.putIfAbsent("mosaic", ControllerUtils::readMosaicCommand);
+    knownCommands.putIfAbsent("undo", scanner -> new UndoCommand());
+    knownCommands.putIfAbsent("redo", scanner -> new RedoCommand());
 
     return knownCommands;
   }
-}
\ No newline at end of file
+
+  /**
+   * Resolves the given path of a file against the given directory, leaving it as it is if it is
+   * absolute.
+   *
+   * @param directory the directory relative paths are resolved against
+   * @param filename  the path of the file, as written in a script
+   * @return the resolved path of the file
+   * @throws IllegalArgumentException if the path is not valid
+   */
+  private static String resolve(Path directory, String filename)
+      throws IllegalArgumentException {
+    return directory.resolve(filename).toString();
+  }
+
+  /**
+   * Reads the arguments of a mosaic command, {@code mosaic numSeeds [rngSeed] [random|jittered]},
+   * from the given scanner. The random number seed and the way the seeds are placed are optional,
+   * and are only read from the same line as the number of seeds. The seeds are placed at random
+   * pixels unless {@code jittered} asks for one seed in each cell of a grid, which gives pieces of
+   * a more even size.
+   *
+   * @param scanner the scanner to read the arguments from
+   * @return the mosaic command with the given arguments
+   * @throws IllegalArgumentException if the number of seeds is missing or not a number
+   */
+  public static IPhotoCommands readMosaicCommand(Scanner scanner)
+      throws IllegalArgumentException {
+    int numSeeds;
+    try {
+      numSeeds = Integer.parseInt(scanner.next());
+    } catch (NumberFormatException | NoSuchElementException e) {
+      throw new IllegalArgumentException("The number of seeds must be a number.");
+    }
+    Long rngSeed = null;
+    if (hasNextInLine(scanner) && scanner.hasNextLong()) {
+      rngSeed = scanner.nextLong();
+    }
+    ISeedStrategy strategy = new RandomSeedStrategy();
+    if (hasNextInLine(scanner) && scanner.hasNext("(?i)random|jittered")
+        && scanner.next().equalsIgnoreCase("jittered")) {
+      strategy = new JitteredGridSeedStrategy();
+    }
+    return new MosaicCommand(numSeeds, rngSeed, strategy);
+  }
+
+  /**
+   * Determines whether the given scanner has another word on the line it is reading. Optional
+   * arguments are only read from the line of their command, since asking the scanner for the next
+   * word would wait for the user to type another line when reading commands as they are typed.
+   *
+   * @param scanner the scanner to read from
+   * @return true if there is another word before the end of the current line
+   */
+  private static boolean hasNextInLine(Scanner scanner) {
+    // only skips the whitespace before the next word, so the word is still left to be read
+    return scanner.findInLine("(?=[^\\p{javaWhitespace}])") != null;
+  }
+
+  /**
+   * Determines whether the next word of the given scanner chooses the format of saved PPM files,
+   * p3 for plain or p6 for binary. The format is only read from the line of its command.
+   *
+   * @param scanner the scanner to read from
+   * @return true if the next word is p3 or p6, ignoring case, and on the current line
+   */
+  public static boolean hasPPMFormat(Scanner scanner) {
+    return hasNextInLine(scanner) && scanner.hasNext("(?i)p[36]");
+  }
+
+  /**
+   * Reads the format of saved PPM files from the given scanner.
+   *
+   * @param scanner the scanner to read from
+   * @return true if the binary format (p6) was chosen, false for the plain format (p3)
+   * @throws IllegalArgumentException if the next word is not p3 or p6
+   */
+  public static boolean readPPMFormat(Scanner scanner) throws IllegalArgumentException {
+    if (!hasPPMFormat(scanner)) {
+      throw new IllegalArgumentException("The PPM format must be p3 or p6.");
+    }
+    return scanner.next().equalsIgnoreCase("p6");
+  }
+}
@@ -1,14 +1,17 @@
 package utils;
 
+import controller.BatchImageProcessingController;
+import controller.ClientImageProcessingController;
 import controller.GraphicalImageProcessingController;
+import controller.HttpImageProcessingController;
+import controller.ServerImageProcessingController;
 import controller.SimpleIImageProcessingController;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
-import java.util.Scanner;
+import java.util.Arrays;
 import controller.IImageProcessingController;
 import model.LayerModelState;
 import model.image.IPixel;
@@ -23,53 +26,28 @@ import view.MyWindow;
  */
 public class ImageUtil {
 
+  // The most sessions a server started with -serve keeps
+  private static final int MAX_SERVER_SESSIONS = 64;
+
   /**
-   * Read an image file in the PPM format and print the colors.
+   * Read an image file in the PPM format into a grid of pixels. Use {@link PPMReader} to read the
+   * packed pixels directly instead.
    *
    * @param filename the path of the file.
    * @return a 2D array of pixels that represents a PPM image
-   * @throws IllegalArgumentException if the given filename is null or the file is not found
+   * @throws IllegalArgumentException if the given filename is null, the file is not found, or the
+   *                                  file is not a valid PPM file
    */
   public static IPixel[][] readPPM(String filename) throws IllegalArgumentException {
-    if (filename == null) {
-      throw new IllegalArgumentException("No valid filename given.");
-    }
-    Scanner sc;
-
-    try {
-      sc = new Scanner(new FileInputStream(filename));
-    } catch (FileNotFoundException e) {
-      throw new IllegalArgumentException("File " + filename + " not found!");
-    }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
-      }
-    }
-
-    // now set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
-
-    String token;
-
-    token = sc.next();
-    if (!token.equals("P3")) {
-      System.out.println("Invalid PPM file: plain RAW file should begin with P3");
-    }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-
-    Pixel[][] pixels = new Pixel[height][width];
+    PPMReader reader = PPMReader.read(filename);
+    int width = reader.getWidth();
+    int[] packed = reader.getPixels();
+    Pixel[][] pixels = new Pixel[reader.getHeight()][width];
 
-    for (int i = 0; i < height; i++) {
+    for (int i = 0; i < pixels.length; i++) {
       for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        pixels[i][j] = new Pixel(i, j, r, g, b);
+        int rgb = packed[i * width + j];
+        pixels[i][j] = new Pixel(i, j, (rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
       }
     }
 
@@ -83,13 +61,96 @@ public class ImageUtil {
    */
   public static void main(String[] args) throws IOException {
     Appendable out = System.out;
+    // -quiet after the other arguments only writes the layers when the state command asks for
+    // them, -compile plans the whole script before running it, -history sets how many bytes the
+    // undo history may take, and -session and -stop name the session a script sent to a server
+    // runs in and stop the server after it
+    boolean quiet = false;
+    boolean compiled = false;
+    long historyBudget = LayerModel.DEFAULT_HISTORY_BUDGET;
+    String session = null;
+    boolean stopServer = false;
+    while (args.length > 1) {
+      String flag = args[args.length - 1];
+      if (args.length > 2 && args[args.length - 2].equalsIgnoreCase("-session")) {
+        session = flag;
+        args = Arrays.copyOf(args, args.length - 2);
+        continue;
+      } else if (args.length > 2 && args[args.length - 2].equalsIgnoreCase("-history")) {
+        try {
+          historyBudget = Long.parseLong(flag);
+        } catch (NumberFormatException e) {
+          historyBudget = -1;
+        }
+        if (historyBudget < 0) {
+          System.out.println("Invalid history budget!");
+          return;
+        }
+        args = Arrays.copyOf(args, args.length - 2);
+        continue;
+      } else if (flag.equalsIgnoreCase("-quiet")) {
+        quiet = true;
+      } else if (flag.equalsIgnoreCase("-compile")) {
+        compiled = true;
+      } else if (flag.equalsIgnoreCase("-stop")) {
+        stopServer = true;
+      } else {
+        break;
+      }
+      args = Arrays.copyOf(args, args.length - 1);
+    }
     switch (args.length) {
+      case 3:
+        if (args[0].equalsIgnoreCase("-client")) {
+          ClientImageProcessingController controller = new ClientImageProcessingController(
+              Integer.parseInt(args[1]), new FileReader(args[2]), out);
+          controller.setQuiet(quiet);
+          controller.setCompiled(compiled);
+          controller.setSession(session);
+          controller.setStopServer(stopServer);
+
+          controller.processImage();
+        } else {
+          // for invalid commands, display error message and quit
+          System.out.println("Invalid command!");
+        }
+        break;
+      case 4:
+        if (args[0].equalsIgnoreCase("-batch")) {
+          BatchImageProcessingController controller = new BatchImageProcessingController(
+              new File(args[1]), new File(args[2]), new File(args[3]), out);
+          controller.setHistoryBudget(historyBudget);
+
+          controller.processImage();
+        } else {
+          // for invalid commands, display error message and quit
+          System.out.println("Invalid command!");
+        }
+        break;
       case 2:
         if (args[0].equalsIgnoreCase("-script")) {
           File in = new File(args[1]);
-          IImageProcessingController controller = new SimpleIImageProcessingController(
-              new LayerModel(),
+          SimpleIImageProcessingController controller = new SimpleIImageProcessingController(
+              new LayerModel(historyBudget),
               in, out);
+          controller.setQuiet(quiet);
+          controller.setCompiled(compiled);
+
+          controller.processImage();
+        } else if (args[0].equalsIgnoreCase("-serve")) {
+          ServerImageProcessingController controller = new ServerImageProcessingController(
+              Integer.parseInt(args[1]), MAX_SERVER_SESSIONS);
+          controller.setHistoryBudget(historyBudget);
+          System.out.println("Serving on port " + controller.getPort() + " of the loopback "
+              + "address.");
+
+          controller.processImage();
+        } else if (args[0].equalsIgnoreCase("-http")) {
+          // half of the heap is left for the images in flight, as -batch leaves by default
+          HttpImageProcessingController controller = new HttpImageProcessingController(
+              Integer.parseInt(args[1]), Runtime.getRuntime().maxMemory() / 2);
+          System.out.println("Serving HTTP on port " + controller.getPort() + " of the loopback "
+              + "address.");
 
           controller.processImage();
         } else {
@@ -105,12 +166,14 @@ public class ImageUtil {
       case 1:
         if (args[0].equalsIgnoreCase("-text")) {
           Readable in = new InputStreamReader(System.in);
-          IImageProcessingController controller = new SimpleIImageProcessingController(
-              new LayerModel(), in, out);
+          SimpleIImageProcessingController controller = new SimpleIImageProcessingController(
+              new LayerModel(historyBudget), in, out);
+          controller.setQuiet(quiet);
+          controller.setCompiled(compiled);
 
           controller.processImage();
         } else if (args[0].equalsIgnoreCase("-interactive")) {
-          ILayerModel model = new LayerModel();
+          ILayerModel model = new LayerModel(historyBudget);
           IImageProcessingController controller = new GraphicalImageProcessingController(
               model, new MyWindow(new LayerModelState(model)));
 
@@ -0,0 +1,516 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads images in the plain (P3) or binary (P6) PPM format straight from the bytes of a file into
+ * packed pixels, row by row, in which each pixel is represented as {@code 0xRRGGBB}. The format is
+ * detected from the magic number at the start of the file, whatever its extension. Large files
+ * are memory-mapped and smaller ones are read through a buffer, each read once, and no strings or
+ * objects are created per pixel.
+ *
+ * <p>Comments, which start with {@code #} and run to the end of the line, may appear anywhere in
+ * the header that whitespace may, and anywhere between the values of a plain file. Color values
+ * are scaled to be between 0 and 255 if the maximum value of the file is not 255. If the file is
+ * malformed, the error names the line and column where the problem was found.
+ */
+public final class PPMReader {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  // the size from which files are mapped into memory, below which a mapping costs more to set up
+  // than it saves over reading through the buffer
+  private static final long MAP_THRESHOLD = 1 << 20;
+
+  // the stream to refill the buffer from, or null if the buffer holds the whole file
+  private final InputStream in;
+  private final String source;
+  private final ByteBuffer buffer;
+  // the line and column of the next byte to be read, starting at 1
+  private int line = 1;
+  private int column = 1;
+  // the line and column of the first byte of the last token read
+  private int tokenLine;
+  private int tokenColumn;
+
+  private boolean binary;
+  private int width;
+  private int height;
+  private int[] pixels;
+
+  /**
+   * Constructs a {@code PPMReader} object which reads from the given stream through a buffer of a
+   * fixed size.
+   *
+   * @param in     the stream to read the image from
+   * @param source the name of the stream used in error messages, such as its filename
+   */
+  private PPMReader(InputStream in, String source) {
+    this.in = in;
+    this.source = source;
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    this.buffer.limit(0);
+  }
+
+  /**
+   * Constructs a {@code PPMReader} object which reads from the given buffer, which holds the whole
+   * file.
+   *
+   * @param buffer the bytes of the file, such as a mapping of it
+   * @param source the name of the file used in error messages
+   */
+  private PPMReader(ByteBuffer buffer, String source) {
+    this.in = null;
+    this.source = source;
+    this.buffer = buffer;
+  }
+
+  /**
+   * Reads the PPM image in the file with the given name. A large file is mapped into memory rather
+   * than copied through a stream.
+   *
+   * @param filename the path of the file
+   * @return the reader holding the dimensions and pixels of the image
+   * @throws IllegalArgumentException if the given filename is null, if the file is not found or
+   *                                  cannot be read, or if it is not a valid PPM file
+   */
+  public static PPMReader read(String filename) throws IllegalArgumentException {
+    if (filename == null) {
+      throw new IllegalArgumentException("No valid filename given.");
+    }
+
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      PPMReader reader;
+      if (channel.size() < MAP_THRESHOLD || channel.size() > Integer.MAX_VALUE) {
+        // too small to be worth mapping, or too large to be mapped as a single buffer
+        reader = new PPMReader(Channels.newInputStream(channel), filename);
+      } else {
+        reader = new PPMReader(channel.map(MapMode.READ_ONLY, 0, channel.size()), filename);
+      }
+      reader.readImage();
+      return reader;
+    } catch (NoSuchFileException | InvalidPathException e) {
+      throw new IllegalArgumentException("File " + filename + " not found!");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("File " + filename + " could not be read!");
+    }
+  }
+
+  /**
+   * Reads only the header of the PPM image in the file with the given name, which gives its
+   * format and dimensions without reading any pixel. The reader holds no pixels.
+   *
+   * @param filename the path of the file
+   * @return the reader holding the format and dimensions of the image
+   * @throws IllegalArgumentException if the given filename is null, if the file is not found or
+   *                                  cannot be read, or if its header is not a valid PPM header
+   */
+  public static PPMReader readHeader(String filename) throws IllegalArgumentException {
+    if (filename == null) {
+      throw new IllegalArgumentException("No valid filename given.");
+    }
+
+    try (InputStream in = Files.newInputStream(Paths.get(filename))) {
+      PPMReader reader = new PPMReader(in, filename);
+      reader.readHeader();
+      return reader;
+    } catch (NoSuchFileException | InvalidPathException e) {
+      throw new IllegalArgumentException("File " + filename + " not found!");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("File " + filename + " could not be read!");
+    }
+  }
+
+  /**
+   * Reads only the header of a PPM image from the given stream, which gives its format and
+   * dimensions without reading any pixel. The stream is not closed, and the reader holds no
+   * pixels.
+   *
+   * @param in     the stream to read the header from
+   * @param source the name of the stream used in error messages, such as its filename
+   * @return the reader holding the format and dimensions of the image
+   * @throws IllegalArgumentException if any argument is null, if the stream cannot be read, or if
+   *                                  it does not start with a valid PPM header
+   */
+  public static PPMReader readHeader(InputStream in, String source)
+      throws IllegalArgumentException {
+    if (in == null || source == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+
+    PPMReader reader = new PPMReader(in, source);
+    try {
+      reader.readHeader();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("File " + source + " could not be read!");
+    }
+    return reader;
+  }
+
+  /**
+   * Determines whether the file with the given name is a binary (P6) PPM file, based on its magic
+   * number.
+   *
+   * @param filename the path of the file
+   * @return true if the file exists and starts with P6
+   */
+  public static boolean isBinary(String filename) {
+    if (filename == null) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(2);
+      while (magic.hasRemaining() && channel.read(magic) >= 0) {
+        // keep reading until both bytes are read or the file ends
+      }
+      return magic.position() == 2 && magic.get(0) == 'P' && magic.get(1) == '6';
+    } catch (IOException | InvalidPathException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Reads a PPM image from the given stream. The stream is not closed.
+   *
+   * @param in     the stream to read the image from
+   * @param source the name of the stream used in error messages, such as its filename
+   * @return the reader holding the dimensions and pixels of the image
+   * @throws IllegalArgumentException if any argument is null, if the stream cannot be read, or if
+   *                                  it does not hold a valid PPM image
+   */
+  public static PPMReader read(InputStream in, String source) throws IllegalArgumentException {
+    if (in == null || source == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+
+    PPMReader reader = new PPMReader(in, source);
+    try {
+      reader.readImage();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("File " + source + " could not be read!");
+    }
+    return reader;
+  }
+
+  /**
+   * Determines whether the image that was read was stored in the binary (P6) format.
+   *
+   * @return true if the image was stored in the binary format
+   */
+  public boolean isBinary() {
+    return this.binary;
+  }
+
+  /**
+   * Gets the width of the image that was read.
+   *
+   * @return the width of the image
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the height of the image that was read.
+   *
+   * @return the height of the image
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the pixels of the image that was read, row by row, in which each pixel is represented as
+   * {@code 0xRRGGBB}. The array is not copied.
+   *
+   * @return the packed pixels of the image, or null if only the header was read
+   */
+  public int[] getPixels() {
+    return this.pixels;
+  }
+
+  /**
+   * Reads the header and every pixel of the image.
+   *
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if the stream does not hold a valid PPM image
+   */
+  private void readImage() throws IOException, IllegalArgumentException {
+    int maxValue = this.readHeader();
+    this.pixels = new int[this.width * this.height];
+    if (this.binary) {
+      this.readBinaryPixels(maxValue);
+      return;
+    }
+    for (int i = 0; i < this.pixels.length; i++) {
+      int red = this.readNumber("red value", maxValue);
+      int green = this.readNumber("green value", maxValue);
+      int blue = this.readNumber("blue value", maxValue);
+      if (maxValue != 255) {
+        red = scale(red, maxValue);
+        green = scale(green, maxValue);
+        blue = scale(blue, maxValue);
+      }
+      this.pixels[i] = (red << 16) | (green << 8) | blue;
+    }
+  }
+
+  /**
+   * Reads the header of the image, up to and including its maximum color value.
+   *
+   * @return the maximum color value of the image
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if the stream does not hold a valid PPM header
+   */
+  private int readHeader() throws IOException, IllegalArgumentException {
+    this.skipWhitespace();
+    this.markToken();
+    if (this.next() != 'P') {
+      throw this.malformed("PPM file should begin with P3 or P6");
+    }
+    int format = this.next();
+    if ((format != '3' && format != '6') || !this.isSeparator(this.peek())) {
+      throw this.malformed("PPM file should begin with P3 or P6");
+    }
+    this.binary = format == '6';
+
+    this.width = this.readNumber("width", Integer.MAX_VALUE);
+    this.height = this.readNumber("height", Integer.MAX_VALUE);
+    if (this.width == 0 || this.height == 0) {
+      throw this.malformed("the width and height must be positive");
+    }
+    if ((long) this.width * this.height > Integer.MAX_VALUE) {
+      throw this.malformed("the image is too large");
+    }
+    int maxValue = this.readNumber("maximum color value", 65535);
+    if (maxValue == 0) {
+      throw this.malformed("the maximum color value must be positive");
+    }
+    return maxValue;
+  }
+
+  /**
+   * Reads the pixels of a binary file, which follow the single whitespace byte after the maximum
+   * color value. Each value is one byte, or two bytes with the most significant first if the
+   * maximum color value is greater than 255.
+   *
+   * @param maxValue the maximum color value of the file
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if the file ends before every pixel is read or a value is
+   *                                  larger than the maximum color value
+   */
+  private void readBinaryPixels(int maxValue) throws IOException, IllegalArgumentException {
+    this.markToken();
+    int c = this.next();
+    if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+      throw this.malformed("expected a single whitespace before the pixels");
+    }
+
+    int bytesPerValue = maxValue > 255 ? 2 : 1;
+    byte[] row = new byte[this.width * 3 * bytesPerValue];
+    for (int i = 0; i < this.height; i++) {
+      if (!this.readFully(row)) {
+        throw new IllegalArgumentException("Invalid PPM file " + this.source + ": the file ended "
+            + "at row " + i + " of " + this.height + " rows of pixels.");
+      }
+      int offset = i * this.width;
+      if (bytesPerValue == 1 && maxValue == 255) {
+        for (int j = 0, k = 0; j < this.width; j++, k += 3) {
+          this.pixels[offset + j] =
+              ((row[k] & 0xFF) << 16) | ((row[k + 1] & 0xFF) << 8) | (row[k + 2] & 0xFF);
+        }
+        continue;
+      }
+      for (int j = 0; j < this.width; j++) {
+        int rgb = 0;
+        for (int channel = 0; channel < 3; channel++) {
+          int k = (j * 3 + channel) * bytesPerValue;
+          int value = bytesPerValue == 1 ? row[k] & 0xFF
+              : ((row[k] & 0xFF) << 8) | (row[k + 1] & 0xFF);
+          if (value > maxValue) {
+            throw new IllegalArgumentException("Invalid PPM file " + this.source + ": the value at "
+                + "row " + i + ", column " + j + " is larger than " + maxValue + ".");
+          }
+          rgb = (rgb << 8) | scale(value, maxValue);
+        }
+        this.pixels[offset + j] = rgb;
+      }
+    }
+  }
+
+  /**
+   * Reads exactly enough bytes to fill the given array.
+   *
+   * @param dest the array to fill
+   * @return false if the file ended before the array was filled
+   * @throws IOException if the stream cannot be read
+   */
+  private boolean readFully(byte[] dest) throws IOException {
+    int copied = 0;
+    while (copied < dest.length) {
+      if (!this.buffer.hasRemaining() && !this.refill()) {
+        return false;
+      }
+      int count = Math.min(dest.length - copied, this.buffer.remaining());
+      this.buffer.get(dest, copied, count);
+      copied += count;
+    }
+    return true;
+  }
+
+  /**
+   * Scales the given color value from between 0 and the given maximum to between 0 and 255,
+   * rounding to the nearest value.
+   *
+   * @param value    the color value
+   * @param maxValue the maximum color value of the file
+   * @return the scaled color value
+   */
+  private static int scale(int value, int maxValue) {
+    return (value * 255 + maxValue / 2) / maxValue;
+  }
+
+  /**
+   * Skips any whitespace and comments, then reads a non-negative decimal number.
+   *
+   * @param name     what the number is, used in error messages
+   * @param maxValue the largest value the number may have
+   * @return the number
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if the next token is missing, is not a number, or is larger
+   *                                  than the given maximum
+   */
+  private int readNumber(String name, int maxValue) throws IOException, IllegalArgumentException {
+    this.skipWhitespace();
+    this.markToken();
+    int c = this.peek();
+    if (c < 0) {
+      throw this.malformed("expected " + name + " but the file ended");
+    }
+
+    long value = 0;
+    do {
+      if (c < '0' || c > '9') {
+        throw this.malformed("expected " + name + " but found '" + (char) c + "'");
+      }
+      value = value * 10 + (c - '0');
+      if (value > maxValue) {
+        throw this.malformed(name + " is larger than " + maxValue);
+      }
+      this.next();
+      c = this.peek();
+    } while (!this.isSeparator(c));
+
+    return (int) value;
+  }
+
+  /**
+   * Skips any whitespace and comments before the next token.
+   *
+   * @throws IOException if the stream cannot be read
+   */
+  private void skipWhitespace() throws IOException {
+    int c = this.peek();
+    while (c >= 0) {
+      if (c == '#') {
+        while (c >= 0 && c != '\n' && c != '\r') {
+          this.next();
+          c = this.peek();
+        }
+      } else if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B) {
+        this.next();
+        c = this.peek();
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Determines whether the given byte ends a token.
+   *
+   * @param c the byte, or -1 at the end of the stream
+   * @return true if the byte is whitespace, starts a comment, or is the end of the stream
+   */
+  private boolean isSeparator(int c) {
+    return c < 0 || c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B
+        || c == '#';
+  }
+
+  /**
+   * Gets the next byte of the stream without consuming it.
+   *
+   * @return the next byte, or -1 at the end of the stream
+   * @throws IOException if the stream cannot be read
+   */
+  private int peek() throws IOException {
+    if (!this.buffer.hasRemaining() && !this.refill()) {
+      return -1;
+    }
+    return this.buffer.get(this.buffer.position()) & 0xFF;
+  }
+
+  /**
+   * Refills the buffer from the stream, if there is one.
+   *
+   * @return false if there are no more bytes to read
+   * @throws IOException if the stream cannot be read
+   */
+  private boolean refill() throws IOException {
+    if (this.in == null) {
+      return false;
+    }
+    this.buffer.clear();
+    int count = this.in.read(this.buffer.array(), 0, this.buffer.capacity());
+    this.buffer.limit(Math.max(count, 0));
+    return count > 0;
+  }
+
+  /**
+   * Consumes the next byte of the stream and keeps track of the line and column.
+   *
+   * @return the byte that was consumed, or -1 at the end of the stream
+   * @throws IOException if the stream cannot be read
+   */
+  private int next() throws IOException {
+    int c = this.peek();
+    if (c >= 0) {
+      this.buffer.position(this.buffer.position() + 1);
+      if (c == '\n') {
+        this.line++;
+        this.column = 1;
+      } else {
+        this.column++;
+      }
+    }
+    return c;
+  }
+
+  /**
+   * Remembers the current position as the start of a token, for error messages.
+   */
+  private void markToken() {
+    this.tokenLine = this.line;
+    this.tokenColumn = this.column;
+  }
+
+  /**
+   * Creates the exception for a malformed file at the start of the last token.
+   *
+   * @param message what is wrong with the file
+   * @return the exception to throw
+   */
+  private IllegalArgumentException malformed(String message) {
+    return new IllegalArgumentException("Invalid PPM file " + this.source + " at line "
+        + this.tokenLine + ", column " + this.tokenColumn + ": " + message + ".");
+  }
+}
@@ -0,0 +1,188 @@
+package utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import model.image.IImage;
+import model.image.Image;
+
+/**
+ * This class contains utility methods to convert between images and {@link BufferedImage}s by
+ * copying the array behind the raster of a buffered image in bulk, rather than going through its
+ * color model one pixel at a time with {@code getRGB} and {@code setRGB}.
+ *
+ * <p>Buffered images of type {@code TYPE_INT_RGB} and {@code TYPE_INT_ARGB} are backed by an
+ * {@code int[]} with the same {@code 0xRRGGBB} layout as an image, so they are converted with a
+ * single array copy. Buffered images of type {@code TYPE_3BYTE_BGR} and {@code TYPE_4BYTE_ABGR},
+ * which is what PNG and JPEG files are usually read as, are converted with one pass over their
+ * {@code byte[]}. Any other buffered image is converted through its color model, with a single call
+ * for all of its pixels. Alpha is always dropped.
+ */
+public final class RasterUtils {
+
+  /**
+   * Prevents this utility class from being instantiated.
+   */
+  private RasterUtils() {
+  }
+
+  /**
+   * Converts the given buffered image to an image with the given filename.
+   *
+   * @param bufferedImage the buffered image to convert
+   * @param filename      the filename of the image
+   * @return the image with the pixels of the buffered image
+   * @throws IllegalArgumentException if any argument is null
+   */
+  public static IImage toImage(BufferedImage bufferedImage, String filename)
+      throws IllegalArgumentException {
+    if (bufferedImage == null || filename == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    return new Image(toPackedPixels(bufferedImage), bufferedImage.getWidth(),
+        bufferedImage.getHeight(), filename);
+  }
+
+  /**
+   * Gets the pixels of the given buffered image, row by row, in which each pixel is represented as
+   * {@code 0xRRGGBB}.
+   *
+   * @param bufferedImage the buffered image to read
+   * @return the packed pixels of the buffered image
+   * @throws IllegalArgumentException if the buffered image is null
+   */
+  public static int[] toPackedPixels(BufferedImage bufferedImage) throws IllegalArgumentException {
+    if (bufferedImage == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    int width = bufferedImage.getWidth();
+    int height = bufferedImage.getHeight();
+    int[] pixels = new int[width * height];
+    Raster raster = bufferedImage.getRaster();
+
+    switch (bufferedImage.getType()) {
+      case BufferedImage.TYPE_INT_RGB:
+      case BufferedImage.TYPE_INT_ARGB:
+        if (isUnpadded(raster, 1)) {
+          int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+          int offset = raster.getDataBuffer().getOffset();
+          for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = data[offset + i] & 0xFFFFFF;
+          }
+          return pixels;
+        }
+        break;
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+        int pixelStride = bufferedImage.getType() == BufferedImage.TYPE_3BYTE_BGR ? 3 : 4;
+        if (isUnpadded(raster, pixelStride)) {
+          byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+          int[] bandOffsets = ((ComponentSampleModel) raster.getSampleModel()).getBandOffsets();
+          int k = raster.getDataBuffer().getOffset();
+          int red = bandOffsets[0];
+          int green = bandOffsets[1];
+          int blue = bandOffsets[2];
+          for (int i = 0; i < pixels.length; i++, k += pixelStride) {
+            pixels[i] = ((data[k + red] & 0xFF) << 16) | ((data[k + green] & 0xFF) << 8)
+                | (data[k + blue] & 0xFF);
+          }
+          return pixels;
+        }
+        break;
+      default:
+        break;
+    }
+
+    bufferedImage.getRGB(0, 0, width, height, pixels, 0, width);
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] &= 0xFFFFFF;
+    }
+    return pixels;
+  }
+
+  /**
+   * Converts the given image to a buffered image of type {@code TYPE_INT_RGB} by copying its pixels
+   * straight into the array behind the raster.
+   *
+   * @param image the image to convert
+   * @return the buffered image with the pixels of the image
+   * @throws IllegalArgumentException if the image is null
+   */
+  public static BufferedImage toBufferedImage(IImage image) throws IllegalArgumentException {
+    return toBufferedImage(image, BufferedImage.TYPE_INT_RGB);
+  }
+
+  /**
+   * Converts the given image to a buffered image of the given type, which must be
+   * {@code TYPE_INT_RGB} or {@code TYPE_3BYTE_BGR}, by writing its pixels straight into the array
+   * behind the raster.
+   *
+   * @param image the image to convert
+   * @param type  the type of the buffered image
+   * @return the buffered image with the pixels of the image
+   * @throws IllegalArgumentException if the image is null or the type is not supported
+   */
+  public static BufferedImage toBufferedImage(IImage image, int type)
+      throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    BufferedImage bufferedImage = new BufferedImage(width, height, type);
+
+    switch (type) {
+      case BufferedImage.TYPE_INT_RGB:
+        image.getPixels(((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData());
+        break;
+      case BufferedImage.TYPE_3BYTE_BGR:
+        byte[] data = ((DataBufferByte) bufferedImage.getRaster().getDataBuffer()).getData();
+        int[] row = new int[width];
+        int k = 0;
+        for (int i = 0; i < height; i++) {
+          image.getRow(i, row);
+          for (int j = 0; j < width; j++) {
+            int rgb = row[j];
+            data[k++] = (byte) rgb;
+            data[k++] = (byte) (rgb >> 8);
+            data[k++] = (byte) (rgb >> 16);
+          }
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported image type: " + type);
+    }
+    return bufferedImage;
+  }
+
+  /**
+   * Determines whether the pixels of the given raster are stored one after the other, row by row,
+   * with the given number of array elements per pixel and nothing in between, as they are in a
+   * buffered image that is not a view of part of a larger one.
+   *
+   * @param raster      the raster to check
+   * @param pixelStride the number of array elements each pixel takes
+   * @return true if the array behind the raster can be read in order
+   */
+  private static boolean isUnpadded(Raster raster, int pixelStride) {
+    SampleModel model = raster.getSampleModel();
+    if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+        || raster.getDataBuffer().getNumBanks() != 1) {
+      return false;
+    }
+    if (model instanceof SinglePixelPackedSampleModel) {
+      return pixelStride == 1
+          && ((SinglePixelPackedSampleModel) model).getScanlineStride() == raster.getWidth();
+    }
+    if (model instanceof ComponentSampleModel) {
+      ComponentSampleModel components = (ComponentSampleModel) model;
+      return components.getPixelStride() == pixelStride
+          && components.getScanlineStride() == raster.getWidth() * pixelStride;
+    }
+    return false;
+  }
+}
@@ -15,4 +15,12 @@ public interface IImageProcessingView {
    * @throws IOException if transmission to the provided data destination fails
    */
   void renderMessage(String message) throws IOException;
+
+  /**
+   * Render the layers of the model, one line each, followed by the number of layers and the
+   * current layer, to the provided data destination.
+   *
+   * @throws IOException if transmission to the provided data destination fails
+   */
+  void renderLayerState() throws IOException;
 }
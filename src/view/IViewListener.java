@@ -104,6 +104,18 @@ public interface IViewListener {
    */
   void handleMakeLayerVisibleEvent();
 
+  /**
+   * Handles the user interaction (choosing undo in the menu) by undoing the most recent operation
+   * on the layers.
+   */
+  void handleUndoEvent();
+
+  /**
+   * Handles the user interaction (choosing redo in the menu) by redoing the most recently undone
+   * operation on the layers.
+   */
+  void handleRedoEvent();
+
   /**
    * Handles the user interaction (pressing the downscale button) by downscaling the image to be the
    * size of the given width and height.
@@ -119,8 +131,10 @@ public interface IViewListener {
    * be created.
    *
    * @param numSeeds the given number of random seeds to be created
+   * @param jittered whether the seeds are placed one in each cell of a grid, which gives pieces of
+   *                 a more even size, rather than at random pixels
    */
-  void handleMosaicEvent(int numSeeds);
+  void handleMosaicEvent(int numSeeds, boolean jittered);
 
   /**
    * Handles the user interaction (working with and pressing the create checkerboard button) by
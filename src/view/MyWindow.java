@@ -11,6 +11,7 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
@@ -20,6 +21,7 @@ import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JColorChooser;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
@@ -33,11 +35,13 @@ import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import model.ILayerModelState;
 import model.image.IImage;
-import model.image.IPixel;
 import model.layer.ILayer;
+import utils.RasterUtils;
 
 /**
  * Represents the window that displays the graphical representation of the image processing
@@ -69,6 +73,7 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
   private final JTextField heightField;
   private final JButton mosaicButton;
   private final JTextField numSeedsField;
+  private final JCheckBox jitteredBox;
 
   // Image Operations Menu
   private final JMenuItem blurMenuItem;
@@ -80,6 +85,8 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
   private final JTextField widthFieldC;
   private final JTextField heightFieldC;
   private final JMenuItem mosaicMenuItem;
+  private final JMenuItem undoMenuItem;
+  private final JMenuItem redoMenuItem;
 
   // Layer Functions
   private final JTextField layerNameField;
@@ -132,6 +139,10 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
   //Topmost visible layer Panel
   private JPanel topMostImagePanel;
   private JScrollPane scroller;
+  // The image last shown in the image panel and its buffered image, which is shown again as long as
+  // the model returns the same image
+  private IImage shownImage;
+  private BufferedImage shownBufferedImage;
 
   private final List<IViewListener> listeners;
   private final ILayerModelState model;
@@ -165,6 +176,8 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
     sepiaMenuItem = new JMenuItem("Sepia");
     grayscaleMenuItem = new JMenuItem("Grayscale");
     mosaicMenuItem = new JMenuItem("Mosaic (Enter # Seeds)");
+    undoMenuItem = new JMenuItem("Undo");
+    redoMenuItem = new JMenuItem("Redo");
     downscaleMenuItem = new JMenuItem("Downscale");
     widthFieldC = new JTextField(5);
     heightFieldC = new JTextField(5);
@@ -178,6 +191,7 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
     sepiaButton = new JButton("Sepia");
     grayscaleButton = new JButton("Grayscale");
     numSeedsField = new JTextField(3);
+    jitteredBox = new JCheckBox("Even pieces");
     mosaicButton = new JButton("Mosaic (Enter # Seeds)");
     widthField = new JTextField(3);
     heightField = new JTextField(3);
@@ -308,6 +322,11 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
     imageOperMenu.add(downscaleMenuItem);
     mosaicMenuItem.setMnemonic(KeyEvent.VK_F);
     imageOperMenu.add(mosaicMenuItem);
+    imageOperMenu.addSeparator();
+    undoMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+    imageOperMenu.add(undoMenuItem);
+    redoMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+    imageOperMenu.add(redoMenuItem);
 
     createLayerMenuItem.setMnemonic(KeyEvent.VK_F);
     layerMenu.add(createLayerMenuItem);
@@ -348,6 +367,10 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
     mosaicMenuItem.addActionListener(this);
     downscaleMenuItem.setActionCommand("downscaleMenu");
     downscaleMenuItem.addActionListener(this);
+    undoMenuItem.setActionCommand("undo");
+    undoMenuItem.addActionListener(this);
+    redoMenuItem.setActionCommand("redo");
+    redoMenuItem.addActionListener(this);
   }
 
   /**
@@ -430,6 +453,7 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
     mosaicPanel.setLayout(new FlowLayout());
     mosaicPanel.setBackground(new Color(198, 229, 234));
     mosaicPanel.add(numSeedsField);
+    mosaicPanel.add(jitteredBox);
     mosaicButton.setActionCommand("mosaic");
     mosaicButton.addActionListener(this);
     mosaicButton.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -514,21 +538,12 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
    * @return a buffered image.
    */
   private BufferedImage getImageToBufferedImg(IImage image) {
-    BufferedImage bi = new BufferedImage(image.getWidth(), image.getHeight(),
-        BufferedImage.TYPE_INT_RGB);
-    IPixel[][] pixels = image.getImage();
-    for (int i = 0; i < image.getHeight(); i++) {
-      for (int j = 0; j < image.getWidth(); j++) {
-        IPixel pix = pixels[i][j];
-        int red = pix.getRed();
-        int green = pix.getGreen();
-        int blue = pix.getBlue();
-
-        int rgb = (red << 16) | (green << 8) | blue;
-        bi.setRGB(j, i, rgb);
-      }
+    // images cannot be changed, so the same image always converts to the same buffered image
+    if (image != this.shownImage) {
+      this.shownBufferedImage = RasterUtils.toBufferedImage(image);
+      this.shownImage = image;
     }
-    return bi;
+    return this.shownBufferedImage;
   }
 
   /**
@@ -872,7 +887,7 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
         reset();
         break;
       case "mosaic":
-        this.emitMosaicEvent(Integer.parseInt(numSeedsField.getText()));
+        this.emitMosaicEvent(Integer.parseInt(numSeedsField.getText()), jitteredBox.isSelected());
         reset();
         break;
       case "mosaicMenu":
@@ -880,7 +895,8 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
             "Number of Seeds:", null);
         if (seeds != null) {
           numSeedsField.setText(seeds); // Set the seeds field to input
-          this.emitMosaicEvent(Integer.parseInt(numSeedsField.getText()));
+          this.emitMosaicEvent(Integer.parseInt(numSeedsField.getText()),
+              jitteredBox.isSelected());
         }
         reset();
         break;
@@ -896,6 +912,16 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
         resetScroller();
         reset();
         break;
+      case "undo":
+        this.emitUndoEvent();
+        resetScroller();
+        reset();
+        break;
+      case "redo":
+        this.emitRedoEvent();
+        resetScroller();
+        reset();
+        break;
       case "visible":
         this.emitMakeLayerVisibleEvent();
         resetScroller();
@@ -1061,7 +1087,12 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
     if (message == null) {
       throw new IllegalArgumentException("Message cannot be null!");
     }
-    showMessageDialog(null, message);
+    // messages about work finished in the background can come from other threads
+    if (SwingUtilities.isEventDispatchThread()) {
+      showMessageDialog(null, message);
+    } else {
+      SwingUtilities.invokeLater(() -> showMessageDialog(null, message));
+    }
   }
 
   /**
@@ -1205,6 +1236,24 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
     }
   }
 
+  /**
+   * Emits the undo event to the listeners in the listeners field.
+   */
+  protected void emitUndoEvent() {
+    for (IViewListener listener : listeners) {
+      listener.handleUndoEvent();
+    }
+  }
+
+  /**
+   * Emits the redo event to the listeners in the listeners field.
+   */
+  protected void emitRedoEvent() {
+    for (IViewListener listener : listeners) {
+      listener.handleRedoEvent();
+    }
+  }
+
   /**
    * Emits the downscale event to the listeners in the listeners field.
    *
@@ -1221,10 +1270,11 @@ public class MyWindow extends JFrame implements IGUIView, ActionListener {
    * Emits the mosaic event to the listeners in the listeners field.
    *
    * @param numSeeds the number of random seeds to use for the mosaic
+   * @param jittered whether the seeds are placed one in each cell of a grid
    */
-  protected void emitMosaicEvent(int numSeeds) {
+  protected void emitMosaicEvent(int numSeeds, boolean jittered) {
     for (IViewListener listener : listeners) {
-      listener.handleMosaicEvent(numSeeds);
+      listener.handleMosaicEvent(numSeeds, jittered);
     }
   }
 
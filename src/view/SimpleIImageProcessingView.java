@@ -1,7 +1,9 @@
 package view;
 
 import java.io.IOException;
+import java.util.List;
 import model.ILayerModelState;
+import model.layer.LayerMetadata;
 
 /**
  * Represents the text view for an image processing model which displays the interface to the user
@@ -50,4 +52,27 @@ public class SimpleIImageProcessingView implements IImageProcessingView {
   public void renderMessage(String message) throws IOException {
     out.append(message);
   }
+
+  /**
+   * Renders the layers from their metadata, so that no layer is copied and no pixel is read no
+   * matter how often the state is rendered.
+   *
+   * @throws IOException if transmission to the provided data destination fails
+   */
+  @Override
+  public void renderLayerState() throws IOException {
+    List<LayerMetadata> layers = this.model.getLayerMetadata();
+    StringBuilder state = new StringBuilder();
+    for (int i = 0; i < layers.size(); i++) {
+      state.append("Layer #").append(i + 1).append(", ").append(layers.get(i)).append("\n");
+    }
+    state.append("Number of valid layers created: ").append(layers.size()).append("\n");
+    int current = this.model.getCurrentLayerIndex();
+    if (current == -1) {
+      state.append("Current not yet set.\n");
+    } else {
+      state.append("Current Layer: ").append(layers.get(current)).append("\n");
+    }
+    out.append(state);
+  }
 }
@@ -4,8 +4,11 @@ import static org.junit.Assert.assertNotEquals;
 
 import model.IModel;
 import model.Model;
+import model.filter.AFilter;
 import model.filter.Blur;
+import model.filter.ConvolutionEngine;
 import model.filter.IFilter;
+import model.filter.PixelPipeline;
 import model.filter.Sharpening;
 import model.filter.UserFilter;
 import model.creator.CheckboardImageCreator;
@@ -14,8 +17,17 @@ import model.image.IImage;
 import model.image.IPixel;
 import model.image.Image;
 import model.image.Pixel;
+import java.io.File;
+import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import model.color.ColorTransformationChain;
 import model.color.Grayscale;
 import model.color.IColorTransformation;
 import model.color.Sepia;
@@ -23,6 +35,7 @@ import model.color.UserColorTransformation;
 import model.exports.FailingWriter;
 import model.exports.IExport;
 import model.exports.PPMExport;
+import model.exports.PPMExportFilename;
 import model.layer.LayerModel;
 import org.junit.Before;
 import org.junit.Test;
@@ -944,6 +957,347 @@ public abstract class AbstractModelTest {
             new Pixel(2, 3, 0, 0, 0)}}, negativeSampleImage.getImage());
   }
 
+  @Test
+  public void testParallelFilterSameAsSequential() {
+    Random rand = new Random(7);
+    int[] pixels = new int[97 * 61];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = rand.nextInt(0x1000000);
+    }
+    IImage img = new Image(pixels, 97, 61, "Random");
+
+    AFilter[] sequential = {new Blur(), new Sharpening(),
+        new UserFilter(new double[][]{{0.3, -0.2, 0.1}, {0.5, 0.9, -0.4}, {0.1, 0.2, 0.3}})};
+    AFilter[] parallel = {new Blur(), new Sharpening(),
+        new UserFilter(new double[][]{{0.3, -0.2, 0.1}, {0.5, 0.9, -0.4}, {0.1, 0.2, 0.3}})};
+    for (int i = 0; i < sequential.length; i++) {
+      sequential[i].setEngine(new ConvolutionEngine(1));
+      parallel[i].setEngine(new ConvolutionEngine(4));
+      assertEquals(model.filter(img, sequential[i]), model.filter(img, parallel[i]));
+    }
+  }
+
+  @Test
+  public void testSeparableKernelDetection() {
+    assertEquals(true, new Blur().isSeparable());
+    assertEquals(false, new Sharpening().isSeparable());
+    assertEquals(true, new UserFilter(new double[][]{{1, 2, 3}, {2, 4, 6}, {-1, -2, -3}})
+        .isSeparable());
+    assertEquals(false, new UserFilter(new double[][]{{1, 2, 3}, {2, 4, 6}, {1, 2, 4}})
+        .isSeparable());
+  }
+
+  @Test
+  public void testSeparableKernelAppliedInTwoPasses() {
+    double[] factors = {0.0625, 0.25, 0.375, 0.25, 0.0625};
+    double[][] kernel = new double[5][5];
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 5; j++) {
+        kernel[i][j] = factors[i] * factors[j];
+      }
+    }
+    int[] pixels = new int[25];
+    java.util.Arrays.fill(pixels, 0xA0A0A0);
+    UserFilter filter = new UserFilter(kernel);
+    filter.setSeparablePasses(true);
+    IImage filtered = model.filter(new Image(pixels, 5, 5, "Gray"), filter);
+
+    // the corner only covers a 3x3 part of the kernel: 160 * 0.6875 * 0.6875 = 75.625
+    assertEquals(0x4B4B4B, filtered.getRGB(0, 0));
+    assertEquals(0xA0A0A0, filtered.getRGB(2, 2));
+  }
+
+  @Test
+  public void testSeparablePassesAreOptIn() {
+    double[][] box = new double[15][15];
+    for (double[] row : box) {
+      java.util.Arrays.fill(row, 1.0 / 225);
+    }
+    int[] pixels = new int[15 * 15];
+    java.util.Arrays.fill(pixels, 0xFFFFFF);
+    IImage white = new Image(pixels, 15, 15, "White");
+
+    // by default every tap of 255 / 225 = 1.13 is truncated into the running sum, adding 1
+    UserFilter direct = new UserFilter(box);
+    assertEquals(true, direct.isSeparable());
+    assertEquals(0xE1E1E1, model.filter(white, direct).getRGB(7, 7));
+    assertEquals(0x404040, model.filter(white, direct).getRGB(0, 0));
+
+    // the passes add up 254.99999... at the center and 255 * 64 / 225 = 72.53 at the corner, and
+    // truncate them once
+    UserFilter passes = new UserFilter(box);
+    passes.setSeparablePasses(true);
+    assertEquals(0xFEFEFE, model.filter(white, passes).getRGB(7, 7));
+    assertEquals(0x484848, model.filter(white, passes).getRGB(0, 0));
+
+    // a 3x3 blur is applied in passes too once they are set, and its sums are exact
+    IImage smallWhite = new Image(java.util.Arrays.copyOf(pixels, 9), 3, 3, "White");
+    Blur blur = new Blur();
+    assertEquals(0xF7F7F7, model.filter(smallWhite, blur).getRGB(1, 1));
+    blur.setSeparablePasses(true);
+    assertEquals(0xFFFFFF, model.filter(smallWhite, blur).getRGB(1, 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    new ConvolutionEngine(0);
+  }
+
+  @Test
+  public void testReplacedDefaultEngineStillRunsEveryRow() {
+    int parallelism = ConvolutionEngine.getDefault().getParallelism();
+    // an engine of two threads has a pool of its own, which is shut down once it is replaced
+    ConvolutionEngine.setDefaultParallelism(2);
+    ConvolutionEngine replaced = ConvolutionEngine.getDefault();
+    ConvolutionEngine.setDefaultParallelism(3);
+    try {
+      boolean[] visited = new boolean[100];
+      replaced.forEachRowBand(visited.length, (startRow, endRow) -> {
+        for (int i = startRow; i < endRow; i++) {
+          visited[i] = true;
+        }
+      });
+      for (boolean row : visited) {
+        assertEquals(true, row);
+      }
+    } finally {
+      ConvolutionEngine.setDefaultParallelism(parallelism);
+    }
+  }
+
+  @Test
+  public void testPPMExportMatchesPixelByPixelFormat() throws IOException {
+    Random rand = new Random(8);
+    int[] pixels = new int[300 * 200];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = rand.nextInt(0x1000000);
+    }
+    IImage img = new Image(pixels, 300, 200, "Random");
+    StringBuilder expected = new StringBuilder("P3 300 200 255\n");
+    for (int pixel : pixels) {
+      expected.append((pixel >> 16) & 0xFF).append(" ").append((pixel >> 8) & 0xFF).append(" ")
+          .append(pixel & 0xFF).append(" ");
+    }
+
+    Writer writer = new StringWriter();
+    new PPMExport(img, writer).export();
+    assertEquals(expected.toString(), writer.toString());
+
+    File file = File.createTempFile("export", ".ppm");
+    file.deleteOnExit();
+    String name = file.getPath().substring(0, file.getPath().length() - 4);
+    new PPMExportFilename(img, name).export();
+    assertEquals(expected.toString(),
+        new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testPPMExportSampleImage() throws IOException {
+    this.exportSampleImage.export();
+    String row = "100 50 80 50 200 10 100 40 240 90 88 120 ";
+    assertEquals("P3 4 3 255\n" + row + row + row, this.stringWriterSampleImage.toString());
+  }
+
+  @Test(expected = IOException.class)
+  public void testPPMExportFailingWriter() throws IOException {
+    this.exportWithFailingWriter.export();
+  }
+
+  @Test
+  public void testColorTransformationTablesMatchMatrixMultiplication() {
+    Random rand = new Random(11);
+    int[] pixels = new int[4096];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = rand.nextInt(0x1000000);
+    }
+    IImage img = new Image(pixels, 64, 64, "Random");
+    double[][][] matrices = {{{.393, .769, .189}, {.349, .686, .168}, {.272, .534, .131}},
+        {{.2126, .7512, .0722}, {.2126, .7512, .0722}, {.2126, .7512, .0722}},
+        {{-0.3, 1.7, 0.2}, {0.9, -0.45, 0.61}, {1.3, 0.01, -2.5}}};
+
+    for (double[][] matrix : matrices) {
+      IImage transformed = model.colorTransformation(img, new UserColorTransformation(matrix));
+      for (int i = 0; i < pixels.length; i++) {
+        int[] rgb = {(pixels[i] >> 16) & 0xFF, (pixels[i] >> 8) & 0xFF, pixels[i] & 0xFF};
+        int expected = 0;
+        for (int row = 0; row < 3; row++) {
+          int result = 0;
+          for (int col = 0; col < 3; col++) {
+            result += matrix[row][col] * rgb[col];
+          }
+          expected = (expected << 8) | Math.max(0, Math.min(255, result));
+        }
+        assertEquals(expected, transformed.getRGB(i / 64, i % 64));
+      }
+    }
+  }
+
+  @Test
+  public void testColorTransformationChainMatchesSequentialApplication() {
+    Random rand = new Random(5);
+    int[] pixels = new int[1024];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = rand.nextInt(0x1000000);
+    }
+    IImage img = new Image(pixels, 32, 32, "Random");
+    IColorTransformation user = new UserColorTransformation(
+        new double[][]{{0.5, 0.6, -0.1}, {0.2, 1.1, 0}, {0, -0.3, 1.4}});
+    List<IColorTransformation> transformations = Arrays
+        .asList(new Sepia(), user, new Grayscale(), new Sepia());
+
+    IImage expected = img;
+    for (IColorTransformation transformation : transformations) {
+      expected = transformation.apply(expected);
+    }
+    assertEquals(expected, new ColorTransformationChain(transformations, false).apply(img));
+  }
+
+  @Test
+  public void testColorTransformationChainApproximateUsesMatrixProduct() {
+    IColorTransformation chain = new ColorTransformationChain(
+        Arrays.asList(new Sepia(), new Grayscale()), true);
+    double[][] product = new double[3][3];
+    double[] grayscale = {.2126, .7512, .0722};
+    double[][] sepia = {{.393, .769, .189}, {.349, .686, .168}, {.272, .534, .131}};
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        for (int k = 0; k < 3; k++) {
+          product[i][j] += grayscale[k] * sepia[k][j];
+        }
+      }
+    }
+    IImage gray = new Image(new int[]{0xC8C8C8, 0x102030}, 2, 1, "Gray");
+
+    assertEquals(new UserColorTransformation(product).apply(gray), chain.apply(gray));
+    // sepia clamps the red of the light gray pixel before grayscale, the product does not
+    assertEquals(0xF6F6F6, new Grayscale().apply(new Sepia().apply(gray)).getRGB(0, 0));
+    assertEquals(0xFBFBFB, chain.apply(gray).getRGB(0, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testColorTransformationChainEmpty() {
+    new ColorTransformationChain(new ArrayList<>(), false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testColorTransformationChainNullTransformation() {
+    new ColorTransformationChain(Arrays.asList(new Sepia(), null), false);
+  }
+
+  @Test
+  public void testPixelPipelineMatchesSequentialApplication() {
+    Random rand = new Random(6);
+    double[] factors = {0.0625, 0.25, 0.375, 0.25, 0.0625};
+    double[][] separable = new double[5][5];
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 5; j++) {
+        separable[i][j] = factors[i] * factors[j];
+      }
+    }
+    // heights around the tile size, so that tiles and their extra rows reach both edges
+    for (int height : new int[]{1, 3, 31, 32, 33, 100}) {
+      int[] pixels = new int[45 * height];
+      for (int i = 0; i < pixels.length; i++) {
+        pixels[i] = rand.nextInt(0x1000000);
+      }
+      IImage img = new Image(pixels, 45, height, "Random");
+      List<Object> stages = Arrays.asList(new Blur(), new Sepia(), new Sharpening(),
+          new UserFilter(separable), new Grayscale(), new Blur(),
+          new ColorTransformationChain(Arrays.asList(new Sepia(), new Grayscale()), true),
+          new Sharpening());
+
+      IImage expected = img;
+      PixelPipeline pipeline = new PixelPipeline();
+      for (Object stage : stages) {
+        if (stage instanceof IFilter) {
+          expected = ((IFilter) stage).apply(expected);
+          pipeline.addFilter((IFilter) stage);
+        } else {
+          expected = ((IColorTransformation) stage).apply(expected);
+          pipeline.addColorTransformation((IColorTransformation) stage);
+        }
+      }
+      assertEquals(stages.size(), pipeline.getNumStages());
+      assertEquals(expected, model.filter(img, pipeline));
+      assertEquals("Random", model.filter(img, pipeline).getFilename());
+    }
+  }
+
+  @Test
+  public void testEmptyPixelPipeline() {
+    IImage img = new Image(new int[]{0x102030, 0x405060}, 2, 1, "Two");
+    assertEquals(img, new PixelPipeline().apply(img));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPixelPipelineNullFilter() {
+    new PixelPipeline().addFilter(null);
+  }
+
+  @Test
+  public void testUserColorTransformationCopiesMatrix() {
+    double[][] matrix = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
+    IColorTransformation identity = new UserColorTransformation(matrix);
+    matrix[0][0] = 0;
+    assertEquals(this.sampleImage, model.colorTransformation(this.sampleImage, identity));
+  }
+
+  //Tests for the packed image representation
+  @Test
+  public void testPackedImageSameAsPixelGrid() {
+    IImage packed = new Image(new int[]{0x643250, 0x32C80A}, 2, 1, "OneByTwoGrid");
+    assertEquals(this.sampleImage1By2, packed);
+    assertArrayEquals(this.sampleImageGrid1By2, packed.getImage());
+  }
+
+  @Test
+  public void testGetRGB() {
+    assertEquals(0x643250, this.sampleImage.getRGB(0, 0));
+    assertEquals(0x6428F0, this.sampleImage.getRGB(1, 2));
+    assertEquals(0x5A5878, this.sampleImage.getRGB(2, 3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetRGBOutOfBounds() {
+    this.sampleImage.getRGB(3, 0);
+  }
+
+  @Test
+  public void testGetRowAndPixels() {
+    int[] row = this.sampleImage.getRow(1, new int[5]);
+    assertArrayEquals(new int[]{0x643250, 0x32C80A, 0x6428F0, 0x5A5878, 0}, row);
+    int[] pixels = this.sampleImage1By2.getPixels(new int[2]);
+    assertArrayEquals(new int[]{0x643250, 0x32C80A}, pixels);
+  }
+
+  @Test
+  public void testChangingReadBuffersDoesNotAlterImage() {
+    int[] pixels = this.sampleImage1By2.getPixels(new int[2]);
+    pixels[0] = 0;
+    this.sampleImage1By2.getRow(0, new int[2])[1] = 0;
+    assertArrayEquals(this.sampleImageGrid1By2, this.sampleImage1By2.getImage());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetRowBufferTooSmall() {
+    this.sampleImage.getRow(0, new int[3]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetPixelsNullBuffer() {
+    this.sampleImage.getPixels(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPackedImageWrongNumberOfPixels() {
+    new Image(new int[]{0, 0, 0}, 2, 2, "Wrong");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPackedImageInvalidColor() {
+    new Image(new int[]{0x1000000}, 1, 1, "Wrong");
+  }
+
   /**
    * Constructs an instance of the class under test representing the Image Processing Model.
    *
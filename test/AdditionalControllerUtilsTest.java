@@ -1,7 +1,9 @@
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import controller.IPhotoCommands;
+import java.nio.CharBuffer;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.function.Function;
@@ -43,4 +45,92 @@ public class AdditionalControllerUtilsTest {
     assertFalse(knownCommands.containsKey("colorTransform"));
   }
 
+  @Test
+  public void testMosaicDoesNotWaitForAnotherLine() {
+    for (String line : new String[]{"3\n", "3 42\n", "3 42 jittered\n"}) {
+      TypedLines typed = new TypedLines(line);
+      Scanner scanner = new Scanner(typed);
+      ControllerUtils.readMosaicCommand(scanner);
+
+      assertFalse(line, typed.isWaiting());
+    }
+  }
+
+  @Test
+  public void testMosaicSeedOnlyReadFromSameLine() {
+    Scanner sameLine = new Scanner("3 42\nblur");
+    ControllerUtils.readMosaicCommand(sameLine);
+    assertEquals("blur", sameLine.next());
+
+    Scanner nextLine = new Scanner("3\n42");
+    ControllerUtils.readMosaicCommand(nextLine);
+    assertEquals("42", nextLine.next());
+
+    Scanner strategyOnNextLine = new Scanner("3 42\njittered");
+    ControllerUtils.readMosaicCommand(strategyOnNextLine);
+    assertEquals("jittered", strategyOnNextLine.next());
+  }
+
+  @Test
+  public void testPPMFormatDoesNotWaitForAnotherLine() {
+    TypedLines typed = new TypedLines("out.ppm\n");
+    Scanner scanner = new Scanner(typed);
+    scanner.next();
+
+    assertFalse(ControllerUtils.hasPPMFormat(scanner));
+    assertFalse(typed.isWaiting());
+  }
+
+  @Test
+  public void testPPMFormatOnlyReadFromSameLine() {
+    Scanner sameLine = new Scanner("p6\nblur");
+    assertTrue(ControllerUtils.readPPMFormat(sameLine));
+    assertEquals("blur", sameLine.next());
+
+    Scanner nextLine = new Scanner("out.ppm\np6");
+    nextLine.next();
+    assertFalse(ControllerUtils.hasPPMFormat(nextLine));
+    assertEquals("p6", nextLine.next());
+  }
+
+  /**
+   * A readable that gives the lines a user has typed so far, and records whether it was asked for
+   * more, which a user would have to type before the program could carry on.
+   */
+  private static final class TypedLines implements Readable {
+
+    private final String typed;
+    private boolean given;
+    private boolean waiting;
+
+    /**
+     * Constructs a {@code TypedLines} object with the given lines.
+     *
+     * @param typed the lines typed so far
+     */
+    private TypedLines(String typed) {
+      this.typed = typed;
+    }
+
+    @Override
+    public int read(CharBuffer cb) {
+      if (this.given) {
+        this.waiting = true;
+        return -1;
+      }
+      this.given = true;
+      cb.append(this.typed);
+      return this.typed.length();
+    }
+
+    /**
+     * Determines whether more than the typed lines were asked for.
+     *
+     * @return true if the readable was read past the typed lines
+     */
+    private boolean isWaiting() {
+      return this.waiting;
+    }
+  }
+
 }
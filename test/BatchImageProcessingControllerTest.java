@@ -0,0 +1,170 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import controller.BatchImageProcessingController;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import model.color.Sepia;
+import model.filter.Blur;
+import model.image.IImage;
+import model.image.Image;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Represents the test class for {@code BatchImageProcessingController} to ensure that it runs the
+ * same script on every image in a directory as a script would run on each of them alone.
+ */
+public class BatchImageProcessingControllerTest {
+
+  private Path input;
+  private Path output;
+  private Path script;
+
+  @Before
+  public void initData() throws IOException {
+    this.input = Files.createTempDirectory("batch-in");
+    this.output = this.input.resolveSibling(this.input.getFileName() + "-out");
+    this.script = Files.createTempFile("batch", ".txt");
+    Files.copy(Paths.get("res/check.ppm"), this.input.resolve("first.ppm"));
+    Files.copy(Paths.get("res/Checkerboard.ppm"), this.input.resolve("second.ppm"));
+    Files.write(this.input.resolve("notes.txt"), "not an image".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @After
+  public void deleteFiles() {
+    for (Path directory : new Path[]{this.input, this.output}) {
+      File[] files = directory.toFile().listFiles();
+      if (files != null) {
+        for (File file : files) {
+          file.delete();
+        }
+      }
+      directory.toFile().delete();
+    }
+    this.script.toFile().delete();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorExceptionNullScript() {
+    new BatchImageProcessingController(null, this.input.toFile(), this.output.toFile(),
+        new StringBuilder());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorExceptionNullAppendable() {
+    new BatchImageProcessingController(this.script.toFile(), this.input.toFile(),
+        this.output.toFile(), null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeMemoryBudget() {
+    new BatchImageProcessingController(this.script.toFile(), this.input.toFile(),
+        this.output.toFile(), new StringBuilder()).setMemoryBudget(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeHistoryBudget() {
+    new BatchImageProcessingController(this.script.toFile(), this.input.toFile(),
+        this.output.toFile(), new StringBuilder()).setHistoryBudget(-1);
+  }
+
+  @Test
+  public void testBatchMatchesEachImageAlone() throws IOException {
+    List<String> summary = this.runBatch("blur create top sepia state current image sepia q",
+        Long.MAX_VALUE);
+
+    for (String name : new String[]{"first.ppm", "second.ppm"}) {
+      ILayerModel model = new LayerModel();
+      model.createImageLayer("image");
+      model.loadLayer(new Image(this.input.resolve(name).toString()));
+      model.filterCurrent(new Blur());
+      model.colorTransformCurrent(new Sepia());
+      model.colorTransformCurrent(new Sepia());
+      IImage expected = model.flatten();
+      IImage saved = new Image(this.output.resolve(name).toString());
+      assertArrayEquals(expected.getPixels(new int[expected.getWidth() * expected.getHeight()]),
+          saved.getPixels(new int[saved.getWidth() * saved.getHeight()]));
+    }
+    assertFalse(this.output.resolve("notes.txt").toFile().exists());
+    assertEquals(3, summary.size());
+    assertEquals("file,status,milliseconds,error", summary.get(0));
+    assertTrue(summary.get(1).startsWith("first.ppm,ok,"));
+    assertTrue(summary.get(2).startsWith("second.ppm,ok,"));
+  }
+
+  @Test
+  public void testBatchSummarizesFailures() throws IOException {
+    Files.write(this.input.resolve("broken.ppm"), "P3 2 2 255 1 2".getBytes(
+        StandardCharsets.US_ASCII));
+    StringBuilder log = new StringBuilder();
+    List<String> summary = this.runBatch("remove nothing q", Long.MAX_VALUE, log);
+
+    assertEquals(4, summary.size());
+    assertTrue(summary.get(1).startsWith("broken.ppm,failed,"));
+    assertTrue(summary.get(2).endsWith(",Invalid command! Try again! Layer does not exist!"));
+    assertTrue(log.toString().startsWith("Processed 3 images in "));
+    assertTrue(log.toString().contains(": 0 succeeded, 3 failed."));
+  }
+
+  @Test
+  public void testImageLargerThanMemoryBudget() throws IOException {
+    StringBuilder log = new StringBuilder();
+    this.runBatch("sharpen q", 1, log);
+
+    assertTrue(log.toString().contains(": 2 succeeded, 0 failed."));
+    assertTrue(this.output.resolve("second.ppm").toFile().exists());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testScriptWithoutQuit() throws IOException {
+    this.runBatch("blur", Long.MAX_VALUE);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingInputDirectory() throws IOException {
+    Files.write(this.script, "q".getBytes(StandardCharsets.UTF_8));
+    new BatchImageProcessingController(this.script.toFile(), new File("no/such/directory"),
+        this.output.toFile(), new StringBuilder()).processImage();
+  }
+
+  /**
+   * Runs the given script on every image of the input directory.
+   *
+   * @param text   the script
+   * @param budget the memory budget, in bytes
+   * @return the lines of the summary
+   * @throws IOException if the files of the test cannot be written or read
+   */
+  private List<String> runBatch(String text, long budget) throws IOException {
+    return this.runBatch(text, budget, new StringBuilder());
+  }
+
+  /**
+   * Runs the given script on every image of the input directory.
+   *
+   * @param text   the script
+   * @param budget the memory budget, in bytes
+   * @param log    where the totals are written
+   * @return the lines of the summary
+   * @throws IOException if the files of the test cannot be written or read
+   */
+  private List<String> runBatch(String text, long budget, Appendable log) throws IOException {
+    Files.write(this.script, text.getBytes(StandardCharsets.UTF_8));
+    BatchImageProcessingController controller = new BatchImageProcessingController(
+        this.script.toFile(), this.input.toFile(), this.output.toFile(), log);
+    controller.setMemoryBudget(budget);
+    controller.processImage();
+    return Files.readAllLines(this.output.resolve("batch-summary.csv"), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,95 @@
+import controller.BatchImageProcessingController;
+import controller.SimpleIImageProcessingController;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import model.layer.LayerModel;
+
+/**
+ * A benchmark that applies the same recipe to a directory of images, once by running a script per
+ * image the way {@code -script} does, and once through a {@link BatchImageProcessingController},
+ * which reads the script once and processes the images in parallel. Both run in this JVM, so the
+ * startup a separate JVM per image would also pay is not counted. Run it as
+ * {@code java BatchProcessingBenchmark [images] [size]}.
+ */
+public final class BatchProcessingBenchmark {
+
+  private static final int RUNS = 3;
+  private static final String RECIPE = "blur sharpen sepia";
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of images (default 200) and their width and height
+   *             (default 256)
+   * @throws IOException if the images cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    int numImages = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int size = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+    Path input = Files.createTempDirectory("benchmark-in");
+    Path output = Files.createTempDirectory("benchmark-out");
+    Path script = Files.createTempFile("benchmark", ".txt");
+    Files.write(script, (RECIPE + " q").getBytes(StandardCharsets.UTF_8));
+    Random random = new Random(23);
+    for (int i = 0; i < numImages; i++) {
+      writeImage(input.resolve(String.format("image%05d.ppm", i)), size, random);
+    }
+
+    long perScript = Long.MAX_VALUE;
+    long batch = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      for (File image : input.toFile().listFiles()) {
+        String commands = "create image load " + image.getPath() + " " + RECIPE + " saveflat "
+            + output.resolve(image.getName()) + " q";
+        StringBuilder out = new StringBuilder();
+        SimpleIImageProcessingController controller = new SimpleIImageProcessingController(
+            new LayerModel(), new StringReader(commands), out);
+        controller.setQuiet(true);
+        controller.processImage();
+      }
+      perScript = Math.min(perScript, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      new BatchImageProcessingController(script.toFile(), input.toFile(), output.toFile(),
+          new StringBuilder()).processImage();
+      batch = Math.min(batch, System.nanoTime() - start);
+    }
+
+    System.out.printf("%d images of %dx%d, %d processors, best of %d runs%n", numImages, size,
+        size, Runtime.getRuntime().availableProcessors(), RUNS);
+    System.out.printf("one script per image: %8.1f ms%n", perScript / 1e6);
+    System.out.printf("batch:                %8.1f ms%n", batch / 1e6);
+
+    for (Path directory : new Path[]{input, output}) {
+      for (File file : directory.toFile().listFiles()) {
+        file.delete();
+      }
+      directory.toFile().delete();
+    }
+    script.toFile().delete();
+  }
+
+  /**
+   * Writes a binary PPM image of random pixels.
+   *
+   * @param path   the file to write
+   * @param size   the width and height of the image
+   * @param random where the pixels come from
+   * @throws IOException if the file cannot be written
+   */
+  private static void writeImage(Path path, int size, Random random) throws IOException {
+    byte[] pixels = new byte[size * size * 3];
+    random.nextBytes(pixels);
+    try (OutputStream out = Files.newOutputStream(path)) {
+      out.write(("P6\n" + size + " " + size + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+      out.write(pixels);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+import java.util.Random;
+import model.color.AColorTransformation;
+import model.color.Grayscale;
+import model.color.Sepia;
+import model.color.UserColorTransformation;
+import model.image.IImage;
+import model.image.Image;
+
+/**
+ * A benchmark that compares the table-based color transformations with multiplying the 3x3 matrix
+ * for every pixel, as the transformations used to do, and checks that both produce the same image.
+ * Run it as {@code java ColorTransformationBenchmark [width] [height]}.
+ */
+public final class ColorTransformationBenchmark {
+
+  private static final int RUNS = 5;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the width and height of the transformed image (default 4000 x 3000)
+   */
+  public static void main(String[] args) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+    Random rand = new Random(42);
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = rand.nextInt(0x1000000);
+    }
+    IImage image = new Image(pixels, width, height, "benchmark");
+    System.out.printf("%d x %d image%n", width, height);
+
+    run("sepia", new Sepia(), new double[][]{
+        {.393, .769, .189}, {.349, .686, .168}, {.272, .534, .131}}, image);
+    run("grayscale", new Grayscale(), new double[][]{
+        {.2126, .7512, .0722}, {.2126, .7512, .0722}, {.2126, .7512, .0722}}, image);
+    double[][] user = {{-0.3, 1.7, 0.2}, {0.9, -0.45, 0.61}, {1.3, 0.01, -2.5}};
+    run("user", new UserColorTransformation(user), user, image);
+  }
+
+  /**
+   * Times the given transformation against multiplying its matrix for every pixel.
+   *
+   * @param name           the name of the transformation to print
+   * @param transformation the table-based transformation
+   * @param matrix         the matrix of the transformation
+   * @param image          the image to transform
+   */
+  private static void run(String name, AColorTransformation transformation, double[][] matrix,
+      IImage image) {
+    IImage tables = transformation.apply(image);
+    IImage multiplied = multiplyEachPixel(matrix, image);
+    if (!tables.equals(multiplied)) {
+      throw new IllegalStateException(name + ": the tables and the matrix disagree");
+    }
+
+    long bestTables = Long.MAX_VALUE;
+    long bestMultiplied = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      long start = System.nanoTime();
+      transformation.apply(image);
+      bestTables = Math.min(bestTables, System.nanoTime() - start);
+      start = System.nanoTime();
+      multiplyEachPixel(matrix, image);
+      bestMultiplied = Math.min(bestMultiplied, System.nanoTime() - start);
+    }
+    System.out.printf("%-10s matrix: %7.1f ms  tables: %7.1f ms  speedup %.2fx%n", name,
+        bestMultiplied / 1e6, bestTables / 1e6, (double) bestMultiplied / bestTables);
+  }
+
+  /**
+   * Applies the given matrix to every pixel of the given image the way color transformations did
+   * before they were compiled into tables.
+   *
+   * @param matrix the 3x3 matrix to apply
+   * @param image  the image to transform
+   * @return the transformed image
+   */
+  private static IImage multiplyEachPixel(double[][] matrix, IImage image) {
+    int[] pixels = image.getPixels(new int[image.getWidth() * image.getHeight()]);
+    for (int p = 0; p < pixels.length; p++) {
+      int[] rgb = {(pixels[p] >> 16) & 0xFF, (pixels[p] >> 8) & 0xFF, pixels[p] & 0xFF};
+      int[] result = new int[3];
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 3; j++) {
+          result[i] += matrix[i][j] * rgb[j];
+        }
+        result[i] = Math.max(0, Math.min(255, result[i]));
+      }
+      pixels[p] = (result[0] << 16) | (result[1] << 8) | result[2];
+    }
+    return new Image(pixels, image.getWidth(), image.getHeight(), image.getFilename());
+  }
+}
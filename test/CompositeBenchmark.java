@@ -0,0 +1,150 @@
+import java.util.Arrays;
+import java.util.Random;
+import model.filter.ConvolutionEngine;
+import model.image.IImage;
+import model.image.Image;
+import model.layer.BlendMode;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
+
+/**
+ * A benchmark that flattens a stack of 4K layers with every blend mode and a range of opacities. It
+ * compares {@link ILayerModel#flatten()} on one thread and on the default engine against
+ * compositing one pixel at a time through {@code getRGB}, choosing the blend mode for every pixel,
+ * and checks that they give the same image. Run it as
+ * {@code java CompositeBenchmark [layers] [width] [height]}.
+ */
+public final class CompositeBenchmark {
+
+  private static final int RUNS = 3;
+  // images cannot be changed, so the layers share a few of them to keep the heap small
+  private static final int DISTINCT_IMAGES = 4;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of layers (default 20) and the width and height of each
+   *             layer (default 3840 x 2160)
+   */
+  public static void main(String[] args) {
+    int numLayers = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    int width = args.length > 1 ? Integer.parseInt(args[1]) : 3840;
+    int height = args.length > 2 ? Integer.parseInt(args[2]) : 2160;
+    Random rand = new Random(42);
+    IImage[] images = new IImage[DISTINCT_IMAGES];
+    for (int i = 0; i < images.length; i++) {
+      int[] pixels = new int[width * height];
+      for (int k = 0; k < pixels.length; k++) {
+        pixels[k] = rand.nextInt(0x1000000);
+      }
+      images[i] = new Image(pixels, width, height, "layer" + i + ".ppm");
+    }
+
+    ILayerModel model = new LayerModel();
+    BlendMode[] modes = new BlendMode[numLayers];
+    int[] alphas = new int[numLayers];
+    for (int i = 0; i < numLayers; i++) {
+      model.createImageLayer("layer" + i);
+      model.setCurrent("layer" + i);
+      model.loadLayer(images[i % images.length]);
+      // only the bottom layer is opaque and normal, so every layer above it has to be blended
+      modes[i] = i == 0 ? BlendMode.NORMAL : BlendMode.values()[i % BlendMode.values().length];
+      double opacity = i == 0 ? 1 : 0.3 + 0.6 * (i % 4) / 3;
+      alphas[i] = (int) Math.round(opacity * 255);
+      model.setBlendMode("layer" + i, modes[i]);
+      model.setOpacity("layer" + i, opacity);
+    }
+
+    int parallelism = ConvolutionEngine.getDefault().getParallelism();
+    long bestNaive = Long.MAX_VALUE;
+    long bestSequential = Long.MAX_VALUE;
+    long bestParallel = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      int[] naive = compositePerPixel(images, modes, alphas, width, height);
+      bestNaive = Math.min(bestNaive, System.nanoTime() - start);
+
+      ConvolutionEngine.setDefaultParallelism(1);
+      // setting the opacity again makes the model flatten the layers again
+      model.setOpacity("layer0", 1);
+      start = System.nanoTime();
+      IImage sequential = model.flatten();
+      bestSequential = Math.min(bestSequential, System.nanoTime() - start);
+
+      ConvolutionEngine.setDefaultParallelism(parallelism);
+      model.setOpacity("layer0", 1);
+      start = System.nanoTime();
+      IImage parallel = model.flatten();
+      bestParallel = Math.min(bestParallel, System.nanoTime() - start);
+
+      int[] pixels = new int[width * height];
+      if (!Arrays.equals(naive, sequential.getPixels(pixels))
+          || !Arrays.equals(naive, parallel.getPixels(pixels))) {
+        throw new IllegalStateException("The flattened images are not identical");
+      }
+    }
+
+    System.out.printf("%d layers of %d x %d, %d threads%n", numLayers, width, height,
+        parallelism);
+    System.out.printf("per pixel, getRGB:      %8.1f ms%n", bestNaive / 1e6);
+    System.out.printf("flatten, 1 thread:      %8.1f ms%n", bestSequential / 1e6);
+    System.out.printf("flatten, %2d threads:    %8.1f ms%n", parallelism, bestParallel / 1e6);
+  }
+
+  /**
+   * Composites the given layers one pixel at a time, the way the layers would be flattened without
+   * a row buffer or a loop per blend mode.
+   *
+   * @param images the images of the layers, from the bottom up
+   * @param modes  the blend modes of the layers
+   * @param alphas the opacities of the layers, from 0 to 255
+   * @param width  the width of the images
+   * @param height the height of the images
+   * @return the packed pixels of the flattened image
+   */
+  private static int[] compositePerPixel(IImage[] images, BlendMode[] modes, int[] alphas,
+      int width, int height) {
+    int[] result = new int[width * height];
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int below = 0;
+        for (int i = 0; i < modes.length; i++) {
+          int above = images[i % images.length].getRGB(row, col);
+          int mixed = 0;
+          for (int shift = 16; shift >= 0; shift -= 8) {
+            int b = below >> shift & 0xFF;
+            int blended = blend(modes[i], b, above >> shift & 0xFF);
+            mixed |= Math.round((b * (255 - alphas[i]) + blended * alphas[i]) / 255f) << shift;
+          }
+          below = mixed;
+        }
+        result[row * width + col] = below;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Blends the given channel values with the given blend mode.
+   *
+   * @param mode the blend mode
+   * @param b    the value below
+   * @param t    the value of the layer
+   * @return the blended value
+   */
+  private static int blend(BlendMode mode, int b, int t) {
+    switch (mode) {
+      case NORMAL:
+        return t;
+      case MULTIPLY:
+        return Math.round(b * t / 255f);
+      case SCREEN:
+        return 255 - Math.round((255 - b) * (255 - t) / 255f);
+      case OVERLAY:
+        return b < 128 ? Math.round(2 * b * t / 255f)
+            : 255 - Math.round(2 * (255 - b) * (255 - t) / 255f);
+      default:
+        return Math.min(255, b + t);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+import java.util.Random;
+import model.filter.AFilter;
+import model.filter.Blur;
+import model.filter.ConvolutionEngine;
+import model.filter.Sharpening;
+import model.filter.UserFilter;
+import model.image.IImage;
+import model.image.Image;
+
+/**
+ * A benchmark that measures how much faster filters run as the parallelism of the
+ * {@link ConvolutionEngine} grows, and checks that every parallelism level produces the same image.
+ * Run it as {@code java ConvolutionBenchmark [width] [height]}.
+ */
+public final class ConvolutionBenchmark {
+
+  private static final int RUNS = 5;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the width and height of the filtered image (default 4000 x 3000)
+   */
+  public static void main(String[] args) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+    Random rand = new Random(42);
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = rand.nextInt(0x1000000);
+    }
+    IImage image = new Image(pixels, width, height, "benchmark");
+
+    run("blur", new Blur(), image);
+    run("sharpen", new Sharpening(), image);
+    UserFilter box = new UserFilter(boxKernel(15));
+    box.setSeparablePasses(true);
+    run("15x15 box blur (separable passes)", box, image);
+  }
+
+  /**
+   * Creates a square kernel of the given size in which every entry is the same and the entries
+   * add up to one.
+   *
+   * @param size the side of the kernel
+   * @return the kernel
+   */
+  private static double[][] boxKernel(int size) {
+    double[][] kernel = new double[size][size];
+    for (double[] row : kernel) {
+      java.util.Arrays.fill(row, 1.0 / (size * size));
+    }
+    return kernel;
+  }
+
+  /**
+   * Times the given filter on the given image at every parallelism from one up to the number of
+   * available processors, doubling each time.
+   *
+   * @param name   the name of the filter to print
+   * @param filter the filter to time
+   * @param image  the image to filter
+   */
+  private static void run(String name, AFilter filter, IImage image) {
+    System.out.printf("%s on %d x %d%n", name, image.getWidth(), image.getHeight());
+    int cores = Runtime.getRuntime().availableProcessors();
+    IImage expected = null;
+    double baseline = 0;
+
+    for (int parallelism = 1; ; parallelism = Math.min(parallelism * 2, cores)) {
+      filter.setEngine(new ConvolutionEngine(parallelism));
+      IImage result = filter.apply(image); // warm up
+      long best = Long.MAX_VALUE;
+      for (int i = 0; i < RUNS; i++) {
+        long start = System.nanoTime();
+        result = filter.apply(image);
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      double millis = best / 1e6;
+      if (expected == null) {
+        expected = result;
+        baseline = millis;
+      } else if (!expected.equals(result)) {
+        throw new IllegalStateException("Parallel result differs at parallelism " + parallelism);
+      }
+      System.out.printf("  threads %2d: %8.1f ms  speedup %.2fx%n", parallelism, millis,
+          baseline / millis);
+      if (parallelism == cores) {
+        break;
+      }
+    }
+  }
+}
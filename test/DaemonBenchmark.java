@@ -0,0 +1,121 @@
+import controller.ClientImageProcessingController;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A benchmark that runs the same small job many times: once by starting a new JVM with
+ * {@code -script} for each job, as a cold command line does, once by starting a new JVM with the
+ * thin {@code -client} for each job, which sends it to a server started with {@code -serve}, and
+ * once by sending each job to the server from this JVM, as a program that calls the server would.
+ * Starting a JVM per job takes long, so only a sample of those jobs is run and the total for every
+ * job is projected from it. Run it as {@code java DaemonBenchmark [jobs] [sample]}.
+ */
+public final class DaemonBenchmark {
+
+  private static final String JOB = "create image load res/check.ppm blur sepia saveflat %s q";
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of jobs (default 1000) and how many of them start a JVM of
+   *             their own (default 50)
+   * @throws IOException          if the job or the processes cannot be started
+   * @throws InterruptedException if the benchmark is interrupted while waiting for a process
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int numJobs = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int sample = Math.min(numJobs, args.length > 1 ? Integer.parseInt(args[1]) : 50);
+    Path output = Files.createTempFile("daemon", ".ppm");
+    Path script = Files.createTempFile("daemon", ".txt");
+    String job = String.format(JOB, output);
+    Files.write(script, job.getBytes(StandardCharsets.UTF_8));
+
+    long cold = 0;
+    for (int i = 0; i < sample; i++) {
+      long start = System.nanoTime();
+      run(command("-script", script.toString(), "-quiet"));
+      cold += System.nanoTime() - start;
+    }
+
+    Process server = new ProcessBuilder(command("-serve", "0")).redirectErrorStream(true).start();
+    BufferedReader serverOutput = new BufferedReader(
+        new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8));
+    // the server writes "Serving on port N of the loopback address."
+    int port = Integer.parseInt(serverOutput.readLine().split(" ")[3]);
+    try {
+      long thinClient = 0;
+      for (int i = 0; i < sample; i++) {
+        long start = System.nanoTime();
+        run(command("-client", String.valueOf(port), script.toString(), "-quiet"));
+        thinClient += System.nanoTime() - start;
+      }
+
+      long start = System.nanoTime();
+      for (int i = 0; i < numJobs; i++) {
+        StringBuilder out = new StringBuilder();
+        ClientImageProcessingController client = new ClientImageProcessingController(port,
+            new StringReader(job), out);
+        client.setQuiet(true);
+        client.processImage();
+        if (!out.toString().equals("The process has been quit.\n")) {
+          throw new IllegalStateException("The job failed: " + out);
+        }
+      }
+      long warm = System.nanoTime() - start;
+
+      System.out.printf("%d jobs, %d of them run with a JVM of their own%n", numJobs, sample);
+      System.out.printf("new JVM with -script:     %7.1f ms per job, %9.1f ms for all%n",
+          cold / 1e6 / sample, cold / 1e6 / sample * numJobs);
+      System.out.printf("new JVM with -client:     %7.1f ms per job, %9.1f ms for all%n",
+          thinClient / 1e6 / sample, thinClient / 1e6 / sample * numJobs);
+      System.out.printf("server called in process: %7.1f ms per job, %9.1f ms for all%n",
+          warm / 1e6 / numJobs, warm / 1e6);
+    } finally {
+      ClientImageProcessingController stop = new ClientImageProcessingController(port,
+          new StringReader("q"), new StringBuilder());
+      stop.setStopServer(true);
+      stop.processImage();
+      server.waitFor();
+      output.toFile().delete();
+      script.toFile().delete();
+    }
+  }
+
+  /**
+   * Builds the command that starts a new JVM running the program with the given arguments.
+   *
+   * @param args the arguments of the program
+   * @return the command
+   */
+  private static List<String> command(String... args) {
+    List<String> command = new ArrayList<>(Arrays.asList(
+        System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+        "-cp", System.getProperty("java.class.path"), "utils.ImageUtil"));
+    command.addAll(Arrays.asList(args));
+    return command;
+  }
+
+  /**
+   * Runs the given command and waits for it to finish.
+   *
+   * @param command the command
+   * @throws IOException          if the command cannot be started or fails
+   * @throws InterruptedException if the benchmark is interrupted while waiting
+   */
+  private static void run(List<String> command) throws IOException, InterruptedException {
+    Process process = new ProcessBuilder(command).redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+    if (process.waitFor() != 0) {
+      throw new IOException("The command failed: " + command);
+    }
+  }
+}
@@ -144,7 +144,7 @@ public class GUIViewTest {
   public void testMosaicWiring() {
     assertEquals("", this.ap.toString());
     this.controller.processImage();
-    this.view.fireMosaicEvent(1);
+    this.view.fireMosaicEvent(1, false);
     assertEquals("handleMosaicEvent", this.ap.toString());
   }
 
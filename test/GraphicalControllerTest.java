@@ -416,11 +416,16 @@ public class GraphicalControllerTest {
   }
 
   @Test
-  public void testHandleSaveAllEventNothingToSave() {
+  public void testHandleSaveAllEventNothingToSave() throws InterruptedException {
     assertEquals("", this.ap.toString());
     this.controllerListener.handleSaveAllEvent("res/something");
-    assertEquals("", this.ap.toString());
-    assertTrue(new File("res/something").exists());
+    // the save finishes in the background and then tells the view
+    for (int i = 0; i < 100 && this.ap.toString().isEmpty(); i++) {
+      Thread.sleep(50);
+    }
+    assertEquals("Saved all layers to " + new File("res/something").getAbsolutePath() + "/",
+        this.ap.toString());
+    assertTrue(new File("res/something/layerInfo.txt").exists());
     deleteDirectory(new File("res/something"));
   }
 
@@ -0,0 +1,292 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import controller.HttpImageProcessingController;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import javax.imageio.ImageIO;
+import model.color.Sepia;
+import model.filter.Blur;
+import model.image.IImage;
+import model.image.Image;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import utils.PPMReader;
+import utils.RasterUtils;
+
+/**
+ * Represents the test class for {@code HttpImageProcessingController} to ensure that an image
+ * posted to it over localhost comes back as the same commands would leave it in a script.
+ */
+public class HttpImageProcessingControllerTest {
+
+  private HttpImageProcessingController server;
+  private Thread serverThread;
+  private byte[] check;
+
+  @Before
+  public void initData() throws IOException {
+    this.startServer(Long.MAX_VALUE);
+    this.check = Files.readAllBytes(Paths.get("res/check.ppm"));
+  }
+
+  @After
+  public void stopServer() throws InterruptedException {
+    this.server.stop();
+    this.serverThread.join(10000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testExceptionInvalidPort() {
+    new HttpImageProcessingController(-1, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testExceptionInvalidBudget() {
+    new HttpImageProcessingController(0, 0);
+  }
+
+  @Test
+  public void testProcessedImageMatchesModel() throws IOException {
+    HttpURLConnection connection = this.post("blur sepia", this.check, null);
+
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("image/x-portable-pixmap", connection.getContentType());
+    PPMReader result = PPMReader.read(connection.getInputStream(), "response");
+    assertArrayEquals(pixelsOf(this.expected()), result.getPixels());
+  }
+
+  @Test
+  public void testProcessedImageAsPng() throws IOException {
+    HttpURLConnection connection = this.post("blur sepia", this.check, "png");
+
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("image/png", connection.getContentType());
+    BufferedImage result = ImageIO.read(connection.getInputStream());
+    assertArrayEquals(pixelsOf(this.expected()), RasterUtils.toPackedPixels(result));
+  }
+
+  @Test
+  public void testPngUploadWithDownscale() throws IOException {
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(RasterUtils.toBufferedImage(new Image("res/check.ppm")), "png", png);
+    HttpURLConnection connection = this.post("downscale 8 4", png.toByteArray(), null);
+
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("image/png", connection.getContentType());
+    BufferedImage result = ImageIO.read(connection.getInputStream());
+    assertEquals(8, result.getWidth());
+    assertEquals(4, result.getHeight());
+  }
+
+  @Test
+  public void testFileCommandsRejected() throws IOException {
+    HttpURLConnection connection = this.post("blur save secret.ppm", this.check, null);
+
+    assertEquals(400, connection.getResponseCode());
+    assertEquals("Command save cannot be sent.\n", body(connection));
+  }
+
+  @Test
+  public void testOnlyAllowedCommandsAccepted() throws IOException {
+    HttpURLConnection connection = this.post("blur explain", this.check, null);
+
+    assertEquals(400, connection.getResponseCode());
+    assertEquals("Command explain cannot be sent.\n", body(connection));
+  }
+
+  @Test
+  public void testCreatedImageLargerThanUploadRejected() throws IOException {
+    // the upload is 16 by 16, so a checkerboard of 17 tiles of one pixel is larger
+    HttpURLConnection connection = this.post("createdefaultimage 1 17", this.check, null);
+
+    assertEquals(413, connection.getResponseCode());
+    assertEquals("Command createdefaultimage 1 17 creates an image larger than the upload.\n",
+        body(connection));
+
+    connection = this.post("createdefaultimage 4 4", this.check, null);
+    assertEquals(200, connection.getResponseCode());
+    assertEquals(16, PPMReader.read(connection.getInputStream(), "response").getWidth());
+  }
+
+  @Test
+  public void testInvalidImageRejected() throws IOException {
+    HttpURLConnection connection = this.post("blur", "not an image".getBytes(
+        StandardCharsets.US_ASCII), null);
+
+    assertEquals(400, connection.getResponseCode());
+  }
+
+  @Test
+  public void testFailingCommand() throws IOException {
+    HttpURLConnection connection = this.post("blur remove nothing", this.check, null);
+
+    assertEquals(422, connection.getResponseCode());
+    assertEquals("Invalid command! Try again! Layer does not exist!\n", body(connection));
+  }
+
+  @Test
+  public void testWrongMethod() throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://localhost:" + this.server.getPort() + "/process").openConnection();
+
+    assertEquals(405, connection.getResponseCode());
+    assertEquals("POST", connection.getHeaderField("Allow"));
+  }
+
+  @Test
+  public void testImageLargerThanMemoryBudget() throws IOException, InterruptedException {
+    this.stopServer();
+    this.startServer(1 << 10);
+    HttpURLConnection connection = this.post("blur", this.check, null);
+
+    assertEquals(413, connection.getResponseCode());
+  }
+
+  @Test
+  public void testUploadWithoutLengthRefused() throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://localhost:" + this.server.getPort() + "/process?commands=blur").openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    // a chunked body has no Content-Length
+    connection.setChunkedStreamingMode(1024);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(this.check);
+    }
+
+    assertEquals(411, connection.getResponseCode());
+  }
+
+  @Test
+  public void testUploadTakesMemoryBeforeItIsRead() throws IOException, InterruptedException {
+    this.stopServer();
+    this.startServer(64 << 10);
+    try (Socket slow = new Socket("localhost", this.server.getPort())) {
+      // the body of this request never comes, but its length is taken from the budget
+      slow.getOutputStream().write(("POST /process?commands=blur HTTP/1.1\r\nHost: localhost\r\n"
+          + "Content-Length: 60000\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+      slow.getOutputStream().flush();
+      for (int i = 0; i < 100 && metrics().contains("in_flight_bytes 0\n"); i++) {
+        Thread.sleep(50);
+      }
+      assertTrue(metrics().contains("in_flight_bytes 60416\n"));
+
+      HttpURLConnection connection = this.post("blur", this.check, null);
+      assertEquals(503, connection.getResponseCode());
+      assertEquals("1", connection.getHeaderField("Retry-After"));
+    }
+  }
+
+  @Test
+  public void testMetrics() throws IOException {
+    // the responses are read to the end, since a request is counted before its response ends
+    body(this.post("sepia", this.check, null));
+    body(this.post("remove nothing", this.check, null));
+    String metrics = this.metrics();
+
+    assertTrue(metrics.startsWith("requests 2\nsucceeded 1\nfailed 1\nrejected 0\n"
+        + "in_flight_bytes 0\nlatency_p50_ms "));
+    assertTrue(metrics.contains("\nlatency_p99_ms "));
+  }
+
+  /**
+   * Starts a server for the test with the given memory budget.
+   *
+   * @param budget the memory budget, in bytes
+   */
+  private void startServer(long budget) {
+    this.server = new HttpImageProcessingController(0, budget);
+    this.serverThread = new Thread(this.server::processImage);
+    this.serverThread.start();
+  }
+
+  /**
+   * Posts the given image to the server of this test with the given commands.
+   *
+   * @param commands the commands to run on the image
+   * @param image    the bytes of the image
+   * @param format   the format of the result, or null for the format of the image
+   * @return the connection of the request, whose response has been received
+   * @throws IOException if the request cannot be sent
+   */
+  private HttpURLConnection post(String commands, byte[] image, String format)
+      throws IOException {
+    String query = "commands=" + URLEncoder.encode(commands, StandardCharsets.UTF_8)
+        + (format == null ? "" : "&format=" + format);
+    HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://localhost:" + this.server.getPort() + "/process?" + query).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(image);
+    }
+    connection.getResponseCode();
+    return connection;
+  }
+
+  /**
+   * Gets the metrics of the server of this test.
+   *
+   * @return the body of the response to {@code GET /metrics}
+   * @throws IOException if the request cannot be sent or fails
+   */
+  private String metrics() throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://localhost:" + this.server.getPort() + "/metrics").openConnection();
+    assertEquals(200, connection.getResponseCode());
+    return body(connection);
+  }
+
+  /**
+   * Reads the body of the response of the given connection as text.
+   *
+   * @param connection the connection
+   * @return the body of the response
+   * @throws IOException if the response cannot be read
+   */
+  private static String body(HttpURLConnection connection) throws IOException {
+    try (InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream()
+        : connection.getErrorStream()) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Gets the image the commands blur and sepia leave check.ppm as in a model.
+   *
+   * @return the expected image
+   */
+  private IImage expected() {
+    ILayerModel model = new LayerModel();
+    model.createImageLayer("image");
+    model.loadLayer(new Image("res/check.ppm"));
+    model.filterCurrent(new Blur());
+    model.colorTransformCurrent(new Sepia());
+    return model.flatten();
+  }
+
+  /**
+   * Gets the packed pixels of the given image.
+   *
+   * @param image the image
+   * @return its packed pixels
+   */
+  private static int[] pixelsOf(IImage image) {
+    return image.getPixels(new int[image.getWidth() * image.getHeight()]);
+  }
+}
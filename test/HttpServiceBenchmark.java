@@ -0,0 +1,132 @@
+import controller.HttpImageProcessingController;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A benchmark that posts the same image to the HTTP service from many clients at once, with a
+ * memory budget large enough for every image in flight and with one that only fits a few, and
+ * prints the throughput, how many requests were turned away, and the latency percentiles the
+ * service reports. Run it as {@code java HttpServiceBenchmark [clients] [requestsPerClient]}.
+ */
+public final class HttpServiceBenchmark {
+
+  private static final String COMMANDS = "commands=blur+sepia&format=png";
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of clients (default 16) and how many requests each sends
+   *             (default 50)
+   * @throws Exception if the server cannot be started or a request cannot be sent
+   */
+  public static void main(String[] args) throws Exception {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+    int requests = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    byte[] image = Files.readAllBytes(Paths.get("res/puppy.ppm"));
+
+    // warm up, so that both runs measure compiled code
+    run(Long.MAX_VALUE, clients, Math.max(1, requests / 5), image, false);
+    run(Long.MAX_VALUE, clients, requests, image, true);
+    // puppy.ppm and its pixels take close to half a megabyte while it is processed, so only two
+    // of its images fit in this budget at once
+    run(1L << 20, clients, requests, image, true);
+  }
+
+  /**
+   * Posts the image from the given number of clients to a new server with the given budget.
+   *
+   * @param budget   the memory budget of the server, in bytes
+   * @param clients  the number of clients sending at once
+   * @param requests how many requests each client sends
+   * @param image    the bytes of the image
+   * @param print    whether the results are printed
+   * @throws Exception if a request cannot be sent
+   */
+  private static void run(long budget, int clients, int requests, byte[] image, boolean print)
+      throws Exception {
+    HttpImageProcessingController server = new HttpImageProcessingController(0, budget);
+    Thread serverThread = new Thread(server::processImage);
+    serverThread.start();
+    String base = "http://localhost:" + server.getPort();
+    ExecutorService pool = Executors.newFixedThreadPool(clients);
+    AtomicInteger ok = new AtomicInteger();
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      long start = System.nanoTime();
+      for (int i = 0; i < clients; i++) {
+        futures.add(pool.submit(() -> {
+          for (int j = 0; j < requests; j++) {
+            if (post(base + "/process?" + COMMANDS, image) == 200) {
+              ok.incrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      long elapsed = System.nanoTime() - start;
+
+      if (print) {
+        System.out.printf("budget %s: %d requests in %.1f ms, %.1f per second, %d succeeded%n",
+            budget == Long.MAX_VALUE ? "unbounded" : (budget >> 20) + " MB", clients * requests,
+            elapsed / 1e6, clients * requests / (elapsed / 1e9), ok.get());
+        System.out.print(get(base + "/metrics"));
+      }
+    } finally {
+      pool.shutdown();
+      server.stop();
+      serverThread.join();
+    }
+  }
+
+  /**
+   * Posts the given bytes to the given URL and reads the whole response.
+   *
+   * @param url  the URL
+   * @param body the bytes to post
+   * @return the status of the response
+   * @throws IOException if the request cannot be sent
+   */
+  private static int post(String url, byte[] body) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body);
+    }
+    int status = connection.getResponseCode();
+    try (InputStream in = status < 400 ? connection.getInputStream()
+        : connection.getErrorStream()) {
+      in.readAllBytes();
+    }
+    return status;
+  }
+
+  /**
+   * Gets the given URL as text.
+   *
+   * @param url the URL
+   * @return the body of the response
+   * @throws IOException if the request cannot be sent
+   */
+  private static String get(String url) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    try (InputStream in = connection.getInputStream()) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -5,8 +5,16 @@ import controller.IImageProcessingController;
 import controller.SimpleIImageProcessingController;
 import java.io.File;
 import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import model.ILayerModelState;
 import model.LayerModelState;
+import model.color.ColorTransformationChain;
+import model.color.Grayscale;
+import model.color.IColorTransformation;
+import model.color.Sepia;
+import model.image.Image;
 import model.layer.ILayerModel;
 import model.layer.LayerModel;
 import model.mocks.FailingAppendable;
@@ -235,6 +243,270 @@ public class IImageProcessingControllerTest {
             + "The process has been quit.\n", ap.toString());
   }
 
+  @Test
+  public void testFusedColorTransformationsMatchUnfused() {
+    String script = "create first load res/check.ppm sepia grayscale sepia blur grayscale q";
+    Appendable unfusedLog = new StringBuilder();
+    new SimpleIImageProcessingController(model, new StringReader(script), unfusedLog)
+        .processImage();
+
+    ILayerModel fusedModel = new LayerModel();
+    Appendable fusedLog = new StringBuilder();
+    new SimpleIImageProcessingController(fusedModel, new StringReader("fuse exact " + script),
+        fusedLog).processImage();
+
+    assertEquals("Color transformation fusion: exact\n" + unfusedLog, fusedLog.toString());
+    assertEquals(model.getCurrentLayer().getImage(), fusedModel.getCurrentLayer().getImage());
+  }
+
+  @Test
+  public void testSetColorTransformationFusionApproximate() {
+    Readable input = new StringReader("create first load res/check.ppm sepia grayscale q");
+    Appendable ap = new StringBuilder();
+    SimpleIImageProcessingController c = new SimpleIImageProcessingController(model, input, ap);
+    c.setColorTransformationFusion(true, true);
+    c.processImage();
+
+    ILayerModel expected = new LayerModel();
+    expected.createImageLayer("first");
+    expected.loadLayer(new Image("res/check.ppm"));
+    List<IColorTransformation> transformations = Arrays.asList(new Sepia(), new Grayscale());
+    expected.colorTransformCurrent(new ColorTransformationChain(transformations, true));
+    assertEquals(expected.getCurrentLayer().getImage(), model.getCurrentLayer().getImage());
+  }
+
+  @Test
+  public void testFusedColorTransformationsNonExistentLayer() {
+    Readable input = new StringReader("fuse approximate sepia grayscale q");
+    Appendable ap = new StringBuilder();
+    IImageProcessingController c = new SimpleIImageProcessingController(model, input, ap);
+    c.processImage();
+
+    assertEquals("Color transformation fusion: approximate\n"
+        + "Invalid command! Try again! Operation cannot be performed! "
+        + "Image must be visible and present.\n"
+        + "Invalid command! Try again! Operation cannot be performed! "
+        + "Image must be visible and present.\n"
+        + "The process has been quit.\n", ap.toString());
+  }
+
+  @Test
+  public void testQuietOnlyPrintsErrorsAndRequestedState() {
+    Readable input = new StringReader("create first load res/check.ppm sepia remove second "
+        + "fuse exact grayscale state q");
+    Appendable ap = new StringBuilder();
+    SimpleIImageProcessingController c = new SimpleIImageProcessingController(model, input, ap);
+    c.setQuiet(true);
+    c.processImage();
+
+    assertEquals("Invalid command! Try again! Layer does not exist!\n"
+        + "Color transformation fusion: exact\n"
+        + "Layer #1, Name of Layer: first, Image Filename: res/check.ppm, Visibility: true\n"
+        + "Number of valid layers created: 1\n"
+        + "Current Layer: Name of Layer: first, Image Filename: res/check.ppm,"
+        + " Visibility: true\n"
+        + "The process has been quit.\n", ap.toString());
+  }
+
+  @Test
+  public void testStateCommand() {
+    Readable input = new StringReader("state create first state q");
+    Appendable ap = new StringBuilder();
+    new SimpleIImageProcessingController(model, input, ap).processImage();
+
+    String state = "Layer #1, Name of Layer: first, No Image Associated With This Layer,"
+        + " Visibility: true\n"
+        + "Number of valid layers created: 1\n"
+        + "Current Layer: Name of Layer: first, No Image Associated With This Layer,"
+        + " Visibility: true\n";
+    assertEquals("Number of valid layers created: 0\nCurrent not yet set.\n"
+        + state + state + "The process has been quit.\n", ap.toString());
+  }
+
+  @Test
+  public void testCompiledScriptMatchesEager() {
+    assertCompiledMatchesEager("create first create second load res/check.ppm blur sepia "
+        + "current first sharpen load res/check.ppm grayscale current second sharpen "
+        + "invisible second blur visible second grayscale blur opacity second 0.5 state "
+        + "remove third blur sepia current first sepia sepia bogus blur q");
+  }
+
+  @Test
+  public void testCompiledScriptMatchesEagerWithFusionModes() {
+    assertCompiledMatchesEager("create first load res/check.ppm fuse exact sepia blur grayscale "
+        + "fuse approximate sepia grayscale blur fuse off sharpen sepia create second remove "
+        + "first grayscale q");
+  }
+
+  @Test
+  public void testRandomCompiledScriptsMatchEager() {
+    String[] words = {"blur", "sharpen", "sepia", "grayscale", "blur", "sepia", "create a",
+        "create b", "current a", "current b", "remove a", "remove b", "invisible a", "visible a",
+        "invisible b", "load res/check.ppm", "mosaic 5 1", "state", "load res/check.ppm",
+        "create a", "opacity a 0.5", "downscale 8 8", "bogus"};
+    Random random = new Random(22);
+    for (int run = 0; run < 100; run++) {
+      StringBuilder script = new StringBuilder("create a load res/check.ppm create b current b "
+          + "load res/check.ppm ");
+      for (int i = 0; i < 30; i++) {
+        script.append(words[random.nextInt(words.length)]).append(' ');
+      }
+      assertCompiledMatchesEager(script.append("q").toString());
+    }
+  }
+
+  @Test
+  public void testExplainCompiledScript() {
+    Readable input = new StringReader("create first load res/check.ppm create second "
+        + "current second load res/check.ppm explain blur sepia current first sharpen sharpen "
+        + "current second sharpen remove first save second.ppm q");
+    Appendable ap = new StringBuilder();
+    SimpleIImageProcessingController c = new SimpleIImageProcessingController(model, input, ap);
+    c.setCompiled(true);
+    c.setQuiet(true);
+    c.processImage();
+
+    assertEquals("Plan of steps 7 to 16:\n"
+        + "  step 9: current first\n"
+        + "  step 12: current second\n"
+        + "  steps 7, 8, 13: blur, sepia, sharpen fused into one pass over layer second\n"
+        + "  steps 10, 11: sharpen, sharpen dropped, since layer first is removed before "
+        + "anything reads it\n"
+        + "  step 14: remove first\n"
+        + "  step 15: save second.ppm\n"
+        + "  step 16: q\n"
+        + "The process has been quit.\n", ap.toString());
+    new File("second.ppm").delete();
+  }
+
+  @Test
+  public void testExplainPlansAgainAfterLoadAll() {
+    Readable input = new StringReader("create first explain loadall res/badLayerInfo.txt blur "
+        + "explain q");
+    Appendable ap = new StringBuilder();
+    SimpleIImageProcessingController c = new SimpleIImageProcessingController(model, input, ap);
+    c.setCompiled(true);
+    c.setQuiet(true);
+    c.processImage();
+
+    String output = ap.toString();
+    assertTrue(output.startsWith("Plan of steps 3 to 3:\n"
+        + "  step 3: loadall res/badLayerInfo.txt\n"
+        + "The steps after step 3 are planned once it has run.\n"));
+    assertTrue(output.endsWith("Plan of steps 6 to 6:\n"
+        + "  step 6: q\n"
+        + "The process has been quit.\n"));
+  }
+
+  @Test
+  public void testExplainScriptWithUndo() {
+    Readable input = new StringReader("create first load res/check.ppm blur sepia undo "
+        + "explain q");
+    Appendable ap = new StringBuilder();
+    SimpleIImageProcessingController c = new SimpleIImageProcessingController(model, input, ap);
+    c.setCompiled(true);
+    c.setQuiet(true);
+    c.processImage();
+
+    assertEquals("Plan of steps 7 to 7, each run on its own since the script undoes or redoes "
+        + "commands:\n"
+        + "  step 7: q\n"
+        + "The process has been quit.\n", ap.toString());
+    assertCompiledMatchesEager("create first load res/check.ppm blur sepia undo sharpen redo q");
+  }
+
+  @Test
+  public void testExplainWithoutCompiling() {
+    Readable input = new StringReader("explain q");
+    Appendable ap = new StringBuilder();
+    new SimpleIImageProcessingController(model, input, ap).processImage();
+
+    assertEquals("Each command is run as it is read, so there is no plan to explain. "
+        + "Run the script with -compile to plan it first.\n"
+        + "The process has been quit.\n", ap.toString());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCompiledScriptWithoutQuit() {
+    SimpleIImageProcessingController c = new SimpleIImageProcessingController(model,
+        new StringReader("create first blur"), new StringBuilder());
+    c.setCompiled(true);
+    c.processImage();
+  }
+
+  /**
+   * Runs the given script one command at a time and compiled, and checks that both write the same
+   * output, fail in the same way, and leave the same layers.
+   *
+   * @param script the script to run
+   */
+  private static void assertCompiledMatchesEager(String script) {
+    ILayerModel eager = new LayerModel();
+    Appendable eagerLog = new StringBuilder();
+    String eagerFailure = runScript(eager, script, false, eagerLog);
+
+    ILayerModel compiled = new LayerModel();
+    Appendable compiledLog = new StringBuilder();
+    String compiledFailure = runScript(compiled, script, true, compiledLog);
+
+    assertEquals(script, eagerFailure, compiledFailure);
+    assertEquals(script, eagerLog.toString(), compiledLog.toString());
+    assertEquals(script, eager.getLayers().size(), compiled.getLayers().size());
+    for (int i = 0; i < eager.getLayers().size(); i++) {
+      assertEquals(script, eager.getLayers().get(i).getImage(),
+          compiled.getLayers().get(i).getImage());
+    }
+  }
+
+  @Test
+  public void testOptionalArgumentsOnlyReadFromTheirLine() {
+    // the seed on the next line is not read as the seed of the mosaic, whether or not the script
+    // is compiled, and the mosaic without a seed is random, so only the outputs are compared
+    String script = "create first load res/check.ppm mosaic 3\n42 q";
+    Appendable eagerLog = new StringBuilder();
+    runScript(new LayerModel(), script, false, eagerLog);
+    Appendable compiledLog = new StringBuilder();
+    runScript(new LayerModel(), script, true, compiledLog);
+    assertEquals(eagerLog.toString(), compiledLog.toString());
+    assertTrue(eagerLog.toString().contains("Invalid input!"));
+
+    assertCompiledMatchesEager("create first load res/check.ppm mosaic 3 42\nsepia q");
+    assertCompiledMatchesEager("create first load res/check.ppm mosaic\n3 42 q");
+  }
+
+  /**
+   * Runs the given script on the given model.
+   *
+   * @param model    the model to run the script on
+   * @param script   the script to run
+   * @param compiled whether the script is compiled
+   * @param log      the output of the script
+   * @return the name of the exception the script failed with, or null if it did not fail
+   */
+  private static String runScript(ILayerModel model, String script, boolean compiled,
+      Appendable log) {
+    SimpleIImageProcessingController c = new SimpleIImageProcessingController(model,
+        new StringReader(script), log);
+    c.setCompiled(compiled);
+    try {
+      c.processImage();
+      return null;
+    } catch (RuntimeException e) {
+      return e.getClass().getName();
+    }
+  }
+
+  @Test
+  public void testInvalidFusionMode() {
+    Readable input = new StringReader("fuse sometimes q");
+    Appendable ap = new StringBuilder();
+    IImageProcessingController c = new SimpleIImageProcessingController(model, input, ap);
+    c.processImage();
+
+    assertEquals("Invalid command! Try again! Fusion mode must be exact, approximate, or off.\n"
+        + "The process has been quit.\n", ap.toString());
+  }
+
   @Test
   public void testSepianNonExistentLayer() {
     Readable input = new StringReader("sepia q");
@@ -104,4 +104,33 @@ public class IImageProcessingViewTest {
     }
     assertEquals("null", out.toString());
   }
+
+  @Test
+  public void testRenderLayerState() throws IOException {
+    StringBuilder out = new StringBuilder();
+    SimpleIImageProcessingView view = new SimpleIImageProcessingView(new LayerModelState(model),
+        out);
+    view.renderLayerState();
+    assertEquals("Number of valid layers created: 0\nCurrent not yet set.\n", out.toString());
+
+    this.model.createImageLayer("first");
+    this.model.createImageLayer("second");
+    this.model.loadLayer(exImage);
+    this.model.makeLayerInvisible("second");
+    this.model.setCurrent("second");
+    out.setLength(0);
+    view.renderLayerState();
+    assertEquals("Layer #1, Name of Layer: first, Image Filename: Image, Visibility: true\n"
+        + "Layer #2, Name of Layer: second, No Image Associated With This Layer, "
+        + "Visibility: false\n"
+        + "Number of valid layers created: 2\n"
+        + "Current Layer: Name of Layer: second, No Image Associated With This Layer, "
+        + "Visibility: false\n", out.toString());
+  }
+
+  @Test(expected = IOException.class)
+  public void testRenderLayerStateFailedAppendable() throws IOException {
+    new SimpleIImageProcessingView(new LayerModelState(new LayerModel()),
+        new FailingAppendable()).renderLayerState();
+  }
 }
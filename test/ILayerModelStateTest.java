@@ -1,12 +1,17 @@
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.util.List;
 import model.ILayerModelState;
 import model.LayerModelState;
 import model.image.Image;
 import model.layer.ILayerModel;
 import model.layer.Layer;
+import model.layer.LayerMetadata;
 import model.layer.LayerModel;
 import org.junit.Before;
 import org.junit.Test;
@@ -101,4 +106,51 @@ public class ILayerModelStateTest {
     assertEquals(new Layer("first"), modelState.getLayer(0));
     assertEquals(new Layer("second"), modelState.getLayer(1));
   }
+
+  @Test
+  public void testGetLayerMetadata() {
+    assertEquals(0, this.modelState.getLayerMetadata().size());
+    assertEquals(-1, this.modelState.getCurrentLayerIndex());
+    this.model.createImageLayer("first");
+    this.model.createImageLayer("second");
+    this.model.loadLayer(new Image("res/puppy.ppm"));
+    this.model.setCurrent("second");
+    this.model.makeLayerInvisible("second");
+    this.model.setOpacity("first", 0.5);
+
+    List<LayerMetadata> layers = this.modelState.getLayerMetadata();
+    assertEquals(2, layers.size());
+    assertEquals(1, this.modelState.getCurrentLayerIndex());
+    assertEquals("first", layers.get(0).getName());
+    assertEquals("res/puppy.ppm", layers.get(0).getFilename());
+    assertEquals(this.model.getLayer(0).getImage().getWidth(), layers.get(0).getWidth());
+    assertEquals(this.model.getLayer(0).getImage().getHeight(), layers.get(0).getHeight());
+    assertEquals(0.5, layers.get(0).getOpacity(), 0);
+    assertEquals(this.model.getLayer(0).toString(), layers.get(0).toString());
+    assertFalse(layers.get(1).hasImage());
+    assertEquals(0, layers.get(1).getWidth());
+    assertFalse(layers.get(1).isVisible());
+    assertEquals(this.model.getLayer(1).toString(), layers.get(1).toString());
+  }
+
+  @Test
+  public void testGetLayerMetadataKeptUntilLayersChange() {
+    this.model.createImageLayer("first");
+    List<LayerMetadata> layers = this.modelState.getLayerMetadata();
+    this.model.setCurrent("first");
+    assertSame(layers, this.modelState.getLayerMetadata());
+
+    this.model.makeLayerInvisible("first");
+    assertFalse(this.modelState.getLayerMetadata().get(0).isVisible());
+    assertTrue(layers.get(0).isVisible());
+    this.model.removeImageLayer("first");
+    assertEquals(0, this.modelState.getLayerMetadata().size());
+    assertEquals(-1, this.modelState.getCurrentLayerIndex());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetLayerMetadataCannotBeChanged() {
+    this.model.createImageLayer("first");
+    this.modelState.getLayerMetadata().remove(0);
+  }
 }
@@ -2,19 +2,24 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import model.color.Grayscale;
 import model.color.Sepia;
 import model.creator.CheckboardImageCreator;
+import model.downscale.Downscale;
 import model.filter.Blur;
 import model.filter.Sharpening;
 import model.image.IImage;
 import model.image.IPixel;
 import model.image.Image;
 import model.image.Pixel;
+import model.layer.BlendMode;
 import model.layer.ILayer;
 import model.layer.ILayerModel;
 import model.layer.Layer;
@@ -591,4 +596,460 @@ public class ILayerModelTest {
     model.filter(new Image("res/check.ppm"), new Blur());
     assertEquals(1, model.getLayers().size());
   }
+
+  @Test
+  public void testLayersFoundByNameAfterRemovals() {
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      model.createImageLayer("layer" + i);
+      expected.add("layer" + i);
+    }
+    for (int i = 0; i < 50; i += 3) {
+      model.removeImageLayer("layer" + i);
+      expected.remove("layer" + i);
+    }
+    model.createImageLayer("layer0");
+    expected.add("layer0");
+
+    List<ILayer> layers = model.getLayers();
+    assertEquals(expected.size(), layers.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i), layers.get(i).getName());
+      model.setCurrent(expected.get(i));
+      assertEquals(expected.get(i), model.getCurrentLayer().getName());
+    }
+    model.makeLayerInvisible("layer49");
+    assertFalse(model.getLayers().get(expected.indexOf("layer49")).isVisible());
+  }
+
+  @Test
+  public void testFirstLayerWithDuplicateNameIsFound() {
+    ILayer hidden = new Layer("same");
+    hidden.setVisibility(false);
+    ILayer shown = new Layer("same");
+    model.createImageLayer("first");
+    model.loadAll(new ArrayList<>(Arrays.asList(hidden, shown)));
+
+    model.setCurrent("same");
+    assertFalse(model.getCurrentLayer().isVisible());
+    model.removeImageLayer("same");
+    model.setCurrent("same");
+    assertTrue(model.getCurrentLayer().isVisible());
+    assertEquals(2, model.getLayers().size());
+    model.removeImageLayer("first");
+    model.removeImageLayer("same");
+    assertEquals(0, model.getLayers().size());
+  }
+
+  @Test
+  public void testLayerSnapshotsShareImages() {
+    model.createImageLayer("first");
+    model.createImageLayer("second");
+    model.setCurrent("first");
+    model.loadLayer(exImage);
+
+    assertSame(exImage, model.getCurrentLayer().getImage());
+    List<ILayer> snapshot = model.getLayers();
+    assertSame(exImage, snapshot.get(0).getImage());
+    assertSame(exImage, model.getLayer(0).getImage());
+    assertEquals(2, model.getNumLayers());
+
+    // changing the snapshot does not change the model
+    snapshot.get(0).setVisibility(false);
+    snapshot.get(1).setImage(exImage2);
+    model.getLayer(0).setImage(exImage3);
+    assertTrue(model.getLayer(0).isVisible());
+    assertSame(exImage, model.getLayer(0).getImage());
+    assertNull(model.getLayer(1).getImage());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetLayerOutOfBounds() {
+    model.createImageLayer("first");
+    model.getLayer(1);
+  }
+
+  @Test
+  public void testTopmostVisibleLayerImageFollowsChanges() {
+    assertNull(model.getTopmostVisibleLayerImage());
+    model.createImageLayer("first");
+    model.createImageLayer("second");
+    model.createImageLayer("third");
+    assertNull(model.getTopmostVisibleLayerImage());
+    model.setCurrent("first");
+    model.loadLayer(exImage);
+    model.setCurrent("second");
+    model.loadLayer(exImage2);
+    assertSame(exImage2, model.getTopmostVisibleLayerImage());
+    assertSame(model.getTopmostVisibleLayerImage(), model.getTopmostVisibleLayerImage());
+
+    model.makeLayerInvisible("second");
+    assertSame(exImage, model.getTopmostVisibleLayerImage());
+    model.makeLayerVisible("second");
+    assertSame(exImage2, model.getTopmostVisibleLayerImage());
+
+    model.setCurrent("third");
+    model.loadLayer(exImage3);
+    assertSame(exImage3, model.getTopmostVisibleLayerImage());
+    model.colorTransformCurrent(new Sepia());
+    IImage sepia = model.getTopmostVisibleLayerImage();
+    assertSame(model.getLayer(2).getImage(), sepia);
+    assertTrue(sepia != exImage3);
+
+    model.removeImageLayer("third");
+    assertSame(exImage2, model.getTopmostVisibleLayerImage());
+    model.loadAll(new ArrayList<>(Arrays.asList(Layer.copyOf(model.getLayer(0)))));
+    assertSame(exImage, model.getTopmostVisibleLayerImage());
+  }
+
+  @Test
+  public void testCurrentLayerIsACopy() {
+    model.createImageLayer("first");
+    model.setCurrent("first");
+    model.loadLayer(exImage);
+    assertSame(exImage, model.getTopmostVisibleLayerImage());
+
+    model.getCurrentLayer().setVisibility(false);
+    model.getCurrentLayer().setImage(exImage2);
+    assertTrue(model.getCurrentLayer().isVisible());
+    assertSame(exImage, model.getTopmostVisibleLayerImage());
+  }
+
+  /**
+   * Creates a model with a bottom layer and a top layer, each with an image of the given pixels in
+   * one row.
+   *
+   * @param bottom the pixels of the bottom layer
+   * @param top    the pixels of the top layer
+   * @return the model
+   */
+  private static ILayerModel twoLayers(int[] bottom, int[] top) {
+    ILayerModel layers = new LayerModel();
+    layers.createImageLayer("bottom");
+    layers.createImageLayer("top");
+    layers.setCurrent("bottom");
+    layers.loadLayer(new Image(bottom.clone(), bottom.length, 1, "bottom.ppm"));
+    layers.setCurrent("top");
+    layers.loadLayer(new Image(top.clone(), top.length, 1, "top.ppm"));
+    return layers;
+  }
+
+  /**
+   * Blends the given channel values the way each blend mode is documented, rounding to the nearest
+   * integer.
+   *
+   * @param mode the blend mode
+   * @param b    the value below
+   * @param t    the value of the layer
+   * @return the blended value
+   */
+  private static int blendChannel(BlendMode mode, int b, int t) {
+    switch (mode) {
+      case NORMAL:
+        return t;
+      case MULTIPLY:
+        return (int) Math.round(b * t / 255.0);
+      case SCREEN:
+        return 255 - (int) Math.round((255 - b) * (255 - t) / 255.0);
+      case OVERLAY:
+        return b < 128 ? (int) Math.round(2 * b * t / 255.0)
+            : 255 - (int) Math.round(2 * (255 - b) * (255 - t) / 255.0);
+      default:
+        return Math.min(255, b + t);
+    }
+  }
+
+  /**
+   * Gets the packed pixels of the given image.
+   *
+   * @param image the image
+   * @return the pixels of the image, row by row
+   */
+  private static int[] pixelsOf(IImage image) {
+    return image.getPixels(new int[image.getWidth() * image.getHeight()]);
+  }
+
+  @Test
+  public void testFlattenBlendModes() {
+    int[] bottom = {0x204080, 0xC0C0C0, 0x000000, 0xFFFFFF, 0x7F8081};
+    int[] top = {0x808080, 0x404040, 0xFFFFFF, 0x123456, 0xFF0080};
+    for (BlendMode mode : BlendMode.values()) {
+      for (double opacity : new double[]{1, 0.5, 0.25, 0}) {
+        ILayerModel layers = twoLayers(bottom, top);
+        layers.setBlendMode("top", mode);
+        layers.setOpacity("top", opacity);
+        IImage flat = layers.flatten();
+        assertEquals("top.ppm", flat.getFilename());
+        int alpha = (int) Math.round(opacity * 255);
+        for (int j = 0; j < bottom.length; j++) {
+          int expected = 0;
+          for (int shift = 16; shift >= 0; shift -= 8) {
+            int b = bottom[j] >> shift & 0xFF;
+            int blended = blendChannel(mode, b, top[j] >> shift & 0xFF);
+            expected |= (int) Math.round((b * (255 - alpha) + blended * alpha) / 255.0) << shift;
+          }
+          assertEquals(mode + " " + opacity + " " + j, expected, flat.getRGB(0, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFlattenOpaqueNormalLayersGivesTopmostImage() {
+    assertNull(model.flatten());
+    model.createImageLayer("first");
+    model.createImageLayer("second");
+    model.createImageLayer("third");
+    assertNull(model.flatten());
+    model.setCurrent("first");
+    model.loadLayer(exImage);
+    model.setCurrent("second");
+    model.loadLayer(exImage2);
+    assertArrayEquals(pixelsOf(exImage2), pixelsOf(model.flatten()));
+    model.makeLayerInvisible("second");
+    assertArrayEquals(pixelsOf(exImage), pixelsOf(model.flatten()));
+  }
+
+  @Test
+  public void testFlattenIsKeptUntilALayerChanges() {
+    ILayerModel layers = twoLayers(new int[]{0x102030, 0x405060}, new int[]{0x808080, 0});
+    layers.setBlendMode("top", BlendMode.ADD);
+    IImage flat = layers.flatten();
+    assertSame(flat, layers.flatten());
+    assertEquals(0x90A0B0, flat.getRGB(0, 0));
+
+    layers.setOpacity("top", 0);
+    IImage hidden = layers.flatten();
+    assertEquals(0x102030, hidden.getRGB(0, 0));
+    layers.setBlendMode("top", BlendMode.NORMAL);
+    layers.setOpacity("top", 1);
+    assertEquals(0x808080, layers.flatten().getRGB(0, 0));
+    layers.makeLayerInvisible("top");
+    assertEquals(0x102030, layers.flatten().getRGB(0, 0));
+  }
+
+  @Test
+  public void testOpacityAndBlendModeAreCopied() {
+    ILayerModel layers = twoLayers(new int[]{0}, new int[]{0});
+    layers.setOpacity("top", 0.75);
+    layers.setBlendMode("top", BlendMode.SCREEN);
+    ILayer copy = Layer.copyOf(layers.getLayer(1));
+    assertEquals(0.75, copy.getOpacity(), 0);
+    assertEquals(BlendMode.SCREEN, copy.getBlendMode());
+    assertEquals(1, layers.getLayer(0).getOpacity(), 0);
+    assertEquals(BlendMode.NORMAL, layers.getLayer(0).getBlendMode());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetOpacityOutOfRange() {
+    twoLayers(new int[]{0}, new int[]{0}).setOpacity("top", 1.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetOpacityNaN() {
+    twoLayers(new int[]{0}, new int[]{0}).setOpacity("top", Double.NaN);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetBlendModeMissingLayer() {
+    twoLayers(new int[]{0}, new int[]{0}).setBlendMode("middle", BlendMode.ADD);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownBlendMode() {
+    BlendMode.fromName("dissolve");
+  }
+
+  /**
+   * Creates an image of the given size with random pixels, which cannot be compressed.
+   *
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param seed   the seed of the random pixels
+   * @return the image
+   */
+  private static IImage noise(int width, int height, int seed) {
+    Random rand = new Random(seed);
+    int[] pixels = new int[width * height];
+    for (int k = 0; k < pixels.length; k++) {
+      pixels[k] = rand.nextInt(0x1000000);
+    }
+    return new Image(pixels, width, height, "noise" + seed + ".ppm");
+  }
+
+  @Test
+  public void testUndoRedoFilter() {
+    LayerModel layers = new LayerModel();
+    layers.createImageLayer("first");
+    IImage original = noise(100, 70, 1);
+    layers.loadLayer(original);
+    layers.filterCurrent(new Blur());
+    int[] blurred = pixelsOf(layers.getCurrentLayer().getImage());
+
+    layers.undo();
+    assertArrayEquals(pixelsOf(original), pixelsOf(layers.getCurrentLayer().getImage()));
+    layers.redo();
+    assertArrayEquals(blurred, pixelsOf(layers.getCurrentLayer().getImage()));
+    layers.undo();
+    layers.undo();
+    assertNull(layers.getCurrentLayer().getImage());
+    layers.redo();
+    assertArrayEquals(pixelsOf(original), pixelsOf(layers.getCurrentLayer().getImage()));
+    assertEquals("noise1.ppm", layers.getCurrentLayer().getImage().getFilename());
+  }
+
+  @Test
+  public void testUndoRedoLayers() {
+    model.createImageLayer("first");
+    model.createImageLayer("second");
+    model.createImageLayer("third");
+    model.setCurrent("second");
+    model.loadLayer(exImage2);
+    model.makeLayerInvisible("second");
+    model.setOpacity("third", 0.5);
+    model.removeImageLayer("second");
+    assertEquals(2, model.getNumLayers());
+
+    model.undo();
+    assertEquals(3, model.getNumLayers());
+    assertEquals("second", model.getCurrentLayer().getName());
+    assertFalse(model.getLayer(1).isVisible());
+    assertArrayEquals(pixelsOf(exImage2), pixelsOf(model.getLayer(1).getImage()));
+    model.setCurrent("third");
+    model.undo();
+    assertEquals("second", model.getCurrentLayer().getName());
+    model.undo();
+    assertEquals(1, model.getLayer(2).getOpacity(), 0);
+    model.undo();
+    assertTrue(model.getLayer(1).isVisible());
+    model.undo();
+    model.undo();
+    model.undo();
+    assertEquals(2, model.getNumLayers());
+    assertEquals("first", model.getCurrentLayer().getName());
+    model.redo();
+    model.redo();
+    model.redo();
+    model.setCurrent("third");
+    assertEquals("third", model.getCurrentLayer().getName());
+    model.removeImageLayer("first");
+    assertEquals("second", model.getLayer(0).getName());
+  }
+
+  @Test
+  public void testUndoDownscaleRestoresEveryLayer() {
+    model.createImageLayer("first");
+    model.createImageLayer("second");
+    model.loadLayer(noise(40, 30, 2));
+    model.setCurrent("second");
+    model.loadLayer(noise(40, 30, 3));
+    model.downscaleCurrent(new Downscale(), 20, 10);
+    assertEquals(20, model.getLayer(0).getImage().getWidth());
+    model.undo();
+    assertArrayEquals(pixelsOf(noise(40, 30, 2)), pixelsOf(model.getLayer(0).getImage()));
+    assertArrayEquals(pixelsOf(noise(40, 30, 3)), pixelsOf(model.getLayer(1).getImage()));
+    model.redo();
+    assertEquals(10, model.getLayer(1).getImage().getHeight());
+  }
+
+  @Test
+  public void testNewOperationClearsRedo() {
+    model.createImageLayer("first");
+    model.createImageLayer("second");
+    model.undo();
+    model.createImageLayer("third");
+    try {
+      model.redo();
+      throw new AssertionError("Redo should have been cleared.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Nothing to redo!", e.getMessage());
+    }
+    assertEquals("third", model.getLayer(1).getName());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNothingToUndo() {
+    model.undo();
+  }
+
+  @Test
+  public void testFailedOperationIsNotRecorded() {
+    model.createImageLayer("first");
+    try {
+      model.setOpacity("first", 2);
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    model.undo();
+    assertEquals(0, model.getNumLayers());
+  }
+
+  @Test
+  public void testHistoryStoresOnlyChangedTiles() {
+    LayerModel layers = new LayerModel();
+    layers.createImageLayer("first");
+    IImage image = noise(640, 480, 4);
+    layers.loadLayer(image);
+    long before = layers.getHistorySizeInBytes();
+    int[] pixels = pixelsOf(image);
+    pixels[1000] ^= 0xFFFFFF;
+    layers.loadLayer(new Image(pixels, 640, 480, "changed.ppm"));
+    // a single tile of the image differs
+    assertTrue(layers.getHistorySizeInBytes() - before < 64 * 64 * 3 + 1024);
+    layers.undo();
+    assertArrayEquals(pixelsOf(image), pixelsOf(layers.getCurrentLayer().getImage()));
+  }
+
+  @Test
+  public void testRedoRestoresFilenameOfReplacingImage() {
+    model.createImageLayer("first");
+    model.loadLayer(new Image(pixelsOf(noise(40, 30, 8)), 40, 30, "first.png"));
+    model.loadLayer(new Image(pixelsOf(noise(40, 30, 9)), 40, 30, "second.ppm"));
+    model.undo();
+    assertEquals("first.png", model.getLayer(0).getImage().getFilename());
+    model.redo();
+    assertEquals("second.ppm", model.getLayer(0).getImage().getFilename());
+    assertArrayEquals(pixelsOf(noise(40, 30, 9)), pixelsOf(model.getLayer(0).getImage()));
+    model.undo();
+    assertEquals("first.png", model.getLayer(0).getImage().getFilename());
+  }
+
+  @Test
+  public void testNoHistoryRecordsNothing() {
+    LayerModel noHistory = new LayerModel(0);
+    noHistory.createImageLayer("first");
+    noHistory.loadLayer(noise(100, 100, 5));
+    noHistory.loadLayer(noise(100, 100, 6));
+    noHistory.removeImageLayer("first");
+    assertEquals(0, noHistory.getHistorySizeInBytes());
+    try {
+      noHistory.undo();
+      throw new AssertionError("Nothing should have been recorded.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Nothing to undo!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testHistoryBudgetEvictsOldestEdits() {
+    LayerModel layers = new LayerModel(40 * 1024);
+    layers.createImageLayer("first");
+    layers.loadLayer(noise(100, 100, 5));
+    layers.loadLayer(noise(100, 100, 6));
+    layers.loadLayer(noise(100, 100, 7));
+    assertTrue(layers.getHistorySizeInBytes() <= 40 * 1024);
+    layers.undo();
+    assertArrayEquals(pixelsOf(noise(100, 100, 6)),
+        pixelsOf(layers.getCurrentLayer().getImage()));
+    try {
+      layers.undo();
+      throw new AssertionError("The oldest edits should have been evicted.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Nothing to undo!", e.getMessage());
+    }
+
+    LayerModel noHistory = new LayerModel(0);
+    noHistory.createImageLayer("first");
+    assertEquals(0, noHistory.getHistorySizeInBytes());
+  }
 }
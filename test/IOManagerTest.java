@@ -1,8 +1,10 @@
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import javax.imageio.ImageIO;
 import model.creator.CheckboardImageCreator;
 import model.creator.IImageCreator;
 import model.image.IImage;
@@ -15,6 +17,7 @@ import model.managers.InputJPEGPNGFileManager;
 import model.managers.InputJPEGPNGFilenameManager;
 import org.junit.Test;
 import utils.AdditionalImageUtils;
+import utils.RasterUtils;
 
 /**
  * This class tests for methods in the IOManager (InputFileManager and InputFilenameManager
@@ -179,4 +182,103 @@ public class IOManagerTest {
     assertArrayEquals(image.getImage(), imageBasedOnGrid.getImage());
   }
 
+  // Tests for RasterUtils
+  @Test
+  public void testRasterUtilsReadsEveryImageType() {
+    int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_USHORT_565_RGB};
+    for (int type : types) {
+      BufferedImage bufferedImage = new BufferedImage(7, 5, type);
+      for (int i = 0; i < 5; i++) {
+        for (int j = 0; j < 7; j++) {
+          bufferedImage.setRGB(j, i, 0xFF000000 | (i * 40) << 16 | (j * 30) << 8 | (i * j * 7));
+        }
+      }
+
+      int[] pixels = RasterUtils.toPackedPixels(bufferedImage);
+      for (int i = 0; i < 5; i++) {
+        for (int j = 0; j < 7; j++) {
+          assertEquals(bufferedImage.getRGB(j, i) & 0xFFFFFF, pixels[i * 7 + j]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRasterUtilsReadsSubimage() {
+    BufferedImage bufferedImage = new BufferedImage(6, 6, BufferedImage.TYPE_3BYTE_BGR);
+    for (int i = 0; i < 6; i++) {
+      for (int j = 0; j < 6; j++) {
+        bufferedImage.setRGB(j, i, (i * 40) << 16 | (j * 30) << 8 | 9);
+      }
+    }
+    BufferedImage subimage = bufferedImage.getSubimage(2, 1, 3, 4);
+
+    int[] pixels = RasterUtils.toPackedPixels(subimage);
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(bufferedImage.getRGB(j + 2, i + 1) & 0xFFFFFF, pixels[i * 3 + j]);
+      }
+    }
+  }
+
+  @Test
+  public void testRasterUtilsWritesBufferedImage() {
+    int[] pixels = new int[15];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i * 0x110F0E;
+    }
+    IImage image = new Image(pixels, 5, 3, "image");
+    for (int type : new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR}) {
+      BufferedImage bufferedImage = RasterUtils.toBufferedImage(image, type);
+      assertEquals(type, bufferedImage.getType());
+      assertEquals(image.getWidth(), bufferedImage.getWidth());
+      assertEquals(image.getHeight(), bufferedImage.getHeight());
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          assertEquals(image.getRGB(i, j), bufferedImage.getRGB(j, i) & 0xFFFFFF);
+        }
+      }
+      assertArrayEquals(image.getPixels(new int[image.getWidth() * image.getHeight()]),
+          RasterUtils.toPackedPixels(bufferedImage));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRasterUtilsUnsupportedType() {
+    RasterUtils.toBufferedImage(new CheckboardImageCreator(2, 2).createImage(),
+        BufferedImage.TYPE_BYTE_GRAY);
+  }
+
+  @Test
+  public void testReadPNGJPEGImageMatchesColorModel() throws IOException {
+    int[] pixels = new int[40 * 30];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (i * 0x0A0B0D) & 0xFFFFFF;
+    }
+    IImage original = new Image(pixels, 40, 30, "image");
+    for (String extension : new String[]{"png", "jpeg"}) {
+      File file = File.createTempFile("raster", "");
+      file.delete();
+      AdditionalImageUtils.exportWithType(original, file.getPath(), extension);
+      File written = new File(file.getPath() + "." + extension);
+      try {
+        BufferedImage bufferedImage = ImageIO.read(written);
+        IImage image = AdditionalImageUtils.readPNGJPEGImage(written);
+        assertEquals(40, image.getWidth());
+        assertEquals(30, image.getHeight());
+        for (int i = 0; i < image.getHeight(); i++) {
+          for (int j = 0; j < image.getWidth(); j++) {
+            assertEquals(bufferedImage.getRGB(j, i) & 0xFFFFFF, image.getRGB(i, j));
+          }
+        }
+        if (extension.equals("png")) {
+          assertArrayEquals(pixels, image.getPixels(new int[pixels.length]));
+        }
+      } finally {
+        written.delete();
+      }
+    }
+  }
 }
@@ -1,6 +1,7 @@
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import controller.BlurCommand;
@@ -11,24 +12,39 @@ import controller.FilterOnImageCommand;
 import controller.GrayscaleCommand;
 import controller.IImageProcessingController;
 import controller.IPhotoCommands;
+import controller.ISaveAllListener;
 import controller.LoadAllCommand;
 import controller.LoadSingleCommand;
 import controller.MakeInvisibleCommand;
 import controller.MakeVisibleCommand;
+import controller.RedoCommand;
 import controller.RemoveImageLayerCommand;
 import controller.SaveAllCommand;
+import controller.SaveFlattenedCommand;
 import controller.SaveSingleCommand;
 import controller.SepiaCommand;
+import controller.SetBlendModeCommand;
 import controller.SetCurrentCommand;
+import controller.SetOpacityCommand;
 import controller.SharpenCommand;
+import controller.UndoCommand;
 import controller.SimpleIImageProcessingController;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import model.color.Grayscale;
 import model.color.Sepia;
 import model.exports.IExport;
 import model.exports.PNGExport;
+import model.exports.PPMExportFilename;
 import model.filter.Blur;
 import model.filter.Sharpening;
 import model.image.IImage;
@@ -39,8 +55,10 @@ import model.layer.ILayer;
 import model.layer.ILayerModel;
 import model.layer.Layer;
 import model.layer.LayerModel;
+import model.managers.InputTextFilenameManager;
 import org.junit.Before;
 import org.junit.Test;
+import utils.PPMReader;
 
 /**
  * This class tests for the command classes ones that implement {@link IPhotoCommands} that are
@@ -482,4 +500,371 @@ public class IPhotoCommandsTest {
     assertEquals("first\nfirst\n" + Sepia.class.getSimpleName() + "\n",
         mockAppendable.toString());
   }
+
+  /**
+   * Writes a layerInfo.txt with the given number of layers to a new temporary directory. Every
+   * third layer has no image and every other layer is hidden.
+   *
+   * @param numLayers the number of layers
+   * @param width     the width of the images of the layers
+   * @return the path of the layerInfo.txt
+   * @throws IOException if the files cannot be written
+   */
+  private static Path writeLayers(int numLayers, int width) throws IOException {
+    Path dir = Files.createTempDirectory("loadall");
+    dir.toFile().deleteOnExit();
+    StringBuilder info = new StringBuilder();
+    for (int i = 0; i < numLayers; i++) {
+      String image = "noimage";
+      if (i % 3 != 2) {
+        int[] pixels = new int[width * 3];
+        for (int k = 0; k < pixels.length; k++) {
+          pixels[k] = (i * 0x050301 + k) & 0xFFFFFF;
+        }
+        String name = dir.resolve("layer" + i).toString();
+        new PPMExportFilename(new Image(pixels, width, 3, name), name).export();
+        new File(name + ".ppm").deleteOnExit();
+        image = name + ".ppm";
+      }
+      info.append(i).append(", ").append(image).append(", ").append(i % 2 == 0).append("\n");
+    }
+    Path layerInfo = dir.resolve("layerInfo.txt");
+    Files.write(layerInfo, info.toString().getBytes(StandardCharsets.UTF_8));
+    layerInfo.toFile().deleteOnExit();
+    return layerInfo;
+  }
+
+  @Test
+  public void testParallelLoadKeepsFileOrder() throws IOException {
+    Path layerInfo = writeLayers(12, 4);
+    List<ILayer> sequential = new InputTextFilenameManager(layerInfo.toString()).apply();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<ILayer> parallel = new InputTextFilenameManager(layerInfo.toString(), executor).apply();
+
+      assertEquals(12, parallel.size());
+      for (int i = 0; i < 12; i++) {
+        assertEquals(sequential.get(i).getName(), parallel.get(i).getName());
+        assertEquals(i % 2 == 0, parallel.get(i).isVisible());
+        if (i % 3 == 2) {
+          assertEquals("noimage", parallel.get(i).getName());
+          assertNull(parallel.get(i).getImage());
+        } else {
+          assertEquals("layer" + i, parallel.get(i).getName());
+          IImage image = parallel.get(i).getImage();
+          assertArrayEquals(sequential.get(i).getImage().getPixels(new int[12]),
+              image.getPixels(new int[12]));
+          assertEquals((i * 0x050301 + 5) & 0xFFFFFF, image.getRGB(1, 1));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testParallelLoadFailsWhenOneLayerFails() throws IOException {
+    Path layerInfo = writeLayers(9, 4);
+    Files.write(layerInfo.getParent().resolve("layer4.ppm"),
+        "P3 4 3 255 1 2".getBytes(StandardCharsets.UTF_8));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      new InputTextFilenameManager(layerInfo.toString(), executor).apply();
+      throw new AssertionError("The broken layer should fail the load.");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("layer4.ppm"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testLoadAllCommandKeepsDimensionCheck() throws IOException {
+    Path layerInfo = writeLayers(5, 4);
+    LayerModel model = new LayerModel();
+    model.createImageLayer("first");
+    model.setCurrent("first");
+    model.loadLayer(new Image(new int[25], 5, 5, "first"));
+    try {
+      new LoadAllCommand(layerInfo.toString()).runCommand(model);
+      throw new AssertionError("Layers of a different size should not be loaded.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image(s) are not the same dimension!", e.getMessage());
+    }
+
+    LayerModel empty = new LayerModel();
+    new LoadAllCommand(layerInfo.toString()).runCommand(empty);
+    assertEquals(5, empty.getLayers().size());
+    assertEquals("layer3", empty.getLayers().get(3).getName());
+    assertEquals(false, empty.getLayers().get(3).isVisible());
+  }
+
+  /**
+   * Creates a model with the given number of layers whose images were loaded from PPM files. The
+   * last layer has no image.
+   *
+   * @param numLayers the number of layers
+   * @return the model
+   */
+  private static ILayerModel modelWithLayers(int numLayers) {
+    ILayerModel layers = new LayerModel();
+    for (int i = 0; i < numLayers; i++) {
+      layers.createImageLayer("layer" + i);
+      if (i < numLayers - 1) {
+        int[] pixels = new int[8 * 6];
+        for (int k = 0; k < pixels.length; k++) {
+          pixels[k] = (i * 0x0A0602 + k) & 0xFFFFFF;
+        }
+        layers.setCurrent("layer" + i);
+        layers.loadLayer(new Image(pixels, 8, 6, "layer" + i + ".ppm"));
+      }
+    }
+    layers.makeLayerInvisible("layer1");
+    return layers;
+  }
+
+  /**
+   * Deletes the given directory and the files in it.
+   *
+   * @param dir the directory to delete
+   */
+  private static void deleteSavedDirectory(File dir) {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void testSaveAllCommitsLayerInfoAndLeavesNoTemporaryFiles() throws IOException {
+    Path dir = Files.createTempDirectory("saveall").resolve("project");
+    new SaveAllCommand(dir.toString()).runCommand(modelWithLayers(6));
+    try {
+      String[] names = dir.toFile().list();
+      Arrays.sort(names);
+      assertArrayEquals(new String[]{"layer0.ppm", "layer1.ppm", "layer2.ppm", "layer3.ppm",
+          "layer4.ppm", "layerInfo.txt", "layerManifest.txt"}, names);
+
+      ILayerModel loaded = new LayerModel();
+      new LoadAllCommand(dir.resolve("layerInfo.txt").toString()).runCommand(loaded);
+      assertEquals(6, loaded.getLayers().size());
+      assertFalse(loaded.getLayers().get(1).isVisible());
+      assertTrue(loaded.getLayers().get(2).isVisible());
+      assertNull(loaded.getLayers().get(5).getImage());
+      assertEquals((3 * 0x0A0602 + 9) & 0xFFFFFF,
+          loaded.getLayers().get(3).getImage().getRGB(1, 1));
+    } finally {
+      deleteSavedDirectory(dir.toFile());
+      dir.getParent().toFile().delete();
+    }
+  }
+
+  @Test
+  public void testSaveAllFailureDoesNotWriteLayerInfo() throws IOException {
+    Path dir = Files.createTempDirectory("saveall").resolve("project");
+    ILayerModel layers = modelWithLayers(3);
+    layers.createImageLayer("gif");
+    layers.setCurrent("gif");
+    layers.loadLayer(new Image(new int[48], 8, 6, "image.gif"));
+    try {
+      new SaveAllCommand(dir.toString()).runCommand(layers);
+      throw new AssertionError("A layer with an unknown file type should fail the save.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Cannot save the layer with that file type.", e.getMessage());
+      assertEquals(0, dir.toFile().list().length);
+    } finally {
+      deleteSavedDirectory(dir.toFile());
+      dir.getParent().toFile().delete();
+    }
+  }
+
+  @Test
+  public void testSaveAllFailureKeepsEarlierSave() throws IOException {
+    Path dir = Files.createTempDirectory("saveall").resolve("project");
+    ILayerModel layers = modelWithLayers(3);
+    new SaveAllCommand(dir.toString()).runCommand(layers);
+    layers.createImageLayer("gif");
+    layers.setCurrent("gif");
+    layers.loadLayer(new Image(new int[48], 8, 6, "image.gif"));
+    try {
+      new SaveAllCommand(dir.toString()).runCommand(layers);
+      throw new AssertionError("A layer with an unknown file type should fail the save.");
+    } catch (IllegalArgumentException e) {
+      // the text files of the first save are only replaced once a save has finished
+      assertTrue(dir.resolve("layerInfo.txt").toFile().exists());
+      assertTrue(dir.resolve("layerManifest.txt").toFile().exists());
+      ILayerModel loaded = new LayerModel();
+      new LoadAllCommand(dir.resolve("layerInfo.txt").toString()).runCommand(loaded);
+      assertEquals(3, loaded.getLayers().size());
+    } finally {
+      deleteSavedDirectory(dir.toFile());
+      dir.getParent().toFile().delete();
+    }
+  }
+
+  @Test
+  public void testSaveAllInBackground() throws Exception {
+    Path dir = Files.createTempDirectory("saveall").resolve("project");
+    StringBuilder log = new StringBuilder();
+    ISaveAllListener listener = new ISaveAllListener() {
+      @Override
+      public void saveAllCompleted(String directory) {
+        log.append("completed ").append(directory);
+      }
+
+      @Override
+      public void saveAllFailed(String directory, String message) {
+        log.append("failed ").append(message);
+      }
+    };
+    ILayerModel layers = modelWithLayers(4);
+    try {
+      Future<?> save = new SaveAllCommand(dir.toString()).runInBackground(layers, listener);
+      // the layers were copied, so changing the model does not change what is saved
+      layers.removeImageLayer("layer0");
+      save.get();
+      assertEquals("completed " + dir.toAbsolutePath() + "/", log.toString());
+      assertTrue(dir.resolve("layer0.ppm").toFile().exists());
+      assertTrue(dir.resolve("layerInfo.txt").toFile().exists());
+
+      log.setLength(0);
+      layers.createImageLayer("gif");
+      layers.setCurrent("gif");
+      layers.loadLayer(new Image(new int[48], 8, 6, "image.gif"));
+      new SaveAllCommand(dir.toString()).runInBackground(layers, listener).get();
+      assertEquals("failed Cannot save the layer with that file type.", log.toString());
+    } finally {
+      deleteSavedDirectory(dir.toFile());
+      deleteSavedDirectory(new File(dir + "1"));
+      dir.getParent().toFile().delete();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSaveAllInBackgroundNullListener() throws IOException {
+    Path dir = Files.createTempDirectory("saveall").resolve("project");
+    try {
+      new SaveAllCommand(dir.toString()).runInBackground(model, null);
+    } finally {
+      deleteSavedDirectory(dir.toFile());
+      dir.getParent().toFile().delete();
+    }
+  }
+
+  @Test
+  public void testSaveAllOnlyRewritesChangedLayers() throws IOException {
+    Path dir = Files.createTempDirectory("saveall").resolve("project");
+    ILayerModel layers = modelWithLayers(6);
+    new SaveAllCommand(dir.toString()).runCommand(layers);
+    try {
+      for (int i = 0; i < 5; i++) {
+        assertTrue(dir.resolve("layer" + i + ".ppm").toFile().setLastModified(1000000));
+      }
+      // the tampered file has a different size than the manifest says, so it is saved again
+      Files.write(dir.resolve("layer4.ppm"), "P3 1 1 255 0 0 0".getBytes(StandardCharsets.UTF_8));
+      assertTrue(dir.resolve("layer4.ppm").toFile().setLastModified(1000000));
+      layers.setCurrent("layer2");
+      layers.loadLayer(new Image(new int[48], 8, 6, "layer2.ppm"));
+      layers.makeLayerVisible("layer1");
+
+      new SaveAllCommand(dir.toString()).runCommand(layers);
+
+      assertFalse(new File(dir + "1").exists());
+      assertEquals(1000000, dir.resolve("layer0.ppm").toFile().lastModified());
+      assertEquals(1000000, dir.resolve("layer1.ppm").toFile().lastModified());
+      assertEquals(1000000, dir.resolve("layer3.ppm").toFile().lastModified());
+      assertTrue(dir.resolve("layer2.ppm").toFile().lastModified() > 1000000);
+      assertTrue(dir.resolve("layer4.ppm").toFile().lastModified() > 1000000);
+
+      ILayerModel loaded = new LayerModel();
+      new LoadAllCommand(dir.resolve("layerInfo.txt").toString()).runCommand(loaded);
+      assertTrue(loaded.getLayers().get(1).isVisible());
+      assertEquals(0, loaded.getLayers().get(2).getImage().getRGB(3, 3));
+      assertEquals(8, loaded.getLayers().get(4).getImage().getWidth());
+
+      // saving in another format rewrites every layer
+      new SaveAllCommand(dir.toString(), true).runCommand(layers);
+      assertTrue(dir.resolve("layer0.ppm").toFile().lastModified() > 1000000);
+      assertTrue(PPMReader.isBinary(dir.resolve("layer0.ppm").toString()));
+    } finally {
+      deleteSavedDirectory(dir.toFile());
+      dir.getParent().toFile().delete();
+    }
+  }
+
+  @Test
+  public void testLayerContentHash() {
+    ILayer layer = new Layer("layer");
+    assertEquals(0, layer.getContentHash());
+    layer.setImage(new Image(new int[]{1, 2, 3, 4, 5, 6}, 3, 2, "a.ppm"));
+    long hash = layer.getContentHash();
+    layer.setImage(new Image(new int[]{1, 2, 3, 4, 5, 6}, 3, 2, "b.ppm"));
+    assertEquals(hash, layer.getContentHash());
+    layer.setImage(new Image(new int[]{1, 2, 3, 4, 5, 6}, 2, 3, "a.ppm"));
+    assertTrue(hash != layer.getContentHash());
+    layer.setImage(new Image(new int[]{1, 2, 3, 4, 5, 7}, 3, 2, "a.ppm"));
+    assertTrue(hash != layer.getContentHash());
+  }
+
+  @Test
+  public void testSaveFlattened() throws IOException {
+    Path dir = Files.createTempDirectory("saveflat");
+    ILayerModel layers = modelWithLayers(4);
+    new SetBlendModeCommand("layer2", "Multiply").runCommand(layers);
+    new SetOpacityCommand("layer2", 0.5).runCommand(layers);
+    Path file = dir.resolve("flat.ppm");
+    try {
+      new SaveFlattenedCommand(file.toString(), true).runCommand(layers);
+      assertTrue(PPMReader.isBinary(file.toString()));
+      IImage saved = new Image(file.toString());
+      assertEquals(layers.flatten().getRGB(2, 3), saved.getRGB(2, 3));
+      // layer0 mixed half and half with layer0 multiplied by layer2
+      int b = layers.getLayer(0).getImage().getRGB(0, 0) >> 8 & 0xFF;
+      int t = layers.getLayer(2).getImage().getRGB(0, 0) >> 8 & 0xFF;
+      int multiplied = (int) Math.round(b * t / 255.0);
+      assertEquals(Math.round((b * 127 + multiplied * 128) / 255.0),
+          saved.getRGB(0, 0) >> 8 & 0xFF);
+    } finally {
+      file.toFile().delete();
+      dir.toFile().delete();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSaveFlattenedWithoutVisibleLayers() {
+    ILayerModel layers = new LayerModel();
+    layers.createImageLayer("empty");
+    new SaveFlattenedCommand("flat.png").runCommand(layers);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetOpacityCommandOutOfRange() {
+    new SetOpacityCommand("layer", -0.1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetBlendModeCommandUnknownMode() {
+    new SetBlendModeCommand("layer", "lighten");
+  }
+
+  @Test
+  public void testUndoRedoCommands() {
+    ILayerModel layers = modelWithLayers(3);
+    IImage before = layers.getLayer(0).getImage();
+    new SetCurrentCommand("layer0").runCommand(layers);
+    new SepiaCommand().runCommand(layers);
+    new UndoCommand().runCommand(layers);
+    assertEquals(before.getRGB(2, 5), layers.getLayer(0).getImage().getRGB(2, 5));
+    new RedoCommand().runCommand(layers);
+    assertEquals(new Sepia().apply(before).getRGB(2, 5),
+        layers.getLayer(0).getImage().getRGB(2, 5));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRedoCommandWithNothingToRedo() {
+    new RedoCommand().runCommand(new LayerModel());
+  }
 }
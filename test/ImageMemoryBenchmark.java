@@ -0,0 +1,58 @@
+import model.image.IImage;
+import model.image.IPixel;
+import model.image.Image;
+import model.image.Pixel;
+
+/**
+ * A benchmark that measures how many bytes of heap each pixel of an image costs, comparing the old
+ * representation (a 2D array of {@link Pixel} objects) with the packed {@link Image}. Run it with a
+ * fixed heap, for example {@code java -Xms2g -Xmx2g ImageMemoryBenchmark 2000 2000}.
+ */
+public final class ImageMemoryBenchmark {
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the width and height of the measured image (default 1000 x 1000)
+   */
+  public static void main(String[] args) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    long numPixels = (long) width * height;
+
+    long before = usedMemory();
+    IPixel[][] grid = new IPixel[height][width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        grid[i][j] = new Pixel(i, j, i % 256, j % 256, (i + j) % 256);
+      }
+    }
+    long gridBytes = usedMemory() - before;
+
+    before = usedMemory();
+    IImage packed = new Image(grid, "benchmark");
+    long packedBytes = usedMemory() - before;
+
+    System.out.printf("image: %d x %d (%d pixels)%n", width, height, numPixels);
+    System.out.printf("IPixel[][] grid: %.1f bytes/pixel%n", (double) gridBytes / numPixels);
+    System.out.printf("packed Image:    %.1f bytes/pixel%n", (double) packedBytes / numPixels);
+
+    // keep both representations reachable until they have been measured
+    if (grid[0][0] == null || packed.getWidth() != width) {
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Returns the heap currently in use after asking the garbage collector to run.
+   *
+   * @return the number of bytes of heap in use
+   */
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
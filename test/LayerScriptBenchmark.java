@@ -0,0 +1,59 @@
+import controller.CreateImageLayerCommand;
+import controller.IPhotoCommands;
+import controller.MakeInvisibleCommand;
+import controller.MakeVisibleCommand;
+import controller.RemoveImageLayerCommand;
+import controller.SetCurrentCommand;
+import java.util.ArrayList;
+import java.util.List;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
+
+/**
+ * A benchmark that runs the commands of a generated script with many layers, such as the frames of
+ * an animation, on a {@link LayerModel}: every layer is created, made current, hidden and shown
+ * again, and then every other layer is removed. The commands are run directly rather than through
+ * a controller, so that printing the layers after every command is not measured. Run it as
+ * {@code java LayerScriptBenchmark [layers]}.
+ */
+public final class LayerScriptBenchmark {
+
+  private static final int RUNS = 3;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of layers (default 10,000)
+   */
+  public static void main(String[] args) {
+    int numLayers = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    List<IPhotoCommands> script = new ArrayList<>();
+    for (int i = 0; i < numLayers; i++) {
+      script.add(new CreateImageLayerCommand("frame" + i));
+    }
+    for (int i = 0; i < numLayers; i++) {
+      script.add(new SetCurrentCommand("frame" + i));
+      script.add(new MakeInvisibleCommand("frame" + i));
+      script.add(new MakeVisibleCommand("frame" + i));
+    }
+    for (int i = numLayers - 1; i >= 0; i -= 2) {
+      script.add(new RemoveImageLayerCommand("frame" + i));
+    }
+
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      ILayerModel model = new LayerModel();
+      long start = System.nanoTime();
+      for (IPhotoCommands command : script) {
+        command.runCommand(model);
+      }
+      best = Math.min(best, System.nanoTime() - start);
+      if (model.getLayers().size() != numLayers / 2) {
+        throw new IllegalStateException("The script left the wrong number of layers");
+      }
+    }
+
+    System.out.printf("%d layers, %d commands: %.1f ms (%.2f us per command)%n", numLayers,
+        script.size(), best / 1e6, best / 1e3 / script.size());
+  }
+}
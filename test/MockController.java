@@ -103,13 +103,23 @@ public class MockController implements IImageProcessingController, IViewListener
     write("handleMakeLayerVisibleEvent");
   }
 
+  @Override
+  public void handleUndoEvent() {
+    write("handleUndoEvent");
+  }
+
+  @Override
+  public void handleRedoEvent() {
+    write("handleRedoEvent");
+  }
+
   @Override
   public void handleDownscaleEvent(int width, int height) {
     write("handleDownscaleEvent");
   }
 
   @Override
-  public void handleMosaicEvent(int numSeeds) {
+  public void handleMosaicEvent(int numSeeds, boolean jittered) {
     write("handleMosaicEvent");
   }
 
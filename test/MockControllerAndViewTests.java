@@ -150,7 +150,7 @@ public class MockControllerAndViewTests {
   @Test
   public void testHandleMosaicEventMockController() {
     assertEquals("", this.ap.toString());
-    this.controller.handleMosaicEvent(1);
+    this.controller.handleMosaicEvent(1, false);
     assertEquals("handleMosaicEvent", this.ap.toString());
   }
 
@@ -5,8 +5,10 @@ import model.creator.IImageCreator;
 import model.downscale.IImageResize;
 import model.filter.IFilter;
 import model.image.IImage;
+import model.layer.BlendMode;
 import model.layer.ILayer;
 import model.layer.ILayerModel;
+import model.layer.LayerMetadata;
 import model.layer.LayerModel;
 import model.mosaic.IPhotoEffect;
 
@@ -105,16 +107,88 @@ public class MockILayerModel implements ILayerModel {
     }
   }
 
+  @Override
+  public void setOpacity(String layerName, double opacity) {
+    if (layerName == null) {
+      throw new IllegalArgumentException("Cannot have null arguments");
+    }
+    try {
+      log.append(layerName).append(" ").append(Double.toString(opacity)).append("\n");
+    } catch (IOException e) {
+      throw new IllegalStateException();
+    }
+  }
+
+  @Override
+  public void setBlendMode(String layerName, BlendMode mode) {
+    if (layerName == null || mode == null) {
+      throw new IllegalArgumentException("Cannot have null arguments");
+    }
+    try {
+      log.append(layerName).append(" ").append(mode.toString()).append("\n");
+    } catch (IOException e) {
+      throw new IllegalStateException();
+    }
+  }
+
   @Override
   public List<ILayer> getLayers() {
     return this.delegate.getLayers();
   }
 
+  @Override
+  public int getNumLayers() {
+    return this.delegate.getNumLayers();
+  }
+
+  @Override
+  public ILayer getLayer(int index) throws IllegalArgumentException {
+    return this.delegate.getLayer(index);
+  }
+
   @Override
   public ILayer getCurrentLayer() throws IllegalArgumentException {
     return this.delegate.getCurrentLayer();
   }
 
+  @Override
+  public List<LayerMetadata> getLayerMetadata() {
+    return this.delegate.getLayerMetadata();
+  }
+
+  @Override
+  public int getCurrentLayerIndex() {
+    return this.delegate.getCurrentLayerIndex();
+  }
+
+  @Override
+  public IImage getTopmostVisibleLayerImage() {
+    return this.delegate.getTopmostVisibleLayerImage();
+  }
+
+  @Override
+  public IImage flatten() {
+    return this.delegate.flatten();
+  }
+
+  @Override
+  public void undo() {
+    try {
+      log.append("undo\n");
+    } catch (IOException e) {
+      throw new IllegalStateException();
+    }
+  }
+
+  @Override
+  public void redo() {
+    try {
+      log.append("redo\n");
+    } catch (IOException e) {
+      throw new IllegalStateException();
+    }
+  }
+
   @Override
   public void setCurrent(String layerName) throws IllegalArgumentException {
     if (layerName == null) {
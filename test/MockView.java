@@ -205,10 +205,11 @@ public class MockView implements IGUIView {
    * Fires the mosaic event from the listeners in the listeners field.
    *
    * @param numSeeds the number of random seeds to add to the mosaic
+   * @param jittered whether the seeds are placed one in each cell of a grid
    */
-  public void fireMosaicEvent(int numSeeds) {
+  public void fireMosaicEvent(int numSeeds, boolean jittered) {
     for (IViewListener listener : listeners) {
-      listener.handleMosaicEvent(numSeeds);
+      listener.handleMosaicEvent(numSeeds, jittered);
     }
   }
 
@@ -0,0 +1,77 @@
+import java.util.Random;
+import model.image.IImage;
+import model.image.Image;
+import model.mosaic.Mosaic;
+import model.mosaic.SeedGrid;
+
+/**
+ * A benchmark that times the mosaic effect and compares finding the nearest seed of every pixel
+ * with a {@link SeedGrid} to scanning every seed, checking that both find the same seeds. Run it as
+ * {@code java MosaicBenchmark [width] [height] [numSeeds]}.
+ */
+public final class MosaicBenchmark {
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the width and height of the image (default 3840 x 2160) and the number
+   *             of seeds (default 2000)
+   */
+  public static void main(String[] args) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 3840;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 2160;
+    int numSeeds = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+    Random rand = new Random(42);
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = rand.nextInt(0x1000000);
+    }
+    IImage image = new Image(pixels, width, height, "benchmark");
+
+    long start = System.nanoTime();
+    new Mosaic().apply(image, numSeeds);
+    System.out.printf("mosaic of %d x %d with %d seeds: %.1f ms%n", width, height, numSeeds,
+        (System.nanoTime() - start) / 1e6);
+
+    int[] seedRows = new int[numSeeds];
+    int[] seedCols = new int[numSeeds];
+    for (int i = 0; i < numSeeds; i++) {
+      seedRows[i] = rand.nextInt(height);
+      seedCols[i] = rand.nextInt(width);
+    }
+    start = System.nanoTime();
+    SeedGrid grid = new SeedGrid(seedRows, seedCols, height, width);
+    int[] nearest = new int[width * height];
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        nearest[row * width + col] = grid.nearest(row, col);
+      }
+    }
+    long gridTime = System.nanoTime() - start;
+
+    // scanning every seed is slow, so only every 16th row is compared
+    start = System.nanoTime();
+    int scannedRows = 0;
+    for (int row = 0; row < height; row += 16) {
+      scannedRows++;
+      for (int col = 0; col < width; col++) {
+        int best = 0;
+        long bestDist = Long.MAX_VALUE;
+        for (int i = 0; i < numSeeds; i++) {
+          long dr = seedRows[i] - row;
+          long dc = seedCols[i] - col;
+          if (dr * dr + dc * dc < bestDist) {
+            bestDist = dr * dr + dc * dc;
+            best = i;
+          }
+        }
+        if (best != nearest[row * width + col]) {
+          throw new IllegalStateException("The grid and the scan disagree at " + row + ", " + col);
+        }
+      }
+    }
+    double scanTime = (System.nanoTime() - start) * ((double) height / scannedRows);
+    System.out.printf("nearest seeds  grid: %.1f ms  scan (estimated): %.1f ms  speedup %.1fx%n",
+        gridTime / 1e6, scanTime / 1e6, scanTime / gridTime);
+  }
+}
@@ -1,15 +1,27 @@
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Set;
+import controller.SimpleIImageProcessingController;
 import model.image.IImage;
 import model.image.IPixel;
 import model.image.Image;
 import model.image.Pixel;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
 import model.mosaic.IPhotoEffect;
+import model.mosaic.ISeedStrategy;
+import model.mosaic.JitteredGridSeedStrategy;
 import model.mosaic.Mosaic;
+import model.mosaic.RandomSeedStrategy;
+import model.mosaic.SeedGrid;
+import java.util.Random;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Represents a class that tests the mosaic extra credit to ensure that the correct exceptions are
@@ -58,6 +70,13 @@ public class MosaicTest {
     assertNotEquals(newImage.getImage(), this.image.getImage());
   }
 
+  @Test
+  public void testMosaic0SeedsKeepsImage() {
+    IImage newImage = this.mosaic.apply(image, 0);
+    assertArrayEquals(this.image.getImage(), newImage.getImage());
+    assertEquals("exImage", newImage.getFilename());
+  }
+
   @Test
   public void testMosaic1Seed() {
     IImage newImage = this.mosaic.apply(image, 1);
@@ -72,4 +91,205 @@ public class MosaicTest {
             new Pixel(3, 2, 127, 26, 3), new Pixel(3, 3, 127, 26, 3)}});
   }
 
+  @Test
+  public void testSeedGridMatchesBruteForce() {
+    Random rand = new Random(3);
+    int[][] sizes = {{1, 1, 1}, {7, 13, 1}, {40, 30, 12}, {64, 64, 200}, {33, 90, 2970}};
+    for (int[] size : sizes) {
+      int height = size[0];
+      int width = size[1];
+      int numSeeds = size[2];
+      int[] seedRows = new int[numSeeds];
+      int[] seedCols = new int[numSeeds];
+      for (int i = 0; i < numSeeds; i++) {
+        seedRows[i] = rand.nextInt(height);
+        seedCols[i] = rand.nextInt(width);
+      }
+      SeedGrid grid = new SeedGrid(seedRows, seedCols, height, width);
+
+      for (int row = 0; row < height; row++) {
+        for (int col = 0; col < width; col++) {
+          int expected = 0;
+          long expectedDist = Long.MAX_VALUE;
+          for (int i = 0; i < numSeeds; i++) {
+            long dist = (long) (seedRows[i] - row) * (seedRows[i] - row)
+                + (long) (seedCols[i] - col) * (seedCols[i] - col);
+            if (dist < expectedDist) {
+              expectedDist = dist;
+              expected = i;
+            }
+          }
+          assertEquals(expected, grid.nearest(row, col));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSeedGridTiesGoToFirstSeed() {
+    SeedGrid grid = new SeedGrid(new int[]{0, 0, 2, 2}, new int[]{2, 0, 0, 2}, 3, 3);
+    assertEquals(1, grid.nearest(0, 0));
+    assertEquals(3, grid.nearest(2, 2));
+    // the middle pixel is equally close to every seed, the others on an edge to two of them
+    assertEquals(0, grid.nearest(1, 1));
+    assertEquals(0, grid.nearest(0, 1));
+    assertEquals(1, grid.nearest(1, 0));
+    assertEquals(2, grid.nearest(2, 1));
+    assertEquals(0, grid.nearest(1, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSeedGridNoSeeds() {
+    new SeedGrid(new int[0], new int[0], 4, 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSeedGridSeedOutOfBounds() {
+    new SeedGrid(new int[]{4}, new int[]{0}, 4, 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSeedGridMismatchedSeeds() {
+    new SeedGrid(new int[]{1, 2}, new int[]{0}, 4, 4);
+  }
+
+  @Test
+  public void testMosaicAsManySeedsAsPixels() {
+    IImage newImage = this.mosaic.apply(image, 16);
+    assertEquals(4, newImage.getHeight());
+    assertEquals(4, newImage.getWidth());
+  }
+
+  @Test
+  public void testSeededMosaicIsReproducible() {
+    for (int numSeeds : new int[]{2, 5, 16}) {
+      assertEquals(new Mosaic(42).apply(image, numSeeds), new Mosaic(42).apply(image, numSeeds));
+      IPhotoEffect jittered = new Mosaic(new JitteredGridSeedStrategy(), 7);
+      assertEquals(jittered.apply(image, numSeeds), jittered.apply(image, numSeeds));
+    }
+  }
+
+  @Test
+  public void testSeededMosaicDifferentSeeds() {
+    IPixel[][] grid = new IPixel[20][20];
+    for (int i = 0; i < 20; i++) {
+      for (int j = 0; j < 20; j++) {
+        grid[i][j] = new Pixel(i, j, i * 12, j * 12, (i + j) * 6);
+      }
+    }
+    IImage gradient = new Image(grid, "gradient");
+    assertNotEquals(new Mosaic(1).apply(gradient, 30), new Mosaic(2).apply(gradient, 30));
+  }
+
+  @Test
+  public void testSeedsAreDistinct() {
+    Random rand = new Random(1);
+    int[][] sizes = {{1, 1, 1}, {4, 4, 16}, {7, 300, 2000}, {300, 7, 2100}, {45, 60, 999},
+        {30, 40, 1200}};
+    for (ISeedStrategy strategy : new ISeedStrategy[]{new RandomSeedStrategy(),
+        new JitteredGridSeedStrategy()}) {
+      for (int[] size : sizes) {
+        int[] seedRows = new int[size[2]];
+        int[] seedCols = new int[size[2]];
+        strategy.placeSeeds(size[0], size[1], size[2], rand, seedRows, seedCols);
+        Set<Integer> pixels = new HashSet<>();
+        for (int i = 0; i < size[2]; i++) {
+          assertTrue(seedRows[i] >= 0 && seedRows[i] < size[0]);
+          assertTrue(seedCols[i] >= 0 && seedCols[i] < size[1]);
+          pixels.add(seedRows[i] * size[1] + seedCols[i]);
+        }
+        assertEquals(size[2], pixels.size());
+      }
+    }
+  }
+
+  @Test
+  public void testRandomSeedsGiveOneTileEach() {
+    ISeedStrategy strategy = new RandomSeedStrategy();
+    for (int numSeeds : new int[]{1, 50, 200, 399, 400}) {
+      int[] seedRows = new int[numSeeds];
+      int[] seedCols = new int[numSeeds];
+      strategy.placeSeeds(20, 20, numSeeds, new Random(numSeeds), seedRows, seedCols);
+      SeedGrid grid = new SeedGrid(seedRows, seedCols, 20, 20);
+      // a seed on the same pixel as an earlier one would be nearest to no pixel
+      Set<Integer> tiles = new HashSet<>();
+      for (int i = 0; i < 20; i++) {
+        for (int j = 0; j < 20; j++) {
+          tiles.add(grid.nearest(i, j));
+        }
+      }
+      assertEquals(numSeeds, tiles.size());
+    }
+  }
+
+  @Test
+  public void testRandomMosaicAsManySeedsAsPixels() {
+    // every pixel is its own seed, so every pixel keeps its color
+    assertArrayEquals(this.image.getImage(), new Mosaic(3).apply(image, 16).getImage());
+  }
+
+  @Test
+  public void testJitteredMosaicAsManySeedsAsPixels() {
+    // every pixel is its own seed, so every pixel keeps its color
+    assertArrayEquals(this.image.getImage(),
+        new Mosaic(new JitteredGridSeedStrategy(), 3).apply(image, 16).getImage());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSeedStrategyTooManySeeds() {
+    new RandomSeedStrategy().placeSeeds(2, 2, 5, new Random(), new int[5], new int[5]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSeedStrategyNullRandom() {
+    new JitteredGridSeedStrategy().placeSeeds(2, 2, 1, null, new int[1], new int[1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMosaicNullStrategy() {
+    new Mosaic(null, 1);
+  }
+
+  @Test
+  public void testMosaicCurrentUsesGivenMosaic() {
+    ILayerModel model = new LayerModel();
+    model.createImageLayer("first");
+    model.loadLayer(this.image);
+    model.mosaicCurrent(new Mosaic(new JitteredGridSeedStrategy(), 5), 3);
+    assertEquals(new Mosaic(new JitteredGridSeedStrategy(), 5).apply(this.image, 3),
+        model.getCurrentLayer().getImage());
+  }
+
+  @Test
+  public void testMosaicScriptWithRngSeed() {
+    ILayerModel model = new LayerModel();
+    new SimpleIImageProcessingController(model,
+        new StringReader("create first load res/check.ppm mosaic 3 42 q"), new StringBuilder())
+        .processImage();
+    assertEquals(new Mosaic(42).apply(new Image("res/check.ppm"), 3),
+        model.getCurrentLayer().getImage());
+  }
+
+  @Test
+  public void testMosaicScriptWithStrategy() {
+    ILayerModel model = new LayerModel();
+    new SimpleIImageProcessingController(model, new StringReader(
+        "create first load res/check.ppm mosaic 5 42 jittered q"), new StringBuilder())
+        .processImage();
+    assertEquals(new Mosaic(new JitteredGridSeedStrategy(), 42).apply(
+        new Image("res/check.ppm"), 5), model.getCurrentLayer().getImage());
+
+    model = new LayerModel();
+    new SimpleIImageProcessingController(model, new StringReader(
+        "create first load res/check.ppm mosaic 5 42 RANDOM q"), new StringBuilder())
+        .processImage();
+    assertEquals(new Mosaic(42).apply(new Image("res/check.ppm"), 5),
+        model.getCurrentLayer().getImage());
+
+    // the strategy may be given without a random number seed
+    Appendable log = new StringBuilder();
+    new SimpleIImageProcessingController(new LayerModel(), new StringReader(
+        "create first load res/check.ppm mosaic 5 jittered q"), log).processImage();
+    assertTrue(log.toString(), !log.toString().contains("Invalid"));
+  }
 }
@@ -0,0 +1,98 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Scanner;
+import model.exports.PPMBinaryExport;
+import model.image.Image;
+import utils.PPMReader;
+
+/**
+ * A benchmark that compares reading a large plain PPM file with {@link PPMReader} to reading it
+ * line by line with a {@link Scanner}, as images used to be read, and checks that both read the
+ * same pixels. It then writes and reads the same image in the binary format. Run it as {@code java PPMReadBenchmark [width] [height]}.
+ */
+public final class PPMReadBenchmark {
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the width and height of the image (default 3000 x 2000, about 60 MB)
+   * @throws IOException if the temporary file cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    File file = File.createTempFile("benchmark", ".ppm");
+    file.deleteOnExit();
+    Random rand = new Random(42);
+    try (PrintWriter out = new PrintWriter(file, "US-ASCII")) {
+      out.printf("P3%n# benchmark image%n%d %d%n255%n", width, height);
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          out.print(rand.nextInt(256) + " " + rand.nextInt(256) + " " + rand.nextInt(256) + " ");
+        }
+        out.println();
+      }
+    }
+    System.out.printf("%d x %d image, %.1f MB%n", width, height, file.length() / 1e6);
+
+    long start = System.nanoTime();
+    int[] scanned = readWithScanner(file.getPath());
+    long scannerTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    int[] read = PPMReader.read(file.getPath()).getPixels();
+    long readerTime = System.nanoTime() - start;
+    if (!Arrays.equals(scanned, read)) {
+      throw new IllegalStateException("The readers disagree");
+    }
+    System.out.printf("scanner: %.1f ms  reader: %.1f ms  speedup %.1fx%n", scannerTime / 1e6,
+        readerTime / 1e6, (double) scannerTime / readerTime);
+
+    File binary = File.createTempFile("benchmark", ".ppm");
+    binary.deleteOnExit();
+    String name = binary.getPath().substring(0, binary.getPath().length() - ".ppm".length());
+    start = System.nanoTime();
+    new PPMBinaryExport(new Image(read, width, height, file.getPath()), name).export();
+    long writeTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    int[] readBinary = PPMReader.read(binary.getPath()).getPixels();
+    long binaryTime = System.nanoTime() - start;
+    if (!Arrays.equals(read, readBinary)) {
+      throw new IllegalStateException("The binary file does not hold the same pixels");
+    }
+    System.out.printf("binary (P6, %.1f MB): write %.1f ms  read %.1f ms%n", binary.length() / 1e6,
+        writeTime / 1e6, binaryTime / 1e6);
+  }
+
+  /**
+   * Reads the given file the way images used to be read, into packed pixels.
+   *
+   * @param filename the path of the file
+   * @return the packed pixels of the image
+   * @throws IOException if the file cannot be read
+   */
+  private static int[] readWithScanner(String filename) throws IOException {
+    StringBuilder builder = new StringBuilder();
+    try (Scanner sc = new Scanner(new FileInputStream(filename))) {
+      while (sc.hasNextLine()) {
+        String s = sc.nextLine();
+        if (s.charAt(0) != '#') {
+          builder.append(s).append(System.lineSeparator());
+        }
+      }
+    }
+    Scanner sc = new Scanner(builder.toString());
+    sc.next();
+    int width = sc.nextInt();
+    int height = sc.nextInt();
+    sc.nextInt();
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (sc.nextInt() << 16) | (sc.nextInt() << 8) | sc.nextInt();
+    }
+    return pixels;
+  }
+}
@@ -0,0 +1,260 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import controller.SaveSingleCommand;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
+import model.image.IImage;
+import model.image.IPixel;
+import model.image.Image;
+import model.image.Pixel;
+import model.exports.PPMBinaryExport;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
+import org.junit.Test;
+import utils.ImageUtil;
+import utils.PPMReader;
+
+/**
+ * Tests for the {@link PPMReader} class, which reads plain PPM files into packed pixels.
+ */
+public class PPMReaderTest {
+
+  /**
+   * Reads the given text as a PPM file.
+   *
+   * @param text the contents of the file
+   * @return the reader holding the image
+   */
+  private PPMReader read(String text) {
+    return PPMReader.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)),
+        "test.ppm");
+  }
+
+  /**
+   * Checks that reading the given text fails with a message that contains the given text.
+   *
+   * @param text     the contents of the file
+   * @param expected the text the error message should contain
+   */
+  private void assertMalformed(String text, String expected) {
+    try {
+      read(text);
+      fail("Expected the file to be malformed.");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(expected));
+    }
+  }
+
+  @Test
+  public void testReadSimpleImage() {
+    PPMReader reader = read("P3\n3 2\n255\n255 0 0  0 255 0  0 0 255\n1 2 3 4 5 6 7 8 9\n");
+    assertEquals(3, reader.getWidth());
+    assertEquals(2, reader.getHeight());
+    assertArrayEquals(new int[]{0xFF0000, 0x00FF00, 0x0000FF, 0x010203, 0x040506, 0x070809},
+        reader.getPixels());
+  }
+
+  @Test
+  public void testReadCommentsAnywhere() {
+    PPMReader reader = read("# made by hand\nP3# magic\n1 # width\n#height next\n2\n255"
+        + "#max\n10 20 30 # first pixel\n# second pixel\n40\t50\r\n60");
+    assertEquals(1, reader.getWidth());
+    assertEquals(2, reader.getHeight());
+    assertArrayEquals(new int[]{0x0A141E, 0x28323C}, reader.getPixels());
+  }
+
+  @Test
+  public void testReadScalesMaxValue() {
+    PPMReader reader = read("P3 2 1 15 15 0 7 0 15 8");
+    assertArrayEquals(new int[]{0xFF0077, 0x00FF88}, reader.getPixels());
+  }
+
+  @Test
+  public void testReadFileMatchesImage() {
+    IImage image = new Image("res/check.ppm");
+    PPMReader reader = PPMReader.read("res/check.ppm");
+    assertEquals(16, image.getWidth());
+    assertEquals(16, image.getHeight());
+    // the first value after the maximum color value is the red of the first pixel
+    assertEquals(0x313131, image.getRGB(0, 0));
+    assertArrayEquals(reader.getPixels(), image.getPixels(new int[256]));
+    IPixel[][] grid = ImageUtil.readPPM("res/check.ppm");
+    assertEquals(new Pixel(0, 0, 49, 49, 49), grid[0][0]);
+  }
+
+  @Test
+  public void testMalformedMagicNumber() {
+    assertMalformed("P5 1 1 255 0 0 0", "line 1, column 1: PPM file should begin with P3 or P6");
+  }
+
+  @Test
+  public void testMalformedValuePosition() {
+    assertMalformed("P3\n2 1\n255\n1 2 3\n4 x5 6\n", "line 5, column 3: expected green value");
+  }
+
+  @Test
+  public void testMalformedValueTooLarge() {
+    assertMalformed("P3 1 1 255\n0 256 0", "line 2, column 3: green value is larger than 255");
+  }
+
+  @Test
+  public void testMalformedTruncated() {
+    assertMalformed("P3 2 2 255\n0 0 0\n1 1 1\n2 2", "expected blue value but the file ended");
+  }
+
+  @Test
+  public void testMalformedNegative() {
+    assertMalformed("P3 -1 1 255", "expected width but found '-'");
+  }
+
+  @Test
+  public void testMalformedZeroWidth() {
+    assertMalformed("P3 0 1 255", "the width and height must be positive");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadMissingFile() {
+    PPMReader.read("res/doesNotExist.ppm");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadNullFilename() {
+    PPMReader.read((String) null);
+  }
+
+  /**
+   * Reads the given bytes as a PPM file.
+   *
+   * @param header the header of the file
+   * @param data   the bytes after the header
+   * @return the reader holding the image
+   */
+  private PPMReader readBinary(String header, int... data) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(header.getBytes(StandardCharsets.US_ASCII), 0, header.length());
+    for (int b : data) {
+      bytes.write(b);
+    }
+    return PPMReader.read(new ByteArrayInputStream(bytes.toByteArray()), "test.ppm");
+  }
+
+  @Test
+  public void testReadBinary() {
+    PPMReader reader = readBinary("P6\n# binary\n2 1\n255\n", 255, 0, 10, 0, 200, 35);
+    assertTrue(reader.isBinary());
+    assertEquals(2, reader.getWidth());
+    assertEquals(1, reader.getHeight());
+    assertArrayEquals(new int[]{0xFF000A, 0x00C823}, reader.getPixels());
+  }
+
+  @Test
+  public void testReadBinaryWhitespaceValueAfterHeader() {
+    // the pixels start right after a single whitespace, even if they look like whitespace
+    PPMReader reader = readBinary("P6 1 1 255 ", '\n', ' ', '#');
+    assertArrayEquals(new int[]{0x0A2023}, reader.getPixels());
+  }
+
+  @Test
+  public void testReadBinaryTwoBytesPerValue() {
+    PPMReader reader = readBinary("P6 1 1 65535\n", 0xFF, 0xFF, 0x80, 0x00, 0x00, 0x00);
+    assertArrayEquals(new int[]{0xFF8000}, reader.getPixels());
+  }
+
+  @Test
+  public void testReadBinaryTruncated() {
+    try {
+      readBinary("P6 2 2 255\n", 1, 2, 3, 4, 5, 6, 7);
+      fail("Expected the file to be malformed.");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("row 1 of 2 rows"));
+    }
+  }
+
+  @Test
+  public void testBinaryExportRoundTrip() throws IOException {
+    File file = File.createTempFile("binary", ".ppm");
+    file.deleteOnExit();
+    String name = file.getPath().substring(0, file.getPath().length() - 4);
+    IImage image = new Image("res/puppy.ppm");
+    new PPMBinaryExport(image, name).export();
+
+    assertTrue(PPMReader.isBinary(file.getPath()));
+    assertFalse(PPMReader.isBinary("res/puppy.ppm"));
+    assertEquals(15 + image.getWidth() * image.getHeight() * 3, file.length());
+    assertEquals(new Image(image.getPixels(new int[image.getWidth() * image.getHeight()]),
+        image.getWidth(), image.getHeight(), file.getPath()), new Image(file.getPath()));
+  }
+
+  @Test
+  public void testLargeBinaryExportMovedOverExistingFile() throws IOException {
+    File dir = Files.createTempDirectory("large").toFile();
+    dir.deleteOnExit();
+    // large enough to span many buffers when written and to be mapped when read
+    int width = 700;
+    int height = 600;
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i * 40503 & 0xFFFFFF;
+    }
+    String written = new File(dir, "written").getPath();
+    new PPMBinaryExport(new Image(pixels, width, height, "large.ppm"), written).export();
+    File moved = new File(dir, "moved.ppm");
+    Files.write(moved.toPath(), new byte[] {'P'});
+
+    // the written file is not held open or mapped, so it can replace another one at once
+    Files.move(Paths.get(written + ".ppm"), moved.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    moved.deleteOnExit();
+
+    assertArrayEquals(pixels, PPMReader.read(moved.getPath()).getPixels());
+  }
+
+  @Test
+  public void testSaveKeepsOrChoosesFormat() throws IOException {
+    File dir = Files.createTempDirectory("save").toFile();
+    dir.deleteOnExit();
+    ILayerModel model = new LayerModel();
+    model.createImageLayer("first");
+    model.loadLayer(new Image("res/check.ppm"));
+
+    String binary = new File(dir, "binary.ppm").getPath();
+    new SaveSingleCommand(binary, true).runCommand(model);
+    String plain = new File(dir, "plain.ppm").getPath();
+    new SaveSingleCommand(plain).runCommand(model);
+    assertTrue(PPMReader.isBinary(binary));
+    assertFalse(PPMReader.isBinary(plain));
+
+    // an image loaded from a binary file is saved as binary unless told otherwise
+    model.loadLayer(new Image(binary));
+    String kept = new File(dir, "kept.ppm").getPath();
+    new SaveSingleCommand(kept).runCommand(model);
+    assertTrue(PPMReader.isBinary(kept));
+    assertArrayEquals(PPMReader.read(plain).getPixels(), PPMReader.read(kept).getPixels());
+    for (File f : dir.listFiles()) {
+      f.deleteOnExit();
+    }
+  }
+
+  @Test
+  public void testReadHeaderOnly() {
+    PPMReader reader = PPMReader.readHeader("res/check.ppm");
+    assertFalse(reader.isBinary());
+    assertEquals(16, reader.getWidth());
+    assertEquals(16, reader.getHeight());
+    assertEquals(null, reader.getPixels());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadHeaderMissingFile() {
+    PPMReader.readHeader("res/missing.ppm");
+  }
+}
@@ -0,0 +1,84 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import model.exports.PPMExportFilename;
+import model.image.IImage;
+import model.image.Image;
+
+/**
+ * A benchmark that measures the throughput, in MB/s, of exporting a large image to a plain PPM file
+ * with {@link PPMExportFilename}, compared to writing every pixel to an unbuffered
+ * {@link FileWriter}, as images used to be exported, and checks that both files are identical. Run
+ * it as {@code java PPMWriteBenchmark [width] [height]}.
+ */
+public final class PPMWriteBenchmark {
+
+  private static final int RUNS = 3;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the width and height of the image (default 4000 x 3000, 12 MP)
+   * @throws IOException if the temporary files cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+    Random rand = new Random(42);
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = rand.nextInt(0x1000000);
+    }
+    IImage image = new Image(pixels, width, height, "benchmark");
+
+    File legacy = File.createTempFile("legacy", ".ppm");
+    File buffered = File.createTempFile("buffered", ".ppm");
+    legacy.deleteOnExit();
+    buffered.deleteOnExit();
+    String name = buffered.getPath().substring(0, buffered.getPath().length() - ".ppm".length());
+
+    long bestLegacy = Long.MAX_VALUE;
+    long bestBuffered = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      long start = System.nanoTime();
+      writePixelByPixel(image, legacy);
+      bestLegacy = Math.min(bestLegacy, System.nanoTime() - start);
+      start = System.nanoTime();
+      new PPMExportFilename(image, name).export();
+      bestBuffered = Math.min(bestBuffered, System.nanoTime() - start);
+    }
+    if (!Arrays.equals(Files.readAllBytes(legacy.toPath()), Files.readAllBytes(buffered.toPath()))) {
+      throw new IllegalStateException("The exported files are not identical");
+    }
+
+    double megabytes = buffered.length() / 1e6;
+    System.out.printf("%d x %d image, %.1f MB%n", width, height, megabytes);
+    System.out.printf("pixel by pixel: %7.1f ms %7.1f MB/s%n", bestLegacy / 1e6,
+        megabytes / (bestLegacy / 1e9));
+    System.out.printf("buffered:       %7.1f ms %7.1f MB/s%n", bestBuffered / 1e6,
+        megabytes / (bestBuffered / 1e9));
+  }
+
+  /**
+   * Writes the given image to the given file the way images used to be exported.
+   *
+   * @param image the image to write
+   * @param file  the file to write to
+   * @throws IOException if the file cannot be written
+   */
+  private static void writePixelByPixel(IImage image, File file) throws IOException {
+    try (Writer wr = new FileWriter(file)) {
+      wr.write(String.format("P3 %d %d %d\n", image.getWidth(), image.getHeight(), 255));
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          int rgb = image.getRGB(i, j);
+          wr.write(((rgb >> 16) & 0xFF) + " " + ((rgb >> 8) & 0xFF) + " " + (rgb & 0xFF) + " ");
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import model.image.IImage;
+import model.image.Image;
+import utils.RasterUtils;
+
+/**
+ * A benchmark that compares converting a large {@code TYPE_3BYTE_BGR} buffered image, which is what
+ * JPEG files are read as, to packed pixels with {@link RasterUtils} against reading every pixel
+ * through the color model with {@code getRGB} and {@link Color}, as images used to be imported, and
+ * converting an image back to a {@code TYPE_INT_RGB} buffered image against {@code setRGB} one row
+ * at a time, as images used to be exported and displayed. Run it as
+ * {@code java RasterBenchmark [width] [height]}.
+ */
+public final class RasterBenchmark {
+
+  private static final int RUNS = 5;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the width and height of the image (default 4000 x 3000, 12 MP)
+   */
+  public static void main(String[] args) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+    Random rand = new Random(42);
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = rand.nextInt(0x1000000);
+    }
+    IImage image = new Image(pixels, width, height, "benchmark");
+    BufferedImage bgr = RasterUtils.toBufferedImage(image, BufferedImage.TYPE_3BYTE_BGR);
+
+    long bestLegacyRead = Long.MAX_VALUE;
+    long bestRasterRead = Long.MAX_VALUE;
+    long bestLegacyWrite = Long.MAX_VALUE;
+    long bestRasterWrite = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      long start = System.nanoTime();
+      int[] legacy = readPixelByPixel(bgr);
+      bestLegacyRead = Math.min(bestLegacyRead, System.nanoTime() - start);
+      start = System.nanoTime();
+      int[] raster = RasterUtils.toPackedPixels(bgr);
+      bestRasterRead = Math.min(bestRasterRead, System.nanoTime() - start);
+      if (!Arrays.equals(legacy, raster) || !Arrays.equals(pixels, raster)) {
+        throw new IllegalStateException("The pixels read are not identical");
+      }
+
+      start = System.nanoTime();
+      BufferedImage legacyImage = writeRowByRow(image);
+      bestLegacyWrite = Math.min(bestLegacyWrite, System.nanoTime() - start);
+      start = System.nanoTime();
+      BufferedImage rasterImage = RasterUtils.toBufferedImage(image);
+      bestRasterWrite = Math.min(bestRasterWrite, System.nanoTime() - start);
+      if (!Arrays.equals(RasterUtils.toPackedPixels(legacyImage),
+          RasterUtils.toPackedPixels(rasterImage))) {
+        throw new IllegalStateException("The buffered images are not identical");
+      }
+    }
+
+    System.out.printf("%d x %d image%n", width, height);
+    System.out.printf("read, getRGB per pixel:   %7.1f ms%n", bestLegacyRead / 1e6);
+    System.out.printf("read, raster:             %7.1f ms%n", bestRasterRead / 1e6);
+    System.out.printf("write, setRGB per row:    %7.1f ms%n", bestLegacyWrite / 1e6);
+    System.out.printf("write, raster:            %7.1f ms%n", bestRasterWrite / 1e6);
+  }
+
+  /**
+   * Reads the pixels of the given buffered image the way images used to be imported.
+   *
+   * @param bufferedImage the buffered image to read
+   * @return the packed pixels of the buffered image
+   */
+  private static int[] readPixelByPixel(BufferedImage bufferedImage) {
+    int width = bufferedImage.getWidth();
+    int[] pixels = new int[width * bufferedImage.getHeight()];
+    for (int i = 0; i < bufferedImage.getHeight(); i++) {
+      for (int j = 0; j < width; j++) {
+        Color color = new Color(bufferedImage.getRGB(j, i));
+        pixels[i * width + j] = color.getRed() << 16 | color.getGreen() << 8 | color.getBlue();
+      }
+    }
+    return pixels;
+  }
+
+  /**
+   * Converts the given image to a buffered image the way images used to be exported.
+   *
+   * @param image the image to convert
+   * @return the buffered image with the pixels of the image
+   */
+  private static BufferedImage writeRowByRow(IImage image) {
+    BufferedImage bufferedImage = new BufferedImage(image.getWidth(), image.getHeight(),
+        BufferedImage.TYPE_INT_RGB);
+    int[] row = new int[image.getWidth()];
+    for (int i = 0; i < image.getHeight(); i++) {
+      bufferedImage.setRGB(0, i, image.getWidth(), 1, image.getRow(i, row), 0, image.getWidth());
+    }
+    return bufferedImage;
+  }
+}
@@ -0,0 +1,83 @@
+import controller.SaveAllCommand;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import model.image.Image;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
+
+/**
+ * A benchmark that measures saving a project with many layers to a new directory, and then saving
+ * it again to the same directory after changing the image of a single layer, in which case only
+ * that layer is written again. Run it as {@code java SaveAllBenchmark [layers] [width] [height]}.
+ */
+public final class SaveAllBenchmark {
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of layers (default 30) and the width and height of their
+   *             images (default 1000 x 750)
+   * @throws IOException if the temporary directory cannot be created
+   */
+  public static void main(String[] args) throws IOException {
+    int numLayers = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+    int width = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int height = args.length > 2 ? Integer.parseInt(args[2]) : 750;
+    Random rand = new Random(42);
+    ILayerModel model = new LayerModel();
+    for (int i = 0; i < numLayers; i++) {
+      model.createImageLayer("layer" + i);
+      model.setCurrent("layer" + i);
+      model.loadLayer(new Image(randomPixels(rand, width * height), width, height,
+          "layer" + i + ".ppm"));
+    }
+
+    File dir = Files.createTempDirectory("saveall").resolve("project").toFile();
+    try {
+      long start = System.nanoTime();
+      new SaveAllCommand(dir.getPath()).runCommand(model);
+      long full = System.nanoTime() - start;
+
+      model.setCurrent("layer" + (numLayers / 2));
+      model.loadLayer(new Image(randomPixels(rand, width * height), width, height, "edited.ppm"));
+      start = System.nanoTime();
+      new SaveAllCommand(dir.getPath()).runCommand(model);
+      long incremental = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      new SaveAllCommand(dir.getPath()).runCommand(model);
+      long unchanged = System.nanoTime() - start;
+
+      System.out.printf("%d layers of %d x %d%n", numLayers, width, height);
+      System.out.printf("first save:              %8.1f ms%n", full / 1e6);
+      System.out.printf("save after one edit:     %8.1f ms%n", incremental / 1e6);
+      System.out.printf("save without changes:    %8.1f ms%n", unchanged / 1e6);
+    } finally {
+      File[] files = dir.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          file.delete();
+        }
+      }
+      dir.delete();
+      dir.getParentFile().delete();
+    }
+  }
+
+  /**
+   * Creates the given number of random pixels.
+   *
+   * @param rand      the random number generator to use
+   * @param numPixels the number of pixels
+   * @return the random packed pixels
+   */
+  private static int[] randomPixels(Random rand, int numPixels) {
+    int[] pixels = new int[numPixels];
+    for (int i = 0; i < numPixels; i++) {
+      pixels[i] = rand.nextInt(0x1000000);
+    }
+    return pixels;
+  }
+}
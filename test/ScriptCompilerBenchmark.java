@@ -0,0 +1,93 @@
+import controller.SimpleIImageProcessingController;
+import java.io.StringReader;
+import java.util.Random;
+import model.image.IImage;
+import model.image.Image;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
+
+/**
+ * A benchmark that runs the same script through a {@link SimpleIImageProcessingController} one
+ * command at a time and compiled. The script applies a chain of filters and color transformations
+ * to one layer, which a compiled script fuses into a single pass, and another chain to a layer it
+ * then removes, which a compiled script skips. Run it as
+ * {@code java ScriptCompilerBenchmark [size]}.
+ */
+public final class ScriptCompilerBenchmark {
+
+  private static final int RUNS = 5;
+  private static final String SCRIPT = "current photo blur sepia sharpen grayscale blur sharpen "
+      + "current scratch blur blur sharpen sepia remove scratch q";
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the width and height of the images (default 1024)
+   */
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+    Random random = new Random(22);
+    int[] pixels = new int[size * size];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt(0x1000000);
+    }
+    IImage image = new Image(pixels, size, size, "photo.ppm");
+
+    long eager = Long.MAX_VALUE;
+    long compiled = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      ILayerModel eagerModel = createModel(image);
+      long start = System.nanoTime();
+      runScript(eagerModel, false);
+      eager = Math.min(eager, System.nanoTime() - start);
+
+      ILayerModel compiledModel = createModel(image);
+      start = System.nanoTime();
+      runScript(compiledModel, true);
+      compiled = Math.min(compiled, System.nanoTime() - start);
+
+      if (!eagerModel.getLayers().get(0).getImage()
+          .equals(compiledModel.getLayers().get(0).getImage())) {
+        throw new IllegalStateException("The compiled script does not match the eager one");
+      }
+    }
+
+    System.out.printf("%dx%d images, best of %d runs%n", size, size, RUNS);
+    System.out.printf("one command at a time: %8.1f ms%n", eager / 1e6);
+    System.out.printf("compiled:              %8.1f ms%n", compiled / 1e6);
+  }
+
+  /**
+   * Creates a model with two layers that both hold the given image.
+   *
+   * @param image the image of the layers
+   * @return the model
+   */
+  private static ILayerModel createModel(IImage image) {
+    ILayerModel model = new LayerModel();
+    model.createImageLayer("photo");
+    model.loadLayer(image);
+    model.createImageLayer("scratch");
+    model.setCurrent("scratch");
+    model.loadLayer(image);
+    return model;
+  }
+
+  /**
+   * Runs the script of this benchmark on the given model, writing only errors.
+   *
+   * @param model    the model to run the script on
+   * @param compiled whether the script is compiled
+   */
+  private static void runScript(ILayerModel model, boolean compiled) {
+    StringBuilder out = new StringBuilder();
+    SimpleIImageProcessingController controller = new SimpleIImageProcessingController(model,
+        new StringReader(SCRIPT), out);
+    controller.setQuiet(true);
+    controller.setCompiled(compiled);
+    controller.processImage();
+    if (!out.toString().equals("The process has been quit.\n")) {
+      throw new IllegalStateException("The script failed: " + out);
+    }
+  }
+}
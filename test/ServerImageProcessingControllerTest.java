@@ -0,0 +1,246 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import controller.ClientImageProcessingController;
+import controller.ServerImageProcessingController;
+import controller.SimpleIImageProcessingController;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import model.layer.LayerModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Represents the test class for {@code ServerImageProcessingController} and
+ * {@code ClientImageProcessingController} to ensure that a script sent to a server gives the same
+ * output as the same script run on its own.
+ */
+public class ServerImageProcessingControllerTest {
+
+  private ServerImageProcessingController server;
+  private Thread serverThread;
+  private Path tokenDirectory;
+
+  @Before
+  public void initData() throws IOException {
+    this.tokenDirectory = Files.createTempDirectory("tokens");
+    this.server = new ServerImageProcessingController(0, 2, this.tokenDirectory);
+    this.serverThread = new Thread(this.server::processImage);
+    this.serverThread.start();
+  }
+
+  @After
+  public void stopServer() throws InterruptedException {
+    this.server.stop();
+    this.serverThread.join(10000);
+    this.tokenDirectory.toFile().delete();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testServerExceptionInvalidPort() {
+    new ServerImageProcessingController(70000, 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testClientExceptionNullReadable() {
+    new ClientImageProcessingController(this.server.getPort(), null, new StringBuilder());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testClientExceptionSessionWithWhitespace() {
+    new ClientImageProcessingController(this.server.getPort(), new StringReader("q"),
+        new StringBuilder()).setSession("two words");
+  }
+
+  @Test
+  public void testScriptMatchesLocalScript() {
+    String script = "create first load res/check.ppm blur sepia remove second state q";
+    StringBuilder local = new StringBuilder();
+    SimpleIImageProcessingController controller = new SimpleIImageProcessingController(
+        new LayerModel(), new StringReader(script), local);
+    // the server resolves the paths of the script against the directory of the client, so the
+    // layers name their files by absolute paths
+    controller.setWorkingDirectory(Paths.get("").toAbsolutePath());
+    controller.processImage();
+
+    assertEquals(local.toString(), this.send(script, null, false, false));
+  }
+
+  @Test
+  public void testQuietCompiledScript() {
+    assertEquals("Plan of steps 4 to 6:\n"
+            + "  steps 4, 5: blur, sepia fused into one pass over layer first\n"
+            + "  step 6: q\n"
+            + "The process has been quit.\n",
+        this.send("create first load res/check.ppm explain blur sepia q", null, true, true));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testServerExceptionNegativeHistoryBudget() {
+    this.server.setHistoryBudget(-1);
+  }
+
+  @Test
+  public void testHistoryBudget() {
+    assertEquals("The process has been quit.\n", this.send("create first undo q", null, true,
+        false));
+
+    this.server.setHistoryBudget(0);
+    assertEquals("Invalid command! Try again! Nothing to undo!\n"
+        + "The process has been quit.\n", this.send("create first undo q", null, true, false));
+  }
+
+  @Test
+  public void testSessionKeepsLayersBetweenScripts() {
+    this.send("create first q", "one", true, false);
+    this.send("create second q", "two", true, false);
+
+    assertEquals("Layer #1, Name of Layer: first, No Image Associated With This Layer,"
+        + " Visibility: true\n"
+        + "Number of valid layers created: 1\n"
+        + "Current Layer: Name of Layer: first, No Image Associated With This Layer,"
+        + " Visibility: true\n"
+        + "The process has been quit.\n", this.send("state q", "one", true, false));
+    assertEquals("Number of valid layers created: 0\nCurrent not yet set.\n"
+        + "The process has been quit.\n", this.send("state q", null, true, false));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedSessionIsForgotten() {
+    this.send("create first q", "one", true, false);
+    this.send("create first q", "two", true, false);
+    this.send("create first q", "three", true, false);
+
+    assertEquals("The process has been quit.\n", this.send("create first q", "one", true, false));
+    assertEquals("Invalid command! Try again! Layer already exists!\n"
+        + "The process has been quit.\n", this.send("create first q", "three", true, false));
+  }
+
+  @Test
+  public void testScriptWithoutQuit() {
+    assertEquals("Error: Readable has failed!\n", this.send("create first", null, true, false));
+  }
+
+  @Test
+  public void testManyClientsAtOnce() throws InterruptedException {
+    Thread[] clients = new Thread[8];
+    String[] outputs = new String[clients.length];
+    for (int i = 0; i < clients.length; i++) {
+      int client = i;
+      clients[i] = new Thread(() -> outputs[client] = this.send(
+          "create first load res/check.ppm sharpen q", null, true, false));
+      clients[i].start();
+    }
+    for (Thread client : clients) {
+      client.join(10000);
+    }
+    for (String output : outputs) {
+      assertEquals("The process has been quit.\n", output);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testClientWithoutServer() throws InterruptedException {
+    int port = this.server.getPort();
+    this.stopServer();
+    ClientImageProcessingController client = new ClientImageProcessingController(port,
+        new StringReader("q"), new StringBuilder());
+    client.setTokenDirectory(this.tokenDirectory);
+    client.processImage();
+  }
+
+  @Test
+  public void testTokenOnlyReadableByOwner() throws IOException {
+    Path token = this.tokenDirectory.resolve("server-" + this.server.getPort() + ".token");
+
+    assertEquals(64, Files.readAllBytes(token).length);
+    assertEquals("rw-------",
+        PosixFilePermissions.toString(Files.getPosixFilePermissions(token)));
+  }
+
+  @Test
+  public void testScriptWithoutTokenRefused() throws IOException, InterruptedException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), this.server.getPort())) {
+      socket.getOutputStream().write("-token wrong -stop\ncreate first q"
+          .getBytes(StandardCharsets.UTF_8));
+      socket.shutdownOutput();
+      InputStream in = socket.getInputStream();
+
+      assertEquals("Error: The script was not sent with the token of this server.\n",
+          new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    // the script did not stop the server either
+    this.serverThread.join(500);
+    assertTrue(this.serverThread.isAlive());
+    assertEquals("The process has been quit.\n", this.send("q", null, true, false));
+  }
+
+  @Test
+  public void testRelativePathsResolvedAgainstClientDirectory() throws IOException {
+    Path directory = Files.createTempDirectory("client");
+    File check = new File("res/check.ppm");
+    StringBuilder out = new StringBuilder();
+    ClientImageProcessingController client = new ClientImageProcessingController(
+        this.server.getPort(), new StringReader("create first load " + check.getAbsolutePath()
+        + " saveflat out.ppm q"), out);
+    client.setTokenDirectory(this.tokenDirectory);
+    client.setWorkingDirectory(directory);
+    client.setQuiet(true);
+    client.processImage();
+
+    try {
+      assertEquals("The process has been quit.\n", out.toString());
+      assertTrue(Files.exists(directory.resolve("out.ppm")));
+      assertFalse(new File("out.ppm").exists());
+    } finally {
+      Files.deleteIfExists(directory.resolve("out.ppm"));
+      Files.delete(directory);
+    }
+  }
+
+  @Test
+  public void testStopFromScript() throws InterruptedException {
+    StringBuilder out = new StringBuilder();
+    ClientImageProcessingController client = new ClientImageProcessingController(
+        this.server.getPort(), new StringReader("q"), out);
+    client.setTokenDirectory(this.tokenDirectory);
+    client.setStopServer(true);
+    client.processImage();
+    this.serverThread.join(10000);
+
+    assertEquals("The process has been quit.\n", out.toString());
+    assertFalse(this.serverThread.isAlive());
+  }
+
+  /**
+   * Sends the given script to the server of this test.
+   *
+   * @param script   the script
+   * @param session  the session of the script, or null for none
+   * @param quiet    whether the state is only written on demand
+   * @param compiled whether the script is planned before it runs
+   * @return what the script wrote
+   */
+  private String send(String script, String session, boolean quiet, boolean compiled) {
+    StringBuilder out = new StringBuilder();
+    ClientImageProcessingController client = new ClientImageProcessingController(
+        this.server.getPort(), new StringReader(script), out);
+    client.setTokenDirectory(this.tokenDirectory);
+    client.setSession(session);
+    client.setQuiet(quiet);
+    client.setCompiled(compiled);
+    client.processImage();
+    return out.toString();
+  }
+}
@@ -0,0 +1,128 @@
+import controller.SimpleIImageProcessingController;
+import java.io.StringReader;
+import model.image.Image;
+import model.layer.ILayer;
+import model.layer.ILayerModel;
+import model.layer.LayerModel;
+
+/**
+ * A benchmark that runs a script with many layers through a
+ * {@link SimpleIImageProcessingController} and measures how long it takes to write the state of the
+ * layers after every command, compared to building the state from copies of the layers as the
+ * controller used to, and to quiet mode, which only writes the state once at the end. Run it as {@code java StateRenderingBenchmark [layers]}.
+ */
+public final class StateRenderingBenchmark {
+
+  private static final int RUNS = 3;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of layers (default 300)
+   */
+  public static void main(String[] args) {
+    int numLayers = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+    StringBuilder script = new StringBuilder();
+    for (int i = 0; i < numLayers; i++) {
+      script.append("create frame").append(i).append(" load res/check.ppm\n");
+    }
+    for (int i = 0; i < numLayers; i++) {
+      script.append("current frame").append(i).append(" invisible frame").append(i)
+          .append(" visible frame").append(i).append('\n');
+    }
+    int numCommands = 5 * numLayers;
+
+    long copies = Long.MAX_VALUE;
+    long verbose = Long.MAX_VALUE;
+    long quiet = Long.MAX_VALUE;
+    long verboseLength = 0;
+    for (int run = 0; run < RUNS; run++) {
+      // the state built the way the controller used to, from the layers copied for every line
+      StringBuilder out = new StringBuilder();
+      LayerModel model = new LayerModel(0);
+      long start = System.nanoTime();
+      for (String line : script.toString().split("\n")) {
+        String[] words = line.split(" ");
+        for (int i = 0; i < words.length; i += 2) {
+          runCommand(model, words[i], words[i + 1]);
+          out.append(copiedLayerState(model));
+        }
+      }
+      copies = Math.min(copies, System.nanoTime() - start);
+      verboseLength = out.length();
+
+      out = new StringBuilder();
+      start = System.nanoTime();
+      new SimpleIImageProcessingController(new LayerModel(0),
+          new StringReader(script + "q"), out).processImage();
+      verbose = Math.min(verbose, System.nanoTime() - start);
+      if (out.length() != verboseLength + "The process has been quit.\n".length()) {
+        throw new IllegalStateException("The rendered state does not match the copied state");
+      }
+
+      out = new StringBuilder();
+      start = System.nanoTime();
+      SimpleIImageProcessingController controller = new SimpleIImageProcessingController(
+          new LayerModel(0), new StringReader(script + "state q"), out);
+      controller.setQuiet(true);
+      controller.processImage();
+      quiet = Math.min(quiet, System.nanoTime() - start);
+    }
+
+    System.out.printf("%d layers, %d commands, %.1f MB of state%n", numLayers, numCommands,
+        verboseLength / 1e6);
+    System.out.printf("state from copied layers: %8.1f ms%n", copies / 1e6);
+    System.out.printf("state from metadata:      %8.1f ms%n", verbose / 1e6);
+    System.out.printf("quiet:                    %8.1f ms%n", quiet / 1e6);
+  }
+
+  /**
+   * Runs one command of the script directly on the given model.
+   *
+   * @param model    the model to run the command on
+   * @param command  the name of the command
+   * @param argument the argument of the command
+   */
+  private static void runCommand(ILayerModel model, String command, String argument) {
+    switch (command) {
+      case "create":
+        model.createImageLayer(argument);
+        break;
+      case "load":
+        model.loadLayer(new Image(argument));
+        break;
+      case "current":
+        model.setCurrent(argument);
+        break;
+      case "invisible":
+        model.makeLayerInvisible(argument);
+        break;
+      default:
+        model.makeLayerVisible(argument);
+        break;
+    }
+  }
+
+  /**
+   * Builds the state of the layers the way the controller used to, copying the layers for every
+   * line.
+   *
+   * @param model the model to describe
+   * @return the state of the layers
+   */
+  private static String copiedLayerState(ILayerModel model) {
+    StringBuilder newString = new StringBuilder();
+    for (int i = 0; i < model.getLayers().size(); i++) {
+      newString.append("Layer #").append(i + 1).append(", ")
+          .append(model.getLayers().get(i).toString()).append("\n");
+    }
+    try {
+      ILayer current = model.getCurrentLayer();
+      return newString + "Number of valid layers created: " + model.getLayers().size()
+          + "\nCurrent Layer: " + current + "\n";
+    } catch (IllegalArgumentException e) {
+      return newString + "Number of valid layers created: " + model.getLayers().size()
+          + "\nCurrent not yet set.\n";
+    }
+  }
+}
@@ -0,0 +1,102 @@
+import java.util.Arrays;
+import java.util.Random;
+import model.color.Grayscale;
+import model.color.Sepia;
+import model.filter.Blur;
+import model.image.IImage;
+import model.image.Image;
+import model.layer.LayerModel;
+import model.mosaic.Mosaic;
+
+/**
+ * A benchmark that measures how much memory the undo history of a {@link LayerModel} takes for each
+ * step of editing a large image, compared to keeping a full copy of the image that was replaced,
+ * and how long undoing every step takes. The image is a smooth gradient with some noise, like a
+ * photo. Run it as {@code java UndoHistoryBenchmark [width] [height]}.
+ */
+public final class UndoHistoryBenchmark {
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the width and height of the image (default 3840 x 2160)
+   */
+  public static void main(String[] args) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 3840;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 2160;
+    Random rand = new Random(42);
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int red = Math.min(255, j * 255 / width + rand.nextInt(8));
+        int green = Math.min(255, i * 255 / height + rand.nextInt(8));
+        int blue = Math.min(255, (i + j) * 255 / (width + height) + rand.nextInt(8));
+        pixels[i * width + j] = red << 16 | green << 8 | blue;
+      }
+    }
+    IImage photo = new Image(pixels, width, height, "photo.ppm");
+    int[] touchedUp = photo.getPixels(new int[width * height]);
+    for (int i = height / 3; i < height / 3 + 100; i++) {
+      for (int j = width / 3; j < width / 3 + 100; j++) {
+        touchedUp[i * width + j] = 0xFF0000;
+      }
+    }
+
+    LayerModel model = new LayerModel(Long.MAX_VALUE);
+    model.createImageLayer("photo");
+    model.createImageLayer("copy");
+    model.setCurrent("photo");
+    model.loadLayer(photo);
+    long fullCopy = 4L * width * height;
+    System.out.printf("%d x %d image, a full copy takes %.1f MB%n", width, height, fullCopy / 1e6);
+    System.out.println("step                  history     time");
+
+    IImage[] images = new IImage[8];
+    int steps = 0;
+    images[steps++] = model.getCurrentLayer().getImage();
+    step(model, "retouch 100 x 100", () -> model.loadLayer(
+        new Image(touchedUp, width, height, "photo.ppm")));
+    images[steps++] = model.getCurrentLayer().getImage();
+    step(model, "sepia", () -> model.colorTransformCurrent(new Sepia()));
+    images[steps++] = model.getCurrentLayer().getImage();
+    step(model, "grayscale", () -> model.colorTransformCurrent(new Grayscale()));
+    images[steps++] = model.getCurrentLayer().getImage();
+    step(model, "blur", () -> model.filterCurrent(new Blur()));
+    images[steps++] = model.getCurrentLayer().getImage();
+    step(model, "mosaic 2000", () -> model.mosaicCurrent(new Mosaic(42), 2000));
+    images[steps++] = model.getCurrentLayer().getImage();
+    step(model, "invisible", () -> model.makeLayerInvisible("copy"));
+    step(model, "remove layer", () -> model.removeImageLayer("photo"));
+    System.out.printf("total                 %7.1f MB  (%.1f MB as full copies)%n",
+        model.getHistorySizeInBytes() / 1e6, steps * fullCopy / 1e6);
+
+    long start = System.nanoTime();
+    model.undo();
+    model.undo();
+    for (int i = steps - 2; i >= 0; i--) {
+      model.undo();
+      if (!Arrays.equals(images[i].getPixels(new int[width * height]),
+          model.getCurrentLayer().getImage().getPixels(new int[width * height]))) {
+        throw new IllegalStateException("Undo did not restore the image of step " + i);
+      }
+    }
+    System.out.printf("undoing every step: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+  }
+
+  /**
+   * Runs the given step and prints how much the history grew and how long the step took,
+   * including recording it.
+   *
+   * @param model the model the step changes
+   * @param name  the name of the step
+   * @param step  the step to run
+   */
+  private static void step(LayerModel model, String name, Runnable step) {
+    long before = model.getHistorySizeInBytes();
+    long start = System.nanoTime();
+    step.run();
+    long time = System.nanoTime() - start;
+    System.out.printf("%-20s %8.3f MB %6.0f ms%n", name,
+        (model.getHistorySizeInBytes() - before) / 1e6, time / 1e6);
+  }
+}